@@ -7,13 +7,43 @@ import org.kohsuke.args4j.ParserProperties;
 
 import de.jsilbereisen.perfumator.engine.DetectionEngine;
 import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.corpus.CorpusAnalyser;
+import de.jsilbereisen.perfumator.engine.corpus.CorpusManifest;
+import de.jsilbereisen.perfumator.engine.registry.PerfumeRegistry;
+import de.jsilbereisen.perfumator.engine.registry.PerfumeSelection;
+import de.jsilbereisen.perfumator.engine.watch.IncrementalAnalysis;
+import de.jsilbereisen.perfumator.engine.watch.SourceWatcher;
+import de.jsilbereisen.perfumator.engine.worker.AnalysisCoordinator;
+import de.jsilbereisen.perfumator.engine.worker.AnalysisWorker;
+import de.jsilbereisen.perfumator.engine.worker.WorkerConfiguration;
+import de.jsilbereisen.perfumator.engine.worker.WorkerLauncher;
 import de.jsilbereisen.perfumator.i18n.Bundles;
+import de.jsilbereisen.perfumator.i18n.BundlesLoader;
 import de.jsilbereisen.perfumator.io.CommandLineHandler;
 import de.jsilbereisen.perfumator.io.CommandLineInput;
+import de.jsilbereisen.perfumator.io.CorpusCommandInput;
+import de.jsilbereisen.perfumator.io.LspCommandInput;
+import de.jsilbereisen.perfumator.io.MergeCommandInput;
+import de.jsilbereisen.perfumator.io.ServeCommandInput;
+import de.jsilbereisen.perfumator.io.lsp.PerfumeLanguageServer;
 import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.io.output.json.PerfumeJsonOutputMerger;
+import de.jsilbereisen.perfumator.io.server.AnalysisServer;
 import de.jsilbereisen.perfumator.model.EngineConfiguration;
 import de.jsilbereisen.perfumator.model.perfume.Perfume;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Entry point of the application when running from the command line.
  */
@@ -21,6 +51,27 @@ import de.jsilbereisen.perfumator.model.perfume.Perfume;
 public class CommandLineStarter {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals(MergeCommandInput.COMMAND_NAME)) {
+            merge(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(CorpusCommandInput.COMMAND_NAME)) {
+            analyseCorpus(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(ServeCommandInput.COMMAND_NAME)) {
+            serve(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(LspCommandInput.COMMAND_NAME)) {
+            runLanguageServer(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length == 2 && args[0].equals(AnalysisWorker.COMMAND_NAME)) {
+            work(Integer.parseInt(args[1]));
+            return;
+        }
+
         CommandLineInput cliInput = new CommandLineInput();
         CmdLineParser cliParser = new CmdLineParser(cliInput,
                 ParserProperties.defaults().withUsageWidth(120).withShowDefaults(false));
@@ -38,13 +89,245 @@ public class CommandLineStarter {
             return;
         }
 
+        if (config.getWorkers() > 0 && Files.isDirectory(config.getSourcesPath())) {
+            OutputConfiguration outputConfiguration =
+                    OutputConfiguration.from(config.getOutputDir()).setBatchSize(config.getBatchSize());
+            new AnalysisCoordinator(WorkerConfiguration.from(config), config.getWorkers(),
+                    AnalysisCoordinator.DEFAULT_FILES_PER_BATCH, WorkerLauncher.jvm())
+                    .detectAndSerialize(outputConfiguration);
+            return;
+        }
+
         PerfumeDetectionEngine.Builder engineBuilder = PerfumeDetectionEngine.builder(config.getResourcesLocale())
-                .setDependencies(config.getDependencies());
+                .setDependencies(config.getDependencies())
+                .selection(PerfumeSelection.of(config.getIncludedPerfumes(), config.getExcludedPerfumes()))
+                .typeIndexDirectory(config.getTypeIndexDirectory())
+                .virtualThreadIo(config.isVirtualThreadIo())
+                .detectorParallelism(config.getDetectorParallelism())
+                .fileTimeout(config.getFileTimeout())
+                .detectorTimeout(config.getDetectorTimeout())
+                .continueOnError(config.isContinueOnError())
+                .shard(config.getShard())
+                .sampling(config.getSampling());
+
+        if (config.isWatch()) {
+            watch(engineBuilder, config);
+            return;
+        }
 
         DetectionEngine<Perfume> engine = engineBuilder.build();
         OutputConfiguration outputConfiguration =
-                OutputConfiguration.from(config.getOutputDir()).setBatchSize(config.getBatchSize());
+                OutputConfiguration.from(config.getOutputDir()).setBatchSize(config.getBatchSize())
+                        .setResume(config.isResume());
 
         engine.detectAndSerialize(config.getSourcesPath(), outputConfiguration, config.getOutputFormat());
     }
+
+    /**
+     * Analyses the input directory, then keeps the output up to date while its files change, until the process is
+     * terminated. See {@link IncrementalAnalysis}.
+     */
+    private static void watch(PerfumeDetectionEngine.Builder engineBuilder, EngineConfiguration config) {
+        Bundles i18n = new Bundles();
+        new BundlesLoader(BundlesLoader.STANDARD_INTERNATIONALIZATION_PACKAGE, BundlesLoader.STANDARD_PERFUMES_PACKAGE,
+                BundlesLoader.STANDARD_APPLICATION_PACKAGE).loadApplicationBundle(i18n, config.getResourcesLocale());
+
+        PerfumeDetectionEngine engine = engineBuilder.i18nResources(i18n).build();
+        IncrementalAnalysis analysis = new IncrementalAnalysis(engine, config.getSourcesPath(),
+                OutputConfiguration.from(config.getOutputDir()).setBatchSize(config.getBatchSize()), i18n);
+        analysis.analyseAll();
+
+        try (SourceWatcher watcher = new SourceWatcher(analysis, i18n, SourceWatcher.DEFAULT_QUIET_PERIOD)) {
+            Thread watchingThread = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(watchingThread::interrupt));
+
+            watcher.watch();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            System.exit(1);
+        } finally {
+            engine.close();
+        }
+    }
+
+    /**
+     * Runs a worker of an {@link AnalysisCoordinator} in this process.
+     */
+    private static void work(int port) {
+        try {
+            AnalysisWorker.run(port);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Merges the outputs of multiple analyses, see {@link MergeCommandInput}.
+     */
+    private static void merge(String[] args) {
+        MergeCommandInput mergeInput = new MergeCommandInput();
+        CmdLineParser cliParser = new CmdLineParser(mergeInput,
+                ParserProperties.defaults().withUsageWidth(120).withShowDefaults(false));
+        CommandLineHandler cliHandler = new CommandLineHandler(cliParser, new Bundles());
+
+        try {
+            cliParser.parseArgument(args);
+        } catch (CmdLineException cliException) {
+            cliHandler.handleError(args, cliException);
+            System.exit(1);
+        }
+
+        if (!cliHandler.handleMergeArguments(mergeInput)) {
+            return;
+        }
+
+        PerfumeRegistry registry = new PerfumeRegistry();
+        registry.loadRegistry(mergeInput.getLocale());
+        OutputConfiguration outputConfiguration = OutputConfiguration.from(mergeInput.getPathToOutputDir())
+                .setBatchSize(mergeInput.getBatchSize());
+
+        try {
+            new PerfumeJsonOutputMerger(outputConfiguration, registry).merge(mergeInput.getInputDirectories());
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Analyses the projects of a manifest, see {@link CorpusCommandInput}.
+     */
+    private static void analyseCorpus(String[] args) {
+        CorpusCommandInput corpusInput = new CorpusCommandInput();
+        CmdLineParser cliParser = new CmdLineParser(corpusInput,
+                ParserProperties.defaults().withUsageWidth(120).withShowDefaults(false));
+        CommandLineHandler cliHandler = new CommandLineHandler(cliParser, new Bundles());
+
+        try {
+            cliParser.parseArgument(args);
+        } catch (CmdLineException cliException) {
+            cliHandler.handleError(args, cliException);
+            System.exit(1);
+        }
+
+        if (!cliHandler.handleCorpusArguments(corpusInput)) {
+            return;
+        }
+
+        List<Path> projects;
+        try {
+            projects = CorpusManifest.read(corpusInput.getManifest());
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        OutputConfiguration outputConfiguration = OutputConfiguration.from(corpusInput.getPathToOutputDir())
+                .setBatchSize(corpusInput.getBatchSize());
+
+        // Projects are analysed in parallel, not their modules
+        try (CorpusAnalyser corpusAnalyser = new CorpusAnalyser(corpusInput.getLocale(),
+                corpusInput.getConcurrency(), builder -> builder
+                .setDependencies(corpusInput.getDependencies())
+                .selection(PerfumeSelection.of(corpusInput.getIncludedPerfumes(), corpusInput.getExcludedPerfumes()))
+                .typeIndexDirectory(corpusInput.getTypeIndexDirectory())
+                .continueOnError(corpusInput.isContinueOnError())
+                .parallelism(1))) {
+            corpusAnalyser.analyse(projects, outputConfiguration);
+        }
+    }
+
+    /**
+     * Runs an {@link AnalysisServer} until the process is terminated, see {@link ServeCommandInput}.
+     */
+    private static void serve(String[] args) {
+        ServeCommandInput serveInput = new ServeCommandInput();
+        CmdLineParser cliParser = new CmdLineParser(serveInput,
+                ParserProperties.defaults().withUsageWidth(120).withShowDefaults(false));
+        CommandLineHandler cliHandler = new CommandLineHandler(cliParser, new Bundles());
+
+        try {
+            cliParser.parseArgument(args);
+        } catch (CmdLineException cliException) {
+            cliHandler.handleError(args, cliException);
+            System.exit(1);
+        }
+
+        if (!cliHandler.handleServeArguments(serveInput)) {
+            return;
+        }
+
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder(serveInput.getLocale())
+                .setDependencies(serveInput.getDependencies())
+                .selection(PerfumeSelection.of(serveInput.getIncludedPerfumes(), serveInput.getExcludedPerfumes()))
+                .typeIndexDirectory(serveInput.getTypeIndexDirectory())
+                .detectorParallelism(serveInput.getDetectorParallelism())
+                .continueOnError(serveInput.isContinueOnError())
+                .build();
+
+        AnalysisServer server;
+        try {
+            server = new AnalysisServer(engine, serveInput.getPort());
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            engine.close();
+            System.exit(1);
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            engine.close();
+        }));
+
+        server.start();
+        cliHandler.logServerStarted(server.getPort());
+    }
+
+    /**
+     * Runs a {@link PerfumeLanguageServer} on the standard input and output until the client exits, see
+     * {@link LspCommandInput}.
+     */
+    private static void runLanguageServer(String[] args) {
+        // The standard output belongs to the protocol, so everything else, including the logs, goes to the error output
+        System.setOut(System.err);
+
+        LspCommandInput lspInput = new LspCommandInput();
+        CmdLineParser cliParser = new CmdLineParser(lspInput,
+                ParserProperties.defaults().withUsageWidth(120).withShowDefaults(false));
+        CommandLineHandler cliHandler = new CommandLineHandler(cliParser, new Bundles());
+
+        try {
+            cliParser.parseArgument(args);
+        } catch (CmdLineException cliException) {
+            cliHandler.handleError(args, cliException);
+            System.exit(1);
+        }
+
+        if (!cliHandler.handleLspArguments(lspInput)) {
+            return;
+        }
+
+        boolean shutdownRequested = false;
+        try (PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder(lspInput.getLocale())
+                .setDependencies(lspInput.getDependencies())
+                .selection(PerfumeSelection.of(lspInput.getIncludedPerfumes(), lspInput.getExcludedPerfumes()))
+                .typeIndexDirectory(lspInput.getTypeIndexDirectory())
+                .detectorParallelism(lspInput.getDetectorParallelism())
+                // A detector that fails on a half-typed document must not hide the detections of the others
+                .continueOnError(true)
+                .build()) {
+            shutdownRequested = new PerfumeLanguageServer(engine,
+                    new BufferedInputStream(new FileInputStream(FileDescriptor.in)),
+                    new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)),
+                    Duration.ofMillis(lspInput.getDebounceMillis())).run();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+
+        // As demanded by the protocol, the exit code tells whether the client shut the server down before
+        System.exit(shutdownRequested ? 0 : 1);
+    }
 }
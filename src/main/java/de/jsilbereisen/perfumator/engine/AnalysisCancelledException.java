@@ -0,0 +1,15 @@
+package de.jsilbereisen.perfumator.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Thrown at a {@link AnalysisDeadline#checkpoint() checkpoint} of an analysis that was cancelled by its caller, see
+ * {@link AnalysisDeadline#cancellable}. Unlike a timeout, a cancellation is never skipped, but aborts the whole
+ * analysis.
+ */
+public class AnalysisCancelledException extends AnalysisException {
+
+    public AnalysisCancelledException(@NotNull String message) {
+        super(message);
+    }
+}
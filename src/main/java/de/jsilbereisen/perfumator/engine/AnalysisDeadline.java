@@ -0,0 +1,165 @@
+package de.jsilbereisen.perfumator.engine;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import de.jsilbereisen.perfumator.model.SkippedAnalysis;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Wall-clock deadline of the analysis of a file or of a detector, for cooperative cancellation.<br/>
+ * The deadline of the running analysis is bound to the analysing thread. The engine checks it between the steps of
+ * an analysis, and the type solvers of the analysis contexts check it before resolving a type, see
+ * {@link #checkpoint()}. Like that, a detector that is stuck in symbol resolution, e.g. in a huge or pathological
+ * file, is cancelled on the thread that runs it, without interrupting threads or leaving a detector running in the
+ * background.<br/>
+ * A deadline can also carry a cancellation condition of the caller, e.g. that the analysed source was changed in the
+ * meantime, which is checked at the same points, see {@link #cancellable}.
+ */
+public final class AnalysisDeadline {
+
+    private static final ThreadLocal<AnalysisDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    /**
+     * Whether the deadline has a time budget, or only a cancellation condition.
+     */
+    private final boolean timed;
+
+    /**
+     * The reason for skipping the analysis, if the deadline is exceeded.
+     */
+    @Getter
+    @NotNull
+    private final SkippedAnalysis.Reason reason;
+
+    @Nullable
+    private final BooleanSupplier cancellation;
+
+    private AnalysisDeadline(long deadlineNanos, boolean timed, @NotNull SkippedAnalysis.Reason reason,
+                             @Nullable BooleanSupplier cancellation) {
+        this.deadlineNanos = deadlineNanos;
+        this.timed = timed;
+        this.reason = reason;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Returns the deadline after the given budget, from now.
+     *
+     * @param budget The budget, {@code null} for no deadline.
+     * @param reason The reason for skipping the analysis, if the deadline is exceeded.
+     * @return The deadline, {@code null} if there is no budget.
+     */
+    @Nullable
+    public static AnalysisDeadline after(@Nullable Duration budget, @NotNull SkippedAnalysis.Reason reason) {
+        if (budget == null) {
+            return null;
+        }
+
+        return new AnalysisDeadline(System.nanoTime() + budget.toNanos(), true, reason, null);
+    }
+
+    /**
+     * Returns the given deadline with the given cancellation condition, which is checked at the
+     * {@link #checkpoint()}s, like the time budget.
+     *
+     * @param deadline     The deadline, {@code null} for none.
+     * @param cancellation Whether the analysis is cancelled, {@code null} for none. Is called on the analysing threads.
+     * @return The deadline, {@code null} if there is neither a budget nor a cancellation condition.
+     */
+    @Nullable
+    public static AnalysisDeadline cancellable(@Nullable AnalysisDeadline deadline,
+                                               @Nullable BooleanSupplier cancellation) {
+        if (cancellation == null) {
+            return deadline;
+        } else if (deadline == null) {
+            return new AnalysisDeadline(0, false, SkippedAnalysis.Reason.FILE_TIMEOUT, cancellation);
+        }
+
+        return new AnalysisDeadline(deadline.deadlineNanos, deadline.timed, deadline.reason, cancellation);
+    }
+
+    /**
+     * Returns the earlier of the given deadlines, with the cancellation condition of either of them.
+     */
+    @Nullable
+    public static AnalysisDeadline earliest(@Nullable AnalysisDeadline first, @Nullable AnalysisDeadline second) {
+        if (first == null) {
+            return second;
+        } else if (second == null) {
+            return first;
+        }
+
+        boolean firstIsEarlier = !second.timed || first.timed && first.deadlineNanos - second.deadlineNanos <= 0;
+        AnalysisDeadline earlier = firstIsEarlier ? first : second;
+        AnalysisDeadline later = firstIsEarlier ? second : first;
+
+        return earlier.cancellation != null ? earlier : cancellable(earlier, later.cancellation);
+    }
+
+    public boolean isExceeded() {
+        return timed && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public boolean isCancelled() {
+        return cancellation != null && cancellation.getAsBoolean();
+    }
+
+    /**
+     * Throws if the deadline of the analysis on the current thread is exceeded. Does nothing if no deadline is set.
+     *
+     * @throws AnalysisCancelledException If the analysis is cancelled.
+     * @throws AnalysisTimeoutException   If the deadline is exceeded.
+     */
+    public static void checkpoint() {
+        AnalysisDeadline deadline = CURRENT.get();
+
+        if (deadline != null) {
+            deadline.check();
+        }
+    }
+
+    /**
+     * Throws if the analysis is cancelled or this deadline is exceeded.
+     *
+     * @throws AnalysisCancelledException If the analysis is cancelled.
+     * @throws AnalysisTimeoutException   If the deadline is exceeded.
+     */
+    public void check() {
+        if (isCancelled()) {
+            throw new AnalysisCancelledException("The analysis was cancelled.");
+        }
+        if (isExceeded()) {
+            throw new AnalysisTimeoutException("The time budget of the analysis is exceeded (" + reason + ").", reason);
+        }
+    }
+
+    /**
+     * Runs the given analysis on the current thread, with the given deadline for its {@link #checkpoint()}s.
+     *
+     * @param deadline The deadline, {@code null} for none.
+     * @param analysis The analysis.
+     * @param <T>      Type of the result.
+     * @return The result of the analysis.
+     */
+    public static <T> T callWithin(@Nullable AnalysisDeadline deadline, @NotNull Supplier<T> analysis) {
+        AnalysisDeadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+
+        try {
+            return analysis.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
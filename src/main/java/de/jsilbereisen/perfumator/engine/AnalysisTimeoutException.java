@@ -0,0 +1,24 @@
+package de.jsilbereisen.perfumator.engine;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.model.SkippedAnalysis;
+
+/**
+ * Thrown at a {@link AnalysisDeadline#checkpoint() checkpoint} of an analysis that exceeded its time budget.
+ */
+@Getter
+public class AnalysisTimeoutException extends AnalysisException {
+
+    /**
+     * Whether the budget of the file or of the detector was exceeded.
+     */
+    @NotNull
+    private final SkippedAnalysis.Reason reason;
+
+    public AnalysisTimeoutException(@NotNull String message, @NotNull SkippedAnalysis.Reason reason) {
+        super(message);
+        this.reason = reason;
+    }
+}
@@ -70,6 +70,27 @@ public interface DetectionEngine<T extends Detectable> {
     void detectAndSerialize(@NotNull Path sources, @NotNull OutputConfiguration config, @NotNull OutputFormat format)
             throws SerializationException;
 
+    /**
+     * Returns a publisher of the {@link DetectedInstance}s that the analysis of the given sources finds, like
+     * {@link #detect}. The analysis starts once the publisher is subscribed to, and only runs ahead of the
+     * subscriber as far as it requests detections, see {@link DetectionPublisher}.<br/>
+     * This default implementation runs the whole analysis with {@link #detect} and publishes its detections
+     * afterwards. Engines should override it to publish the detections while they are analysing.
+     *
+     * @param sources The path to the Java source file to analyse, or to a directory that should be recursively
+     *                scanned for Java source files which are then analysed.
+     * @return The publisher, which accepts a single subscriber.
+     */
+    @NotNull
+    default DetectionPublisher<T> publishDetections(@NotNull Path sources) {
+        return new DetectionPublisher<>(sink -> {
+            AnalysisResult<T> result = detect(sources);
+            result.getDetections().forEach(sink);
+
+            return result.getSummary();
+        });
+    }
+
     /**
      * Returns the {@link DetectableRegistry} that is used for analysis by this engine.
      *
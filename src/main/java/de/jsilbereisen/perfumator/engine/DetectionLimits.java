@@ -0,0 +1,103 @@
+package de.jsilbereisen.perfumator.engine;
+
+import lombok.EqualsAndHashCode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable limits of a query for {@link Perfume}s, see {@link PerfumeDetectionEngine#query}: the amount of
+ * detections of each Perfume, or of files in which it is detected, after which the query stops looking for the
+ * Perfume. Meant for questions like "does the project use the Perfume at all?" (a limit of 1) or "which files use
+ * it?", capped at a number of files.<br/>
+ * Every Perfume has the default limit, unless a limit is set for its name (case-insensitive).
+ */
+@EqualsAndHashCode
+public final class DetectionLimits {
+
+    private final int defaultLimit;
+
+    @Unmodifiable
+    private final Map<String, Integer> perfumeLimits;
+
+    private final boolean countingFiles;
+
+    private DetectionLimits(int defaultLimit, @NotNull Map<String, Integer> perfumeLimits, boolean countingFiles) {
+        this.defaultLimit = defaultLimit;
+        this.perfumeLimits = Collections.unmodifiableMap(perfumeLimits);
+        this.countingFiles = countingFiles;
+    }
+
+    /**
+     * Returns limits with the given default limit for every Perfume.
+     *
+     * @param defaultLimit The amount of detections of each Perfume to find, at least 1.
+     * @throws IllegalArgumentException If the limit is less than 1.
+     */
+    @NotNull
+    public static DetectionLimits of(int defaultLimit) {
+        checkLimit(defaultLimit);
+
+        return new DetectionLimits(defaultLimit, new HashMap<>(), false);
+    }
+
+    /**
+     * Returns the limits that stop looking for each Perfume after its first detection.
+     */
+    @NotNull
+    public static DetectionLimits firstDetection() {
+        return of(1);
+    }
+
+    /**
+     * Returns a copy of these limits with the given limit for the Perfume with the given name.
+     *
+     * @throws IllegalArgumentException If the limit is less than 1.
+     */
+    @NotNull
+    public DetectionLimits limit(@NotNull String perfumeName, int limit) {
+        checkLimit(limit);
+
+        Map<String, Integer> limits = new HashMap<>(perfumeLimits);
+        limits.put(perfumeName.toLowerCase(Locale.ROOT), limit);
+
+        return new DetectionLimits(defaultLimit, limits, countingFiles);
+    }
+
+    /**
+     * Returns a copy of these limits that count the files in which a Perfume is detected, instead of its detections.
+     * All detections of a Perfume in a counted file are part of the result.
+     */
+    @NotNull
+    public DetectionLimits countingFiles() {
+        return new DetectionLimits(defaultLimit, new HashMap<>(perfumeLimits), true);
+    }
+
+    /**
+     * Returns the limit of the given Perfume.
+     */
+    public int getLimit(@NotNull Perfume perfume) {
+        String name = perfume.getName();
+
+        return name != null ? perfumeLimits.getOrDefault(name.toLowerCase(Locale.ROOT), defaultLimit) : defaultLimit;
+    }
+
+    /**
+     * Returns whether the limits count files with detections, instead of detections.
+     */
+    public boolean isCountingFiles() {
+        return countingFiles;
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit of a Perfume must be at least 1, but was " + limit + ".");
+        }
+    }
+}
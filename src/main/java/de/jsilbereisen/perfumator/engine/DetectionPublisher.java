@@ -0,0 +1,173 @@
+package de.jsilbereisen.perfumator.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import de.jsilbereisen.perfumator.model.Detectable;
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.StatisticsSummary;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link Flow.Publisher} of the {@link DetectedInstance}s of an analysis, which are published while the analysis is
+ * still running, see {@link DetectionEngine#publishDetections}.<br/>
+ * The analysis starts on a thread of its own when a subscriber subscribes, and only continues while the subscriber
+ * has requested more detections: without demand, the analysis waits before it publishes the next detection, so a
+ * slow subscriber slows the analysis down instead of letting the detections pile up in memory. Cancelling the
+ * subscription aborts the analysis.<br/>
+ * An analysis runs only once, so the publisher only accepts a single subscriber. The engine of the analysis must not
+ * be used otherwise until the subscriber was completed, failed or cancelled.
+ *
+ * @param <T> The type of the published detections.
+ */
+public class DetectionPublisher<T extends Detectable> implements Flow.Publisher<DetectedInstance<T>> {
+
+    @NotNull
+    private final Function<Consumer<DetectedInstance<T>>, StatisticsSummary<T>> analysis;
+
+    @NotNull
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    @Nullable
+    private volatile StatisticsSummary<T> summary;
+
+    /**
+     * Constructor.
+     *
+     * @param analysis Runs the analysis, passes each detection to the given consumer in the order of the analysis,
+     *                 and returns the summary of the analysis. Must stop with the {@link CancellationException} that the
+     *                 consumer throws once the subscription is cancelled.
+     */
+    public DetectionPublisher(@NotNull Function<Consumer<DetectedInstance<T>>, StatisticsSummary<T>> analysis) {
+        this.analysis = analysis;
+    }
+
+    @Override
+    public void subscribe(@NotNull Flow.Subscriber<? super DetectedInstance<T>> subscriber) {
+        Objects.requireNonNull(subscriber, "The subscriber must not be null.");
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new DemandSubscription());
+            subscriber.onError(new IllegalStateException("The detections of an analysis can only be subscribed once."));
+            return;
+        }
+
+        DemandSubscription subscription = new DemandSubscription();
+        subscriber.onSubscribe(subscription);
+
+        Thread analysisThread = new Thread(() -> publish(subscriber, subscription), "perfumator-publisher");
+        analysisThread.start();
+    }
+
+    /**
+     * Returns the summary of the analysis, once the subscriber was completed.
+     *
+     * @return The summary, or {@code null} while the analysis is running, or if it failed or was cancelled.
+     */
+    @Nullable
+    public StatisticsSummary<T> getSummary() {
+        return summary;
+    }
+
+    private void publish(@NotNull Flow.Subscriber<? super DetectedInstance<T>> subscriber,
+                         @NotNull DemandSubscription subscription) {
+        try {
+            StatisticsSummary<T> result = analysis.apply(detection -> {
+                subscription.awaitDemand();
+                subscriber.onNext(detection);
+            });
+
+            if (!subscription.isCancelled()) {
+                summary = result;
+                subscriber.onComplete();
+            }
+
+        } catch (CancellationException e) {
+            // A subscription that was cancelled because of an invalid request still gets the error
+            if (subscription.getInvalidRequest() != null) {
+                subscriber.onError(subscription.getInvalidRequest());
+            }
+
+        } catch (RuntimeException | Error e) {
+            if (!subscription.isCancelled()) {
+                subscriber.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Subscription that counts the outstanding demand of the subscriber.
+     */
+    private static class DemandSubscription implements Flow.Subscription {
+
+        private long demand;
+
+        private boolean cancelled;
+
+        @Nullable
+        private IllegalArgumentException invalidRequest;
+
+        @Override
+        public synchronized void request(long n) {
+            if (cancelled) {
+                return;
+            }
+
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The amount of requested detections must be positive, "
+                        + "but was " + n + ".");
+                cancel();
+                return;
+            }
+
+            // Unbounded once it overflows
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Nullable
+        synchronized IllegalArgumentException getInvalidRequest() {
+            return invalidRequest;
+        }
+
+        /**
+         * Waits until the subscriber requested another detection and consumes that demand.
+         *
+         * @throws CancellationException If the subscription is cancelled, or the waiting thread is interrupted.
+         */
+        synchronized void awaitDemand() {
+            try {
+                while (demand == 0 && !cancelled) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+
+            if (cancelled) {
+                throw new CancellationException("The subscription of the detections was cancelled.");
+            }
+
+            if (demand != Long.MAX_VALUE) {
+                demand--;
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package de.jsilbereisen.perfumator.engine;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.engine.detector.Detector;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs the {@link Detector}s for one AST in parallel, on a {@link ForkJoinPool}.<br/>
+ * The AST is shared read-only: only detectors that do not {@link Detector#resolvesSymbols() resolve symbols} run on
+ * the pool, as resolving fills the caches of the analysis context and stores data in the nodes. The resolving
+ * detectors run one after another on the calling thread, in the meantime. Before the detectors start, the data that
+ * <i>JavaParser</i> computes lazily on first access is computed for the whole AST, so that reading the AST does not
+ * write to it.<br/>
+ * The results are returned in the order of the given detectors, like when running them one after another.
+ */
+final class DetectorPool implements AutoCloseable {
+
+    @NotNull
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism Maximum amount of detectors that run at the same time, including the calling thread. Must
+     *                    be at least 2.
+     */
+    DetectorPool(int parallelism) {
+        if (parallelism < 2) {
+            throw new IllegalArgumentException("The parallelism of a detector pool must be at least 2.");
+        }
+
+        this.pool = new ForkJoinPool(parallelism - 1, new DetectorThreadFactory(), null, false);
+    }
+
+    /**
+     * Applies the given detection to each of the given detectors, in parallel where possible.
+     *
+     * @param ast       The AST that the detectors analyse. Must not be modified by the detection.
+     * @param detectors The detectors. Their analysis context must already be set.
+     * @param detection Applies a detector to the AST.
+     * @param <R>       Type of the result of a detector.
+     * @return The results of all detectors, in the order of the detectors.
+     * @throws AnalysisException If interrupted while waiting for the detectors.
+     */
+    @NotNull
+    <R> List<R> detect(@NotNull CompilationUnit ast, @NotNull Collection<Detector<Perfume>> detectors,
+                       @NotNull Function<Detector<Perfume>, R> detection) {
+        prepareForConcurrentReads(ast);
+
+        List<Future<R>> results = new ArrayList<>(detectors.size());
+        for (Detector<Perfume> detector : detectors) {
+            results.add(detector.resolvesSymbols() ? null : pool.submit(() -> detection.apply(detector)));
+        }
+
+        int index = 0;
+        for (Detector<Perfume> detector : detectors) {
+            if (results.get(index) == null) {
+                FutureTask<R> task = new FutureTask<>(() -> detection.apply(detector));
+                task.run();
+                results.set(index, task);
+            }
+
+            index++;
+        }
+
+        // Wait for all detectors, even after a failure, so that no detector is still running when the next file starts
+        List<R> detectorResults = new ArrayList<>(results.size());
+        Throwable failure = null;
+        for (Future<R> result : results) {
+            try {
+                detectorResults.add(result.get());
+
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+
+            } catch (InterruptedException e) {
+                results.forEach(pending -> pending.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new AnalysisException("Interrupted while waiting for the detectors.", e);
+            }
+        }
+
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (failure instanceof Error error) {
+            throw error;
+        } else if (failure != null) {
+            throw new AnalysisException(failure);
+        }
+
+        return detectorResults;
+    }
+
+    /**
+     * Computes the data that <i>JavaParser</i> otherwise computes and stores in the AST on first access: whether a
+     * node is a phantom node, and the printer that {@link Node#toString()} uses.
+     */
+    private static void prepareForConcurrentReads(@NotNull CompilationUnit ast) {
+        ast.walk(Node::isPhantom);
+        ast.printer(new DefaultPrettyPrinter());
+    }
+
+    /**
+     * Stops the threads of the pool. Detectors that are still running are interrupted.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private static final class DetectorThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(@NotNull ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("perfumator-detector-" + threadCount.incrementAndGet());
+
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package de.jsilbereisen.perfumator.engine;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.SkippedAnalysis;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Result of applying detectors to a source file: the detections, and the detectors that were skipped.
+ */
+@Value
+class FileAnalysis {
+
+    @NotNull
+    List<DetectedInstance<Perfume>> detections;
+
+    @NotNull
+    List<SkippedAnalysis> skippedAnalyses;
+
+    @NotNull
+    static FileAnalysis empty() {
+        return new FileAnalysis(List.of(), List.of());
+    }
+
+    @NotNull
+    static FileAnalysis of(@NotNull List<DetectedInstance<Perfume>> detections) {
+        return new FileAnalysis(detections, List.of());
+    }
+
+    @NotNull
+    static FileAnalysis skipped(@NotNull SkippedAnalysis skippedAnalysis) {
+        return new FileAnalysis(List.of(), List.of(skippedAnalysis));
+    }
+
+    /**
+     * Concatenates the given results, in their order.
+     */
+    @NotNull
+    static FileAnalysis concat(@NotNull Collection<FileAnalysis> analyses) {
+        List<DetectedInstance<Perfume>> detections = new ArrayList<>();
+        List<SkippedAnalysis> skippedAnalyses = new ArrayList<>();
+
+        for (FileAnalysis analysis : analyses) {
+            detections.addAll(analysis.getDetections());
+            skippedAnalyses.addAll(analysis.getSkippedAnalyses());
+        }
+
+        return new FileAnalysis(detections, skippedAnalyses);
+    }
+}
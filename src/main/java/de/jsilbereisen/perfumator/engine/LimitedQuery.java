@@ -0,0 +1,124 @@
+package de.jsilbereisen.perfumator.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.engine.detector.Detector;
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * State of a query with {@link DetectionLimits}, while the query runs.<br/>
+ * The detections of the analysed files are {@link #accept accepted} one file after another, in the order of the
+ * analysis, so the result does not depend on the scheduling of the files. Once a {@link Perfume} reaches its limit,
+ * its detector is disabled for the files that are analysed afterwards, which the worker threads check with
+ * {@link #isDisabled}.
+ */
+class LimitedQuery {
+
+    @NotNull
+    private final DetectionLimits limits;
+
+    /**
+     * The Perfumes that did not reach their limit yet, with their counted detections or files. Only accessed by the
+     * thread that accepts the detections.
+     */
+    @NotNull
+    private final Map<Perfume, Integer> openPerfumes = new HashMap<>();
+
+    /**
+     * The Perfumes of each detector class, usually one.
+     */
+    @NotNull
+    private final Map<Class<?>, Set<Perfume>> perfumesByDetector = new HashMap<>();
+
+    @NotNull
+    private final Set<Class<?>> disabledDetectors = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean complete;
+
+    /**
+     * Constructor.
+     *
+     * @param limits    The limits of the query.
+     * @param detectors The detectors of the queried Perfumes.
+     */
+    LimitedQuery(@NotNull DetectionLimits limits, @NotNull Map<Perfume, Detector<Perfume>> detectors) {
+        this.limits = limits;
+
+        detectors.forEach((perfume, detector) -> {
+            openPerfumes.put(perfume, 0);
+            perfumesByDetector.computeIfAbsent(detector.getClass(), detectorClass -> new HashSet<>()).add(perfume);
+        });
+
+        complete = openPerfumes.isEmpty();
+    }
+
+    /**
+     * Accepts the detections of the next analysed file.
+     *
+     * @return The detections that are within the limits.
+     */
+    @NotNull
+    List<DetectedInstance<Perfume>> accept(@NotNull List<DetectedInstance<Perfume>> detections) {
+        List<DetectedInstance<Perfume>> accepted = new ArrayList<>();
+        Set<Perfume> countedFiles = new HashSet<>();
+        Set<Perfume> reachedLimits = new LinkedHashSet<>();
+
+        for (DetectedInstance<Perfume> detection : detections) {
+            Perfume perfume = detection.getDetectable();
+            Integer count = openPerfumes.get(perfume);
+            if (count == null || reachedLimits.contains(perfume) && !limits.isCountingFiles()) {
+                continue;
+            }
+
+            accepted.add(detection);
+
+            // A file is counted with its first detection of the Perfume, all its detections are accepted
+            if (!limits.isCountingFiles() || countedFiles.add(perfume)) {
+                openPerfumes.put(perfume, ++count);
+                if (count >= limits.getLimit(perfume)) {
+                    reachedLimits.add(perfume);
+                }
+            }
+        }
+
+        reachedLimits.forEach(this::close);
+
+        return accepted;
+    }
+
+    /**
+     * Returns whether the given detector is not applied anymore, as all its Perfumes reached their limits.
+     */
+    boolean isDisabled(@NotNull Detector<Perfume> detector) {
+        return disabledDetectors.contains(detector.getClass());
+    }
+
+    /**
+     * Returns whether every queried Perfume reached its limit, so that the analysis can stop.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    private void close(@NotNull Perfume perfume) {
+        openPerfumes.remove(perfume);
+
+        perfumesByDetector.forEach((detectorClass, perfumes) -> {
+            if (perfumes.contains(perfume) && perfumes.stream().noneMatch(openPerfumes::containsKey)) {
+                disabledDetectors.add(detectorClass);
+            }
+        });
+
+        complete = openPerfumes.isEmpty();
+    }
+}
@@ -1,49 +1,77 @@
 package de.jsilbereisen.perfumator.engine;
 
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseProblemException;
 import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.Problem;
+import com.github.javaparser.Providers;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
-import com.github.javaparser.symbolsolver.utils.SymbolSolverCollectionStrategy;
 import de.jsilbereisen.perfumator.model.AnalysisResult;
 import de.jsilbereisen.perfumator.model.StatisticsSummary;
 import lombok.Getter;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.SerializationException;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import de.jsilbereisen.perfumator.engine.context.AnalysisContext;
+import de.jsilbereisen.perfumator.engine.context.AnalysisContextCache;
+import de.jsilbereisen.perfumator.engine.context.AnalysisContextFactory;
+import de.jsilbereisen.perfumator.engine.context.AnalysisContextKey;
+import de.jsilbereisen.perfumator.engine.context.AnalysisContextMetrics;
+import de.jsilbereisen.perfumator.engine.context.ProjectModule;
+import de.jsilbereisen.perfumator.engine.context.ProjectModules;
+import de.jsilbereisen.perfumator.engine.context.SourcesLayout;
+import de.jsilbereisen.perfumator.engine.context.SourcesSnapshot;
+import de.jsilbereisen.perfumator.engine.context.index.JarTypeIndexStore;
+import de.jsilbereisen.perfumator.engine.context.index.JdkTypeIndex;
+import de.jsilbereisen.perfumator.engine.context.index.JdkTypeSolver;
 import de.jsilbereisen.perfumator.engine.detector.Detector;
+import de.jsilbereisen.perfumator.engine.pipeline.AnalysisPipeline;
+import de.jsilbereisen.perfumator.engine.pipeline.AnalysisPipeline.Lane;
+import de.jsilbereisen.perfumator.engine.pipeline.PipelineStatistics;
+import de.jsilbereisen.perfumator.engine.pipeline.VirtualThreads;
+import de.jsilbereisen.perfumator.engine.pipeline.SourceFile;
 import de.jsilbereisen.perfumator.engine.registry.DetectableRegistry;
 import de.jsilbereisen.perfumator.engine.registry.PerfumeRegistry;
+import de.jsilbereisen.perfumator.engine.registry.PerfumeSelection;
 import de.jsilbereisen.perfumator.i18n.Bundles;
 import de.jsilbereisen.perfumator.i18n.BundlesLoader;
 import de.jsilbereisen.perfumator.io.LanguageTag;
+import de.jsilbereisen.perfumator.io.output.AnalysisJournal;
 import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
 import de.jsilbereisen.perfumator.io.output.OutputFormat;
 import de.jsilbereisen.perfumator.io.output.OutputGenerator;
 import de.jsilbereisen.perfumator.io.output.json.PerfumeJsonOutputGenerator;
 import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.SampleEstimates;
+import de.jsilbereisen.perfumator.model.SkippedAnalysis;
 import de.jsilbereisen.perfumator.model.perfume.Perfume;
 import de.jsilbereisen.perfumator.util.PathUtil;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 import static de.jsilbereisen.perfumator.util.PathUtil.toRealPath;
@@ -54,10 +82,26 @@ import static de.jsilbereisen.perfumator.util.PathUtil.toRealPath;
  * Default language level for AST parsing is Java 17 (maximum possible for {@link JavaParser}).
  * If you want to lower the language level/use another {@link ParserConfiguration},
  * configure a {@link JavaParser} instance at your will and call the engine's setter <i>before</i>
- * calling the {@link #detect}, {@link #detectAndSerialize} or the {@link #detectInSingleSourceFile} method.
+ * calling the {@link #detect}, {@link #detectAndSerialize} or the {@link #detectInSingleSourceFile} method.<br/>
+ * An engine is meant to be long-lived: the analysis contexts for symbol resolution are cached across calls, see
+ * {@link AnalysisContextCache}. Use {@link #invalidate} if the analysed project changed in a way that is not reflected
+ * by the cache keys, and {@link #close} when the engine is not needed anymore.<br/>
+ * The memory of the cached contexts is bounded: the engine caches at most a fixed amount of contexts, the caches of
+ * their type solvers are bounded, and the engine removes its facades from the static registry of the
+ * <i>JavaParser</i> when a run ends, see {@link #getContextMetrics()}.<br/>
+ * If an analysed directory contains multiple modules of a Maven/Gradle project, see {@link ProjectModules}, each module
+ * is analysed with its own context, which only contains the module's source roots and those of its upstream modules,
+ * and the modules are analysed in parallel.<br/>
+ * Directories are analysed in an {@link AnalysisPipeline}: walking and reading files ahead, parsing and detection,
+ * and serialization run on separate threads, connected by a bounded queue. On Java 21+ runtimes, the files can be
+ * walked and read on virtual threads, see {@link Builder#virtualThreadIo(boolean)}. The detectors of a file can also
+ * run in parallel, see {@link Builder#detectorParallelism(int)}.<br/>
+ * The analysis of a file and of each detector can be limited to a time budget, and detectors that exceed it or fail
+ * can be skipped instead of aborting the analysis, see {@link Builder#continueOnError(boolean)}. The files of a
+ * directory can be split into {@link Shard}s that are analysed separately.
  */
 @Slf4j
-public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
+public class PerfumeDetectionEngine implements DetectionEngine<Perfume>, AutoCloseable {
 
     /**
      * Limits the cache size of a {@link JavaParserTypeSolver}.
@@ -76,7 +120,10 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
     private final List<Path> analysisDependencies;
 
     @Getter
-    @Setter
+    @NotNull
+    private final PerfumeSelection selection;
+
+    @Getter
     @Nullable
     private JavaParser astParser;
 
@@ -84,12 +131,166 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
     @Nullable
     private JavaParserFacade analysisContext;
 
-    private PerfumeDetectionEngine(@NotNull DetectableRegistry<Perfume> perfumeRegistry, @NotNull Bundles bundles,
-                                   @NotNull JavaParser astParser, @NotNull List<Path> dependencies) {
-        this.perfumeRegistry = perfumeRegistry;
+    /**
+     * The contexts that were used since the last run ended.
+     */
+    private final Set<AnalysisContext> runContexts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The last modification times of the dependencies, read once per run for the keys of all contexts of the run,
+     * {@code null} if not read yet, see {@link AnalysisContextKey#readModificationTimes}.
+     */
+    @Nullable
+    private volatile List<Long> runDependencyModificationTimes;
+
+    @NotNull
+    private final AnalysisContextCache contextCache;
+
+    private final long parsedFilesCacheLimit;
+
+    private final long typeCacheLimit;
+
+    @Getter
+    @Nullable
+    private final JarTypeIndexStore typeIndexStore;
+
+    /**
+     * Maximum amount of threads that analyse the modules of a directory in parallel.
+     */
+    @Getter
+    private final int parallelism;
+
+    /**
+     * Maximum amount of threads that analyse the files of a directory without modules in parallel, each with a
+     * replica of the directory's context.
+     */
+    @Getter
+    private final int replicaParallelism;
+
+    /**
+     * Maximum amount of files that are read or analysed, but not yet serialized.
+     */
+    @Getter
+    private final int pipelineCapacity;
+
+    /**
+     * Amount of threads that read the analysed files ahead of parsing.
+     */
+    @Getter
+    private final int readerThreads;
+
+    /**
+     * Whether the analysed files are walked and read on virtual threads, see {@link VirtualThreads}.
+     */
+    @Getter
+    private final boolean virtualThreadIo;
+
+    /**
+     * Maximum amount of detectors that analyse the same file at the same time, {@code 1} if the detectors of a
+     * file run one after another.
+     */
+    @Getter
+    private final int detectorParallelism;
+
+    @Nullable
+    private final DetectorPool detectorPool;
+
+    /**
+     * Time budget for the analysis of a file, {@code null} for none.
+     */
+    @Getter
+    @Nullable
+    private final Duration fileTimeout;
+
+    /**
+     * Time budget for applying a detector to a file, {@code null} for none.
+     */
+    @Getter
+    @Nullable
+    private final Duration detectorTimeout;
+
+    /**
+     * Whether detectors that exceed a time budget or fail are skipped, instead of aborting the analysis.
+     */
+    @Getter
+    private final boolean continueOnError;
+
+    /**
+     * The part of the files of an analysed directory that is analysed, {@code null} for all files.
+     */
+    @Getter
+    @Nullable
+    private final Shard shard;
+
+    /**
+     * The sampling of the files of an analysed directory, {@code null} to analyse all files.
+     */
+    @Getter
+    @Nullable
+    private final Sampling sampling;
+
+    /**
+     * Statistics of the pipeline of the last analysed directory, {@code null} if no directory was analysed yet.
+     */
+    @Getter
+    @Nullable
+    private volatile PipelineStatistics lastPipelineStatistics;
+
+    /**
+     * Statistics of the last analysis by {@link #detect} or {@link #detectAndSerialize}, {@code null} if nothing was
+     * analysed yet.
+     */
+    @Getter
+    @Nullable
+    private volatile StatisticsSummary<Perfume> lastSummary;
+
+    /**
+     * Estimates of the last sampled analysis of a directory, {@code null} if no directory was analysed with a
+     * {@link #sampling} yet.
+     */
+    @Getter
+    @Nullable
+    private volatile SampleEstimates lastSampleEstimates;
+
+    /**
+     * The running {@link #query}, whose Perfumes that reached their limits are not looked for anymore.
+     */
+    @Nullable
+    private volatile LimitedQuery activeQuery;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor, with the settings of the given builder.
+     *
+     * @param builder        The builder.
+     * @param registry       The registry, either the one of the builder or the default one that it loaded.
+     * @param astParser      The parser, either the one of the builder or a default one.
+     * @param typeIndexStore The store of the type indexes, which the builder opened, or {@code null} for none.
+     */
+    private PerfumeDetectionEngine(@NotNull Builder builder, @NotNull DetectableRegistry<Perfume> registry,
+                                   @NotNull JavaParser astParser, @Nullable JarTypeIndexStore typeIndexStore) {
+        this.perfumeRegistry = registry;
         this.astParser = astParser;
-        this.i18n = bundles;
-        this.analysisDependencies = Collections.unmodifiableList(dependencies);
+        this.i18n = builder.i18n;
+        this.analysisDependencies = List.copyOf(builder.dependencies);
+        this.selection = builder.selection;
+        this.contextCache = new AnalysisContextCache(builder.maximumCachedContexts);
+        this.parsedFilesCacheLimit = builder.parsedFilesCacheLimit;
+        this.typeCacheLimit = builder.typeCacheLimit;
+        this.typeIndexStore = typeIndexStore;
+        this.parallelism = builder.parallelism;
+        this.replicaParallelism = builder.replicaParallelism;
+        this.pipelineCapacity = builder.pipelineCapacity;
+        this.readerThreads = builder.readerThreads;
+        this.virtualThreadIo = builder.virtualThreadIo;
+        this.detectorParallelism = builder.detectorParallelism;
+        this.detectorPool = detectorParallelism > 1 ? new DetectorPool(detectorParallelism) : null;
+        this.fileTimeout = builder.fileTimeout;
+        this.detectorTimeout = builder.detectorTimeout;
+        this.continueOnError = builder.continueOnError;
+        this.shard = builder.shard;
+        this.sampling = builder.sampling;
     }
 
     /**
@@ -112,6 +313,7 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
      * <ul>
      *     <li>Language level: 21</li>
      *     <li>Do NOT Capture empty line comments: {@code true} -&gt; {@code false}</li>
+     *     <li>Symbol resolution for the standard library with a {@link JdkTypeSolver}</li>
      * </ul>
      *
      * @return The new, configured {@link JavaParser} instance.
@@ -121,7 +323,7 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
         ParserConfiguration config = new ParserConfiguration();
 
         config.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21);
-        config.setSymbolResolver(new JavaSymbolSolver(new ReflectionTypeSolver(false)));
+        config.setSymbolResolver(new JavaSymbolSolver(new JdkTypeSolver()));
         config.setDoNotAssignCommentsPrecedingEmptyLines(false);
 
         return new JavaParser(config);
@@ -130,54 +332,144 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
     @Override
     @NotNull
     public AnalysisResult<Perfume> detect(@NotNull Path sources) {
+        List<DetectedInstance<Perfume>> detectedPerfumes = new ArrayList<>();
+        StatisticsSummary<Perfume> summary = createSummary();
+        detect(sources, summary, detections -> {
+            detectedPerfumes.addAll(detections);
+            return detections;
+        });
+
+        return new AnalysisResult<>(detectedPerfumes, summary);
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The detections of each file are published once the file is analysed, in the order of {@link #detect}. Files
+     * are analysed ahead of the subscriber by at most the capacity of the pipeline, see
+     * {@link Builder#pipelineCapacity(int)}.
+     */
+    @Override
+    @NotNull
+    public DetectionPublisher<Perfume> publishDetections(@NotNull Path sources) {
         if (!(Files.isDirectory(sources) || PathUtil.isJavaSourceFile(sources))) {
             throw new IllegalArgumentException(i18n.getApplicationResource("exception.invalidSourcesPath"));
         }
 
-        StatisticsSummary<Perfume> summary = StatisticsSummary.from(perfumeRegistry);
-        List<DetectedInstance<Perfume>> detectedPerfumes = new ArrayList<>();
+        return new DetectionPublisher<>(sink -> {
+            StatisticsSummary<Perfume> summary = createSummary();
+            detect(sources, summary, detections -> {
+                detections.forEach(sink);
+                return detections;
+            });
 
-        // Has to be recreated to include the given sources
-        analysisContext = createAnalysisContext(sources, analysisDependencies);
+            return summary;
+        });
+    }
 
-        StopWatch timer = StopWatch.create();
-        timer.start();
+    /**
+     * Analyses the given sources like {@link #detect}, but only looks for each selected {@link Perfume} until it
+     * reaches its limit: afterwards, its detector is not applied to the remaining files anymore, and once every
+     * Perfume reached its limit, the analysis stops without analysing the remaining files. This answers questions like
+     * "which Perfumes does the project use at all?" much faster than a full analysis.<br/>
+     * The result contains the first detections of each Perfume, up to its limit, in the order of {@link #detect}, so
+     * the result of the same sources is the same across runs. The summary only covers the analysed files and the
+     * detections of the result.
+     *
+     * @param sources The path to the Java source file to analyse, or to a directory that should be recursively
+     *                scanned for Java source files which are then analysed.
+     * @param limits  The limits of the Perfumes.
+     * @return The detections within the limits and the summary of the analysed files.
+     * @throws IllegalArgumentException If the given {@link Path} to analyse is neither a Java source file, no a
+     *                                  directory.
+     * @throws AnalysisException        If a problem occurs when running the analysis.
+     */
+    @NotNull
+    public AnalysisResult<Perfume> query(@NotNull Path sources, @NotNull DetectionLimits limits) {
+        Map<Perfume, Detector<Perfume>> queriedDetectors = new HashMap<>();
+        for (Perfume perfume : perfumeRegistry.getRegisteredDetectables()) {
+            Detector<Perfume> detector = perfumeRegistry.getDetector(perfume);
+            if (detector != null && selection.test(perfume)) {
+                queriedDetectors.put(perfume, detector);
+            }
+        }
 
-        if (Files.isDirectory(sources)) {
-            try (Stream<Path> dirWalk = Files.walk(sources)) {
-                dirWalk.filter(path -> PathUtil.isRelevantJavaFile(path, sources.getFileName().toString()))
-                        .forEach(sourceFile -> {
-                            List<DetectedInstance<Perfume>> detections = detectInSingleSourceFile(sourceFile);
+        LimitedQuery query = new LimitedQuery(limits, queriedDetectors);
+        List<DetectedInstance<Perfume>> detectedPerfumes = new ArrayList<>();
+        StatisticsSummary<Perfume> summary = createSummary();
 
-                            // Keep statistics
-                            toRealPath(sourceFile).ifPresentOrElse(
-                                    summary::addToStatistics,
-                                    () -> summary.addToStatistics(sourceFile)
-                            );
-                            summary.addToStatistics(detections);
+        activeQuery = query;
+        try {
+            detect(sources, summary, detections -> {
+                // The file that completes the query is still part of the result, the next one stops the analysis
+                if (query.isComplete()) {
+                    throw new CancellationException("All Perfumes reached their limits.");
+                }
 
-                            detectedPerfumes.addAll(detections);
-                        });
+                List<DetectedInstance<Perfume>> accepted = query.accept(detections);
+                detectedPerfumes.addAll(accepted);
+                return accepted;
+            });
 
-            } catch (Exception e) {
-                log.error(i18n.getApplicationResource("log.error.analysis.unknown"));
-                throw new AnalysisException(e.getMessage(), e);
-            }
+        } catch (CancellationException e) {
+            log.info(i18n.getApplicationResource("log.info.analysis.limitsReached"), summary.getTotalAnalysedFiles());
+            lastSummary = summary;
 
-        } else {
-            List<DetectedInstance<Perfume>> detections = detectInSingleSourceFile(sources);
+        } finally {
+            activeQuery = null;
+        }
 
-            summary.addToStatistics(sources);
-            summary.addToStatistics(detections);
+        return new AnalysisResult<>(detectedPerfumes, summary);
+    }
 
-            detectedPerfumes.addAll(detections);
+    /**
+     * Analyses the given sources like {@link #detect}, but passes the detections of each analysed file to the given
+     * operator instead of collecting them.
+     *
+     * @param summary        The summary to which the statistics of the analysed files are added.
+     * @param fileDetections Receives the detections of each analysed file, in the order of the analysis, and returns
+     *                       those that are added to the statistics. Can stop the analysis by throwing a
+     *                       {@link CancellationException}, which is passed on.
+     */
+    private void detect(@NotNull Path sources, @NotNull StatisticsSummary<Perfume> summary,
+                        @NotNull UnaryOperator<List<DetectedInstance<Perfume>>> fileDetections) {
+        if (!(Files.isDirectory(sources) || PathUtil.isJavaSourceFile(sources))) {
+            throw new IllegalArgumentException(i18n.getApplicationResource("exception.invalidSourcesPath"));
         }
 
-        timer.stop();
-        Path analysisPath = toRealPath(sources).orElse(sources);
-        log.info(i18n.getApplicationResource("log.info.analysis.done"), analysisPath, timer.getTime(TimeUnit.SECONDS));
+        try {
+            StopWatch timer = StopWatch.create();
+            timer.start();
+
+            if (Files.isDirectory(sources)) {
+                analyseDirectory(sources, path -> true, (sourceFile, analysis) -> {
+                    List<DetectedInstance<Perfume>> detections = fileDetections.apply(analysis.getDetections());
 
-        return new AnalysisResult<>(detectedPerfumes, summary);
+                    // Keep statistics
+                    summary.addToStatistics(sourceFile.getRealPath());
+                    summary.addToStatistics(detections);
+                    summary.addSkippedAnalyses(analysis.getSkippedAnalyses());
+                });
+
+            } else {
+                // Has to include the given sources, reused if the same sources were already analysed
+                analysisContext = obtainAnalysisContext(sources, SourcesSnapshot.take(sources));
+
+                FileAnalysis analysis = analyseSingleSourceFile(sources);
+                List<DetectedInstance<Perfume>> detections = fileDetections.apply(analysis.getDetections());
+
+                summary.addToStatistics(sources);
+                summary.addToStatistics(detections);
+                summary.addSkippedAnalyses(analysis.getSkippedAnalyses());
+            }
+
+            timer.stop();
+            Path analysisPath = toRealPath(sources).orElse(sources);
+            log.info(i18n.getApplicationResource("log.info.analysis.done"), analysisPath, timer.getTime(TimeUnit.SECONDS));
+
+            lastSummary = summary;
+        } finally {
+            endRun();
+        }
     }
 
     @Override
@@ -187,62 +479,148 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
             throw new IllegalArgumentException(i18n.getApplicationResource("exception.invalidSourcesPath"));
         }
 
+        // Only the analysis of a directory is journaled, so only that can be resumed
+        boolean resume = config.isResume() && Files.isDirectory(sources)
+                && Files.isRegularFile(config.getOutputDirectory().resolve(AnalysisJournal.JOURNAL_FILE_NAME));
+
         // Check whether the config is valid and create an Output Generator for the desired format, if supported
-        checkOutputConfig(config);
-        OutputGenerator<Perfume> outputGenerator = getOutputGenerator(config, format);
+        if (!resume) {
+            checkOutputConfig(config);
+        }
+        PerfumeJsonOutputGenerator outputGenerator = getOutputGenerator(config, format);
 
-        StatisticsSummary<Perfume> summary = StatisticsSummary.from(perfumeRegistry);
+        StatisticsSummary<Perfume> summary = createSummary();
 
-        analysisContext = createAnalysisContext(sources, analysisDependencies);
+        try {
+            StopWatch timer = StopWatch.create();
+            timer.start();
+
+            if (Files.isDirectory(sources)) {
+                try (AnalysisJournal journal = openJournal(config, resume, summary, outputGenerator)) {
+                    Set<Path> completedFiles = new HashSet<>(summary.getAnalyzedFiles());
+                    List<DetectedInstance<Perfume>> detectedPerfumes = new ArrayList<>();
+
+                    analyseDirectory(sources,
+                            path -> completedFiles.isEmpty() || !completedFiles.contains(toRealPath(path).orElse(path)),
+                            (sourceFile, analysis) -> {
+                        // Keep statistics
+                        summary.addToStatistics(sourceFile.getRealPath());
+                        summary.addToStatistics(analysis.getDetections());
+                        summary.addSkippedAnalyses(analysis.getSkippedAnalyses());
+
+                        detectedPerfumes.addAll(analysis.getDetections());
+                        journal(() -> journal.fileAnalysed(sourceFile.getRealPath(), analysis.getDetections().stream()
+                                .map(detection -> detection.getDetectable().getName()).toList(),
+                                analysis.getSkippedAnalyses()));
+
+                        // Generate Listing if batch size has already been reached, clear list
+                        if (detectedPerfumes.size() >= outputGenerator.getConfig().getBatchSize()) {
+                            generateListing(detectedPerfumes, outputGenerator);
+                            detectedPerfumes.clear();
+                            journal(() -> journal.commit(outputGenerator.getLastListingNumber()));
+                        }
+                    });
+
+                    // Generate final listing when analysis is complete
+                    generateListing(detectedPerfumes, outputGenerator);
+                    journal(() -> journal.commit(outputGenerator.getLastListingNumber()));
+
+                    completeSummary(summary, outputGenerator);
+                    if (sampling != null) {
+                        writeSampleEstimates(config);
+                    }
+                    journal(journal::delete);
+                } catch (IOException e) {
+                    log.error(i18n.getApplicationResource("log.error.serialization.journal"));
+                    throw new SerializationException(e.getMessage(), e);
+                }
 
-        StopWatch timer = StopWatch.create();
-        timer.start();
+            } else {
+                analysisContext = obtainAnalysisContext(sources, SourcesSnapshot.take(sources));
 
-        if (Files.isDirectory(sources)) {
-            List<DetectedInstance<Perfume>> detectedPerfumes = new ArrayList<>();
+                FileAnalysis analysis = analyseSingleSourceFile(sources);
 
-            try (Stream<Path> dirWalk = Files.walk(sources)) {
-                dirWalk.filter(path -> PathUtil.isRelevantJavaFile(path, sources.getFileName().toString())).forEach(sourceFile -> {
-                    List<DetectedInstance<Perfume>> detections = detectInSingleSourceFile(sourceFile);
+                summary.addToStatistics(sources);
+                summary.addToStatistics(analysis.getDetections());
+                summary.addSkippedAnalyses(analysis.getSkippedAnalyses());
 
-                    // Keep statistics
-                    toRealPath(sourceFile).ifPresentOrElse(
-                            summary::addToStatistics,
-                            () -> summary.addToStatistics(sourceFile)
-                    );
-                    summary.addToStatistics(detections);
+                generateListing(analysis.getDetections(), outputGenerator);
+                completeSummary(summary, outputGenerator);
+            }
 
-                    detectedPerfumes.addAll(detections);
+            timer.stop();
+            Path analysisPath = toRealPath(sources).orElse(sources);
+            log.info(i18n.getApplicationResource("log.info.analysis.done"), analysisPath, timer.getTime(TimeUnit.SECONDS));
 
-                    // Generate Listing if batch size has already been reached, clear list
-                    if (detectedPerfumes.size() >= outputGenerator.getConfig().getBatchSize()) {
-                        generateListing(detectedPerfumes, outputGenerator);
-                        detectedPerfumes.clear();
-                    }
-                });
+            lastSummary = summary;
+        } finally {
+            endRun();
+        }
+    }
 
-            } catch (Exception e) {
-                log.error(i18n.getApplicationResource("log.error.analysis.unknown"));
-                throw new AnalysisException(e.getMessage(), e);
+    /**
+     * Opens the {@link AnalysisJournal} for the analysis of a directory. When resuming, restores the statistics of
+     * the completed files into the given summary and continues the listings after the last completely written one.
+     *
+     * @throws SerializationException If the journal can not be opened or the listings can not be restored.
+     */
+    @NotNull
+    private AnalysisJournal openJournal(@NotNull OutputConfiguration config, boolean resume,
+                                        @NotNull StatisticsSummary<Perfume> summary,
+                                        @NotNull PerfumeJsonOutputGenerator outputGenerator) {
+        try {
+            Optional<AnalysisJournal> resumedJournal = resume
+                    ? AnalysisJournal.resume(config.getOutputDirectory()) : Optional.empty();
+            if (resumedJournal.isEmpty()) {
+                return AnalysisJournal.create(config.getOutputDirectory());
             }
 
-            // Generate final listing when analysis is complete
-            generateListing(detectedPerfumes, outputGenerator);
+            AnalysisJournal journal = resumedJournal.get();
+            Map<String, Perfume> perfumesByName = new HashMap<>();
+            summary.getDetectableStatistics().keySet().forEach(perfume -> perfumesByName.put(perfume.getName(), perfume));
 
-        } else {
-            List<DetectedInstance<Perfume>> detections = detectInSingleSourceFile(sources);
+            // Replay the completed files in the order of their analysis, like they were added to the statistics
+            for (AnalysisJournal.Entry entry : journal.getCompletedFiles()) {
+                summary.addToStatistics(entry.getSourceFile());
+
+                for (String perfumeName : entry.getDetectedPerfumes()) {
+                    // Perfumes that are not registered were added to the statistics with their detections
+                    Perfume perfume = perfumesByName.computeIfAbsent(perfumeName, name -> {
+                        Perfume unregistered = new Perfume();
+                        unregistered.setName(name);
+                        return unregistered;
+                    });
+
+                    summary.addToStatistics(new DetectedInstance<Perfume>().setDetectable(perfume)
+                            .setSourceFile(entry.getSourceFile()));
+                }
 
-            summary.addToStatistics(sources);
-            summary.addToStatistics(detections);
+                summary.addSkippedAnalyses(entry.getSkippedAnalyses());
+            }
+
+            outputGenerator.resume(journal.getLastListingNumber(), new HashSet<>(summary.getAnalyzedFiles()));
+            log.info(i18n.getApplicationResource("log.info.analysis.resumed"), journal.getCompletedFiles().size(),
+                    journal.getLastListingNumber());
 
-            generateListing(detections, outputGenerator);
+            return journal;
+
+        } catch (IOException e) {
+            log.error(i18n.getApplicationResource("log.error.serialization.journal"));
+            throw new SerializationException(e.getMessage(), e);
         }
+    }
 
-        timer.stop();
-        Path analysisPath = toRealPath(sources).orElse(sources);
-        log.info(i18n.getApplicationResource("log.info.analysis.done"), analysisPath, timer.getTime(TimeUnit.SECONDS));
+    private void journal(@NotNull JournalWrite write) throws SerializationException {
+        try {
+            write.run();
+        } catch (IOException e) {
+            log.error(i18n.getApplicationResource("log.error.serialization.journal"));
+            throw new SerializationException(e.getMessage(), e);
+        }
+    }
 
-        // Generate Summary
+    private void completeSummary(@NotNull StatisticsSummary<Perfume> summary,
+                                 @NotNull OutputGenerator<Perfume> outputGenerator) throws SerializationException {
         try {
             outputGenerator.complete(summary);
 
@@ -252,8 +630,84 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
         }
     }
 
+    private void writeSampleEstimates(@NotNull OutputConfiguration config) throws SerializationException {
+        JsonMapper mapper = new JsonMapper();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+
+        try {
+            mapper.writeValue(config.getOutputDirectory().resolve(SampleEstimates.FILE_NAME).toFile(),
+                    lastSampleEstimates);
+
+        } catch (IOException e) {
+            log.error(i18n.getApplicationResource("log.error.serialization.complete"));
+            throw new SerializationException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Analyses the given source files of the given directory, with the contexts of the directory, like
+     * {@link #detect} analyses all files of the directory. Meant for analysing a directory in parts, e.g. by the
+     * workers of an {@link de.jsilbereisen.perfumator.engine.worker.AnalysisCoordinator}.
+     *
+     * @param sources     The directory that contains the source files.
+     * @param sourceFiles The Java source files to analyse.
+     * @return The detections in the given files, in their order, and the statistics of the files.
+     * @throws IllegalArgumentException If the given sources are not a directory.
+     */
+    @NotNull
+    public AnalysisResult<Perfume> detectInSourceFiles(@NotNull Path sources, @NotNull List<Path> sourceFiles) {
+        if (!Files.isDirectory(sources)) {
+            throw new IllegalArgumentException(i18n.getApplicationResource("exception.invalidSourcesPath"));
+        }
+
+        return detectInSourceFiles(SourcesLayout.of(sources), sourceFiles);
+    }
+
+    /**
+     * Analyses the given source files of a directory with the given layout, like
+     * {@link #detectInSourceFiles(Path, List)}, but without inspecting the layout of the directory again. Meant for
+     * analysing many parts of the same directory, e.g. batches, while the directory does not change otherwise.
+     *
+     * @param layout      The layout of the directory that contains the source files.
+     * @param sourceFiles The Java source files to analyse.
+     * @return The detections in the given files, in their order, and the statistics of the files.
+     * @throws IllegalArgumentException If the sources of the layout are not a directory.
+     */
+    @NotNull
+    public AnalysisResult<Perfume> detectInSourceFiles(@NotNull SourcesLayout layout, @NotNull List<Path> sourceFiles) {
+        if (!Files.isDirectory(layout.getSources())) {
+            throw new IllegalArgumentException(i18n.getApplicationResource("exception.invalidSourcesPath"));
+        }
+
+        StatisticsSummary<Perfume> summary = createSummary();
+        List<DetectedInstance<Perfume>> detectedPerfumes = new ArrayList<>();
+
+        try {
+            analyseSourceFiles(layout, sourceFiles::stream, (sourceFile, analysis) -> {
+                summary.addToStatistics(sourceFile.getRealPath());
+                summary.addToStatistics(analysis.getDetections());
+                summary.addSkippedAnalyses(analysis.getSkippedAnalyses());
+
+                detectedPerfumes.addAll(analysis.getDetections());
+            });
+
+            return new AnalysisResult<>(detectedPerfumes, summary);
+        } finally {
+            endRun();
+        }
+    }
+
     @NotNull
     public List<DetectedInstance<Perfume>> detectInSingleSourceFile(@NotNull Path javaSourceFilePath) {
+        try {
+            return analyseSingleSourceFile(javaSourceFilePath).getDetections();
+        } finally {
+            endRun();
+        }
+    }
+
+    @NotNull
+    private FileAnalysis analyseSingleSourceFile(@NotNull Path javaSourceFilePath) {
         if (!PathUtil.isJavaSourceFile(javaSourceFilePath)) {
             throw new IllegalArgumentException(i18n.getApplicationResource("exception.notJavaSourceFile"));
         }
@@ -262,65 +716,414 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
             astParser = getConfiguredJavaParser();
         }
 
-        List<DetectedInstance<Perfume>> detectedPerfumes = new ArrayList<>();
+        if (analysisContext == null) {
+            analysisContext = obtainAnalysisContext(javaSourceFilePath, SourcesSnapshot.take(javaSourceFilePath));
+        }
 
-        // Parse source file to AST
-        ParseResult<CompilationUnit> parseResult;
+        SourceFile sourceFile;
         try {
-            parseResult = astParser.parse(javaSourceFilePath);
-        } catch (ParseProblemException e) {
-            log.error(i18n.getApplicationResource("log.error.parse.prePath") + javaSourceFilePath + i18n.getApplicationResource("log.error.parse.postPath"));
-            return Collections.emptyList();
+            sourceFile = SourceFile.read(javaSourceFilePath);
         } catch (IOException e) {
             log.error(i18n.getApplicationResource("log.error.analysis.unknown"));
             throw new AnalysisException(e.getMessage(), e);
         }
 
-        assert parseResult != null;
+        return detectInSourceFile(sourceFile, astParser, analysisContext, inDetectionOrder(getSelectedDetectors()));
+    }
 
-        CompilationUnit ast;
-        if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
-            ast = parseResult.getResult().get();
-        } else {
-            log.error(i18n.getApplicationResource("log.error.parse.prePath") + javaSourceFilePath + i18n.getApplicationResource("log.error.parse.postPath"));
+    /**
+     * Analyses the given source text, which is not read from the file system, e.g. the unsaved content of an editor.
+     * Symbols are resolved with the current analysis context of the engine, i.e. the one of the last analysed sources,
+     * or else with the dependencies of the engine only.
+     *
+     * @param source   The content of a Java source file.
+     * @param fileName The logical name of the file, under which the detections are reported.
+     * @return The detections in the source and the statistics of the file.
+     * @throws AnalysisException If a detector fails.
+     */
+    @NotNull
+    public AnalysisResult<Perfume> detectInSource(@NotNull CharSequence source, @NotNull Path fileName) {
+        return detectInSource(source, fileName, null);
+    }
+
+    /**
+     * Analyses the given source text, which is not read from the file system, as a file of the given sources. Symbols
+     * are resolved with the cached context of the sources, like in {@link #detect}, so the source can refer to the
+     * other files of its project, e.g. while it is edited.<br/>
+     * Unlike the other analyses, a cached context is not checked for changes of the files of the sources, to keep
+     * the analysis of an edited source fast. Call {@link #refresh(Path)} when files of the sources were saved, and
+     * {@link #invalidate(Path)} when files were added or deleted.
+     *
+     * @param source   The content of a Java source file.
+     * @param fileName The logical name of the file, under which the detections are reported.
+     * @param sources  The directory whose context resolves the symbols, or {@code null} for the current context of the
+     *                 engine, see {@link #detectInSource(CharSequence, Path)}.
+     * @return The detections in the source and the statistics of the file.
+     * @throws AnalysisException If a detector fails.
+     */
+    @NotNull
+    public AnalysisResult<Perfume> detectInSource(@NotNull CharSequence source, @NotNull Path fileName,
+                                                  @Nullable Path sources) {
+        return detectInSource(source, fileName, sources, null);
+    }
+
+    /**
+     * Analyses the given source text as a file of the given sources, like
+     * {@link #detectInSource(CharSequence, Path, Path)}, until the given cancellation condition holds. The condition
+     * is checked before each detector and before a type is resolved, see {@link AnalysisDeadline#cancellable}, e.g.
+     * so that an editor integration stops the analysis of a source that was edited in the meantime.
+     *
+     * @param source       The content of a Java source file.
+     * @param fileName     The logical name of the file, under which the detections are reported.
+     * @param sources      The directory whose context resolves the symbols, or {@code null} for the current context
+     *                     of the engine.
+     * @param cancellation Whether the analysis is cancelled, {@code null} for none. Might be called on the threads of
+     *                     the {@link DetectorPool}.
+     * @return The detections in the source and the statistics of the file.
+     * @throws AnalysisCancelledException If the analysis was cancelled.
+     * @throws AnalysisException          If a detector fails.
+     */
+    @NotNull
+    public AnalysisResult<Perfume> detectInSource(@NotNull CharSequence source, @NotNull Path fileName,
+                                                  @Nullable Path sources, @Nullable BooleanSupplier cancellation) {
+        ensureOpen();
+        assert astParser != null;
+
+        AnalysisDeadline fileDeadline = AnalysisDeadline.cancellable(
+                AnalysisDeadline.after(fileTimeout, SkippedAnalysis.Reason.FILE_TIMEOUT), cancellation);
+        Charset encoding = astParser.getParserConfiguration().getCharacterEncoding();
+
+        ParseResult<CompilationUnit> parseResult = astParser.parse(ParseStart.COMPILATION_UNIT,
+                Providers.provider(source.toString()));
+        CompilationUnit ast = parseResult.getResult().filter(result -> parseResult.isSuccessful()).orElse(null);
+
+        if (ast == null) {
+            log.error(i18n.getApplicationResource("log.error.parse.prePath") + fileName + i18n.getApplicationResource("log.error.parse.postPath"));
 
             for (Problem problem : parseResult.getProblems()) {
                 log.error(i18n.getApplicationResource("log.error.parse.problem") + " " + problem.getVerboseMessage());
             }
 
-            return Collections.emptyList();
+            StatisticsSummary<Perfume> summary = createSummary();
+            summary.addToStatistics(fileName);
+            return new AnalysisResult<>(new ArrayList<>(), summary);
         }
 
-        // Apply all Detectors on the AST
-        for (Detector<Perfume> detector : perfumeRegistry.getRegisteredDetectors()) {
-            detector.setAnalysisContext(analysisContext);
+        ast.setStorage(fileName, encoding);
 
-            List<DetectedInstance<Perfume>> detections;
-            try {
-                detections = detector.detect(ast);
-            } catch (Throwable t) {
-                // We want to catch EVERYTHING here, e.g. also StackOverflowError, just to be able to
-                // give it additional context by giving the file name that was being analysed + the detector.
-                throw new AnalysisException("Exception when analysing source file " + javaSourceFilePath
-                        + " with detector " + detector.getClass().getSimpleName(), t);
-            }
+        return detectInCompilationUnit(ast, fileName, sources, fileDeadline);
+    }
 
-            detections.forEach(det -> toRealPath(javaSourceFilePath).ifPresentOrElse(
-                    det::setSourceFile,
-                    () -> det.setSourceFile(javaSourceFilePath)
-            ));
+    /**
+     * Analyses the given, already parsed compilation unit, e.g. one that an editor integration keeps parsed.
+     * Symbols are resolved with the current analysis context of the engine, like in
+     * {@link #detectInSource(CharSequence, Path)}.
+     *
+     * @param ast      The compilation unit. Should have been parsed by a parser with the configuration of
+     *                 {@link #getConfiguredJavaParser()}.
+     * @param fileName The logical name of the file, under which the detections are reported. If the compilation
+     *                 unit has no storage yet, its storage is set to this name.
+     * @return The detections in the compilation unit and the statistics of the file.
+     * @throws AnalysisException If a detector fails.
+     */
+    @NotNull
+    public AnalysisResult<Perfume> detectInCompilationUnit(@NotNull CompilationUnit ast, @NotNull Path fileName) {
+        ensureOpen();
+        assert astParser != null;
 
-            detectedPerfumes.addAll(detections);
+        if (ast.getStorage().isEmpty()) {
+            ast.setStorage(fileName, astParser.getParserConfiguration().getCharacterEncoding());
         }
 
-        return detectedPerfumes;
+        return detectInCompilationUnit(ast, fileName, null,
+                AnalysisDeadline.after(fileTimeout, SkippedAnalysis.Reason.FILE_TIMEOUT));
     }
 
-    @Override
     @NotNull
-    public DetectableRegistry<Perfume> getRegistry() {
-        return perfumeRegistry;
-    }
+    private AnalysisResult<Perfume> detectInCompilationUnit(@NotNull CompilationUnit ast, @NotNull Path fileName,
+                                                            @Nullable Path sources,
+                                                            @Nullable AnalysisDeadline fileDeadline) {
+        try {
+            JavaParserFacade context;
+            if (sources != null) {
+                // Reused without walking the sources for changes, which would cost more than the analysis
+                context = obtainAnalysisContext(sources, null);
+            } else if (analysisContext != null) {
+                context = analysisContext;
+            } else {
+                context = obtainDependencyContext();
+            }
+
+            FileAnalysis analysis = detectInCompilationUnit(ast, fileName, fileName, context,
+                    inDetectionOrder(getSelectedDetectors()), fileDeadline);
+
+            StatisticsSummary<Perfume> summary = createSummary();
+            summary.addToStatistics(fileName);
+            summary.addToStatistics(analysis.getDetections());
+            summary.addSkippedAnalyses(analysis.getSkippedAnalyses());
+
+            return new AnalysisResult<>(new ArrayList<>(analysis.getDetections()), summary);
+        } finally {
+            endRun();
+        }
+    }
+
+    /**
+     * Parses the given source file with the given parser and applies the given detectors with the given context.
+     * Parsers, contexts and detectors are not thread-safe, so concurrent calls must not share any of them.<br/>
+     * If the engine has a {@link DetectorPool}, the detectors that do not resolve symbols run in parallel on the
+     * pool. The detections are in the order of the given detectors either way.<br/>
+     * The analysis of the file and of each detector is limited by the engine's time budgets, see
+     * {@link AnalysisDeadline}.
+     */
+    @NotNull
+    private FileAnalysis detectInSourceFile(@NotNull SourceFile sourceFile, @NotNull JavaParser parser,
+                                            @NotNull JavaParserFacade context,
+                                            @NotNull Collection<Detector<Perfume>> detectors) {
+        Path javaSourceFilePath = sourceFile.getPath();
+        AnalysisDeadline fileDeadline = AnalysisDeadline.after(fileTimeout, SkippedAnalysis.Reason.FILE_TIMEOUT);
+
+        // A query does not even parse the files anymore, once no detector is left
+        LimitedQuery query = activeQuery;
+        if (query != null && detectors.stream().allMatch(query::isDisabled)) {
+            return FileAnalysis.empty();
+        }
+
+        // Parse source file to AST
+        ParseResult<CompilationUnit> parseResult;
+        try {
+            parseResult = sourceFile.parse(parser);
+        } catch (ParseProblemException e) {
+            log.error(i18n.getApplicationResource("log.error.parse.prePath") + javaSourceFilePath + i18n.getApplicationResource("log.error.parse.postPath"));
+            return FileAnalysis.empty();
+        }
+
+        assert parseResult != null;
+
+        CompilationUnit ast;
+        if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
+            ast = parseResult.getResult().get();
+        } else {
+            log.error(i18n.getApplicationResource("log.error.parse.prePath") + javaSourceFilePath + i18n.getApplicationResource("log.error.parse.postPath"));
+
+            for (Problem problem : parseResult.getProblems()) {
+                log.error(i18n.getApplicationResource("log.error.parse.problem") + " " + problem.getVerboseMessage());
+            }
+
+            return FileAnalysis.empty();
+        }
+
+        return detectInCompilationUnit(ast, javaSourceFilePath, sourceFile.getRealPath(), context, detectors,
+                fileDeadline);
+    }
+
+    /**
+     * Applies the given detectors with the given context to the given AST of a file, like
+     * {@link #detectInSourceFile}.
+     *
+     * @param path         The path of the file, for logging.
+     * @param realPath     The path of the file that the detections are reported for.
+     * @param fileDeadline The deadline of the file's analysis, which might already have begun with parsing.
+     */
+    @NotNull
+    private FileAnalysis detectInCompilationUnit(@NotNull CompilationUnit ast, @NotNull Path path,
+                                                 @NotNull Path realPath, @NotNull JavaParserFacade context,
+                                                 @NotNull Collection<Detector<Perfume>> detectors,
+                                                 @Nullable AnalysisDeadline fileDeadline) {
+        LimitedQuery query = activeQuery;
+        Collection<Detector<Perfume>> appliedDetectors = query == null ? detectors
+                : detectors.stream().filter(detector -> !query.isDisabled(detector)).toList();
+
+        List<FileAnalysis> detectorResults = new ArrayList<>();
+        if (detectorPool != null && appliedDetectors.size() > 1) {
+            appliedDetectors.forEach(detector -> detector.setAnalysisContext(context));
+            detectorResults.addAll(detectorPool.detect(ast, appliedDetectors,
+                    detector -> applyDetector(detector, ast, path, realPath, fileDeadline)));
+
+        } else {
+            for (Detector<Perfume> detector : appliedDetectors) {
+                detector.setAnalysisContext(context);
+                detectorResults.add(applyDetector(detector, ast, path, realPath, fileDeadline));
+            }
+        }
+
+        FileAnalysis analysis = FileAnalysis.concat(detectorResults);
+        analysis.getDetections().forEach(det -> det.setSourceFile(realPath));
+
+        return analysis;
+    }
+
+    /**
+     * Applies the given detector to the given AST, within the file's deadline and the engine's detector time
+     * budget. If the engine continues on errors, a detector that exceeds a budget or fails is skipped.
+     */
+    @NotNull
+    private FileAnalysis applyDetector(@NotNull Detector<Perfume> detector, @NotNull CompilationUnit ast,
+                                       @NotNull Path path, @NotNull Path realPath,
+                                       @Nullable AnalysisDeadline fileDeadline) {
+        AnalysisDeadline deadline = AnalysisDeadline.earliest(fileDeadline,
+                AnalysisDeadline.after(detectorTimeout, SkippedAnalysis.Reason.DETECTOR_TIMEOUT));
+
+        try {
+            if (deadline != null) {
+                // The budget of the file might already be used up by the previous detectors
+                deadline.check();
+            }
+
+            return FileAnalysis.of(AnalysisDeadline.callWithin(deadline, () -> detector.detect(ast)));
+
+        } catch (AnalysisCancelledException e) {
+            // Aborts the analysis, instead of skipping the detector
+            throw e;
+
+        } catch (Throwable t) {
+            // Errors of the JVM, except for a too deep recursion, leave it in a state in which the analysis can not
+            // continue
+            boolean skippable = !(t instanceof VirtualMachineError) || t instanceof StackOverflowError;
+            if (continueOnError && skippable) {
+                return FileAnalysis.skipped(skip(path, realPath, detector, t));
+            }
+
+            // We want to catch EVERYTHING here, e.g. also StackOverflowError, just to be able to
+            // give it additional context by giving the file name that was being analysed + the detector.
+            throw new AnalysisException("Exception when analysing source file " + path
+                    + " with detector " + detector.getClass().getSimpleName(), t);
+        }
+    }
+
+    @NotNull
+    private SkippedAnalysis skip(@NotNull Path path, @NotNull Path realPath, @NotNull Detector<Perfume> detector,
+                                 @NotNull Throwable cause) {
+        SkippedAnalysis skipped = cause instanceof AnalysisTimeoutException timeout
+                ? new SkippedAnalysis(realPath, detector.getClass().getSimpleName(), timeout.getReason(), null)
+                : new SkippedAnalysis(realPath, detector.getClass().getSimpleName(), SkippedAnalysis.Reason.ERROR,
+                        cause.toString());
+
+        log.warn(i18n.getApplicationResource("log.warn.analysis.skipped"), skipped.getDetector(), path,
+                skipped.getReason());
+        log.debug("Skipped detector " + skipped.getDetector() + " on " + path + ".", cause);
+
+        return skipped;
+    }
+
+    @Override
+    @NotNull
+    public DetectableRegistry<Perfume> getRegistry() {
+        return perfumeRegistry;
+    }
+
+    /**
+     * Sets the {@link JavaParser} to use for parsing. As the analysis contexts depend on the parser's configuration,
+     * all cached contexts are discarded.
+     *
+     * @param astParser The parser. If {@code null}, a parser from {@link #getConfiguredJavaParser()} is used.
+     */
+    public void setAstParser(@Nullable JavaParser astParser) {
+        this.astParser = astParser;
+        invalidate();
+    }
+
+    /**
+     * Discards all cached analysis contexts, so that the next analysis re-collects source roots and re-opens all
+     * dependencies.
+     */
+    public void invalidate() {
+        contextCache.invalidateAll();
+        runContexts.clear();
+        analysisContext = null;
+    }
+
+    /**
+     * Discards the cached analysis contexts for the given sources, e.g. after source roots of the project
+     * were added or removed.
+     *
+     * @param sources The analysed sources, as given to {@link #detect} or {@link #detectAndSerialize}.
+     */
+    public void invalidate(@NotNull Path sources) {
+        contextCache.invalidate(sources);
+        runContexts.clear();
+        analysisContext = null;
+    }
+
+    /**
+     * Clears the caches of the analysis contexts for the given sources, e.g. after source files of the project
+     * changed, so that their new content is used for symbol resolution. Cheaper than {@link #invalidate(Path)}, as
+     * the source roots are kept, but added source roots are not found.<br/>
+     * The analyses of files on the file system check the cached contexts for changes of the sources on their own, this
+     * is only needed for {@link #detectInSource(CharSequence, Path, Path)}.
+     *
+     * @param sources The analysed sources, as given to {@link #detect} or {@link #detectAndSerialize}.
+     */
+    public void refresh(@NotNull Path sources) {
+        contextCache.refresh(sources);
+    }
+
+    /**
+     * Returns the amount of analysis contexts that are currently cached by this engine.
+     */
+    public int getCachedContextCount() {
+        return contextCache.size();
+    }
+
+    /**
+     * Returns a snapshot of the sizes of the cached analysis contexts and their type solver caches, e.g. to
+     * monitor the memory usage of a long-running process.
+     */
+    @NotNull
+    public AnalysisContextMetrics getContextMetrics() {
+        return contextCache.getMetrics();
+    }
+
+    /**
+     * Discards all cached analysis contexts and stops the threads of the detectors. The engine can not be used for
+     * analyses anymore afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        invalidate();
+
+        if (detectorPool != null) {
+            detectorPool.close();
+        }
+    }
+
+    /**
+     * Returns the {@link Detector}s of all registered {@link Perfume}s that are part of the engine's
+     * {@link PerfumeSelection}. With the default registry, excluded Perfumes are not even loaded, but a custom
+     * registry might still contain them.
+     *
+     * @return The detectors to run in the analysis.
+     */
+    @NotNull
+    public Set<Detector<Perfume>> getSelectedDetectors() {
+        if (selection.isAll()) {
+            return perfumeRegistry.getRegisteredDetectors();
+        }
+
+        Set<Detector<Perfume>> selectedDetectors = new HashSet<>();
+        for (Perfume perfume : perfumeRegistry.getRegisteredDetectables()) {
+            Detector<Perfume> detector = perfumeRegistry.getDetector(perfume);
+
+            if (detector != null && selection.test(perfume)) {
+                selectedDetectors.add(detector);
+            }
+        }
+
+        return selectedDetectors;
+    }
+
+    /**
+     * Creates an empty {@link StatisticsSummary} for the selected {@link Perfume}s.
+     */
+    @NotNull
+    private StatisticsSummary<Perfume> createSummary() {
+        if (selection.isAll()) {
+            return StatisticsSummary.from(perfumeRegistry);
+        }
+
+        return StatisticsSummary.from(perfumeRegistry.getRegisteredDetectables().stream().filter(selection).toList());
+    }
 
     /**
      * Checks the output path of the given {@link OutputConfiguration}.
@@ -329,12 +1132,24 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
      * @param config The config with the output path.
      */
     private void checkOutputConfig(@NotNull OutputConfiguration config) {
-        if (!Files.isDirectory(config.getOutputDirectory())) {
+        checkOutputDirectory(config.getOutputDirectory(), i18n);
+    }
+
+    /**
+     * Checks that the given output directory of an analysis exists and is empty, except for ".gitkeep" files, like
+     * the engine does for {@link #detectAndSerialize}.
+     *
+     * @param outputDirectory The output directory.
+     * @param i18n            The resources for the messages of the exceptions.
+     * @throws IllegalArgumentException If the directory does not exist or is not empty.
+     */
+    public static void checkOutputDirectory(@NotNull Path outputDirectory, @NotNull Bundles i18n) {
+        if (!Files.isDirectory(outputDirectory)) {
             throw new IllegalArgumentException(i18n.getApplicationResource("exception.output.dirNotExists"));
         } else {
             boolean isNotEmpty = false;
 
-            try (Stream<Path> paths = Files.list(config.getOutputDirectory())) {
+            try (Stream<Path> paths = Files.list(outputDirectory)) {
                 isNotEmpty = paths.anyMatch(path -> !path.getFileName().toString().endsWith(".gitkeep"));
 
             } catch (IOException e) {
@@ -347,8 +1162,8 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
         }
     }
 
-    private OutputGenerator<Perfume> getOutputGenerator(@NotNull OutputConfiguration config,
-                                                        @NotNull OutputFormat format) {
+    private PerfumeJsonOutputGenerator getOutputGenerator(@NotNull OutputConfiguration config,
+                                                          @NotNull OutputFormat format) {
         if (format == OutputFormat.CSV) {
             throw new UnsupportedOperationException(i18n.getApplicationResource("exception.output.unsupportedFormat")
                     + " " + format.getAbbreviation());
@@ -367,51 +1182,342 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
     }
 
     /**
-     * Creates a context for resolving symbols from the provided source file/directory and the provided dependencies.
-     * A dependency must either be a JAR Archive or the root package of Java Source files - but be careful, the
-     * latter is not validated!
+     * Analyses all relevant Java source files in the given directory with an {@link AnalysisPipeline} and passes the
+     * detections of each file to the given consumer. The consumer is called on the writer thread of the pipeline, in
+     * the order of the directory walk, which is ordered by file names, see {@link PathUtil#walkInOrder}. Like that, the
+     * order of the detections and the statistics does not depend on the file system or the parallelism.<br/>
+     * If the directory contains multiple {@link ProjectModule}s, the files of each module are analysed with the
+     * module's own context, in a lane of their own, so that modules are analysed in parallel, if the selected
+     * detectors can be instantiated for every lane, see {@link #copySelectedDetectors()}. Files that are not part of a
+     * module are analysed with the context of the whole directory. Otherwise, the files of the directory are analysed
+     * by up to {@link #replicaParallelism} workers in parallel, each with detectors of its own and a replica of the
+     * directory's context, see {@link AnalysisContext#getReplica}. The context and its replicas never exceed the
+     * maximum size of the {@link #contextCache}.<br/>
+     * With a {@link #sampling}, the directory is walked completely first, and only the sampled files are analysed. The
+     * estimates for all files are available from {@link #getLastSampleEstimates()} afterwards.
+     *
+     * @param sources       The directory to analyse.
+     * @param includedFiles Filters the Java source files in the directory that are analysed.
+     * @param fileConsumer  Consumes each analysed source file with its detections.
+     * @throws AnalysisException If walking the directory or analysing a file fails.
+     */
+    private void analyseDirectory(@NotNull Path sources, @NotNull Predicate<Path> includedFiles,
+                                  @NotNull AnalysisPipeline.Sink<FileAnalysis> fileConsumer) {
+        Supplier<Stream<Path>> directoryFiles = () -> PathUtil.walkInOrder(sources)
+                .filter(path -> PathUtil.isRelevantJavaFile(path, sources.getFileName().toString())
+                        && (shard == null || shard.contains(sources, path)));
+
+        if (sampling == null) {
+            analyseSourceFiles(SourcesLayout.of(sources), () -> directoryFiles.get().filter(includedFiles),
+                    fileConsumer);
+            return;
+        }
+
+        // The sample is drawn from all files, so they have to be known before the first one is analysed
+        List<Path> files;
+        try (Stream<Path> walk = directoryFiles.get()) {
+            files = walk.toList();
+        } catch (RuntimeException e) {
+            throw new AnalysisException(e.getMessage(), e);
+        }
+
+        List<Path> sample = sampling.select(sources, files);
+        SampleEstimator estimator = new SampleEstimator(sampling, sources, files, perfumeRegistry
+                .getRegisteredDetectables().stream().filter(selection).map(Perfume::getName).toList());
+        log.info(i18n.getApplicationResource("log.info.analysis.sample"), sample.size(), files.size(),
+                estimator.getStrata());
+
+        SourcesLayout layout = SourcesLayout.of(sources);
+        analyseSourceFiles(layout, () -> sample.stream().filter(includedFiles), (sourceFile, analysis) -> {
+            fileConsumer.accept(sourceFile, analysis);
+            estimator.addFile(sourceFile.getPath(), analysis.getDetections());
+        });
+
+        lastSampleEstimates = estimator.estimate();
+    }
+
+    /**
+     * Analyses the given source files of the given directory with an {@link AnalysisPipeline}, with the contexts of
+     * the directory, like {@link #analyseDirectory}.
+     *
+     * @param layout       The layout of the directory that contains the source files.
+     * @param sourceFiles  Opens the stream of the source files to analyse, which is closed after the analysis.
+     * @param fileConsumer Consumes each analysed source file with its detections, in the order of the stream.
+     * @throws AnalysisException If analysing a file fails.
      */
-    @NotNull
-    private JavaParserFacade createAnalysisContext(@NotNull Path sources, @NotNull List<Path> dependencies) {
-        if (astParser == null) {
-            astParser = getConfiguredJavaParser();
+    private void analyseSourceFiles(@NotNull SourcesLayout layout, @NotNull Supplier<Stream<Path>> sourceFiles,
+                                    @NotNull AnalysisPipeline.Sink<FileAnalysis> fileConsumer) {
+        Path sources = layout.getSources();
+        List<ProjectModule> modules = layout.getModules();
+        boolean modular = layout.isModular();
+        SourcesSnapshot snapshot = layout.getSnapshot();
+
+        if (modular) {
+            ensureOpen();
+        } else {
+            // Has to include the given sources, reused if the same sources were already analysed
+            analysisContext = obtainAnalysisContext(sources, snapshot);
         }
 
-        SymbolSolverCollectionStrategy strategy = new SymbolSolverCollectionStrategy(astParser.getParserConfiguration());
-        strategy.collect(sources);
+        // Each lane, or each analyser of the directory's lane, needs detectors of its own to run in parallel
+        int lanesParallelism = modular ? Math.min(parallelism, modules.size() + 1)
+                : Math.min(replicaParallelism, contextCache.getMaximumSize());
+        boolean parallelLanes = lanesParallelism > 1 && copySelectedDetectors().isPresent();
+        int workerThreads = parallelLanes ? lanesParallelism : 1;
+        if (modular) {
+            log.info(i18n.getApplicationResource("log.info.analysis.modules"), modules.size(), workerThreads);
+        }
 
-        // Very very ugly, but i don't see any other way to get the created TypeSolver at the moment
-        CombinedTypeSolver typeSolver;
-        try {
-            typeSolver = (CombinedTypeSolver) FieldUtils.readField(strategy, "typeSolver", true);
-        } catch (IllegalAccessException e) {
+        try (AnalysisPipeline<FileAnalysis> pipeline = new AnalysisPipeline<>(pipelineCapacity,
+                readerThreads, workerThreads, !parallelLanes, virtualThreadIo)) {
+            // Without modules, all files are in the directory's lane, which is analysed by all workers
+            Lane<FileAnalysis> directoryLane = pipeline.createLane(index -> createFileAnalyser(
+                    modular ? obtainAnalysisContext(sources, snapshot)
+                            : index == 0 ? analysisContext : obtainReplicaContext(sources, snapshot, index),
+                    parallelLanes), modular ? 1 : workerThreads);
+
+            Map<ProjectModule, Lane<FileAnalysis>> moduleLanes = new LinkedHashMap<>();
+            for (ProjectModule module : modules) {
+                moduleLanes.put(module, pipeline.createLane(
+                        () -> createFileAnalyser(obtainModuleContext(module, snapshot), parallelLanes)));
+            }
+
+            Path realSources = toRealPath(sources).orElse(sources.toAbsolutePath());
+            Function<Path, Lane<FileAnalysis>> laneOf = sourceFile -> {
+                if (!modular) {
+                    return directoryLane;
+                }
+
+                Path realPath = realSources.resolve(sources.relativize(sourceFile));
+                return modules.stream().filter(module -> module.containsSource(realPath)).findFirst()
+                        .map(moduleLanes::get).orElse(directoryLane);
+            };
+
+            try (Stream<Path> files = sourceFiles.get()) {
+                pipeline.run(files, laneOf, fileConsumer);
+            }
+
+            PipelineStatistics statistics = pipeline.getStatistics();
+            lastPipelineStatistics = statistics;
+            log.info(i18n.getApplicationResource("log.info.analysis.schedule"), statistics.getAnalysedFiles(),
+                    statistics.getWorkerThreads(), statistics.getWallTimeMillis(), statistics.getStragglerTimeMillis(),
+                    String.format(Locale.ROOT, "%.1f", statistics.getStragglerPercentage()));
+
+        } catch (CancellationException e) {
+            // The consumer stopped the analysis, e.g. a cancelled subscription of a DetectionPublisher
+            throw e;
+        } catch (Exception e) {
             log.error(i18n.getApplicationResource("log.error.analysis.unknown"));
             throw new AnalysisException(e.getMessage(), e);
         }
+    }
+
+    /**
+     * Creates the analyser for a lane of the {@link AnalysisPipeline}.
+     *
+     * @param context      The context for the files of the lane.
+     * @param ownInstances Whether the lane uses a parser and detectors of its own, so that it can run in parallel to
+     *                     other lanes. Otherwise, it uses the engine's parser and detectors.
+     */
+    @NotNull
+    private AnalysisPipeline.FileAnalyser<FileAnalysis> createFileAnalyser(
+            @NotNull JavaParserFacade context, boolean ownInstances) {
+        assert astParser != null;
+
+        JavaParser parser = ownInstances ? new JavaParser(astParser.getParserConfiguration()) : astParser;
+        List<Detector<Perfume>> detectors = inDetectionOrder(ownInstances
+                ? copySelectedDetectors().orElseThrow(
+                        () -> new IllegalStateException("The detectors can not be instantiated for a parallel analysis."))
+                : getSelectedDetectors());
+
+        return sourceFile -> detectInSourceFile(sourceFile, parser, context, detectors);
+    }
+
+    /**
+     * Returns the given detectors in the order in which they are applied to each file: ordered by their class names,
+     * so that the order of the detections of a file does not depend on the hash codes of the detectors, which change
+     * with their analysis context.
+     */
+    @NotNull
+    private static List<Detector<Perfume>> inDetectionOrder(@NotNull Collection<Detector<Perfume>> detectors) {
+        List<Detector<Perfume>> orderedDetectors = new ArrayList<>(detectors);
+        orderedDetectors.sort(Comparator.comparing(detector -> detector.getClass().getName()));
 
-        for (Path dependency : dependencies) {
-            if (!Files.exists(dependency)) {
-                log.error(i18n.getApplicationResource("log.error.analysis.nonExistentDependency"));
+        return orderedDetectors;
+    }
+
+    /**
+     * Creates new instances of the selected {@link Detector}s, so that multiple threads can run them at the same
+     * time. Requires that every selected detector has a no-argument constructor and is linked to its {@link Perfume}
+     * in the registry.
+     *
+     * @return The new detectors, or an empty optional if not all selected detectors could be instantiated.
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private Optional<List<Detector<Perfume>>> copySelectedDetectors() {
+        Set<Detector<Perfume>> selectedDetectors = getSelectedDetectors();
+        List<Detector<Perfume>> copies = new ArrayList<>();
+
+        for (Perfume perfume : perfumeRegistry.getRegisteredDetectables()) {
+            Detector<Perfume> detector = perfumeRegistry.getDetector(perfume);
+            if (detector == null || !selectedDetectors.contains(detector)) {
+                continue;
             }
 
-            if (dependency.toString().endsWith(".jar")) {
-                JarTypeSolver jarSolver;
-                try {
-                    jarSolver = new JarTypeSolver(dependency);
-                } catch (Exception e) {
-                    log.error(i18n.getApplicationResource("log.error.analysis.dependencyUnresolvable"), dependency);
-                    continue;
-                }
-                typeSolver.add(jarSolver);
+            try {
+                Detector<Perfume> copy = detector.getClass().getDeclaredConstructor().newInstance();
+                copy.setConcreteDetectable(perfume);
+                copies.add(copy);
 
-            } else {
-                JavaParserTypeSolver jpTypeSolver = new JavaParserTypeSolver(dependency, astParser.getParserConfiguration(),
-                        JAVA_PARSER_CACHE_LIMIT);
-                typeSolver.add(jpTypeSolver);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.debug("Unable to instantiate " + detector.getClass().getName() + ", modules are analysed sequentially.", e);
+                return Optional.empty();
             }
         }
 
-        return JavaParserFacade.get(typeSolver);
+        return copies.size() == selectedDetectors.size() ? Optional.of(copies) : Optional.empty();
+    }
+
+    /**
+     * Returns the cached analysis context for the given sources and the engine's dependencies, or creates it. A cached
+     * context is brought up to date with the given state of the sources, see
+     * {@link AnalysisContextCache#getOrCreate(AnalysisContextKey, SourcesSnapshot, Function)}.
+     *
+     * @param snapshot The current state of the sources, {@code null} to reuse a cached context as it is.
+     * @throws IllegalStateException If the engine was already closed.
+     */
+    @NotNull
+    private JavaParserFacade obtainAnalysisContext(@NotNull Path sources, @Nullable SourcesSnapshot snapshot) {
+        return obtainContext(sources, snapshot).getFacade();
+    }
+
+    /**
+     * Returns the replica with the given index of the cached analysis context for the given sources, see
+     * {@link #obtainAnalysisContext}, or creates it. Replicas are reused and released with their context, and count
+     * towards the maximum size of the {@link #contextCache}.
+     */
+    @NotNull
+    private JavaParserFacade obtainReplicaContext(@NotNull Path sources, @NotNull SourcesSnapshot snapshot, int index) {
+        AnalysisContextFactory factory = createContextFactory();
+
+        AnalysisContext replica = obtainContext(sources, snapshot)
+                .getReplica(index, () -> factory.create(sources, analysisDependencies));
+        contextCache.evictExcess();
+
+        return replica.getFacade();
+    }
+
+    @NotNull
+    private AnalysisContext obtainContext(@NotNull Path sources, @Nullable SourcesSnapshot snapshot) {
+        ensureOpen();
+
+        AnalysisContextFactory factory = createContextFactory();
+        AnalysisContextKey contextKey = AnalysisContextKey.of(sources, analysisDependencies,
+                getDependencyModificationTimes());
+        Function<AnalysisContextKey, AnalysisContext> create = key -> factory.create(sources, analysisDependencies);
+        AnalysisContext context = snapshot != null ? contextCache.getOrCreate(contextKey, snapshot, create)
+                : contextCache.getOrCreate(contextKey, create);
+        runContexts.add(context);
+
+        return context;
+    }
+
+    /**
+     * Returns the cached analysis context for sources that are not on the file system, which resolves from the
+     * engine's dependencies only, or creates it.
+     */
+    @NotNull
+    private JavaParserFacade obtainDependencyContext() {
+        AnalysisContextFactory factory = createContextFactory();
+        AnalysisContext context = contextCache.getOrCreate(
+                AnalysisContextKey.of(analysisDependencies, getDependencyModificationTimes()),
+                key -> factory.create(analysisDependencies));
+        runContexts.add(context);
+
+        return context.getFacade();
+    }
+
+    /**
+     * Returns the cached analysis context for the given module, with the source roots of its upstream modules and
+     * the engine's dependencies, or creates it. A cached context is brought up to date with the given state of the
+     * whole analysed directory, as the source roots of the upstream modules are part of it.
+     */
+    @NotNull
+    private JavaParserFacade obtainModuleContext(@NotNull ProjectModule module, @NotNull SourcesSnapshot snapshot) {
+        Path moduleSources = module.getSourceDirectory();
+        List<Path> upstreamSourceRoots = module.getUpstreamSourceRoots();
+
+        AnalysisContextFactory factory = createContextFactory();
+        AnalysisContext context = contextCache.getOrCreate(
+                AnalysisContextKey.of(moduleSources, upstreamSourceRoots, analysisDependencies,
+                        getDependencyModificationTimes()), snapshot,
+                key -> factory.create(moduleSources, upstreamSourceRoots, analysisDependencies));
+        runContexts.add(context);
+
+        return context.getFacade();
+    }
+
+    /**
+     * Returns the last modification times of the engine's dependencies in the current run. They are read by the first
+     * call of a run, as that walks every dependency source root, see {@link AnalysisContextKey#readModificationTimes}.
+     */
+    @NotNull
+    private List<Long> getDependencyModificationTimes() {
+        List<Long> modificationTimes = runDependencyModificationTimes;
+        if (modificationTimes == null) {
+            // Threads of the same run might read them twice, with the same result
+            modificationTimes = AnalysisContextKey.readModificationTimes(analysisDependencies);
+            runDependencyModificationTimes = modificationTimes;
+        }
+
+        return modificationTimes;
+    }
+
+    @NotNull
+    private AnalysisContextFactory createContextFactory() {
+        assert astParser != null;
+
+        return new AnalysisContextFactory(astParser.getParserConfiguration(), i18n, parsedFilesCacheLimit,
+                typeCacheLimit, typeIndexStore);
+    }
+
+    /**
+     * Checks that the engine is not closed yet and configures the default parser, if none is set.
+     *
+     * @throws IllegalStateException If the engine was already closed.
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The engine was already closed.");
+        }
+
+        if (astParser == null) {
+            astParser = getConfiguredJavaParser();
+        }
+    }
+
+    /**
+     * Ends an analysis run: the facades of the used contexts are removed from the static registry of the
+     * <i>JavaParser</i>, so that they do not outlive the contexts.
+     */
+    private void endRun() {
+        runContexts.forEach(AnalysisContext::releaseFacade);
+        runContexts.clear();
+        runDependencyModificationTimes = null;
+
+        if (log.isDebugEnabled()) {
+            log.debug("Analysis context metrics: {}", contextCache.getMetrics());
+        }
+    }
+
+    /**
+     * Write to an {@link AnalysisJournal}.
+     */
+    @FunctionalInterface
+    private interface JournalWrite {
+
+        void run() throws IOException;
     }
 
     public static class Builder {
@@ -424,6 +1530,40 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
 
         private List<Path> dependencies;
 
+        private final Locale locale;
+
+        private PerfumeSelection selection = PerfumeSelection.all();
+
+        private int maximumCachedContexts = AnalysisContextCache.DEFAULT_MAXIMUM_SIZE;
+
+        private long parsedFilesCacheLimit = JAVA_PARSER_CACHE_LIMIT;
+
+        private long typeCacheLimit = AnalysisContextFactory.DEFAULT_TYPE_CACHE_LIMIT;
+
+        private Path typeIndexDirectory;
+
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private int replicaParallelism = 1;
+
+        private int pipelineCapacity = AnalysisPipeline.DEFAULT_CAPACITY;
+
+        private int readerThreads = AnalysisPipeline.DEFAULT_READER_THREADS;
+
+        private boolean virtualThreadIo;
+
+        private int detectorParallelism = 1;
+
+        private Duration fileTimeout;
+
+        private Duration detectorTimeout;
+
+        private boolean continueOnError;
+
+        private Shard shard;
+
+        private Sampling sampling;
+
         /**
          * Constructor, sets the default engine state (loads the default {@link Perfume}s and resources with the
          * default locale, specified by {@link LanguageTag#getDefault()}).
@@ -434,23 +1574,23 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
 
         /**
          * Constructor, sets the default engine state (loads the default {@link Perfume}s and resources with the
-         * given {@link Locale}).
+         * given {@link Locale}). The default {@link PerfumeRegistry} is loaded on {@link #build()}, unless a
+         * registry is explicitly set, so that it only instantiates the {@link Detector}s of selected Perfumes.
          */
         public Builder(@NotNull Locale locale) {
-            perfumeRegistry = new PerfumeRegistry();
-            perfumeRegistry.loadRegistry(locale);
+            this.locale = locale;
 
             i18n = new Bundles();
             BundlesLoader bundlesLoader = new BundlesLoader(BundlesLoader.STANDARD_INTERNATIONALIZATION_PACKAGE, BundlesLoader.STANDARD_PERFUMES_PACKAGE, BundlesLoader.STANDARD_APPLICATION_PACKAGE);
             bundlesLoader.loadApplicationBundle(i18n, locale);
 
-            astParser = getConfiguredJavaParser();
-
             dependencies = new ArrayList<>();
         }
 
         /**
-         * Sets the registry. Does <b>not</b> call {@link DetectableRegistry#loadRegistry}.
+         * Sets the registry. Does <b>not</b> call {@link DetectableRegistry#loadRegistry}. A configured
+         * {@link PerfumeSelection} is still applied by the engine, which does not run the detectors of
+         * Perfumes that are not selected.
          *
          * @param registry The registry to use.
          * @return {@code this}.
@@ -497,9 +1637,307 @@ public class PerfumeDetectionEngine implements DetectionEngine<Perfume> {
             return this;
         }
 
+        /**
+         * Sets the selection of {@link Perfume}s to detect. By default, all Perfumes are selected.
+         *
+         * @param selection The selection.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder selection(@NotNull PerfumeSelection selection) {
+            this.selection = selection;
+            return this;
+        }
+
+        /**
+         * Only detect the {@link Perfume}s that match the given selectors (name, detector class name or related
+         * pattern). See {@link PerfumeSelection} for details.
+         *
+         * @param selectors Selectors for the Perfumes to include.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder only(@NotNull String... selectors) {
+            this.selection = selection.include(selectors);
+            return this;
+        }
+
+        /**
+         * Do not detect the {@link Perfume}s that match the given selectors (name, detector class name or related
+         * pattern). See {@link PerfumeSelection} for details.
+         *
+         * @param selectors Selectors for the Perfumes to exclude.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder exclude(@NotNull String... selectors) {
+            this.selection = selection.exclude(selectors);
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of analysis contexts that the engine caches. Default is
+         * {@link AnalysisContextCache#DEFAULT_MAXIMUM_SIZE}.
+         *
+         * @param maximumCachedContexts The maximum amount. Must be positive.
+         * @return {@code this}.
+         * @throws IllegalArgumentException If the amount is not positive.
+         */
+        @NotNull
+        public Builder maximumCachedContexts(int maximumCachedContexts) {
+            requirePositive(maximumCachedContexts, "maximumCachedContexts");
+            this.maximumCachedContexts = maximumCachedContexts;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of parsed files and directories that each {@link JavaParserTypeSolver} caches.
+         * Default is {@link #JAVA_PARSER_CACHE_LIMIT}.
+         *
+         * @param parsedFilesCacheLimit The maximum amount. Must be positive.
+         * @return {@code this}.
+         * @throws IllegalArgumentException If the amount is not positive.
+         */
+        @NotNull
+        public Builder parsedFilesCacheLimit(long parsedFilesCacheLimit) {
+            requirePositive(parsedFilesCacheLimit, "parsedFilesCacheLimit");
+            this.parsedFilesCacheLimit = parsedFilesCacheLimit;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of resolved types that each type solver caches. Default is
+         * {@link AnalysisContextFactory#DEFAULT_TYPE_CACHE_LIMIT}.
+         *
+         * @param typeCacheLimit The maximum amount. Must be positive.
+         * @return {@code this}.
+         * @throws IllegalArgumentException If the amount is not positive.
+         */
+        @NotNull
+        public Builder typeCacheLimit(long typeCacheLimit) {
+            requirePositive(typeCacheLimit, "typeCacheLimit");
+            this.typeCacheLimit = typeCacheLimit;
+            return this;
+        }
+
+        /**
+         * Sets the directory in which the type indices of the JAR dependencies are stored, see
+         * {@link JarTypeIndexStore}. With an index, a JAR is only opened when one of its types is needed for
+         * resolving symbols. The {@link JdkTypeIndex} is persisted in the same directory. By default, no index is
+         * used.
+         *
+         * @param typeIndexDirectory The directory. Is created, if it does not exist yet.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder typeIndexDirectory(@Nullable Path typeIndexDirectory) {
+            this.typeIndexDirectory = typeIndexDirectory;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of threads that analyse the modules of a multi-module project in parallel, see
+         * {@link ProjectModules}. Default is the amount of available processors.
+         *
+         * @param parallelism The maximum amount. Must be positive.
+         * @return {@code this}.
+         * @throws IllegalArgumentException If the amount is not positive.
+         */
+        @NotNull
+        public Builder parallelism(int parallelism) {
+            requirePositive(parallelism, "parallelism");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of threads that analyse the files of a directory without modules in parallel. Each
+         * additional thread uses a replica of the directory's analysis context: a context of its own, with its own
+         * type solvers for the source roots, JARs and the JDK, and its own caches, see
+         * {@link AnalysisContext#getReplica}. A replica costs as much memory as the context itself and counts towards
+         * {@link #maximumCachedContexts(int)}, which also limits the amount of threads. Default is {@code 1}, which
+         * analyses the files with the directory's context only.
+         *
+         * @param replicaParallelism The maximum amount. Must be positive.
+         * @return {@code this}.
+         * @throws IllegalArgumentException If the amount is not positive.
+         */
+        @NotNull
+        public Builder replicaParallelism(int replicaParallelism) {
+            requirePositive(replicaParallelism, "replicaParallelism");
+            this.replicaParallelism = replicaParallelism;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of files that are read ahead or analysed, but not yet serialized, see
+         * {@link AnalysisPipeline}. Default is {@link AnalysisPipeline#DEFAULT_CAPACITY}.
+         *
+         * @param pipelineCapacity The maximum amount. Must be positive.
+         * @return {@code this}.
+         * @throws IllegalArgumentException If the amount is not positive.
+         */
+        @NotNull
+        public Builder pipelineCapacity(int pipelineCapacity) {
+            requirePositive(pipelineCapacity, "pipelineCapacity");
+            this.pipelineCapacity = pipelineCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the amount of threads that read the analysed files ahead of parsing, see {@link AnalysisPipeline}.
+         * Default is {@link AnalysisPipeline#DEFAULT_READER_THREADS}.
+         *
+         * @param readerThreads The amount. Must be positive.
+         * @return {@code this}.
+         * @throws IllegalArgumentException If the amount is not positive.
+         */
+        @NotNull
+        public Builder readerThreads(int readerThreads) {
+            requirePositive(readerThreads, "readerThreads");
+            this.readerThreads = readerThreads;
+            return this;
+        }
+
+        /**
+         * Sets whether the analysed files are walked and read on virtual threads, which requires a Java 21+
+         * runtime, see {@link VirtualThreads}. Each file is then read on a virtual thread of its own, so that up to
+         * {@link #pipelineCapacity(int)} reads can wait for the file system at the same time, e.g. on network file
+         * systems, while parsing and detection still run on a fixed amount of threads. On older runtimes, the files
+         * are read by the {@link #readerThreads(int) reader threads}. Disabled by default.
+         *
+         * @param virtualThreadIo Whether to use virtual threads for I/O.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder virtualThreadIo(boolean virtualThreadIo) {
+            this.virtualThreadIo = virtualThreadIo;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of detectors that analyse the same file at the same time, see
+         * {@link Detector#resolvesSymbols()}. The detectors that only read the AST run in parallel on a
+         * {@link java.util.concurrent.ForkJoinPool} of the engine, while the detectors that resolve symbols run one
+         * after another on the thread that analyses the file. The order of the detections does not change. Default
+         * is {@code 1}, which runs all detectors of a file one after another.
+         *
+         * @param detectorParallelism The maximum amount. Must be positive.
+         * @return {@code this}.
+         * @throws IllegalArgumentException If the amount is not positive.
+         */
+        @NotNull
+        public Builder detectorParallelism(int detectorParallelism) {
+            requirePositive(detectorParallelism, "detectorParallelism");
+            this.detectorParallelism = detectorParallelism;
+            return this;
+        }
+
+        /**
+         * Sets the time budget for the analysis of a file, from the start of parsing until the last detector is
+         * done. The budget is checked before each detector and while resolving symbols, see
+         * {@link AnalysisDeadline}. By default, there is no budget.
+         *
+         * @param fileTimeout The budget, {@code null} for none.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder fileTimeout(@Nullable Duration fileTimeout) {
+            this.fileTimeout = fileTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the time budget for applying a single detector to a file. The budget is checked while resolving
+         * symbols, see {@link AnalysisDeadline}. By default, there is no budget.
+         *
+         * @param detectorTimeout The budget, {@code null} for none.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder detectorTimeout(@Nullable Duration detectorTimeout) {
+            this.detectorTimeout = detectorTimeout;
+            return this;
+        }
+
+        /**
+         * Sets whether a detector that exceeds a time budget or fails with an exception (or a
+         * {@link StackOverflowError}) is skipped for the file, instead of aborting the whole analysis. Skipped
+         * detectors are recorded in the {@link StatisticsSummary}. Disabled by default.
+         *
+         * @param continueOnError Whether to continue on errors.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder continueOnError(boolean continueOnError) {
+            this.continueOnError = continueOnError;
+            return this;
+        }
+
+        /**
+         * Sets the shard of the files of an analysed directory that is analysed, to split an analysis across
+         * multiple processes. By default, all files are analysed.
+         *
+         * @param shard The shard, {@code null} for all files.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder shard(@Nullable Shard shard) {
+            this.shard = shard;
+            return this;
+        }
+
+        /**
+         * Sets the sampling of the files of an analysed directory, to only analyse a random sample of the files and
+         * estimate the detections in all of them. By default, all files are analysed.
+         *
+         * @param sampling The sampling, {@code null} for all files.
+         * @return {@code this}.
+         */
+        @NotNull
+        public Builder sampling(@Nullable Sampling sampling) {
+            this.sampling = sampling;
+            return this;
+        }
+
+        private static void requirePositive(long amount, @NotNull String setting) {
+            if (amount <= 0) {
+                throw new IllegalArgumentException("The setting \"" + setting + "\" must be positive, but was "
+                        + amount + ".");
+            }
+        }
+
         @NotNull
         public PerfumeDetectionEngine build() {
-            return new PerfumeDetectionEngine(perfumeRegistry, i18n, astParser, dependencies);
+            // Every engine gets its own default registry and parser, as their detectors and the parser are not
+            // thread-safe
+            DetectableRegistry<Perfume> registry = perfumeRegistry;
+            if (registry == null) {
+                PerfumeRegistry defaultRegistry = new PerfumeRegistry();
+                defaultRegistry.setSelection(selection);
+                defaultRegistry.loadRegistry(locale);
+
+                registry = defaultRegistry;
+            }
+
+            JarTypeIndexStore typeIndexStore = null;
+            if (typeIndexDirectory != null) {
+                try {
+                    typeIndexStore = new JarTypeIndexStore(typeIndexDirectory);
+                    JdkTypeIndex.load(typeIndexStore.getDirectory());
+                } catch (IOException e) {
+                    log.error(i18n.getApplicationResource("log.error.analysis.typeIndexUnavailable"), typeIndexDirectory);
+                }
+            }
+
+            JavaParser parser = astParser != null ? astParser : getConfiguredJavaParser();
+
+            if (virtualThreadIo && !VirtualThreads.isAvailable()) {
+                log.warn(i18n.getApplicationResource("log.warn.analysis.virtualThreadsUnavailable"),
+                        Runtime.version().feature());
+            }
+
+            return new PerfumeDetectionEngine(this, registry, parser, typeIndexStore);
         }
     }
 }
@@ -0,0 +1,293 @@
+package de.jsilbereisen.perfumator.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.SampleEstimates;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extrapolates the detections in the files of a {@link Sampling} to all files of the analysed directory, see
+ * {@link SampleEstimates}.<br/>
+ * The detections of the analysed files are {@link #addFile added} one after another. Only sums per stratum and
+ * Perfume are kept, so the memory does not grow with the amount of analysed files.
+ */
+class SampleEstimator {
+
+    @NotNull
+    private final Sampling sampling;
+
+    @NotNull
+    private final Path sources;
+
+    @NotNull
+    private final List<String> perfumes;
+
+    /**
+     * Sums of each stratum, by the name of the stratum.
+     */
+    @NotNull
+    private final Map<String, StratumSums> strata = new LinkedHashMap<>();
+
+    private int sampledFiles;
+
+    /**
+     * Constructor.
+     *
+     * @param sampling The sampling of the analysis.
+     * @param sources  The analysed directory.
+     * @param files    All source files of the directory, from which the sample was drawn.
+     * @param perfumes The names of the analysed Perfumes.
+     */
+    SampleEstimator(@NotNull Sampling sampling, @NotNull Path sources, @NotNull List<Path> files,
+                    @NotNull List<String> perfumes) {
+        this.sampling = sampling;
+        this.sources = sources;
+        this.perfumes = perfumes;
+
+        sampling.stratify(sources, files).forEach((stratum, stratumFiles) ->
+                strata.put(stratum, new StratumSums(stratumFiles.size(), perfumes.size() + 1)));
+    }
+
+    /**
+     * Adds the detections of an analysed file of the sample.
+     */
+    void addFile(@NotNull Path sourceFile, @NotNull List<DetectedInstance<Perfume>> detections) {
+        StratumSums sums = strata.get(sampling.stratumOf(sources, sourceFile));
+        if (sums == null) {
+            return;
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (DetectedInstance<Perfume> detection : detections) {
+            if (detection.getDetectable() != null) {
+                counts.merge(detection.getDetectable().getName(), 1, Integer::sum);
+            }
+        }
+
+        for (int i = 0; i < perfumes.size(); i++) {
+            sums.add(i, counts.getOrDefault(perfumes.get(i), 0));
+        }
+        // The last column counts the detections of all Perfumes
+        sums.add(perfumes.size(), detections.size());
+        sums.files++;
+
+        sampledFiles++;
+    }
+
+    /**
+     * Returns the amount of strata of the files.
+     */
+    int getStrata() {
+        return strata.size();
+    }
+
+    /**
+     * Returns the estimates from the files that were added so far.
+     */
+    @NotNull
+    SampleEstimates estimate() {
+        double z = normalQuantile(0.5 + sampling.getConfidenceLevel() / 2);
+        int totalFiles = strata.values().stream().mapToInt(sums -> sums.size).sum();
+
+        SampleEstimates estimates = new SampleEstimates()
+                .setFraction(sampling.getFraction())
+                .setSeed(sampling.getSeed())
+                .setStratified(sampling.isStratified())
+                .setConfidenceLevel(sampling.getConfidenceLevel())
+                .setTotalFiles(totalFiles)
+                .setSampledFiles(sampledFiles)
+                .setStrata(strata.size());
+
+        estimates.setTotalDetections(estimate(perfumes.size(), false, z, Double.POSITIVE_INFINITY));
+
+        for (int i = 0; i < perfumes.size(); i++) {
+            SampleEstimates.Estimate files = estimate(i, true, z, totalFiles);
+
+            estimates.getPerfumes().add(new SampleEstimates.PerfumeEstimate()
+                    .setPerfume(perfumes.get(i))
+                    .setSampledDetections((int) sampled(i, false))
+                    .setSampledFiles((int) sampled(i, true))
+                    .setDetections(estimate(i, false, z, Double.POSITIVE_INFINITY))
+                    .setFiles(files)
+                    .setPrevalence(totalFiles == 0 ? new SampleEstimates.Estimate() : new SampleEstimates.Estimate()
+                            .setValue(files.getValue() / totalFiles)
+                            .setLower(files.getLower() / totalFiles)
+                            .setUpper(files.getUpper() / totalFiles)));
+        }
+
+        return estimates;
+    }
+
+    /**
+     * Estimates the total of the given column over all files, with the stratified estimator.
+     *
+     * @param files   Whether files with detections are counted, instead of detections.
+     * @param maximum Upper bound of the total.
+     */
+    @NotNull
+    private SampleEstimates.Estimate estimate(int column, boolean files, double z, double maximum) {
+        double total = 0;
+        double variance = 0;
+        double analysedFiles = 0;
+        double coveredFiles = 0;
+
+        for (StratumSums sums : strata.values()) {
+            // A stratum without analysed files, e.g. of an aborted analysis, can not be extrapolated
+            if (sums.files == 0) {
+                continue;
+            }
+
+            analysedFiles += sums.files;
+            coveredFiles += sums.size;
+
+            double n = sums.files;
+            double sum = files ? sums.filesWithDetections[column] : sums.sums[column];
+            double sumOfSquares = files ? sums.filesWithDetections[column] : sums.sumsOfSquares[column];
+
+            double mean = sum / n;
+            double sampleVariance = n > 1 ? Math.max(sumOfSquares - n * mean * mean, 0) / (n - 1) : 0;
+            double finitePopulationCorrection = 1 - n / sums.size;
+
+            total += sums.size * mean;
+            variance += (double) sums.size * sums.size * finitePopulationCorrection * sampleVariance / n;
+        }
+
+        double sampled = sampled(column, files);
+        double lower;
+        double upper;
+
+        if (files && coveredFiles > 0) {
+            double[] interval = wilsonInterval(total / coveredFiles, variance / (coveredFiles * coveredFiles),
+                    analysedFiles, coveredFiles, z);
+            lower = interval[0] * coveredFiles;
+            upper = interval[1] * coveredFiles;
+        } else {
+            double margin = z * Math.sqrt(variance);
+            lower = total - margin;
+            upper = total + margin;
+        }
+
+        return new SampleEstimates.Estimate()
+                .setValue(total)
+                .setLower(Math.max(lower, sampled))
+                .setUpper(Math.min(upper, maximum));
+    }
+
+    /**
+     * Returns the bounds of the Wilson score interval of a proportion of the files. Unlike the interval of the normal
+     * approximation, it does not collapse to a point if none or all of the analysed files have detections, e.g. for
+     * a Perfume that was not seen in the sample.<br/>
+     * The stratified sample enters with its effective size, i.e. the size of a simple random sample whose proportion
+     * has the same variance. If the variance is {@code 0}, the size of the sample is corrected for sampling without
+     * replacement instead, so a sample of all files still gives the exact proportion.
+     *
+     * @param proportion     The estimated proportion.
+     * @param variance       The variance of the estimated proportion.
+     * @param sampleSize     The amount of analysed files.
+     * @param populationSize The amount of files, from which the sample was drawn.
+     * @param z              The quantile of the standard normal distribution for the confidence level.
+     * @return The lower and the upper bound of the proportion.
+     */
+    @NotNull
+    private static double[] wilsonInterval(double proportion, double variance, double sampleSize,
+                                           double populationSize, double z) {
+        double p = Math.min(Math.max(proportion, 0), 1);
+
+        double effectiveSize;
+        if (variance > 0) {
+            effectiveSize = p * (1 - p) / variance;
+        } else if (sampleSize < populationSize) {
+            effectiveSize = sampleSize / (1 - sampleSize / populationSize);
+        } else {
+            return new double[] {p, p};
+        }
+
+        double a = z * z / effectiveSize;
+        double center = (p + a / 2) / (1 + a);
+        double margin = z * Math.sqrt(p * (1 - p) / effectiveSize + a / (4 * effectiveSize)) / (1 + a);
+
+        return new double[] {Math.max(center - margin, 0), Math.min(center + margin, 1)};
+    }
+
+    /**
+     * Returns the total of the given column in the sample.
+     */
+    private double sampled(int column, boolean files) {
+        return strata.values().stream()
+                .mapToDouble(sums -> files ? sums.filesWithDetections[column] : sums.sums[column])
+                .sum();
+    }
+
+    /**
+     * Returns the quantile of the standard normal distribution at the given probability, with the rational
+     * approximation by P. J. Acklam, whose relative error is below 1.15e-9.
+     */
+    static double normalQuantile(double p) {
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02,
+                -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01,
+                -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00,
+                4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00};
+        double low = 0.02425;
+
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -normalQuantile(1 - p);
+        }
+
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * Sums of the analysed files of a stratum, per Perfume, and for all Perfumes in the last column.
+     */
+    private static class StratumSums {
+
+        /**
+         * Amount of files in the stratum.
+         */
+        private final int size;
+
+        private final double[] sums;
+
+        private final double[] sumsOfSquares;
+
+        private final double[] filesWithDetections;
+
+        /**
+         * Amount of analysed files of the stratum.
+         */
+        private int files;
+
+        private StratumSums(int size, int columns) {
+            this.size = size;
+            this.sums = new double[columns];
+            this.sumsOfSquares = new double[columns];
+            this.filesWithDetections = new double[columns];
+        }
+
+        private void add(int column, int detections) {
+            sums[column] += detections;
+            sumsOfSquares[column] += (double) detections * detections;
+            if (detections > 0) {
+                filesWithDetections[column]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package de.jsilbereisen.perfumator.engine;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.model.SampleEstimates;
+import de.jsilbereisen.perfumator.util.PathUtil;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Configuration of a sampled analysis, which only analyses a random sample of the source files of a directory and
+ * extrapolates the detections of the Perfumes to all files, see {@link SampleEstimates}. Meant for estimating the
+ * prevalence of the Perfumes in a huge corpus in a fraction of the time of a full analysis.<br/>
+ * The sample is drawn without replacement from the files that the walk of the directory finds. With stratification,
+ * the files are grouped by their package, and each package is sampled on its own, so that every package is
+ * represented in proportion to its size. Each package, or the whole directory without stratification, contributes at
+ * least two files, if it has them, so that the variance of the estimates can be computed.<br/>
+ * The sample only depends on the seed and the package paths of the files, relative to the analysed directory, so the
+ * same seed draws the same sample on every machine. With stratification, adding files to one package does not change
+ * the sample of the other packages.
+ */
+@Value
+public class Sampling {
+
+    /**
+     * Default confidence level of the intervals of the estimates.
+     */
+    public static final double DEFAULT_CONFIDENCE_LEVEL = 0.95;
+
+    /**
+     * Fraction of the files to analyse, greater than {@code 0} and at most {@code 1}.
+     */
+    double fraction;
+
+    /**
+     * Seed of the random choice of the files.
+     */
+    long seed;
+
+    /**
+     * Whether the files are sampled per package.
+     */
+    boolean stratified;
+
+    /**
+     * Confidence level of the intervals of the estimates, between {@code 0} and {@code 1}.
+     */
+    double confidenceLevel;
+
+    /**
+     * Constructor.
+     *
+     * @throws IllegalArgumentException If the fraction or the confidence level are not within their bounds.
+     */
+    public Sampling(double fraction, long seed, boolean stratified, double confidenceLevel) {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("The sampled fraction must be greater than 0 and at most 1, but was "
+                    + fraction + ".");
+        }
+        if (!(confidenceLevel > 0 && confidenceLevel < 1)) {
+            throw new IllegalArgumentException("The confidence level must be between 0 and 1, but was "
+                    + confidenceLevel + ".");
+        }
+
+        this.fraction = fraction;
+        this.seed = seed;
+        this.stratified = stratified;
+        this.confidenceLevel = confidenceLevel;
+    }
+
+    /**
+     * Returns a sampling of the given fraction of the files, without stratification and with the
+     * {@link #DEFAULT_CONFIDENCE_LEVEL}.
+     */
+    @NotNull
+    public static Sampling of(double fraction, long seed) {
+        return new Sampling(fraction, seed, false, DEFAULT_CONFIDENCE_LEVEL);
+    }
+
+    /**
+     * Returns a copy of this sampling that samples the files of each package on its own.
+     */
+    @NotNull
+    public Sampling stratifiedByPackage() {
+        return new Sampling(fraction, seed, true, confidenceLevel);
+    }
+
+    /**
+     * Returns a copy of this sampling with the given confidence level.
+     */
+    @NotNull
+    public Sampling withConfidenceLevel(double confidenceLevel) {
+        return new Sampling(fraction, seed, stratified, confidenceLevel);
+    }
+
+    /**
+     * Groups the given source files into the strata of the sampling: by package, or all into one stratum.
+     *
+     * @param sources The analysed directory.
+     * @param files   The source files in the directory, in the order of the walk.
+     * @return The files of each stratum, by the name of the stratum, in the order of their first file.
+     */
+    @NotNull
+    public Map<String, List<Path>> stratify(@NotNull Path sources, @NotNull List<Path> files) {
+        Map<String, List<Path>> strata = new LinkedHashMap<>();
+        for (Path file : files) {
+            strata.computeIfAbsent(stratumOf(sources, file), stratum -> new ArrayList<>()).add(file);
+        }
+
+        return strata;
+    }
+
+    /**
+     * Returns the name of the stratum of the given source file: its package path, with {@code /} as separator, if
+     * the sampling is stratified, otherwise the empty string.
+     */
+    @NotNull
+    public String stratumOf(@NotNull Path sources, @NotNull Path sourceFile) {
+        if (!stratified) {
+            return "";
+        }
+
+        Path relativePath = sourceFile.startsWith(sources) ? sources.relativize(sourceFile) : sourceFile;
+        Path packagePath = PathUtil.toPackagePath(relativePath).getParent();
+        if (packagePath == null) {
+            return "";
+        }
+
+        // Separators differ between operating systems, the sample must not
+        StringBuilder stratum = new StringBuilder();
+        for (Path name : packagePath) {
+            if (!stratum.isEmpty()) {
+                stratum.append('/');
+            }
+            stratum.append(name);
+        }
+
+        return stratum.toString();
+    }
+
+    /**
+     * Returns the amount of files that are sampled from a stratum with the given amount of files.
+     */
+    public int sampleSize(int stratumSize) {
+        long proportional = Math.round(fraction * stratumSize);
+
+        return (int) Math.min(stratumSize, Math.max(Math.min(stratumSize, 2), proportional));
+    }
+
+    /**
+     * Draws the sample from the given source files.
+     *
+     * @param sources The analysed directory.
+     * @param files   The source files in the directory, in the order of the walk.
+     * @return The sampled files, in the given order.
+     */
+    @NotNull
+    public List<Path> select(@NotNull Path sources, @NotNull List<Path> files) {
+        Set<Path> sample = new HashSet<>();
+
+        for (Map.Entry<String, List<Path>> stratum : stratify(sources, files).entrySet()) {
+            List<Path> stratumFiles = stratum.getValue();
+            int size = sampleSize(stratumFiles.size());
+
+            // A partial Fisher-Yates shuffle of the indices, with a random generator of the stratum's own
+            int[] indices = new int[stratumFiles.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+
+            Random random = new Random(seed * 31 + stratum.getKey().hashCode());
+            for (int i = 0; i < size; i++) {
+                int swap = i + random.nextInt(indices.length - i);
+                int index = indices[swap];
+                indices[swap] = indices[i];
+                indices[i] = index;
+
+                sample.add(stratumFiles.get(index));
+            }
+        }
+
+        // Back into the order of the walk, which mixes the packages
+        return files.stream().filter(sample::contains).toList();
+    }
+}
@@ -0,0 +1,102 @@
+package de.jsilbereisen.perfumator.engine;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.util.PathUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * One of {@link #getCount()} disjoint parts of the source files of an analysed directory, so that the analysis can be
+ * split across multiple processes or machines, whose outputs are merged afterwards.<br/>
+ * A file belongs to a shard by a stable hash of its package path, see {@link PathUtil#toPackagePath}, relative to the
+ * analysed directory. Like that, the partition does not depend on where the project is located, on the operating
+ * system, or on the order in which the files are found.
+ */
+@Value
+public class Shard {
+
+    /**
+     * Number of the shard, from {@code 1} to {@link #count}.
+     */
+    int index;
+
+    /**
+     * Total amount of shards.
+     */
+    int count;
+
+    /**
+     * Constructor.
+     *
+     * @param index Number of the shard, from {@code 1} to {@code count}.
+     * @param count Total amount of shards, at least {@code 1}.
+     * @throws IllegalArgumentException If the index is not within the amount of shards.
+     */
+    public Shard(int index, int count) {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Invalid shard " + index + "/" + count
+                    + ". The shard must be between 1 and the amount of shards.");
+        }
+
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Parses a shard in the form {@code index/count}, e.g. {@code 2/4}.
+     *
+     * @param shard The shard.
+     * @return The parsed shard.
+     * @throws IllegalArgumentException If the given String is not a valid shard.
+     */
+    @NotNull
+    public static Shard parse(@NotNull String shard) {
+        String[] parts = shard.trim().split("/", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid shard \"" + shard + "\", expected <index>/<count>.");
+        }
+
+        try {
+            return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid shard \"" + shard + "\", expected <index>/<count>.", e);
+        }
+    }
+
+    /**
+     * Returns whether the given source file belongs to this shard.
+     *
+     * @param sources    The analysed directory.
+     * @param sourceFile A source file in the directory.
+     * @return {@code true} if the file is analysed in this shard.
+     */
+    public boolean contains(@NotNull Path sources, @NotNull Path sourceFile) {
+        return shardOf(sources, sourceFile, count) == index;
+    }
+
+    /**
+     * Returns the number of the shard, from {@code 1} to {@code count}, that the given source file belongs to.
+     */
+    static int shardOf(@NotNull Path sources, @NotNull Path sourceFile, int count) {
+        Path relativePath = sourceFile.startsWith(sources) ? sources.relativize(sourceFile) : sourceFile;
+        Path packagePath = PathUtil.toPackagePath(relativePath);
+
+        // Separators differ between operating systems, the hash must not
+        StringBuilder key = new StringBuilder();
+        for (Path name : packagePath) {
+            if (!key.isEmpty()) {
+                key.append('/');
+            }
+            key.append(name);
+        }
+
+        CRC32 hash = new CRC32();
+        hash.update(key.toString().getBytes(StandardCharsets.UTF_8));
+
+        return (int) (hash.getValue() % count) + 1;
+    }
+}
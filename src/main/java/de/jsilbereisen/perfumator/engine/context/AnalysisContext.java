@@ -0,0 +1,183 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Context for resolving symbols in an analysis: a {@link JavaParserFacade} with its {@link RoutingTypeSolver}
+ * and the {@link BoundedCache}s of all type solvers. Created by the {@link AnalysisContextFactory}.<br/>
+ * <i>JavaParser</i> keeps every facade in a static registry, which strongly references the type solvers and their
+ * caches. The owner of a context has to call {@link #releaseFacade()} when an analysis run ends, and
+ * {@link #release()} when the context is not needed anymore, otherwise the memory is never reclaimed.<br/>
+ * A context can own {@link #getReplica replicas}, which resolve the same sources and dependencies for threads that
+ * analyse files of the same sources in parallel. They are cleared and released together with the context.
+ */
+@Slf4j
+public class AnalysisContext {
+
+    @Getter
+    private final JavaParserFacade facade;
+
+    @Getter
+    private final TypeSolver typeSolver;
+
+    /**
+     * Amount of type solvers for JAR files in the context.
+     */
+    @Getter
+    private final int jarTypeSolverCount;
+
+    /**
+     * Amount of type solvers for Java source roots in the context.
+     */
+    @Getter
+    private final int javaParserTypeSolverCount;
+
+    private final List<BoundedCache<?, ?>> caches;
+
+    /**
+     * State of the sources with which the context is up to date, {@code null} if unknown.
+     */
+    @Getter
+    @Setter
+    @Nullable
+    private volatile SourcesSnapshot sourcesSnapshot;
+
+    /**
+     * The replicas of the context, by their index.
+     */
+    private final Map<Integer, AnalysisContext> replicas = new ConcurrentHashMap<>();
+
+    public AnalysisContext(@NotNull TypeSolver typeSolver, int jarTypeSolverCount,
+                           int javaParserTypeSolverCount, @NotNull List<BoundedCache<?, ?>> caches) {
+        this.typeSolver = typeSolver;
+        this.facade = JavaParserFacade.get(typeSolver);
+        this.jarTypeSolverCount = jarTypeSolverCount;
+        this.javaParserTypeSolverCount = javaParserTypeSolverCount;
+        this.caches = List.copyOf(caches);
+    }
+
+    /**
+     * Returns the amount of entries in all caches of the context's type solvers.
+     */
+    public long getCachedEntryCount() {
+        return caches.stream().mapToLong(BoundedCache::size).sum()
+                + replicas.values().stream().mapToLong(AnalysisContext::getCachedEntryCount).sum();
+    }
+
+    /**
+     * Returns the amount of entries that were evicted from the caches of the context's type solvers.
+     */
+    public long getEvictionCount() {
+        return caches.stream().mapToLong(BoundedCache::getEvictionCount).sum()
+                + replicas.values().stream().mapToLong(AnalysisContext::getEvictionCount).sum();
+    }
+
+    /**
+     * Returns the replica with the given index, or creates it: a context of its own for the same sources and
+     * dependencies, so that multiple threads can resolve the types of the same sources at the same time. A replica is
+     * reused by later runs, like its context.
+     *
+     * @param index   The index of the replica, e.g. of the thread that uses it.
+     * @param factory Creates the replica, if it does not exist yet.
+     * @return The replica.
+     */
+    @NotNull
+    public AnalysisContext getReplica(int index, @NotNull Supplier<AnalysisContext> factory) {
+        AnalysisContext replica = replicas.get(index);
+        if (replica != null) {
+            return replica;
+        }
+
+        // Not created within the map, as creating a context can take long
+        AnalysisContext created = factory.get();
+        AnalysisContext existing = replicas.putIfAbsent(index, created);
+        if (existing != null) {
+            created.release();
+            return existing;
+        }
+
+        return created;
+    }
+
+    /**
+     * Returns the amount of replicas of the context.
+     */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Removes the facades of this context from the static registry of the <i>JavaParser</i>. The context stays
+     * usable, <i>JavaParser</i> registers a new facade on demand.
+     */
+    public void releaseFacade() {
+        unregister(typeSolver);
+        replicas.values().forEach(AnalysisContext::releaseFacade);
+    }
+
+    /**
+     * Clears all caches of the type solvers, e.g. after source files changed. The context stays usable with its
+     * source roots and dependencies, the types are resolved again on demand.
+     */
+    public void clearCaches() {
+        caches.forEach(BoundedCache::removeAll);
+        replicas.values().forEach(AnalysisContext::clearCaches);
+    }
+
+    /**
+     * Removes the facades of this context from the static registry of the <i>JavaParser</i> and clears
+     * all caches of the type solvers.
+     */
+    public void release() {
+        releaseFacade();
+        clearCaches();
+    }
+
+    /**
+     * Returns the amount of facades in the static registry of the <i>JavaParser</i>, or {@code -1} if the registry is
+     * not accessible.
+     */
+    public static int getRegisteredFacadeCount() {
+        synchronized (JavaParserFacade.class) {
+            try {
+                return getFacadeRegistry().size();
+            } catch (IllegalAccessException | IllegalArgumentException | ClassCastException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static void unregister(@NotNull TypeSolver typeSolver) {
+        // JavaParserFacade#get synchronizes on the class
+        synchronized (JavaParserFacade.class) {
+            try {
+                getFacadeRegistry().remove(typeSolver.getRoot());
+            } catch (IllegalAccessException | IllegalArgumentException | ClassCastException e) {
+                log.warn("Could not remove a single facade from the registry, clearing all facades.", e);
+                JavaParserFacade.clearInstances();
+            }
+        }
+    }
+
+    /**
+     * Returns the static registry of the facades. <i>JavaParser</i> offers no API to remove a single facade, so the
+     * private field is read. The field is pinned by a test for the <i>JavaParser</i> version of the build, so an
+     * upgrade that removes it fails the build, instead of clearing the facades of all contexts on every release.
+     */
+    @NotNull
+    private static Map<?, ?> getFacadeRegistry() throws IllegalAccessException {
+        return (Map<?, ?>) FieldUtils.readStaticField(JavaParserFacade.class, "instances", true);
+    }
+}
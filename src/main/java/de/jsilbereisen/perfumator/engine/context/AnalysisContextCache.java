@@ -0,0 +1,232 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static de.jsilbereisen.perfumator.util.PathUtil.toRealPath;
+
+/**
+ * Cache for {@link AnalysisContext}s, so that a long-lived engine does not have to re-collect the source roots and
+ * re-open every dependency for repeated analyses of the same project.
+ * Contexts are identified by their {@link AnalysisContextKey}. The cache holds at most {@link #getMaximumSize()}
+ * contexts, including their {@link AnalysisContext#getReplica replicas}, and evicts the least recently used one when it
+ * is full. Evicted and invalidated contexts are
+ * {@link AnalysisContext#release() released}. All methods are thread-safe.
+ */
+public class AnalysisContextCache {
+
+    /**
+     * Default maximum amount of cached contexts.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 4;
+
+    private final int maximumSize;
+
+    private final Map<AnalysisContextKey, AnalysisContext> contexts = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long evictionCount;
+
+    public AnalysisContextCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize Maximum amount of cached contexts. Must be positive.
+     */
+    public AnalysisContextCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of a cache must be positive.");
+        }
+
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the cached context for the given key, or creates and caches a new one with the given factory.
+     * Contexts are created outside the lock, so that the contexts of multiple modules can be created in parallel.
+     * If two threads create a context for the same key, the context of the first one is kept.
+     *
+     * @param key     Key of the context.
+     * @param factory Creates the context, if none is cached for the key.
+     * @return The cached or newly created context.
+     */
+    @NotNull
+    public AnalysisContext getOrCreate(@NotNull AnalysisContextKey key,
+                                       @NotNull Function<AnalysisContextKey, AnalysisContext> factory) {
+        synchronized (this) {
+            AnalysisContext context = contexts.get(key);
+            if (context != null) {
+                return context;
+            }
+        }
+
+        AnalysisContext created = factory.apply(key);
+        AnalysisContext context = put(key, created);
+        if (context != created) {
+            created.release();
+        }
+
+        return context;
+    }
+
+    /**
+     * Returns the cached context for the given key, if it is up to date with the given state of its sources, or
+     * creates and caches a new one with the given factory, like {@link #getOrCreate(AnalysisContextKey, Function)}.
+     * <br/>
+     * If only the content of source files changed since the cached context was created or last checked, its caches are
+     * cleared, so that the files are parsed again when they are resolved. If files were added, deleted or renamed,
+     * the cached context is discarded, as its source roots might have changed.
+     *
+     * @param key      Key of the context.
+     * @param snapshot The current state of the sources of the context.
+     * @param factory  Creates the context, if none is cached for the key or it is outdated.
+     * @return The up to date context.
+     */
+    @NotNull
+    public AnalysisContext getOrCreate(@NotNull AnalysisContextKey key, @NotNull SourcesSnapshot snapshot,
+                                       @NotNull Function<AnalysisContextKey, AnalysisContext> factory) {
+        synchronized (this) {
+            AnalysisContext context = contexts.get(key);
+            if (context != null) {
+                SourcesSnapshot contextSnapshot = context.getSourcesSnapshot();
+                if (snapshot.equals(contextSnapshot)) {
+                    return context;
+                }
+
+                if (snapshot.hasSameFiles(contextSnapshot)) {
+                    context.clearCaches();
+                    context.setSourcesSnapshot(snapshot);
+                    return context;
+                }
+
+                contexts.remove(key);
+                context.release();
+            }
+        }
+
+        return getOrCreate(key, createKey -> {
+            AnalysisContext created = factory.apply(createKey);
+            created.setSourcesSnapshot(snapshot);
+            return created;
+        });
+    }
+
+    @NotNull
+    private synchronized AnalysisContext put(@NotNull AnalysisContextKey key, @NotNull AnalysisContext created) {
+        AnalysisContext context = contexts.get(key);
+        if (context != null) {
+            return context;
+        }
+
+        context = created;
+        contexts.put(key, context);
+        evictExcess();
+
+        return context;
+    }
+
+    /**
+     * Evicts the least recently used contexts, until the cached contexts and their replicas fit into the maximum size
+     * again, e.g. after replicas were created. The most recently used context is kept, even if its replicas alone
+     * exceed the maximum size.
+     */
+    public synchronized void evictExcess() {
+        long weight = contexts.values().stream().mapToLong(context -> 1 + context.getReplicaCount()).sum();
+
+        Iterator<AnalysisContext> leastRecentlyUsed = contexts.values().iterator();
+        while (weight > maximumSize && contexts.size() > 1) {
+            AnalysisContext evicted = leastRecentlyUsed.next();
+            weight -= 1 + evicted.getReplicaCount();
+            evicted.release();
+            leastRecentlyUsed.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Discards all cached contexts that were created for the given sources, including the contexts of the modules in
+     * the given directory.
+     *
+     * @param sources The analysed sources.
+     */
+    public synchronized void invalidate(@NotNull Path sources) {
+        Path realSources = toRealPath(sources).orElse(sources.toAbsolutePath());
+
+        contexts.entrySet().removeIf(entry -> {
+            Path keySources = entry.getKey().getSources();
+            if (keySources != null && keySources.startsWith(realSources)) {
+                entry.getValue().release();
+                return true;
+            }
+
+            return false;
+        });
+    }
+
+    /**
+     * Clears the caches of all cached contexts that were created for the given sources, so that changed source files
+     * are parsed again when they are resolved. Unlike {@link #invalidate(Path)}, the source roots are not collected
+     * again, so added source roots are not found.
+     *
+     * @param sources The analysed sources.
+     */
+    public synchronized void refresh(@NotNull Path sources) {
+        Path realSources = toRealPath(sources).orElse(sources.toAbsolutePath());
+
+        contexts.forEach((key, context) -> {
+            if (key.getSources() != null && key.getSources().startsWith(realSources)) {
+                context.clearCaches();
+            }
+        });
+    }
+
+    /**
+     * Discards all cached contexts.
+     */
+    public synchronized void invalidateAll() {
+        contexts.values().forEach(AnalysisContext::release);
+        contexts.clear();
+    }
+
+    /**
+     * Returns the amount of currently cached contexts.
+     */
+    public synchronized int size() {
+        return contexts.size();
+    }
+
+    /**
+     * Returns the maximum amount of cached contexts, including their replicas.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns a snapshot of the memory related metrics of the cached contexts.
+     */
+    @NotNull
+    public synchronized AnalysisContextMetrics getMetrics() {
+        int jarSolvers = 0;
+        int javaParserSolvers = 0;
+        long entries = 0;
+        long evictions = 0;
+
+        for (AnalysisContext context : contexts.values()) {
+            jarSolvers += context.getJarTypeSolverCount();
+            javaParserSolvers += context.getJavaParserTypeSolverCount();
+            entries += context.getCachedEntryCount();
+            evictions += context.getEvictionCount();
+        }
+
+        return new AnalysisContextMetrics(contexts.size(), evictionCount, jarSolvers, javaParserSolvers, entries,
+                evictions, AnalysisContext.getRegisteredFacadeCount());
+    }
+}
@@ -0,0 +1,208 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.context.index.IndexedJarTypeSolver;
+import de.jsilbereisen.perfumator.engine.context.index.JarTypeIndex;
+import de.jsilbereisen.perfumator.engine.context.index.JarTypeIndexStore;
+import de.jsilbereisen.perfumator.engine.context.index.JdkTypeSolver;
+import de.jsilbereisen.perfumator.i18n.Bundles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Creates {@link AnalysisContext}s for analysed sources and their dependencies. All caches of the created type
+ * solvers are {@link BoundedCache}s, so that the memory of a context is bounded.<br/>
+ * If a {@link JarTypeIndexStore} is given, JAR files are represented by {@link IndexedJarTypeSolver}s, which only
+ * open a JAR when one of its types is requested.<br/>
+ * The solvers are combined in a {@link RoutingTypeSolver}, which only asks the solvers of source roots that contain
+ * the package of a type, and the solvers of JARs that declare it.
+ */
+@Slf4j
+public class AnalysisContextFactory {
+
+    /**
+     * Default limit for the caches of resolved types of the type solvers.
+     */
+    public static final long DEFAULT_TYPE_CACHE_LIMIT = 10_000;
+
+    @NotNull
+    private final ParserConfiguration parserConfiguration;
+
+    @NotNull
+    private final Bundles i18n;
+
+    @Getter
+    private final long parsedFilesCacheLimit;
+
+    @Getter
+    private final long typeCacheLimit;
+
+    @Getter
+    @Nullable
+    private final JarTypeIndexStore typeIndexStore;
+
+    public AnalysisContextFactory(@NotNull ParserConfiguration parserConfiguration, @NotNull Bundles i18n) {
+        this(parserConfiguration, i18n, PerfumeDetectionEngine.JAVA_PARSER_CACHE_LIMIT, DEFAULT_TYPE_CACHE_LIMIT,
+                null);
+    }
+
+    public AnalysisContextFactory(@NotNull ParserConfiguration parserConfiguration, @NotNull Bundles i18n,
+                                  long parsedFilesCacheLimit, long typeCacheLimit,
+                                  @Nullable JarTypeIndexStore typeIndexStore) {
+        this.parserConfiguration = parserConfiguration;
+        this.i18n = i18n;
+        this.parsedFilesCacheLimit = parsedFilesCacheLimit;
+        this.typeCacheLimit = typeCacheLimit;
+        this.typeIndexStore = typeIndexStore;
+    }
+
+    /**
+     * Creates a context for resolving symbols from the provided source file/directory and the provided dependencies.
+     * A dependency must either be a JAR Archive or the root package of Java Source files - but be careful, the
+     * latter is not validated!
+     *
+     * @param sources      The analysed sources.
+     * @param dependencies The dependencies of the analysis.
+     * @return The new context.
+     */
+    @NotNull
+    public AnalysisContext create(@NotNull Path sources, @NotNull List<Path> dependencies) {
+        return create(sources, List.of(), dependencies);
+    }
+
+    /**
+     * Creates a context for resolving symbols in a module of a multi-module project: from the source roots in the
+     * module's sources, the main source roots of its upstream modules, and the provided dependencies.
+     * See {@link ProjectModule}.
+     *
+     * @param sources             The analysed sources of the module.
+     * @param upstreamSourceRoots The source roots of the upstream modules.
+     * @param dependencies        The dependencies of the analysis.
+     * @return The new context.
+     */
+    @NotNull
+    public AnalysisContext create(@NotNull Path sources, @NotNull List<Path> upstreamSourceRoots,
+                                  @NotNull List<Path> dependencies) {
+        SourceRootCollectionStrategy strategy = new SourceRootCollectionStrategy(parserConfiguration);
+        strategy.collect(sources);
+
+        return create(strategy, upstreamSourceRoots, dependencies);
+    }
+
+    /**
+     * Creates a context for resolving symbols in sources that are not on the file system, e.g. the content of an
+     * editor: from the provided dependencies and the JDK only.
+     *
+     * @param dependencies The dependencies of the analysis.
+     * @return The new context.
+     */
+    @NotNull
+    public AnalysisContext create(@NotNull List<Path> dependencies) {
+        return create(new SourceRootCollectionStrategy(parserConfiguration), List.of(), dependencies);
+    }
+
+    @NotNull
+    private AnalysisContext create(@NotNull SourceRootCollectionStrategy strategy,
+                                   @NotNull List<Path> upstreamSourceRoots, @NotNull List<Path> dependencies) {
+        List<BoundedCache<?, ?>> caches = new ArrayList<>();
+        BoundedCache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> typeCache = new BoundedCache<>(typeCacheLimit);
+        caches.add(typeCache);
+
+        RoutingTypeSolver typeSolver = new RoutingTypeSolver(typeCache);
+        typeSolver.addUnroutedSolver(new JdkTypeSolver());
+
+        int jarSolvers = 0;
+        int javaParserSolvers = 0;
+
+        for (Path sourceRoot : strategy.getSourceRoots()) {
+            typeSolver.addSourceRootSolver(createJavaParserTypeSolver(sourceRoot, caches), sourceRoot);
+            javaParserSolvers++;
+        }
+
+        for (Path upstreamSourceRoot : upstreamSourceRoots) {
+            typeSolver.addSourceRootSolver(createJavaParserTypeSolver(upstreamSourceRoot, caches), upstreamSourceRoot);
+            javaParserSolvers++;
+        }
+
+        for (Path jarFile : strategy.getJarFiles()) {
+            if (addJarTypeSolver(typeSolver, jarFile)) {
+                jarSolvers++;
+            }
+        }
+
+        for (Path dependency : dependencies) {
+            if (!Files.exists(dependency)) {
+                log.error(i18n.getApplicationResource("log.error.analysis.nonExistentDependency"));
+            }
+
+            if (dependency.toString().endsWith(".jar")) {
+                if (addJarTypeSolver(typeSolver, dependency)) {
+                    jarSolvers++;
+                }
+
+            } else {
+                typeSolver.addSourceRootSolver(createJavaParserTypeSolver(dependency, caches), dependency);
+                javaParserSolvers++;
+            }
+        }
+
+        return new AnalysisContext(typeSolver, jarSolvers, javaParserSolvers, caches);
+    }
+
+    @NotNull
+    private JavaParserTypeSolver createJavaParserTypeSolver(@NotNull Path sourceRoot,
+                                                            @NotNull List<BoundedCache<?, ?>> caches) {
+        BoundedCache<Path, Optional<CompilationUnit>> parsedFiles = new BoundedCache<>(parsedFilesCacheLimit);
+        BoundedCache<Path, List<CompilationUnit>> parsedDirectories = new BoundedCache<>(parsedFilesCacheLimit);
+        BoundedCache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes = new BoundedCache<>(typeCacheLimit);
+        caches.addAll(List.of(parsedFiles, parsedDirectories, foundTypes));
+
+        return new JavaParserTypeSolver(sourceRoot, new JavaParser(parserConfiguration), parsedFiles,
+                parsedDirectories, foundTypes);
+    }
+
+    /**
+     * Adds a solver for the given JAR file, which is routed by the qualified names of the types in the JAR.
+     *
+     * @return {@code true} if the JAR could be opened or indexed.
+     */
+    private boolean addJarTypeSolver(@NotNull RoutingTypeSolver typeSolver, @NotNull Path jarFile) {
+        if (typeIndexStore != null) {
+            try {
+                JarTypeIndex index = typeIndexStore.getOrCreate(jarFile);
+                typeSolver.addTypeNameSolver(new IndexedJarTypeSolver(index), index.getTypes().keySet());
+                return true;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to index " + jarFile + ", it is opened directly.", e);
+            }
+        }
+
+        JarTypeSolver jarSolver;
+        try {
+            jarSolver = new JarTypeSolver(jarFile);
+        } catch (Exception e) {
+            log.error(i18n.getApplicationResource("log.error.analysis.dependencyUnresolvable"), jarFile);
+            return false;
+        }
+
+        typeSolver.addTypeNameSolver(jarSolver, jarSolver.getKnownClasses());
+        return true;
+    }
+}
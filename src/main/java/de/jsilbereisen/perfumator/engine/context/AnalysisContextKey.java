@@ -0,0 +1,136 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static de.jsilbereisen.perfumator.util.PathUtil.toRealPath;
+
+/**
+ * Identifies an analysis context (a {@link com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade}
+ * with its type solvers) by the analysed sources, the source roots of upstream modules, the dependencies and the last
+ * modification times of the dependencies. For a dependency source root, that is the newest modification time within
+ * its tree, see {@link SourcesSnapshot}. If a dependency JAR is replaced or a file of a dependency source root
+ * changes, the key changes and a cached context is not reused anymore.<br/>
+ * Reading the modification times walks every dependency source root, so they are read separately with
+ * {@link #readModificationTimes(List)}, e.g. once per analysis run, and passed to every key of the run.<br/>
+ * The state of the analysed sources themselves is not part of the key, it is checked when a cached context is reused,
+ * see {@link AnalysisContextCache#getOrCreate(AnalysisContextKey, SourcesSnapshot, java.util.function.Function)}.
+ */
+@Value
+public class AnalysisContextKey {
+
+    /**
+     * Marker for the modification time of a dependency that does not exist (anymore).
+     */
+    public static final long NON_EXISTENT = -1L;
+
+    /**
+     * The real path of the sources, from which the source roots of the context are collected, or {@code null} for a
+     * context of the dependencies only.
+     */
+    @Nullable
+    Path sources;
+
+    /**
+     * The real paths of the source roots of upstream modules, see {@link ProjectModule}.
+     */
+    List<Path> upstreamSourceRoots;
+
+    List<Path> dependencies;
+
+    List<Long> dependencyModificationTimes;
+
+    /**
+     * Creates the key for the context of the given sources and dependencies.
+     *
+     * @param sources                     Path to the analysed source directory or file.
+     * @param dependencies                The dependencies of the analysis.
+     * @param dependencyModificationTimes The last modification times of the dependencies, see
+     *                                    {@link #readModificationTimes(List)}.
+     * @return The key.
+     */
+    @NotNull
+    public static AnalysisContextKey of(@NotNull Path sources, @NotNull List<Path> dependencies,
+                                        @NotNull List<Long> dependencyModificationTimes) {
+        return of(sources, List.of(), dependencies, dependencyModificationTimes);
+    }
+
+    /**
+     * Creates the key for the context of the given module sources, the source roots of its upstream modules, and the
+     * dependencies.
+     *
+     * @param sources                     Path to the analysed source directory or file, {@code null} if the sources
+     *                                    are not on the file system.
+     * @param upstreamSourceRoots         Source roots of the upstream modules.
+     * @param dependencies                The dependencies of the analysis.
+     * @param dependencyModificationTimes The last modification times of the dependencies, see
+     *                                    {@link #readModificationTimes(List)}.
+     * @return The key.
+     * @throws IllegalArgumentException If there is not exactly one modification time per dependency.
+     */
+    @NotNull
+    public static AnalysisContextKey of(@Nullable Path sources, @NotNull List<Path> upstreamSourceRoots,
+                                        @NotNull List<Path> dependencies,
+                                        @NotNull List<Long> dependencyModificationTimes) {
+        if (dependencies.size() != dependencyModificationTimes.size()) {
+            throw new IllegalArgumentException("There must be exactly one modification time per dependency.");
+        }
+
+        List<Path> realUpstreamSourceRoots = upstreamSourceRoots.stream()
+                .map(root -> toRealPath(root).orElse(root.toAbsolutePath()))
+                .toList();
+        List<Path> realDependencies = dependencies.stream()
+                .map(dependency -> toRealPath(dependency).orElse(dependency.toAbsolutePath()))
+                .toList();
+        Path realSources = sources != null ? toRealPath(sources).orElse(sources.toAbsolutePath()) : null;
+
+        return new AnalysisContextKey(realSources, realUpstreamSourceRoots, realDependencies,
+                List.copyOf(dependencyModificationTimes));
+    }
+
+    /**
+     * Creates the key for the context of sources that are not on the file system, which only resolves from the
+     * dependencies, see {@link AnalysisContextFactory#create(List)}.
+     *
+     * @param dependencies                The dependencies of the analysis.
+     * @param dependencyModificationTimes The last modification times of the dependencies, see
+     *                                    {@link #readModificationTimes(List)}.
+     * @return The key.
+     */
+    @NotNull
+    public static AnalysisContextKey of(@NotNull List<Path> dependencies,
+                                        @NotNull List<Long> dependencyModificationTimes) {
+        return of(null, List.of(), dependencies, dependencyModificationTimes);
+    }
+
+    /**
+     * Reads the current last modification times of the given dependencies: of a JAR file, or the newest one within
+     * the tree of a source root, see {@link SourcesSnapshot}. {@link #NON_EXISTENT} for a dependency that does not
+     * exist.
+     *
+     * @param dependencies The dependencies of the analysis.
+     * @return The modification times, in the order of the dependencies.
+     */
+    @NotNull
+    public static List<Long> readModificationTimes(@NotNull List<Path> dependencies) {
+        return dependencies.stream().map(AnalysisContextKey::lastModified).toList();
+    }
+
+    private static long lastModified(@NotNull Path path) {
+        if (Files.isDirectory(path)) {
+            return SourcesSnapshot.take(path).getNewestModification();
+        }
+
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return NON_EXISTENT;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the memory related metrics of an {@link AnalysisContextCache}.
+ */
+@Value
+public class AnalysisContextMetrics {
+
+    /**
+     * Amount of currently cached contexts.
+     */
+    int cachedContexts;
+
+    /**
+     * Amount of contexts that were evicted, because the cache was full.
+     */
+    long evictedContexts;
+
+    /**
+     * Amount of type solvers for JAR files in all cached contexts.
+     */
+    int jarTypeSolvers;
+
+    /**
+     * Amount of type solvers for Java source roots in all cached contexts.
+     */
+    int javaParserTypeSolvers;
+
+    /**
+     * Amount of entries in the caches of all type solvers of all cached contexts.
+     */
+    long typeSolverCacheEntries;
+
+    /**
+     * Amount of entries that were evicted from the caches of the type solvers of all cached contexts.
+     */
+    long typeSolverCacheEvictions;
+
+    /**
+     * Amount of facades in the static registry of the <i>JavaParser</i>, or {@code -1} if unknown.
+     */
+    int registeredFacades;
+}
@@ -0,0 +1,125 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.cache.CacheStats;
+import com.github.javaparser.symbolsolver.cache.DefaultCacheStats;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Memory-bounded {@link Cache} for the type solvers of the <i>JavaParser</i> library.
+ * The cache holds at most {@link #getMaximumSize()} entries and evicts the least recently used entry when it is full.
+ * Values are only softly referenced, so that the garbage collector can reclaim them under memory pressure, before an
+ * {@link OutOfMemoryError} is thrown. All methods are thread-safe.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the values.
+ */
+public class BoundedCache<K, V> implements Cache<K, V> {
+
+    @Getter
+    private final long maximumSize;
+
+    private final Map<K, SoftReference<V>> entries;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize Maximum amount of entries. Must be positive.
+     */
+    public BoundedCache(long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of a cache must be positive.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, SoftReference<V>> eldest) {
+                if (size() > BoundedCache.this.maximumSize) {
+                    evictionCount++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        entries.put(key, new SoftReference<>(value));
+    }
+
+    @Override
+    public synchronized Optional<V> get(K key) {
+        SoftReference<V> reference = entries.get(key);
+        V value = reference != null ? reference.get() : null;
+
+        if (value == null) {
+            if (reference != null) {
+                // Reclaimed by the garbage collector
+                entries.remove(key);
+                evictionCount++;
+            }
+
+            missCount++;
+            return Optional.empty();
+        }
+
+        hitCount++;
+        return Optional.of(value);
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized boolean contains(K key) {
+        SoftReference<V> reference = entries.get(key);
+
+        return reference != null && reference.get() != null;
+    }
+
+    @Override
+    public synchronized long size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    @NotNull
+    public synchronized CacheStats stats() {
+        return new DefaultCacheStats(hitCount, missCount, 0, 0, 0, evictionCount);
+    }
+
+    /**
+     * Returns the amount of entries that were evicted because the cache was full or because the garbage collector
+     * reclaimed their values.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,62 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.util.PathUtil;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A module of a Maven/Gradle multi-module project: a directory with a build file ({@code pom.xml},
+ * {@code build.gradle} or {@code build.gradle.kts}) next to {@link PathUtil#MAIN_JAVA}. See {@link ProjectModules}.
+ */
+@Value
+public class ProjectModule {
+
+    /**
+     * Name of the module's source directory, which contains its main and test sources.
+     */
+    public static final String SOURCE_DIRECTORY_NAME = "src";
+
+    /**
+     * The real path of the module directory.
+     */
+    Path directory;
+
+    /**
+     * The module's name: the artifact ID for Maven, the project path for Gradle.
+     */
+    String name;
+
+    /**
+     * The directories of all modules that this module depends on, transitively, nearest first.
+     */
+    List<Path> upstreamDirectories;
+
+    /**
+     * Returns the directory with the sources of this module. Nested modules are never inside it.
+     */
+    @NotNull
+    public Path getSourceDirectory() {
+        return directory.resolve(SOURCE_DIRECTORY_NAME);
+    }
+
+    /**
+     * Returns the main source roots of the upstream modules, which are visible to the sources of this module.
+     */
+    @NotNull
+    public List<Path> getUpstreamSourceRoots() {
+        return upstreamDirectories.stream().map(upstream -> upstream.resolve(PathUtil.MAIN_JAVA)).toList();
+    }
+
+    /**
+     * Checks whether the given file belongs to the sources of this module.
+     *
+     * @param realPath Real path of the file.
+     */
+    public boolean containsSource(@NotNull Path realPath) {
+        return realPath.startsWith(getSourceDirectory());
+    }
+}
@@ -0,0 +1,294 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import de.jsilbereisen.perfumator.util.PathUtil;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static de.jsilbereisen.perfumator.util.PathUtil.toRealPath;
+
+/**
+ * Detects the {@link ProjectModule}s of Maven/Gradle multi-module projects in a directory tree, and the dependencies
+ * between them.<br/>
+ * A module depends on another one, if its {@code pom.xml} declares a dependency with the artifact ID of the other
+ * module (group IDs are ignored, as they are often given by properties), or if its Gradle build file references the
+ * other module's project path with {@code project(":...")}. Dependencies on artifacts that are not part of the tree
+ * are not resolved here, they have to be given as dependencies of the analysis.
+ */
+@Slf4j
+public final class ProjectModules {
+
+    public static final String POM_FILE = "pom.xml";
+
+    public static final List<String> GRADLE_BUILD_FILES = List.of("build.gradle", "build.gradle.kts");
+
+    public static final List<String> GRADLE_SETTINGS_FILES = List.of("settings.gradle", "settings.gradle.kts");
+
+    private static final String MAVEN_KEY_PREFIX = "maven:";
+
+    private static final Pattern GRADLE_PROJECT_DEPENDENCY =
+            Pattern.compile("project\\s*\\(\\s*(?:path\\s*[:=]\\s*)?[\"'](:[^\"']*)[\"']");
+
+    private ProjectModules() {
+
+    }
+
+    /**
+     * Detects all modules in the given directory tree. Hidden directories and the source directories of modules are
+     * not searched.
+     *
+     * @param directory The root directory of the analysis.
+     * @return The modules, ordered by their directories.
+     */
+    @NotNull
+    public static List<ProjectModule> detect(@NotNull Path directory) {
+        Path root = toRealPath(directory).orElse(directory.toAbsolutePath());
+        List<ModuleDescriptor> descriptors = new ArrayList<>();
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(root) && Files.isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    if (!dir.equals(root) && dir.getFileName() != null
+                            && dir.getFileName().toString().equals(ProjectModule.SOURCE_DIRECTORY_NAME)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    if (Files.isDirectory(dir.resolve(PathUtil.MAIN_JAVA))) {
+                        describe(dir, root).ifPresent(descriptors::add);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+        } catch (IOException e) {
+            log.warn("Unable to search " + root + " for modules, it is analysed as a single project.", e);
+            return List.of();
+        }
+
+        descriptors.sort(Comparator.comparing(descriptor -> descriptor.directory));
+
+        Map<String, ModuleDescriptor> byKey = new HashMap<>();
+        descriptors.forEach(descriptor -> byKey.putIfAbsent(descriptor.key, descriptor));
+
+        List<ProjectModule> modules = new ArrayList<>();
+        for (ModuleDescriptor descriptor : descriptors) {
+            modules.add(new ProjectModule(descriptor.directory, descriptor.name,
+                    List.copyOf(collectUpstream(descriptor, byKey))));
+        }
+
+        return modules;
+    }
+
+    /**
+     * Collects the directories of all modules that the given module depends on, transitively, in breadth-first order.
+     */
+    @NotNull
+    private static Set<Path> collectUpstream(@NotNull ModuleDescriptor module,
+                                             @NotNull Map<String, ModuleDescriptor> byKey) {
+        Set<Path> upstream = new LinkedHashSet<>();
+        Deque<ModuleDescriptor> toVisit = new ArrayDeque<>();
+        toVisit.add(module);
+
+        while (!toVisit.isEmpty()) {
+            ModuleDescriptor current = toVisit.poll();
+
+            for (String dependency : current.dependencies) {
+                ModuleDescriptor upstreamModule = byKey.get(dependency);
+                if (upstreamModule != null && !upstreamModule.directory.equals(module.directory)
+                        && upstream.add(upstreamModule.directory)) {
+                    toVisit.add(upstreamModule);
+                }
+            }
+        }
+
+        return upstream;
+    }
+
+    @NotNull
+    private static Optional<ModuleDescriptor> describe(@NotNull Path directory, @NotNull Path root) {
+        Path pom = directory.resolve(POM_FILE);
+        if (Files.isRegularFile(pom)) {
+            return describeMavenModule(directory, pom);
+        }
+
+        for (String buildFileName : GRADLE_BUILD_FILES) {
+            Path buildFile = directory.resolve(buildFileName);
+            if (Files.isRegularFile(buildFile)) {
+                return describeGradleModule(directory, buildFile, root);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    @NotNull
+    private static Optional<ModuleDescriptor> describeMavenModule(@NotNull Path directory, @NotNull Path pom) {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            document = builder.parse(pom.toFile());
+
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            log.warn("Unable to read " + pom + ", the module is analysed without its upstream modules.", e);
+            String name = directory.getFileName().toString();
+            return Optional.of(new ModuleDescriptor(directory, MAVEN_KEY_PREFIX + name, name, List.of()));
+        }
+
+        Element project = document.getDocumentElement();
+        String artifactId = getChildText(project, "artifactId");
+
+        List<String> dependencies = new ArrayList<>();
+        Element dependenciesElement = getChild(project, "dependencies");
+        if (dependenciesElement != null) {
+            for (Node node = dependenciesElement.getFirstChild(); node != null; node = node.getNextSibling()) {
+                if (node instanceof Element dependency && dependency.getTagName().equals("dependency")) {
+                    String dependencyArtifactId = getChildText(dependency, "artifactId");
+                    if (dependencyArtifactId != null) {
+                        dependencies.add(MAVEN_KEY_PREFIX + dependencyArtifactId);
+                    }
+                }
+            }
+        }
+
+        String name = artifactId != null ? artifactId : directory.getFileName().toString();
+        return Optional.of(new ModuleDescriptor(directory, MAVEN_KEY_PREFIX + name, name, dependencies));
+    }
+
+    @NotNull
+    private static Optional<ModuleDescriptor> describeGradleModule(@NotNull Path directory, @NotNull Path buildFile,
+                                                                   @NotNull Path root) {
+        Path gradleRoot = findGradleRoot(directory, root);
+
+        List<String> dependencies = new ArrayList<>();
+        try {
+            Matcher matcher = GRADLE_PROJECT_DEPENDENCY.matcher(Files.readString(buildFile));
+            while (matcher.find()) {
+                Path dependencyDirectory = gradleRoot.resolve(matcher.group(1).substring(1).replace(':', '/'));
+                dependencies.add(gradleRoot + toGradleProjectPath(gradleRoot, dependencyDirectory));
+            }
+
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to read " + buildFile + ", the module is analysed without its upstream modules.", e);
+        }
+
+        String name = toGradleProjectPath(gradleRoot, directory);
+        return Optional.of(new ModuleDescriptor(directory, gradleRoot + name, name, dependencies));
+    }
+
+    /**
+     * Returns the nearest directory with Gradle settings, up to the analysis root, which is the default.
+     */
+    @NotNull
+    private static Path findGradleRoot(@NotNull Path directory, @NotNull Path root) {
+        for (Path current = directory; current != null && current.startsWith(root); current = current.getParent()) {
+            for (String settingsFileName : GRADLE_SETTINGS_FILES) {
+                if (Files.isRegularFile(current.resolve(settingsFileName))) {
+                    return current;
+                }
+            }
+        }
+
+        return root;
+    }
+
+    /**
+     * Returns the Gradle project path of the given directory, e.g. {@code :core:api}.
+     */
+    @NotNull
+    private static String toGradleProjectPath(@NotNull Path gradleRoot, @NotNull Path directory) {
+        List<String> segments = new ArrayList<>();
+        gradleRoot.relativize(directory.normalize()).forEach(segment -> {
+            if (!segment.toString().isEmpty()) {
+                segments.add(segment.toString());
+            }
+        });
+
+        return ":" + String.join(":", segments);
+    }
+
+    @Nullable
+    private static Element getChild(@NotNull Element parent, @NotNull String tagName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && element.getTagName().equals(tagName)) {
+                return element;
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private static String getChildText(@NotNull Element parent, @NotNull String tagName) {
+        Element child = getChild(parent, tagName);
+
+        return child != null ? child.getTextContent().trim() : null;
+    }
+
+    private static class ModuleDescriptor {
+
+        private final Path directory;
+
+        /**
+         * Identifies the module in the tree. Gradle project paths are prefixed with the directory of their build, as
+         * the tree might contain multiple builds.
+         */
+        private final String key;
+
+        private final String name;
+
+        /**
+         * Keys of the modules that this module depends on.
+         */
+        private final List<String> dependencies;
+
+        private ModuleDescriptor(@NotNull Path directory, @NotNull String key, @NotNull String name,
+                                 @NotNull List<String> dependencies) {
+            this.directory = directory;
+            this.key = key;
+            this.name = name;
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import de.jsilbereisen.perfumator.engine.AnalysisDeadline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replacement for a {@link CombinedTypeSolver} for projects with many source roots and dependencies.
+ * Instead of asking every solver in turn, the solver keeps an index from package names and type names to the solvers
+ * that can declare them, built once when the solvers are added, and only asks these candidates.<br/>
+ * Solvers are added as
+ * <ul>
+ *     <li>source root solvers, with the packages that the root contains,</li>
+ *     <li>type name solvers, with the qualified names of all types they declare (e.g. JAR solvers) or</li>
+ *     <li>unrouted solvers, which are asked for every name (e.g. reflection based solvers).</li>
+ * </ul>
+ * Candidates are asked in the order in which the solvers were added, so the solver resolves the same declarations as
+ * a {@link CombinedTypeSolver} with the solvers in the same order.
+ */
+@Slf4j
+public class RoutingTypeSolver implements TypeSolver {
+
+    private final List<TypeSolver> solvers = new ArrayList<>();
+
+    private final Map<String, List<Integer>> solversByPackage = new HashMap<>();
+
+    private final Map<String, List<Integer>> solversByTypeName = new HashMap<>();
+
+    private final List<Integer> unroutedSolvers = new ArrayList<>();
+
+    @NotNull
+    private final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> typeCache;
+
+    @Nullable
+    private TypeSolver parent;
+
+    public RoutingTypeSolver(@NotNull Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> typeCache) {
+        this.typeCache = typeCache;
+    }
+
+    /**
+     * Adds a solver for the Java sources under the given source root. The solver is only asked for types in the
+     * packages that the root contains at the time of adding. If the packages can not be listed, the solver is
+     * unrouted.
+     *
+     * @param solver     The solver.
+     * @param sourceRoot The source root of the solver.
+     */
+    public void addSourceRootSolver(@NotNull TypeSolver solver, @NotNull Path sourceRoot) {
+        listPackages(sourceRoot).ifPresentOrElse(packages -> addPackageSolver(solver, packages),
+                () -> addUnroutedSolver(solver));
+    }
+
+    /**
+     * Adds a solver that is only asked for types in the given packages (and types nested in them).
+     *
+     * @param solver   The solver.
+     * @param packages Names of the packages, the empty string for the default package.
+     */
+    public void addPackageSolver(@NotNull TypeSolver solver, @NotNull Collection<String> packages) {
+        int index = add(solver);
+        packages.forEach(packageName -> solversByPackage.computeIfAbsent(packageName, key -> new ArrayList<>()).add(index));
+    }
+
+    /**
+     * Adds a solver that is only asked for the types with the given qualified names.
+     *
+     * @param solver    The solver.
+     * @param typeNames The qualified names of all types that the solver declares.
+     */
+    public void addTypeNameSolver(@NotNull TypeSolver solver, @NotNull Collection<String> typeNames) {
+        int index = add(solver);
+        typeNames.forEach(typeName -> solversByTypeName.computeIfAbsent(typeName, key -> new ArrayList<>()).add(index));
+    }
+
+    /**
+     * Adds a solver that is asked for every type.
+     *
+     * @param solver The solver.
+     */
+    public void addUnroutedSolver(@NotNull TypeSolver solver) {
+        unroutedSolvers.add(add(solver));
+    }
+
+    /**
+     * Returns all added solvers, in the order of adding.
+     */
+    @NotNull
+    @Unmodifiable
+    public List<TypeSolver> getSolvers() {
+        return Collections.unmodifiableList(solvers);
+    }
+
+    /**
+     * Returns the solvers that are asked for the type with the given qualified name, in the order of adding.
+     *
+     * @param name Qualified name of the type.
+     * @return The candidate solvers.
+     */
+    @NotNull
+    public List<TypeSolver> getCandidates(@NotNull String name) {
+        Set<Integer> candidates = new TreeSet<>(unroutedSolvers);
+        candidates.addAll(solversByTypeName.getOrDefault(name, List.of()));
+
+        // The package is any prefix, as the name might denote a nested type
+        int end = name.length();
+        while (end > 0) {
+            end = name.lastIndexOf('.', end - 1);
+            candidates.addAll(solversByPackage.getOrDefault(end > 0 ? name.substring(0, end) : "", List.of()));
+        }
+
+        return candidates.stream().map(solvers::get).collect(Collectors.toList());
+    }
+
+    @Override
+    @Nullable
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        Objects.requireNonNull(parent);
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        // Resolving is where a pathological file spends its time, so cancel it here if it exceeds its budget
+        AnalysisDeadline.checkpoint();
+
+        Optional<SymbolReference<ResolvedReferenceTypeDeclaration>> cached = typeCache.get(name);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        for (TypeSolver solver : getCandidates(name)) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> reference = solver.tryToSolveType(name);
+            if (reference.isSolved()) {
+                typeCache.put(name, reference);
+                return reference;
+            }
+        }
+
+        SymbolReference<ResolvedReferenceTypeDeclaration> unsolved = SymbolReference.unsolved();
+        typeCache.put(name, unsolved);
+
+        return unsolved;
+    }
+
+    private int add(@NotNull TypeSolver solver) {
+        solver.setParent(this);
+        solvers.add(solver);
+
+        return solvers.size() - 1;
+    }
+
+    /**
+     * Lists the names of all packages in the given source root, which are all directories that contain a Java source
+     * file.
+     */
+    @NotNull
+    private static Optional<Set<String>> listPackages(@NotNull Path sourceRoot) {
+        try (Stream<Path> files = Files.walk(sourceRoot)) {
+            return Optional.of(files.filter(file -> file.getFileName() != null
+                            && file.getFileName().toString().endsWith(".java"))
+                    .map(file -> toPackageName(sourceRoot.relativize(file).getParent()))
+                    .collect(Collectors.toSet()));
+
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to list the packages of " + sourceRoot + ", routing every lookup to it.", e);
+            return Optional.empty();
+        }
+    }
+
+    @NotNull
+    private static String toPackageName(@Nullable Path relativeDirectory) {
+        if (relativeDirectory == null) {
+            return "";
+        }
+
+        List<String> segments = new ArrayList<>();
+        relativeDirectory.forEach(segment -> segments.add(segment.toString()));
+
+        return String.join(".", segments);
+    }
+}
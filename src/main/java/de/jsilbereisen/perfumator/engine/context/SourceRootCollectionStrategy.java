@@ -0,0 +1,117 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.symbolsolver.utils.SymbolSolverCollectionStrategy;
+import com.github.javaparser.utils.CollectionStrategy;
+import com.github.javaparser.utils.ProjectRoot;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link CollectionStrategy} that collects the source roots and the JAR files in a directory tree, in the same way as
+ * the {@link SymbolSolverCollectionStrategy} of the <i>JavaParser</i> library. In contrast to the latter, it does
+ * <b>not</b> create any type solvers, so that the {@link AnalysisContextFactory} can create them with bounded caches
+ * and release them again.
+ */
+@Slf4j
+public class SourceRootCollectionStrategy implements CollectionStrategy {
+
+    @Getter
+    private final ParserConfiguration parserConfiguration;
+
+    private final List<Path> sourceRoots = new ArrayList<>();
+
+    private final List<Path> jarFiles = new ArrayList<>();
+
+    public SourceRootCollectionStrategy(@NotNull ParserConfiguration parserConfiguration) {
+        this.parserConfiguration = parserConfiguration;
+    }
+
+    @Override
+    public ProjectRoot collect(Path path) {
+        ProjectRoot projectRoot = new ProjectRoot(path, parserConfiguration);
+
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                private final PathMatcher javaMatcher = getPathMatcher("glob:**.java");
+                private final PathMatcher jarMatcher = getPathMatcher("glob:**.jar");
+                private Path currentRoot;
+                private Path currentProjectDir;
+                private String previousSourceDirectory;
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (javaMatcher.matches(file)) {
+                        // Only compute the root once per directory, as it requires parsing the file
+                        String parent = file.getParent().toString();
+                        if (!parent.equals(previousSourceDirectory)) {
+                            previousSourceDirectory = parent;
+                            currentProjectDir = getRoot(file).orElse(null);
+                        }
+
+                        if (currentRoot == null || (currentProjectDir != null && !currentProjectDir.equals(currentRoot))) {
+                            currentRoot = currentProjectDir;
+                        }
+
+                    } else if (jarMatcher.matches(file)) {
+                        jarFiles.add(file);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    return Files.isHidden(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if (currentRoot != null && Files.isSameFile(dir, currentRoot)) {
+                        projectRoot.addSourceRoot(dir);
+                        sourceRoots.add(dir);
+                        currentRoot = null;
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+        } catch (IOException e) {
+            log.error("Unable to walk " + path, e);
+        }
+
+        return projectRoot;
+    }
+
+    /**
+     * Returns the source roots that were collected so far.
+     */
+    @NotNull
+    @Unmodifiable
+    public List<Path> getSourceRoots() {
+        return Collections.unmodifiableList(sourceRoots);
+    }
+
+    /**
+     * Returns the JAR files that were found so far.
+     */
+    @NotNull
+    @Unmodifiable
+    public List<Path> getJarFiles() {
+        return Collections.unmodifiableList(jarFiles);
+    }
+}
@@ -0,0 +1,47 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Layout of an analysed directory: its {@link ProjectModule}s and the {@link SourcesSnapshot} of its files, which
+ * determine the analysis contexts of its source files. Inspecting the layout walks the whole directory, so callers
+ * that analyse the same directory in many parts, e.g. in batches, inspect it once with {@link #of(Path)} and pass it to
+ * each part. The layout has to be inspected again, if files are added, deleted or moved, or build files change.
+ */
+@Value
+public class SourcesLayout {
+
+    /**
+     * The analysed directory.
+     */
+    @NotNull
+    Path sources;
+
+    /**
+     * The modules of the directory, see {@link ProjectModules#detect}.
+     */
+    @NotNull
+    List<ProjectModule> modules;
+
+    @NotNull
+    SourcesSnapshot snapshot;
+
+    /**
+     * Inspects the layout of the given directory.
+     */
+    @NotNull
+    public static SourcesLayout of(@NotNull Path sources) {
+        return new SourcesLayout(sources, List.copyOf(ProjectModules.detect(sources)), SourcesSnapshot.take(sources));
+    }
+
+    /**
+     * Returns whether the directory contains multiple modules, which are analysed with contexts of their own.
+     */
+    public boolean isModular() {
+        return modules.size() > 1;
+    }
+}
@@ -0,0 +1,119 @@
+package de.jsilbereisen.perfumator.engine.context;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * State of the files of analysed sources at one point in time, to notice whether an {@link AnalysisContext} that was
+ * created for the sources is still up to date.<br/>
+ * The snapshot covers the Java source files and the build files of {@link ProjectModules}, which determine the source
+ * roots and modules of a context: their amount, a hash of their paths, and the newest modification time of them and
+ * of all directories. Directories are part of the latter, as adding, deleting or renaming a file changes the
+ * modification time of its directory, but not of the directories above.
+ */
+@Slf4j
+@Value
+public class SourcesSnapshot {
+
+    /**
+     * Amount of Java source and build files.
+     */
+    int fileCount;
+
+    /**
+     * Hash of the paths of the Java source and build files, independent of their order.
+     */
+    long pathsHash;
+
+    /**
+     * Newest modification time in milliseconds of the Java source and build files and of all directories.
+     */
+    long newestModification;
+
+    /**
+     * Takes the snapshot of the given source file or directory. Hidden directories are skipped, like by the
+     * {@link SourceRootCollectionStrategy}.
+     *
+     * @param sources The analysed sources.
+     * @return The snapshot, which is empty if the sources can not be read.
+     */
+    @NotNull
+    public static SourcesSnapshot take(@NotNull Path sources) {
+        Counter counter = new Counter(sources);
+
+        try {
+            Files.walkFileTree(sources, counter);
+        } catch (IOException e) {
+            log.debug("Unable to walk " + sources + " for its snapshot.", e);
+        }
+
+        return new SourcesSnapshot(counter.fileCount, counter.pathsHash, counter.newestModification);
+    }
+
+    /**
+     * Returns whether the given snapshot has the same files as this one, i.e. only the content of files changed in
+     * between, if anything.
+     */
+    public boolean hasSameFiles(@Nullable SourcesSnapshot other) {
+        return other != null && fileCount == other.fileCount && pathsHash == other.pathsHash;
+    }
+
+    private static boolean isCoveredFile(@NotNull Path file) {
+        String fileName = file.getFileName() != null ? file.getFileName().toString() : "";
+
+        return fileName.endsWith(".java") || fileName.equals(ProjectModules.POM_FILE)
+                || ProjectModules.GRADLE_BUILD_FILES.contains(fileName)
+                || ProjectModules.GRADLE_SETTINGS_FILES.contains(fileName);
+    }
+
+    private static class Counter extends SimpleFileVisitor<Path> {
+
+        private final Path root;
+
+        private int fileCount;
+
+        private long pathsHash;
+
+        private long newestModification;
+
+        private Counter(@NotNull Path root) {
+            this.root = root;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+            if (!dir.equals(root) && Files.isHidden(dir)) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            newestModification = Math.max(newestModification, attrs.lastModifiedTime().toMillis());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (isCoveredFile(file)) {
+                fileCount++;
+                // A sum, so that the hash does not depend on the order of the walk
+                pathsHash += root.relativize(file).toString().hashCode();
+                newestModification = Math.max(newestModification, attrs.lastModifiedTime().toMillis());
+            }
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            return FileVisitResult.CONTINUE;
+        }
+    }
+}
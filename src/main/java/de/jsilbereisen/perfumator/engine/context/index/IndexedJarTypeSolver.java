@@ -0,0 +1,97 @@
+package de.jsilbereisen.perfumator.engine.context.index;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * {@link TypeSolver} for a JAR file that is backed by a {@link JarTypeIndex}. Types that the JAR does not declare are
+ * rejected with the index alone. The JAR is only opened, with a {@link JarTypeSolver}, when the first type that it
+ * declares is requested, so that setting up the solvers for many dependencies is cheap.
+ */
+@Slf4j
+public class IndexedJarTypeSolver implements TypeSolver {
+
+    @Getter
+    @NotNull
+    private final JarTypeIndex index;
+
+    @Nullable
+    private TypeSolver parent;
+
+    @Nullable
+    private JarTypeSolver delegate;
+
+    private boolean unreadable;
+
+    public IndexedJarTypeSolver(@NotNull JarTypeIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    @Nullable
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        Objects.requireNonNull(parent);
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        if (!index.contains(name)) {
+            return SymbolReference.unsolved();
+        }
+
+        JarTypeSolver jarSolver = getDelegate();
+
+        return jarSolver != null ? jarSolver.tryToSolveType(name) : SymbolReference.unsolved();
+    }
+
+    /**
+     * Returns whether the JAR was already opened.
+     */
+    public synchronized boolean isLoaded() {
+        return delegate != null;
+    }
+
+    @Nullable
+    private synchronized JarTypeSolver getDelegate() {
+        if (delegate == null && !unreadable) {
+            try {
+                delegate = new JarTypeSolver(index.getJarFile());
+                // Resolved declarations have to refer to the root of this solver
+                delegate.setParent(this);
+
+            } catch (IOException e) {
+                log.error("Unable to open the indexed JAR " + index.getJarFile(), e);
+                unreadable = true;
+            }
+        }
+
+        return delegate;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexedJarTypeSolver{" + index.getJarFile() + "}";
+    }
+}
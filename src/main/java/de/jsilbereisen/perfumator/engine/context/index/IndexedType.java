@@ -0,0 +1,117 @@
+package de.jsilbereisen.perfumator.engine.context.index;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry of a {@link JarTypeIndex}: a type that is declared in a JAR file, with its direct supertypes and the
+ * signatures of its non-private methods.
+ */
+@Value
+public class IndexedType {
+
+    /**
+     * Qualified name of the type, nested types are separated with a dot, like in the source code.
+     */
+    String qualifiedName;
+
+    /**
+     * Name of the type in the <i>Javassist</i> class pool, nested types are separated with a dollar sign.
+     */
+    String classPoolName;
+
+    /**
+     * Qualified names of the direct superclass (if any) and the directly implemented interfaces.
+     */
+    @Unmodifiable
+    List<String> superTypes;
+
+    /**
+     * Method signatures, consisting of the method name and its JVM descriptor, like {@code "size()I"}.
+     */
+    @Unmodifiable
+    List<String> methodSignatures;
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    private static final String SUPER_TYPE_SEPARATOR = ",";
+
+    private static final String METHOD_SEPARATOR = " ";
+
+    /**
+     * Reads the type from the given class file. Only the class file header and the method table are parsed,
+     * the class is not loaded.
+     *
+     * @param classFile Stream of the class file. Is not closed by this method.
+     * @return The indexed type.
+     * @throws IOException If the class file can not be read.
+     */
+    @NotNull
+    static IndexedType read(@NotNull InputStream classFile) throws IOException {
+        ClassFile header = new ClassFile(new DataInputStream(classFile));
+        String classPoolName = header.getName();
+
+        List<String> superTypes = new ArrayList<>();
+        if (header.getSuperclass() != null && !header.isInterface()) {
+            superTypes.add(toQualifiedName(header.getSuperclass()));
+        }
+        Arrays.stream(header.getInterfaces()).map(IndexedType::toQualifiedName).forEach(superTypes::add);
+
+        List<String> methods = new ArrayList<>();
+        for (MethodInfo method : header.getMethods()) {
+            int flags = method.getAccessFlags();
+            if ((flags & (AccessFlag.PRIVATE | AccessFlag.SYNTHETIC | AccessFlag.BRIDGE)) == 0) {
+                methods.add(method.getName() + method.getDescriptor());
+            }
+        }
+
+        return new IndexedType(toQualifiedName(classPoolName), classPoolName, List.copyOf(superTypes),
+                List.copyOf(methods));
+    }
+
+    /**
+     * Parses a type from a line of an index file, see {@link #toIndexLine()}.
+     *
+     * @throws IllegalArgumentException If the line is malformed.
+     */
+    @NotNull
+    static IndexedType parseIndexLine(@NotNull String line) {
+        String[] fields = line.split(FIELD_SEPARATOR, -1);
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Malformed index line: " + line);
+        }
+
+        return new IndexedType(fields[0], fields[1], split(fields[2], SUPER_TYPE_SEPARATOR),
+                split(fields[3], METHOD_SEPARATOR));
+    }
+
+    /**
+     * Returns the line that represents this type in an index file.
+     */
+    @NotNull
+    String toIndexLine() {
+        return String.join(FIELD_SEPARATOR, qualifiedName, classPoolName,
+                String.join(SUPER_TYPE_SEPARATOR, superTypes), String.join(METHOD_SEPARATOR, methodSignatures));
+    }
+
+    @NotNull
+    private static String toQualifiedName(@NotNull String classPoolName) {
+        return classPoolName.replace('$', '.');
+    }
+
+    @NotNull
+    private static List<String> split(@NotNull String field, @NotNull String separator) {
+        return field.isEmpty() ? List.of() : List.of(field.split(separator));
+    }
+}
@@ -0,0 +1,213 @@
+package de.jsilbereisen.perfumator.engine.context.index;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Index of the types that are declared in a JAR file, identified by the JAR's path, size and SHA-256 hash.
+ * The index is created once by reading the class file headers of the JAR and can then be persisted, so that later
+ * analyses know which types a JAR declares without opening it. See {@link JarTypeIndexStore}.
+ */
+@Getter
+public class JarTypeIndex {
+
+    /**
+     * Version of the index file format. Index files with another version are ignored.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final String MAGIC = "perfumator-jar-index";
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private final Path jarFile;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final String hash;
+
+    @Unmodifiable
+    private final Map<String, IndexedType> types;
+
+    private JarTypeIndex(@NotNull Path jarFile, long size, long lastModified, @NotNull String hash,
+                         @NotNull Map<String, IndexedType> types) {
+        this.jarFile = jarFile;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hash = hash;
+        this.types = Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Creates the index of the given JAR file, by reading the headers of all its class files.
+     *
+     * @param jarFile The JAR file.
+     * @return The index.
+     * @throws IOException If the JAR can not be read.
+     */
+    @NotNull
+    public static JarTypeIndex create(@NotNull Path jarFile) throws IOException {
+        Path realPath = jarFile.toRealPath();
+        Map<String, IndexedType> types = new HashMap<>();
+
+        try (JarFile jar = new JarFile(realPath.toFile())) {
+            Enumeration<JarEntry> entries = jar.entries();
+
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+
+                if (entry.isDirectory() || !name.endsWith(CLASS_EXTENSION) || name.endsWith("module-info.class")) {
+                    continue;
+                }
+
+                try (InputStream classFile = jar.getInputStream(entry)) {
+                    IndexedType type = IndexedType.read(classFile);
+                    types.put(type.getQualifiedName(), type);
+                }
+            }
+        }
+
+        return new JarTypeIndex(realPath, Files.size(realPath), Files.getLastModifiedTime(realPath).toMillis(),
+                hash(realPath), types);
+    }
+
+    /**
+     * Reads an index from the given index file.
+     *
+     * @param indexFile The index file.
+     * @return The index, or an empty optional if the file has an unknown format or version.
+     * @throws IOException If the file can not be read.
+     */
+    @NotNull
+    public static Optional<JarTypeIndex> read(@NotNull Path indexFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            if (!(MAGIC + "\t" + FORMAT_VERSION).equals(reader.readLine())) {
+                return Optional.empty();
+            }
+
+            Path jarFile = Path.of(readHeader(reader, "path"));
+            long size = Long.parseLong(readHeader(reader, "size"));
+            long lastModified = Long.parseLong(readHeader(reader, "modified"));
+            String hash = readHeader(reader, "sha256");
+
+            Map<String, IndexedType> types = new HashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    IndexedType type = IndexedType.parseIndexLine(line);
+                    types.put(type.getQualifiedName(), type);
+                }
+            }
+
+            return Optional.of(new JarTypeIndex(jarFile, size, lastModified, hash, types));
+
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes this index to the given file. Overwrites the file if it already exists.
+     *
+     * @param indexFile The index file.
+     * @throws IOException If the file can not be written.
+     */
+    public void write(@NotNull Path indexFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)) {
+            writer.write(MAGIC + "\t" + FORMAT_VERSION);
+            writer.newLine();
+            writeHeader(writer, "path", jarFile.toString());
+            writeHeader(writer, "size", String.valueOf(size));
+            writeHeader(writer, "modified", String.valueOf(lastModified));
+            writeHeader(writer, "sha256", hash);
+
+            for (IndexedType type : types.values()) {
+                writer.write(type.toIndexLine());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this index with the given last modification time of the JAR.
+     */
+    @NotNull
+    public JarTypeIndex withLastModified(long lastModified) {
+        return new JarTypeIndex(jarFile, size, lastModified, hash, types);
+    }
+
+    /**
+     * Returns whether the JAR declares a type with the given qualified name.
+     */
+    public boolean contains(@NotNull String qualifiedName) {
+        return types.containsKey(qualifiedName);
+    }
+
+    @NotNull
+    public Optional<IndexedType> getType(@NotNull String qualifiedName) {
+        return Optional.ofNullable(types.get(qualifiedName));
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given file, as hex string.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    @NotNull
+    public static String hash(@NotNull Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @NotNull
+    private static String readHeader(@NotNull BufferedReader reader, @NotNull String key) throws IOException {
+        String line = reader.readLine();
+        if (line == null || !line.startsWith(key + "\t")) {
+            throw new IllegalArgumentException("Missing index header " + key);
+        }
+
+        return line.substring(key.length() + 1);
+    }
+
+    private static void writeHeader(@NotNull BufferedWriter writer, @NotNull String key, @NotNull String value)
+            throws IOException {
+        writer.write(key + "\t" + value);
+        writer.newLine();
+    }
+}
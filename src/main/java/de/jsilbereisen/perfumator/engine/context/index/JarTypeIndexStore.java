@@ -0,0 +1,120 @@
+package de.jsilbereisen.perfumator.engine.context.index;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent store for {@link JarTypeIndex}es in a directory. The index of a JAR is created on the first request and
+ * reused as long as the JAR's path and size match and its content did not change: if the last modification time
+ * changed, the content hash decides whether the index is still valid.
+ * The store can safely be shared between processes, as index files are replaced atomically.
+ */
+@Slf4j
+public class JarTypeIndexStore {
+
+    private static final String INDEX_FILE_EXTENSION = ".index";
+
+    @Getter
+    private final Path directory;
+
+    /**
+     * Constructor. Creates the directory, if it does not exist yet.
+     *
+     * @param directory The directory of the index files.
+     * @throws IOException If the directory can not be created.
+     */
+    public JarTypeIndexStore(@NotNull Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Returns the stored index of the given JAR file, if it is still valid, or creates and stores a new index.
+     *
+     * @param jarFile The JAR file.
+     * @return The index.
+     * @throws IOException If the JAR can not be read or the index can not be written.
+     */
+    @NotNull
+    public JarTypeIndex getOrCreate(@NotNull Path jarFile) throws IOException {
+        Path realPath = jarFile.toRealPath();
+        Path indexFile = getIndexFile(realPath);
+
+        Optional<JarTypeIndex> stored = readIndex(indexFile);
+        if (stored.isPresent() && stored.get().getJarFile().equals(realPath)
+                && stored.get().getSize() == Files.size(realPath)) {
+            JarTypeIndex index = stored.get();
+            long lastModified = Files.getLastModifiedTime(realPath).toMillis();
+
+            if (index.getLastModified() == lastModified) {
+                return index;
+            }
+
+            // Touched, but possibly unchanged (e.g. re-downloaded)
+            if (index.getHash().equals(JarTypeIndex.hash(realPath))) {
+                JarTypeIndex touched = index.withLastModified(lastModified);
+                writeIndex(touched, indexFile);
+                return touched;
+            }
+        }
+
+        JarTypeIndex index = JarTypeIndex.create(realPath);
+        writeIndex(index, indexFile);
+
+        return index;
+    }
+
+    /**
+     * Returns the index file for the JAR with the given real path. The name contains the JAR's file name for
+     * readability and a checksum of its path, to distinguish JARs with the same name.
+     */
+    @NotNull
+    Path getIndexFile(@NotNull Path realJarPath) {
+        CRC32 checksum = new CRC32();
+        checksum.update(realJarPath.toString().getBytes(StandardCharsets.UTF_8));
+
+        return directory.resolve(realJarPath.getFileName() + "-" + HexFormat.of().toHexDigits((int) checksum.getValue())
+                + INDEX_FILE_EXTENSION);
+    }
+
+    @NotNull
+    private Optional<JarTypeIndex> readIndex(@NotNull Path indexFile) {
+        if (!Files.isRegularFile(indexFile)) {
+            return Optional.empty();
+        }
+
+        try {
+            return JarTypeIndex.read(indexFile);
+        } catch (IOException e) {
+            log.warn("Unable to read type index " + indexFile + ", it is re-created.", e);
+            return Optional.empty();
+        }
+    }
+
+    private void writeIndex(@NotNull JarTypeIndex index, @NotNull Path indexFile) throws IOException {
+        Path tempFile = Files.createTempFile(directory, indexFile.getFileName().toString(), ".tmp");
+
+        try {
+            index.write(tempFile);
+
+            try {
+                Files.move(tempFile, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package de.jsilbereisen.perfumator.engine.context.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Index of the types of the standard library ({@code java.*} and {@code javax.*} packages) of the running JDK.
+ * The type names are listed from the JDK's runtime image ({@code jrt:/}) without loading any class, the supertypes and
+ * method signatures of a type are read from its class file header on first request.
+ * The index can be persisted per JDK version, see {@link #load(Path)}.<br/>
+ * With the index, lookups of names that are not part of the standard library, which the <i>JavaParser</i> does a lot
+ * when resolving simple names, can be answered without trying to load a class, and ancestor checks against standard
+ * library types do not need to resolve the standard library's type hierarchy.
+ */
+@Slf4j
+public final class JdkTypeIndex {
+
+    private static final String MAGIC = "perfumator-jdk-index";
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private static final JdkTypeIndex UNAVAILABLE = new JdkTypeIndex(Collections.emptyMap(), Collections.emptyMap(), false);
+
+    private static volatile JdkTypeIndex shared;
+
+    /**
+     * Path of each type's class file in the runtime image, by qualified name.
+     */
+    private final Map<String, Path> classFiles;
+
+    private final Map<String, IndexedType> types;
+
+    private final boolean available;
+
+    private JdkTypeIndex(@NotNull Map<String, Path> classFiles, @NotNull Map<String, IndexedType> types,
+                         boolean available) {
+        this.classFiles = classFiles;
+        this.types = new ConcurrentHashMap<>(types);
+        this.available = available;
+    }
+
+    /**
+     * Returns the index of the running JDK, which is shared by all analyses in the JVM. Lists the runtime image on
+     * the first call, unless an index was already loaded with {@link #load(Path)}.
+     *
+     * @return The index. If the runtime image is not accessible, an index that is not {@link #isAvailable() available}.
+     */
+    @NotNull
+    public static JdkTypeIndex getShared() {
+        JdkTypeIndex index = shared;
+        if (index == null) {
+            synchronized (JdkTypeIndex.class) {
+                if (shared == null) {
+                    shared = listRuntimeImage();
+                }
+                index = shared;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Loads the index of the running JDK from the given directory, or creates it completely and stores it there,
+     * and shares it in the JVM, see {@link #getShared()}. Does nothing, if an index is already shared.
+     *
+     * @param directory The directory where the index is stored, e.g. the directory of a {@link JarTypeIndexStore}.
+     * @return The shared index.
+     */
+    @NotNull
+    public static JdkTypeIndex load(@NotNull Path directory) {
+        synchronized (JdkTypeIndex.class) {
+            if (shared == null) {
+                Path indexFile = directory.resolve("jdk-" + Runtime.version() + ".index");
+                shared = read(indexFile).orElseGet(() -> {
+                    JdkTypeIndex index = listRuntimeImage();
+                    index.writeCompletely(indexFile);
+                    return index;
+                });
+            }
+
+            return shared;
+        }
+    }
+
+    /**
+     * Returns whether the given qualified name is in a package of the standard library that is covered by this index.
+     */
+    public static boolean isStandardLibraryName(@NotNull String qualifiedName) {
+        return qualifiedName.startsWith("java.") || qualifiedName.startsWith("javax.");
+    }
+
+    /**
+     * Returns whether the index could be created. If not, it contains no types.
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Returns whether the JDK declares a type with the given qualified name.
+     */
+    public boolean contains(@NotNull String qualifiedName) {
+        return types.containsKey(qualifiedName) || classFiles.containsKey(qualifiedName);
+    }
+
+    /**
+     * Returns the indexed type with the given qualified name, reading its class file header if necessary.
+     */
+    @NotNull
+    public Optional<IndexedType> getType(@NotNull String qualifiedName) {
+        IndexedType type = types.get(qualifiedName);
+        if (type != null) {
+            return Optional.of(type);
+        }
+
+        Path classFile = classFiles.get(qualifiedName);
+        if (classFile == null) {
+            return Optional.empty();
+        }
+
+        try (InputStream in = Files.newInputStream(classFile)) {
+            type = IndexedType.read(in);
+        } catch (IOException e) {
+            log.debug("Unable to read the class file of " + qualifiedName, e);
+            return Optional.empty();
+        }
+
+        types.put(qualifiedName, type);
+        return Optional.of(type);
+    }
+
+    /**
+     * Checks whether the given standard library type is a subtype of (or the same as) the given potential supertype,
+     * by traversing the supertypes in the index.
+     *
+     * @param qualifiedName          Qualified name of a type of the standard library.
+     * @param qualifiedSuperTypeName Qualified name of the potential supertype.
+     * @return {@code true} if the type is the supertype or one of its transitive supertypes is.
+     */
+    public boolean isSubtypeOf(@NotNull String qualifiedName, @NotNull String qualifiedSuperTypeName) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>();
+        toVisit.add(qualifiedName);
+
+        while (!toVisit.isEmpty()) {
+            String current = toVisit.poll();
+            if (current.equals(qualifiedSuperTypeName)) {
+                return true;
+            }
+
+            if (visited.add(current)) {
+                getType(current).ifPresent(type -> toVisit.addAll(type.getSuperTypes()));
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the amount of types in the index.
+     */
+    public int size() {
+        return Math.max(types.size(), classFiles.size());
+    }
+
+    @NotNull
+    private static JdkTypeIndex listRuntimeImage() {
+        FileSystem runtimeImage;
+        try {
+            runtimeImage = FileSystems.getFileSystem(URI.create("jrt:/"));
+        } catch (FileSystemNotFoundException | ProviderNotFoundException | IllegalArgumentException e) {
+            log.warn("The runtime image of the JDK is not accessible, standard library types are not indexed.");
+            return UNAVAILABLE;
+        }
+
+        Map<String, Path> classFiles = new HashMap<>();
+        try (DirectoryStream<Path> modules = Files.newDirectoryStream(runtimeImage.getPath("/modules"))) {
+            for (Path module : modules) {
+                listModule(module, classFiles);
+            }
+
+        } catch (IOException e) {
+            log.warn("Unable to list the runtime image of the JDK, standard library types are not indexed.", e);
+            return UNAVAILABLE;
+        }
+
+        return new JdkTypeIndex(classFiles, Collections.emptyMap(), true);
+    }
+
+    private static void listModule(@NotNull Path module, @NotNull Map<String, Path> classFiles) throws IOException {
+        for (String rootPackage : new String[]{"java", "javax"}) {
+            Path packageDir = module.resolve(rootPackage);
+            if (!Files.isDirectory(packageDir)) {
+                continue;
+            }
+
+            try (Stream<Path> files = Files.walk(packageDir)) {
+                files.filter(file -> file.toString().endsWith(CLASS_EXTENSION)).forEach(file -> {
+                    String entry = module.relativize(file).toString();
+                    String qualifiedName = entry.substring(0, entry.length() - CLASS_EXTENSION.length())
+                            .replace('/', '.').replace('$', '.');
+
+                    classFiles.put(qualifiedName, file);
+                });
+            }
+        }
+    }
+
+    @NotNull
+    private static Optional<JdkTypeIndex> read(@NotNull Path indexFile) {
+        if (!Files.isRegularFile(indexFile)) {
+            return Optional.empty();
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            if (!(MAGIC + "\t" + Runtime.version()).equals(reader.readLine())) {
+                return Optional.empty();
+            }
+
+            Map<String, IndexedType> types = new HashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    IndexedType type = IndexedType.parseIndexLine(line);
+                    types.put(type.getQualifiedName(), type);
+                }
+            }
+
+            return Optional.of(new JdkTypeIndex(Collections.emptyMap(), types, true));
+
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Unable to read the JDK type index " + indexFile + ", it is re-created.", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the headers of all class files and writes the complete index to the given file.
+     * Failures are only logged, as the index still works without being persisted.
+     */
+    private void writeCompletely(@NotNull Path indexFile) {
+        if (!available) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tempFile = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                    writer.write(MAGIC + "\t" + Runtime.version());
+                    writer.newLine();
+
+                    for (String qualifiedName : classFiles.keySet()) {
+                        Optional<IndexedType> type = getType(qualifiedName);
+                        if (type.isPresent()) {
+                            writer.write(type.get().toIndexLine());
+                            writer.newLine();
+                        }
+                    }
+                }
+
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+
+        } catch (IOException e) {
+            log.warn("Unable to store the JDK type index " + indexFile, e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package de.jsilbereisen.perfumator.engine.context.index;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * {@link TypeSolver} for the standard library that consults the {@link JdkTypeIndex} before resolving a type by
+ * reflection. Names in the {@code java.*} and {@code javax.*} packages that the JDK does not declare, e.g.
+ * {@code java.lang.MyClass} when the <i>JavaParser</i> resolves the simple name {@code MyClass}, are rejected without
+ * trying to load a class. All other lookups are delegated to a {@link ReflectionTypeSolver}, so that the solver
+ * resolves exactly the same types as the latter.
+ */
+public class JdkTypeSolver implements TypeSolver {
+
+    @Getter
+    @NotNull
+    private final JdkTypeIndex index;
+
+    @NotNull
+    private final ReflectionTypeSolver reflectionSolver;
+
+    @Nullable
+    private TypeSolver parent;
+
+    /**
+     * Creates a solver with the {@link JdkTypeIndex#getShared() shared index}, that delegates to a
+     * {@link ReflectionTypeSolver} which does not only consider JRE classes.
+     */
+    public JdkTypeSolver() {
+        this(JdkTypeIndex.getShared(), false);
+    }
+
+    public JdkTypeSolver(@NotNull JdkTypeIndex index, boolean jreOnly) {
+        this.index = index;
+        this.reflectionSolver = new ReflectionTypeSolver(jreOnly);
+        // Resolved declarations have to refer to the root of this solver
+        this.reflectionSolver.setParent(this);
+    }
+
+    @Override
+    @Nullable
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        Objects.requireNonNull(parent);
+        if (this.parent != null) {
+            throw new IllegalStateException("This TypeSolver already has a parent.");
+        }
+        if (parent == this) {
+            throw new IllegalStateException("The parent of this TypeSolver cannot be itself.");
+        }
+
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        // Binary names of nested types are not indexed
+        if (index.isAvailable() && JdkTypeIndex.isStandardLibraryName(name) && name.indexOf('$') < 0
+                && !index.contains(name)) {
+            return SymbolReference.unsolved();
+        }
+
+        return reflectionSolver.tryToSolveType(name);
+    }
+
+    @Override
+    public String toString() {
+        return "JdkTypeSolver{" + index.size() + " indexed types}";
+    }
+}
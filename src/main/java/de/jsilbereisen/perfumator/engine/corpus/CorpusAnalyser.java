@@ -0,0 +1,249 @@
+package de.jsilbereisen.perfumator.engine.corpus;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SerializationException;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.engine.AnalysisException;
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.context.index.JdkTypeIndex;
+import de.jsilbereisen.perfumator.engine.registry.PerfumeRegistry;
+import de.jsilbereisen.perfumator.i18n.Bundles;
+import de.jsilbereisen.perfumator.i18n.BundlesLoader;
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.io.output.OutputFormat;
+import de.jsilbereisen.perfumator.io.output.OutputGenerator;
+import de.jsilbereisen.perfumator.io.output.json.PerfumeJsonOutputGenerator;
+import de.jsilbereisen.perfumator.model.StatisticsSummary;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Analyses a corpus of many, usually small projects in one JVM, e.g. the submissions of the students of a course,
+ * without the overhead of starting the application for each project.<br/>
+ * The analyser keeps a fixed amount of {@link PerfumeDetectionEngine}s warm, which analyse one project after another,
+ * so that multiple projects are analysed at the same time: the {@link Perfume}s are loaded only once and each engine
+ * has a {@link PerfumeRegistry#copy()} with detectors of its own, each engine keeps its parser, and all engines share
+ * the {@link JdkTypeIndex} of the standard library. Each project is analysed with an analysis context of its own,
+ * which is discarded afterwards.<br/>
+ * The output of each project is written to a directory of its own in the output directory of the corpus, named after
+ * the project. The output directory of the corpus also contains the summary of the whole corpus, and the index
+ * {@value #INDEX_FILE_NAME}, which lists the outcome of each project, see {@link CorpusProject}. A project whose
+ * analysis fails does not fail the corpus.
+ */
+@Slf4j
+public class CorpusAnalyser implements AutoCloseable {
+
+    /**
+     * Name of the index of the projects in the output directory of the corpus.
+     */
+    public static final String INDEX_FILE_NAME = "corpus.json";
+
+    /**
+     * Names of the files in the output directory of the corpus, which the output directories of the projects must not
+     * take.
+     */
+    private static final Set<String> RESERVED_NAMES = Set.of(INDEX_FILE_NAME,
+            OutputGenerator.SUMMARY_FILE_SUFFIX + OutputFormat.JSON.getFileExtension(), ".gitkeep");
+
+    @NotNull
+    private final List<PerfumeDetectionEngine> engines = new ArrayList<>();
+
+    @NotNull
+    private final Bundles i18n;
+
+    /**
+     * Constructor. Builds and warms up the engines.
+     *
+     * @param locale              Language of the analyses.
+     * @param concurrency         Amount of projects that are analysed at the same time, at least 1.
+     * @param engineConfiguration Configures the builder of each engine, e.g. with dependencies or a selection. If it
+     *                            sets a registry that is not a {@link PerfumeRegistry}, the registry must not be
+     *                            shared by multiple engines.
+     */
+    public CorpusAnalyser(@NotNull Locale locale, int concurrency,
+                          @NotNull UnaryOperator<PerfumeDetectionEngine.Builder> engineConfiguration) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("At least one project has to be analysed at a time.");
+        }
+
+        this.i18n = new Bundles();
+        new BundlesLoader(BundlesLoader.STANDARD_INTERNATIONALIZATION_PACKAGE, BundlesLoader.STANDARD_PERFUMES_PACKAGE,
+                BundlesLoader.STANDARD_APPLICATION_PACKAGE).loadApplicationBundle(i18n, locale);
+
+        PerfumeDetectionEngine firstEngine = engineConfiguration.apply(PerfumeDetectionEngine.builder(locale)
+                .i18nResources(i18n)).build();
+        engines.add(firstEngine);
+
+        for (int engine = 1; engine < concurrency; engine++) {
+            PerfumeDetectionEngine.Builder builder = engineConfiguration.apply(PerfumeDetectionEngine.builder(locale)
+                    .i18nResources(i18n));
+            if (firstEngine.getRegistry() instanceof PerfumeRegistry registry) {
+                builder.registry(registry.copy());
+            }
+
+            engines.add(builder.build());
+        }
+    }
+
+    /**
+     * Analyses the given projects and writes their outputs, the summary of the corpus and the index to the
+     * configured output directory.
+     *
+     * @param projects The root directories of the projects, e.g. from a {@link CorpusManifest}.
+     * @param config   The output configuration of the corpus. The output directory must exist and be empty. The
+     *                 batch size applies to the listings of each project.
+     * @return The outcome of each project, in the given order.
+     * @throws IllegalArgumentException If the output directory does not exist or is not empty.
+     * @throws SerializationException   If the summary or the index of the corpus can not be written.
+     */
+    @NotNull
+    public List<CorpusProject> analyse(@NotNull List<Path> projects, @NotNull OutputConfiguration config) {
+        PerfumeDetectionEngine.checkOutputDirectory(config.getOutputDirectory(), i18n);
+
+        long start = System.nanoTime();
+        log.info(i18n.getApplicationResource("log.info.corpus.start"), projects.size(), engines.size());
+
+        List<CorpusProject> outcomes = new ArrayList<>();
+        Set<String> names = new HashSet<>(RESERVED_NAMES);
+        for (Path project : projects) {
+            outcomes.add(new CorpusProject().setName(uniqueName(project, names)).setSources(project));
+        }
+
+        BlockingQueue<PerfumeDetectionEngine> idleEngines = new LinkedBlockingQueue<>(engines);
+        ExecutorService executor = Executors.newFixedThreadPool(engines.size());
+        List<StatisticsSummary<Perfume>> summaries;
+        try {
+            List<Future<StatisticsSummary<Perfume>>> futures = new ArrayList<>();
+            for (CorpusProject outcome : outcomes) {
+                futures.add(executor.submit(() -> {
+                    PerfumeDetectionEngine engine = idleEngines.take();
+                    try {
+                        return analyseProject(engine, outcome, config);
+                    } finally {
+                        idleEngines.put(engine);
+                    }
+                }));
+            }
+
+            summaries = new ArrayList<>();
+            for (Future<StatisticsSummary<Perfume>> future : futures) {
+                summaries.add(future.get());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisException("Interrupted while analysing the corpus.", e);
+        } catch (ExecutionException e) {
+            throw new AnalysisException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Merged in the order of the projects, so that the summary does not depend on the concurrency
+        StatisticsSummary<Perfume> corpusSummary = StatisticsSummary.from(engines.get(0).getRegistry()
+                .getRegisteredDetectables().stream().filter(engines.get(0).getSelection()).toList());
+        summaries.forEach(corpusSummary::merge);
+
+        try {
+            new PerfumeJsonOutputGenerator(config, i18n).complete(corpusSummary);
+
+            JsonMapper mapper = new JsonMapper();
+            mapper.enable(SerializationFeature.INDENT_OUTPUT);
+            mapper.writeValue(config.getOutputDirectory().resolve(INDEX_FILE_NAME).toFile(), outcomes);
+
+        } catch (IOException e) {
+            log.error(i18n.getApplicationResource("log.error.serialization.complete"));
+            throw new SerializationException(e.getMessage(), e);
+        }
+
+        log.info(i18n.getApplicationResource("log.info.corpus.done"), projects.size(),
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+                outcomes.stream().filter(CorpusProject::isFailed).count());
+
+        return outcomes;
+    }
+
+    /**
+     * Analyses a project with the given engine and records the outcome.
+     *
+     * @return The summary of the project, empty if the analysis failed.
+     */
+    @NotNull
+    private StatisticsSummary<Perfume> analyseProject(@NotNull PerfumeDetectionEngine engine,
+                                                      @NotNull CorpusProject outcome,
+                                                      @NotNull OutputConfiguration config) {
+        long start = System.nanoTime();
+        try {
+            Path projectOutput = Files.createDirectories(config.getOutputDirectory().resolve(outcome.getName()));
+            engine.detectAndSerialize(outcome.getSources(),
+                    OutputConfiguration.from(projectOutput).setBatchSize(config.getBatchSize()), OutputFormat.JSON);
+
+            StatisticsSummary<Perfume> summary = engine.getLastSummary();
+            assert summary != null;
+            outcome.setTotalAnalysedFiles(summary.getTotalAnalysedFiles())
+                    .setTotalDetections(summary.getTotalDetections())
+                    .setSkippedAnalyses(summary.getSkippedAnalyses().size());
+
+            return summary;
+
+        } catch (IOException | RuntimeException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            log.error(i18n.getApplicationResource("log.error.corpus.projectFailed"), outcome.getSources(), message);
+            outcome.setError(message);
+
+            return new StatisticsSummary<>();
+
+        } finally {
+            // The contexts of a project are not used for any other project
+            engine.invalidate();
+            outcome.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Returns the name of the project's output directory: the name of its root directory, with a number appended if
+     * another project of the corpus or a file of the corpus has the same name. Names are compared ignoring the case,
+     * as they must not clash on case-insensitive file systems either.
+     *
+     * @param names The names that are already taken, in lower case.
+     */
+    @NotNull
+    private static String uniqueName(@NotNull Path project, @NotNull Set<String> names) {
+        Path fileName = project.getFileName();
+        String baseName = fileName != null ? fileName.toString() : "project";
+
+        String name = baseName;
+        for (int number = 2; !names.add(name.toLowerCase(Locale.ROOT)); number++) {
+            name = baseName + "_" + number;
+        }
+
+        return name;
+    }
+
+    /**
+     * Closes the engines.
+     */
+    @Override
+    public void close() {
+        engines.forEach(PerfumeDetectionEngine::close);
+    }
+}
@@ -0,0 +1,45 @@
+package de.jsilbereisen.perfumator.engine.corpus;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manifest of the projects of a corpus, see {@link CorpusAnalyser}: a UTF-8 text file with the root directory of one
+ * project per line. Blank lines and lines that start with {@code #} are ignored. Relative paths are resolved against
+ * the directory of the manifest.
+ */
+public final class CorpusManifest {
+
+    private CorpusManifest() {
+    }
+
+    /**
+     * Reads the project roots from the given manifest, in their order.
+     *
+     * @param manifest The manifest file.
+     * @return The project roots. Does not check whether they exist.
+     * @throws IOException If the manifest can not be read.
+     */
+    @NotNull
+    public static List<Path> read(@NotNull Path manifest) throws IOException {
+        Path baseDirectory = manifest.toAbsolutePath().getParent();
+        List<Path> projects = new ArrayList<>();
+
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            String project = line.strip();
+            if (project.isEmpty() || project.startsWith("#")) {
+                continue;
+            }
+
+            projects.add(baseDirectory.resolve(project).normalize());
+        }
+
+        return projects;
+    }
+}
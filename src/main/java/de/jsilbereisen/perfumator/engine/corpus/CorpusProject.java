@@ -0,0 +1,43 @@
+package de.jsilbereisen.perfumator.engine.corpus;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of the analysis of a project of a corpus, as listed in the index of the corpus, see
+ * {@link CorpusAnalyser#INDEX_FILE_NAME}.
+ */
+@Data
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CorpusProject {
+
+    /**
+     * Name of the project's output directory in the output directory of the corpus, unique within the corpus.
+     */
+    private String name;
+
+    private Path sources;
+
+    private int totalAnalysedFiles;
+
+    private int totalDetections;
+
+    private int skippedAnalyses;
+
+    private long durationMillis;
+
+    /**
+     * Message of the error that the analysis of the project failed with, {@code null} if it succeeded.
+     */
+    private String error;
+
+    @JsonIgnore
+    public boolean isFailed() {
+        return error != null;
+    }
+}
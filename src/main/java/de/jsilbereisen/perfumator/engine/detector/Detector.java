@@ -5,6 +5,7 @@ import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
 import de.jsilbereisen.perfumator.engine.registry.DetectableRegistry;
 import de.jsilbereisen.perfumator.model.Detectable;
 import de.jsilbereisen.perfumator.model.DetectedInstance;
@@ -47,6 +48,18 @@ public interface Detector<T extends Detectable> {
      */
     void setAnalysisContext(@Nullable JavaParserFacade analysisContext);
 
+    /**
+     * Returns whether this detector resolves symbols or types in {@link #detect}, via the analysis context or the
+     * symbol resolver of the AST. Resolving is not thread-safe: it fills the caches of the analysis context and
+     * stores data in the nodes of the AST. Detectors that only read the AST can run concurrently to other detectors
+     * on the same AST, see {@link PerfumeDetectionEngine.Builder#detectorParallelism}.
+     *
+     * @return {@code true} by default.
+     */
+    default boolean resolvesSymbols() {
+        return true;
+    }
+
     @Override
     boolean equals(Object o);
 
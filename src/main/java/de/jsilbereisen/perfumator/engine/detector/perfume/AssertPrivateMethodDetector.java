@@ -69,6 +69,11 @@ public class AssertPrivateMethodDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     /**
      * Analyses all methods that are declared in the type for being perfumed.
      *
@@ -78,6 +78,11 @@ public class AtLeastXVarargsDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     /**
      * Analyses the methods of a certain type.
      *
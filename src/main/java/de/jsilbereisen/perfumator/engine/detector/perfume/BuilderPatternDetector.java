@@ -122,6 +122,11 @@ public class BuilderPatternDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     /**
      * Analyses whether the given top-level class implements a (basic) builder pattern. To check this, we validate the
      * criteria mentioned in the classes' JavaDoc.
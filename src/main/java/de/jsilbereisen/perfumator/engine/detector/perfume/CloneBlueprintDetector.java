@@ -6,9 +6,7 @@ import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithImplements;
 import com.github.javaparser.resolution.Resolvable;
-import com.github.javaparser.resolution.declarations.ResolvedClassDeclaration;
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
-import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 import lombok.EqualsAndHashCode;
 import org.jetbrains.annotations.NotNull;
@@ -112,13 +110,7 @@ public class CloneBlueprintDetector implements Detector<Perfume> {
             return false;
         }
 
-        ResolvedClassDeclaration resolvedClass = resolvedType.get().asClass();
-        Optional<List<ResolvedReferenceType>> implementedInterfaces = safeResolutionAction(resolvedClass::getAllInterfaces);
-        if (implementedInterfaces.isEmpty()) {
-            return false;
-        }
-
-        return implementedInterfaces.get().stream().anyMatch(interfaze -> interfaze.getQualifiedName().equals(CLONEABLE_QUALIFIED));
+        return hasAncestor(resolvedType.get(), CLONEABLE_QUALIFIED);
     }
 
     private boolean callsSuperClone(@NotNull MethodDeclaration methodDeclaration) {
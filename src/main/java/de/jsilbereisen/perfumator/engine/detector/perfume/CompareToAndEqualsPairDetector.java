@@ -6,9 +6,7 @@ import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.RecordDeclaration;
 import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.resolution.Resolvable;
-import com.github.javaparser.resolution.declarations.ResolvedClassDeclaration;
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
-import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 import lombok.EqualsAndHashCode;
 import org.jetbrains.annotations.NotNull;
@@ -109,13 +107,7 @@ public class CompareToAndEqualsPairDetector implements Detector<Perfume> {
             return Optional.empty();
         }
 
-        ResolvedClassDeclaration resolvedClass = resolvedTypeDecl.get().asClass();
-        Optional<List<ResolvedReferenceType>> implementedInterfaces = safeResolutionAction(resolvedClass::getAllInterfaces);
-        if (implementedInterfaces.isEmpty()) {
-            return Optional.empty();
-        }
-
-        boolean implementsComparable = implementedInterfaces.get().stream().anyMatch(interfaze -> interfaze.getQualifiedName().equals(COMPARABLE));
+        boolean implementsComparable = hasAncestor(resolvedTypeDecl.get(), COMPARABLE);
 
         return implementsComparable
                 ? Optional.of(DetectedInstance.from(perfume, type, equalsOverride.get(), compareToOverride.get()))
@@ -57,4 +57,9 @@ public class DefensiveDefaultCaseDetector implements Detector<Perfume> {
     public void setAnalysisContext(@Nullable JavaParserFacade analysisContext) {
         this.analysisContext = analysisContext;
     }
+
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
 }
@@ -112,6 +112,11 @@ public class DefensiveNullCheckDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     @NotNull
     private List<DetectedInstance<Perfume>> analyseType(@NotNull TypeDeclaration<?> type) {
         List<DetectedInstance<Perfume>> detectedInstances = new ArrayList<>();
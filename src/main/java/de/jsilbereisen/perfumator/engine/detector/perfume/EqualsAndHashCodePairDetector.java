@@ -67,6 +67,11 @@ public class EqualsAndHashCodePairDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     private Optional<DetectedInstance<Perfume>> analyseType(TypeDeclaration<?> type) {
         ClassOrInterfaceDeclaration decl = as(type, ClassOrInterfaceDeclaration.class);
         if (decl != null && decl.isInterface()) {
@@ -102,6 +102,11 @@ public class EqualsBlueprintDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     /**
      * Analyses a single type for the Perfume.
      *
@@ -138,6 +138,11 @@ public class MethodCallRteTestingDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     /**
      * Analyses the static imports in the AST. If any of the interesting framework-methods or the class which
      * contains them are imported, returns them in a map, where the method's name is the key, and the value signals
@@ -62,6 +62,11 @@ public class NoUtilityInstantiationDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     private Optional<DetectedInstance<Perfume>> analyseType(ClassOrInterfaceDeclaration type) {
         if (hasNonPrivateConstructor(type)) {
             return Optional.empty();
@@ -84,6 +84,11 @@ public class PackagePrivateTestsDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     /**
      * Returns a subset of the keys of {@link #TEST_ANNOTATIONS}, consisting of those annotation names that are
      * imported.
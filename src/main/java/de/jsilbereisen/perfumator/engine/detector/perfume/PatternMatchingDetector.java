@@ -57,6 +57,11 @@ public class PatternMatchingDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     @NotNull
     @SuppressWarnings("unchecked")
     private List<DetectedInstance<Perfume>> analyseType(@NotNull TypeDeclaration<?> type) {
@@ -80,6 +80,11 @@ public class SynchronizedAccessorsDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     @NotNull
     private List<DetectedInstance<Perfume>> analyseAccessors(@NotNull TypeDeclaration<?> type) {
         Map<String, List<MethodDeclaration>> accessorGroupsMap = new HashMap<>();
@@ -57,6 +57,11 @@ public class TryWithResourcesDetector implements Detector<Perfume> {
         this.analysisContext = analysisContext;
     }
 
+    @Override
+    public boolean resolvesSymbols() {
+        return false;
+    }
+
     /**
      * Detect the perfume in a given type.
      *
@@ -0,0 +1,583 @@
+package de.jsilbereisen.perfumator.engine.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import de.jsilbereisen.perfumator.engine.AnalysisException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Staged pipeline for analysing the files of a directory:
+ * <ol>
+ *     <li><b>walk</b>: a walker thread consumes the stream of files to analyse,</li>
+ *     <li><b>read</b>: a pool of reader threads reads the content of the files ahead, see {@link SourceFile},</li>
+ *     <li><b>parse and detect</b>: a fork/join pool of worker threads analyses the read files, see {@link Lane},</li>
+ *     <li><b>serialize</b>: a writer thread passes the results to a {@link Sink}, in the order of the walk.</li>
+ * </ol>
+ * The walker numbers the files in the order of the walk, and the stages are connected by a {@link ReorderBuffer}:
+ * files are read and analysed in any order, and the writer takes their results in the order of the numbers, so the
+ * output does not depend on the scheduling of the threads. If {@link #getCapacity()} files are read or analysed, but
+ * not yet written, the walker blocks until the writer catches up. Like that, I/O waits overlap with parsing and
+ * detection, while the memory for read files and results stays bounded.<br/>
+ * Read files are analysed largest first: each lane keeps its read files ordered by size, and a free worker analyses
+ * the largest one. The order only applies to the files that are read but not yet analysed, at most
+ * {@link #getCapacity()} files ahead of the writer: a big file, e.g. a generated one, is preferred over the files that
+ * were read with it, but not over files that the walker only reaches later, so it can still delay the end of the
+ * run if it comes last in the walk. The workers steal the tasks of other lanes from each other. A lane with several
+ * analysers, see {@link #createLane(IntFunction, int)}, is analysed by as many workers at the same time, which take
+ * the files from the same queue, so that a single lane, e.g. of a directory without modules, does not run on a single
+ * worker. How much of the run was spent waiting for the last files is reported by {@link #getStatistics()}.<br/>
+ * With virtual thread I/O, see {@link VirtualThreads}, the walker and the reads run on virtual threads: each file is
+ * read on a virtual thread of its own, so up to {@link #getCapacity()} reads can wait for the file system at the same
+ * time, while parsing and detection stay on the fixed pool of worker threads.<br/>
+ * If a stage fails, no more files are walked, and {@link #run} throws the first failure after all threads ended.
+ * A pipeline can only be run once.
+ *
+ * @param <R> Type of the analysis result of a file.
+ */
+@Slf4j
+public class AnalysisPipeline<R> implements AutoCloseable {
+
+    /**
+     * Default maximum amount of files that are read or analysed, but not yet written.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Default amount of reader threads.
+     */
+    public static final int DEFAULT_READER_THREADS = 4;
+
+    private final int capacity;
+
+    @NotNull
+    private final ExecutorService readers;
+
+    @NotNull
+    private final ThreadFactory walkerThreads;
+
+    private final boolean virtualThreadIo;
+
+    @NotNull
+    private final ExecutorService workers;
+
+    private final int workerThreads;
+
+    /**
+     * The executor of all lanes, if lanes must not run in parallel.
+     */
+    @Nullable
+    private final SerialExecutor sharedLaneExecutor;
+
+    /**
+     * The read files of all lanes, if lanes must not run in parallel.
+     */
+    @Nullable
+    private final Queue<ReadFile<R>> sharedReadFiles;
+
+    private final AtomicInteger analysedFiles = new AtomicInteger();
+
+    /**
+     * Names of the worker threads that analysed files.
+     */
+    private final Set<String> activeWorkerThreads = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong analysisNanos = new AtomicLong();
+
+    private final AtomicLong lastAnalysisStart = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicLong lastAnalysisEnd = new AtomicLong(Long.MIN_VALUE);
+
+    private long runStart;
+
+    private long runEnd;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Constructor, for a pipeline that walks and reads the files on platform threads.
+     *
+     * @param capacity      Maximum amount of files that are read or analysed, but not yet written. Must be positive.
+     * @param readerThreads Amount of reader threads. Must be positive.
+     * @param workerThreads Amount of worker threads for parsing and detection. Must be positive.
+     * @param serialLanes   Whether all lanes have to run one after another, e.g. because they share detectors.
+     */
+    public AnalysisPipeline(int capacity, int readerThreads, int workerThreads, boolean serialLanes) {
+        this(capacity, readerThreads, workerThreads, serialLanes, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity        Maximum amount of files that are read or analysed, but not yet written. Must be positive.
+     * @param readerThreads   Amount of reader threads, if the files are read on platform threads. Must be positive.
+     * @param workerThreads   Amount of worker threads for parsing and detection. Must be positive.
+     * @param serialLanes     Whether all lanes have to run one after another, e.g. because they share detectors.
+     * @param virtualThreadIo Whether to walk and read the files on virtual threads. Falls back to platform threads,
+     *                        if the runtime does not support virtual threads, see {@link #isVirtualThreadIo()}.
+     */
+    public AnalysisPipeline(int capacity, int readerThreads, int workerThreads, boolean serialLanes,
+                            boolean virtualThreadIo) {
+        if (capacity <= 0 || readerThreads <= 0 || workerThreads <= 0) {
+            throw new IllegalArgumentException(
+                    "The capacity and the amounts of threads of a pipeline must be positive.");
+        }
+
+        Optional<ExecutorService> virtualReaders = virtualThreadIo
+                ? VirtualThreads.newThreadPerTaskExecutor("perfumator-reader-")
+                : Optional.empty();
+        Optional<ThreadFactory> virtualWalkers = virtualReaders.flatMap(
+                readerExecutor -> VirtualThreads.newFactory("perfumator-walker-"));
+        if (virtualReaders.isPresent() && virtualWalkers.isEmpty()) {
+            virtualReaders.get().shutdown();
+        }
+
+        this.capacity = capacity;
+        this.virtualThreadIo = virtualWalkers.isPresent();
+        this.readers = virtualWalkers.isPresent() ? virtualReaders.get()
+                : Executors.newFixedThreadPool(readerThreads, new PipelineThreadFactory("reader"));
+        this.walkerThreads = virtualWalkers.orElseGet(() -> new PipelineThreadFactory("walker"));
+        this.workerThreads = workerThreads;
+        this.workers = new ForkJoinPool(workerThreads, new WorkerThreadFactory(), null, true);
+        this.sharedLaneExecutor = serialLanes ? new SerialExecutor(workers) : null;
+        this.sharedReadFiles = serialLanes ? new PriorityBlockingQueue<>() : null;
+    }
+
+    /**
+     * Returns the maximum amount of files that are read or analysed, but not yet written.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns whether the files are walked and read on virtual threads.
+     */
+    public boolean isVirtualThreadIo() {
+        return virtualThreadIo;
+    }
+
+    /**
+     * Returns the statistics of the last run, see {@link #run}.
+     */
+    @NotNull
+    public PipelineStatistics getStatistics() {
+        long wallTime = Math.max(0, runEnd - runStart);
+        long stragglerTime = analysedFiles.get() == 0 ? 0
+                : Math.max(0, lastAnalysisEnd.get() - lastAnalysisStart.get());
+
+        return new PipelineStatistics(analysedFiles.get(), workerThreads, activeWorkerThreads.size(),
+                TimeUnit.NANOSECONDS.toMillis(wallTime), TimeUnit.NANOSECONDS.toMillis(analysisNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(stragglerTime));
+    }
+
+    /**
+     * Creates a lane, which analyses its files one after another on the worker threads, largest first. Files of
+     * different lanes are analysed in parallel, unless the pipeline has serial lanes.
+     *
+     * @param analyserFactory Creates the analyser of the lane, on a worker thread, when the lane gets its first file.
+     * @return The lane.
+     */
+    @NotNull
+    public Lane<R> createLane(@NotNull Supplier<FileAnalyser<R>> analyserFactory) {
+        return createLane(index -> analyserFactory.get(), 1);
+    }
+
+    /**
+     * Creates a lane with the given amount of analysers, which analyse its files in parallel on the worker threads,
+     * largest first. Each analyser analyses one file at a time, so analysers that do not share state, e.g. detectors
+     * or a symbol resolution context, can analyse the files of the same lane in parallel. If the pipeline has serial
+     * lanes, only the first analyser is used.
+     *
+     * @param analyserFactory Creates the analyser with the given index, from {@code 0} to {@code analysers - 1}, on
+     *                        a worker thread, when it gets its first file.
+     * @param analysers       Maximum amount of analysers of the lane. Must be positive.
+     * @return The lane.
+     */
+    @NotNull
+    public Lane<R> createLane(@NotNull IntFunction<FileAnalyser<R>> analyserFactory, int analysers) {
+        if (sharedLaneExecutor != null && sharedReadFiles != null) {
+            return new Lane<>(analyserFactory, sharedLaneExecutor, sharedReadFiles);
+        }
+
+        return new Lane<>(analyserFactory, new BoundedExecutor(workers, analysers), new PriorityBlockingQueue<>());
+    }
+
+    /**
+     * Runs the pipeline for the given files and waits until all files are written.
+     *
+     * @param files  The files to analyse. Consumed by the walker thread.
+     * @param laneOf Returns the lane that analyses a file.
+     * @param sink   Consumes the results, on the writer thread, in the order of the given files.
+     * @throws AnalysisException If the pipeline is interrupted, or a stage fails with a checked exception.
+     *                           Unchecked exceptions and errors of the stages are re-thrown as they are.
+     */
+    public void run(@NotNull Stream<Path> files, @NotNull Function<Path, Lane<R>> laneOf, @NotNull Sink<R> sink) {
+        ReorderBuffer<Completion<R>> pending = new ReorderBuffer<>(capacity);
+        runStart = System.nanoTime();
+
+        Thread walker = walkerThreads.newThread(() -> walk(files, laneOf, pending));
+        Thread writer = new PipelineThreadFactory("writer").newThread(() -> write(pending, sink));
+        walker.start();
+        writer.start();
+
+        try {
+            walker.join();
+            writer.join();
+
+        } catch (InterruptedException e) {
+            fail(e);
+            walker.interrupt();
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+        }
+
+        runEnd = System.nanoTime();
+
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        if (cause != null) {
+            throw new AnalysisException(String.valueOf(cause.getMessage()), cause);
+        }
+    }
+
+    /**
+     * Shuts down the threads of the pipeline.
+     */
+    @Override
+    public void close() {
+        readers.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void walk(@NotNull Stream<Path> files, @NotNull Function<Path, Lane<R>> laneOf,
+                      @NotNull ReorderBuffer<Completion<R>> pending) {
+        try {
+            Iterator<Path> iterator = files.iterator();
+
+            while (failure.get() == null && iterator.hasNext()) {
+                Path path = iterator.next();
+                Lane<R> lane = laneOf.apply(path);
+
+                // Blocks if the writer is behind by the capacity of the pipeline
+                long sequenceNumber = pending.acquire();
+
+                // Starting from a completed future, a rejected read completes the future instead of being thrown,
+                // so that every acquired sequence number is completed
+                CompletableFuture.completedFuture(path)
+                        .thenApplyAsync(AnalysisPipeline::read, readers)
+                        .whenComplete((file, cause) -> {
+                            if (cause != null) {
+                                pending.complete(sequenceNumber, new Completion<>(null, cause));
+                            } else {
+                                lane.schedule(new ReadFile<>(sequenceNumber, file, lane),
+                                        readFile -> analyse(readFile, pending));
+                            }
+                        });
+            }
+
+        } catch (Throwable t) {
+            fail(t);
+
+        } finally {
+            pending.close();
+        }
+    }
+
+    private void write(@NotNull ReorderBuffer<Completion<R>> pending, @NotNull Sink<R> sink) {
+        while (true) {
+            Optional<ReorderBuffer.Sequenced<Completion<R>>> next;
+            try {
+                next = pending.take();
+            } catch (InterruptedException e) {
+                fail(e);
+                return;
+            }
+
+            if (next.isEmpty()) {
+                return;
+            }
+
+            // After a failure, the remaining files are only drained, so that the walker is not blocked
+            Completion<R> completion = Objects.requireNonNull(next.get().getValue());
+            if (failure.get() != null) {
+                continue;
+            }
+
+            if (completion.failure != null) {
+                Throwable cause = completion.failure;
+                fail(cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause);
+                continue;
+            }
+
+            try {
+                Result<R> result = Objects.requireNonNull(completion.result);
+                sink.accept(result.file, result.value);
+
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+    }
+
+    /**
+     * Analyses a read file on a worker thread, and completes its sequence number.
+     */
+    private void analyse(@NotNull ReadFile<R> readFile, @NotNull ReorderBuffer<Completion<R>> pending) {
+        long start = System.nanoTime();
+        activeWorkerThreads.add(Thread.currentThread().getName());
+        lastAnalysisStart.accumulateAndGet(start, Math::max);
+
+        Completion<R> completion;
+        try {
+            // After a failure, the remaining files are not analysed anymore
+            completion = failure.get() != null ? new Completion<>(null, null)
+                    : new Completion<>(new Result<>(readFile.file, readFile.lane.analyse(readFile.file)), null);
+        } catch (Throwable t) {
+            completion = new Completion<>(null, t);
+        }
+
+        long end = System.nanoTime();
+        analysisNanos.addAndGet(end - start);
+        lastAnalysisEnd.accumulateAndGet(end, Math::max);
+        analysedFiles.incrementAndGet();
+
+        pending.complete(readFile.sequenceNumber, completion);
+    }
+
+    @NotNull
+    private static SourceFile read(@NotNull Path path) {
+        try {
+            return SourceFile.read(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void fail(@NotNull Throwable cause) {
+        if (!failure.compareAndSet(null, cause)) {
+            log.debug("Further failure in the analysis pipeline.", cause);
+        }
+    }
+
+    /**
+     * Analyses a read file.
+     *
+     * @param <R> Type of the analysis result.
+     */
+    @FunctionalInterface
+    public interface FileAnalyser<R> {
+
+        @NotNull
+        R analyse(@NotNull SourceFile file);
+    }
+
+    /**
+     * Consumes the analysis result of a file.
+     *
+     * @param <R> Type of the analysis result.
+     */
+    @FunctionalInterface
+    public interface Sink<R> {
+
+        void accept(@NotNull SourceFile file, @NotNull R result);
+    }
+
+    /**
+     * Sequence of files that are analysed with the same {@link FileAnalyser FileAnalysers}, e.g. the files
+     * of a module that share a symbol resolution context. With a single analyser, the files are analysed one after
+     * another, otherwise by up to as many workers in parallel, each with an analyser of its own.
+     *
+     * @param <R> Type of the analysis result.
+     */
+    public static final class Lane<R> {
+
+        @NotNull
+        private final IntFunction<FileAnalyser<R>> analyserFactory;
+
+        @NotNull
+        private final BoundedExecutor executor;
+
+        /**
+         * The read files that wait for their analysis, largest first. Shared by all lanes with the same executor.
+         */
+        @NotNull
+        private final Queue<ReadFile<R>> readFiles;
+
+        /**
+         * The analysers, created when they are first needed.
+         */
+        @NotNull
+        private final AtomicReferenceArray<FileAnalyser<R>> analysers;
+
+        /**
+         * Indices of the analysers that do not analyse a file at the moment. As the executor runs at most as many
+         * tasks at the same time as there are analysers, a task always finds one.
+         */
+        @NotNull
+        private final ConcurrentLinkedDeque<Integer> idleAnalysers = new ConcurrentLinkedDeque<>();
+
+        private Lane(@NotNull IntFunction<FileAnalyser<R>> analyserFactory, @NotNull BoundedExecutor executor,
+                     @NotNull Queue<ReadFile<R>> readFiles) {
+            this.analyserFactory = analyserFactory;
+            this.executor = executor;
+            this.readFiles = readFiles;
+            this.analysers = new AtomicReferenceArray<>(executor.getMaximumConcurrency());
+
+            for (int i = 0; i < executor.getMaximumConcurrency(); i++) {
+                idleAnalysers.add(i);
+            }
+        }
+
+        /**
+         * Schedules the analysis of a read file. Each scheduled task analyses the largest read file at the time
+         * it runs, which is not necessarily the given one.
+         */
+        private void schedule(@NotNull ReadFile<R> readFile, @NotNull Consumer<ReadFile<R>> analysis) {
+            readFiles.add(readFile);
+            executor.execute(() -> analysis.accept(Objects.requireNonNull(readFiles.poll())));
+        }
+
+        @NotNull
+        private R analyse(@NotNull SourceFile file) {
+            // Only called by the executor of the lane, so the analyser is not used by another task meanwhile
+            int index = Objects.requireNonNull(idleAnalysers.pollFirst());
+
+            try {
+                FileAnalyser<R> analyser = analysers.get(index);
+                if (analyser == null) {
+                    analyser = analyserFactory.apply(index);
+                    analysers.set(index, analyser);
+                }
+
+                return analyser.analyse(file);
+
+            } finally {
+                // Reusing the analyser that was used last keeps the amount of created analysers low
+                idleAnalysers.addFirst(index);
+            }
+        }
+    }
+
+    private static final class Result<R> {
+
+        private final SourceFile file;
+
+        private final R value;
+
+        private Result(@NotNull SourceFile file, @NotNull R value) {
+            this.file = file;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A read file with its sequence number. Ordered largest first, then by the sequence number.
+     */
+    private static final class ReadFile<R> implements Comparable<ReadFile<R>> {
+
+        private final long sequenceNumber;
+
+        @NotNull
+        private final SourceFile file;
+
+        @NotNull
+        private final Lane<R> lane;
+
+        private ReadFile(long sequenceNumber, @NotNull SourceFile file, @NotNull Lane<R> lane) {
+            this.sequenceNumber = sequenceNumber;
+            this.file = file;
+            this.lane = lane;
+        }
+
+        @Override
+        public int compareTo(@NotNull ReadFile<R> other) {
+            int bySize = Integer.compare(other.file.getSize(), file.getSize());
+
+            return bySize != 0 ? bySize : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+
+    /**
+     * The result of a file, or the failure of reading or analysing it.
+     */
+    private static final class Completion<R> {
+
+        @Nullable
+        private final Result<R> result;
+
+        @Nullable
+        private final Throwable failure;
+
+        private Completion(@Nullable Result<R> result, @Nullable Throwable failure) {
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(@NotNull ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("perfumator-worker-" + threadCount.incrementAndGet());
+
+            return thread;
+        }
+    }
+
+    private static final class PipelineThreadFactory implements ThreadFactory {
+
+        private final String stage;
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private PipelineThreadFactory(@NotNull String stage) {
+            this.stage = stage;
+        }
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "perfumator-" + stage + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
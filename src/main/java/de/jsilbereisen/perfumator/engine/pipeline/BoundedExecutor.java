@@ -0,0 +1,79 @@
+package de.jsilbereisen.perfumator.engine.pipeline;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link Executor} that runs at most a given amount of its tasks at the same time, in the order of submission, on an
+ * underlying executor. Tasks of different bounded executors on the same underlying executor run in parallel.
+ */
+public class BoundedExecutor implements Executor {
+
+    @NotNull
+    private final Executor executor;
+
+    private final int maximumConcurrency;
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private int active;
+
+    /**
+     * Constructor.
+     *
+     * @param executor           The underlying executor.
+     * @param maximumConcurrency Maximum amount of tasks that run at the same time. Must be positive.
+     */
+    public BoundedExecutor(@NotNull Executor executor, int maximumConcurrency) {
+        if (maximumConcurrency <= 0) {
+            throw new IllegalArgumentException("The maximum concurrency of an executor must be positive.");
+        }
+
+        this.executor = executor;
+        this.maximumConcurrency = maximumConcurrency;
+    }
+
+    /**
+     * Returns the maximum amount of tasks that run at the same time.
+     */
+    public int getMaximumConcurrency() {
+        return maximumConcurrency;
+    }
+
+    @Override
+    public synchronized void execute(@NotNull Runnable task) {
+        tasks.add(task);
+        scheduleNext();
+    }
+
+    private synchronized void scheduleNext() {
+        while (active < maximumConcurrency && !tasks.isEmpty()) {
+            Runnable task = tasks.poll();
+            active++;
+
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        finished();
+                    }
+                });
+
+            } catch (RejectedExecutionException e) {
+                // The underlying executor was shut down, the remaining tasks are dropped
+                tasks.clear();
+                active--;
+            }
+        }
+    }
+
+    private synchronized void finished() {
+        active--;
+        scheduleNext();
+    }
+}
@@ -0,0 +1,49 @@
+package de.jsilbereisen.perfumator.engine.pipeline;
+
+import lombok.Value;
+
+/**
+ * Statistics of a run of an {@link AnalysisPipeline}.
+ */
+@Value
+public class PipelineStatistics {
+
+    /**
+     * Amount of analysed files.
+     */
+    int analysedFiles;
+
+    /**
+     * Amount of worker threads for parsing and detection.
+     */
+    int workerThreads;
+
+    /**
+     * Amount of worker threads that analysed at least one file.
+     */
+    int activeWorkerThreads;
+
+    /**
+     * Wall time of the run, in milliseconds.
+     */
+    long wallTimeMillis;
+
+    /**
+     * Time that the workers spent on parsing and detection, summed over all workers, in milliseconds.
+     */
+    long analysisTimeMillis;
+
+    /**
+     * Wall time from the start of the last analysed file until the end of the analysis of all files, in
+     * milliseconds. During this time, there are no more files to start, so idle workers have to wait for the
+     * stragglers.
+     */
+    long stragglerTimeMillis;
+
+    /**
+     * Returns the share of the {@link #stragglerTimeMillis} in the {@link #wallTimeMillis}, in percent.
+     */
+    public double getStragglerPercentage() {
+        return wallTimeMillis == 0 ? 0 : 100.0 * stragglerTimeMillis / wallTimeMillis;
+    }
+}
@@ -0,0 +1,215 @@
+package de.jsilbereisen.perfumator.engine.pipeline;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reassembles values that are completed in any order, in the order of their sequence numbers.<br/>
+ * A producer {@link #acquire() acquires} the next sequence number for each value it starts, the value is
+ * {@link #complete completed} under that number, e.g. by another thread, and a consumer {@link #take() takes} the
+ * values in the order of the sequence numbers. The window of the buffer bounds how far the producer can run ahead of
+ * the consumer: at most {@link #getWindow()} values are acquired, but not yet taken.
+ *
+ * @param <T> Type of the values.
+ */
+public class ReorderBuffer<T> {
+
+    private final int window;
+
+    /**
+     * Completed values, at the index of their sequence number modulo the window.
+     */
+    @NotNull
+    private final Object[] slots;
+
+    private final boolean[] completed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition slotReleased = lock.newCondition();
+
+    private final Condition nextCompleted = lock.newCondition();
+
+    /**
+     * The next sequence number to acquire.
+     */
+    private long nextAcquired;
+
+    /**
+     * The sequence number of the next value to take.
+     */
+    private long nextTaken;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param window Maximum amount of values that are acquired, but not yet taken. Must be positive.
+     */
+    public ReorderBuffer(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("The window of a reorder buffer must be positive.");
+        }
+
+        this.window = window;
+        this.slots = new Object[window];
+        this.completed = new boolean[window];
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Acquires the next sequence number. Blocks while the window is full.
+     *
+     * @return The sequence number, starting at 0.
+     * @throws InterruptedException  If interrupted while waiting.
+     * @throws IllegalStateException If the buffer is closed.
+     */
+    public long acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The reorder buffer is closed.");
+            }
+
+            while (nextAcquired - nextTaken >= window) {
+                slotReleased.await();
+            }
+
+            return nextAcquired++;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes the value with the given sequence number.
+     *
+     * @param sequenceNumber An acquired sequence number, that is not completed yet.
+     * @param value          The value.
+     */
+    public void complete(long sequenceNumber, @Nullable T value) {
+        lock.lock();
+        try {
+            if (sequenceNumber < nextTaken || sequenceNumber >= nextAcquired) {
+                throw new IllegalArgumentException("The sequence number " + sequenceNumber + " is not pending.");
+            }
+
+            int slot = slotOf(sequenceNumber);
+            if (completed[slot]) {
+                throw new IllegalArgumentException("The sequence number " + sequenceNumber + " is already completed.");
+            }
+
+            slots[slot] = value;
+            completed[slot] = true;
+
+            if (sequenceNumber == nextTaken) {
+                nextCompleted.signalAll();
+            }
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the buffer: no more sequence numbers are acquired. Values that are already acquired can still be
+     * completed and taken.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            nextCompleted.signalAll();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the value with the next sequence number. Blocks until it is completed.
+     *
+     * @return The value, wrapped in a {@link Sequenced}, or an empty optional if the buffer is closed and all
+     *         acquired values are taken.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @NotNull
+    public Optional<Sequenced<T>> take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!completed[slotOf(nextTaken)]) {
+                if (closed && nextTaken == nextAcquired) {
+                    return Optional.empty();
+                }
+
+                nextCompleted.await();
+            }
+
+            return Optional.of(takeNext());
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the value with the next sequence number, if it is completed, without blocking.
+     *
+     * @return The value, wrapped in a {@link Sequenced}, or an empty optional if it is not completed yet.
+     */
+    @NotNull
+    public Optional<Sequenced<T>> poll() {
+        lock.lock();
+        try {
+            return completed[slotOf(nextTaken)] ? Optional.of(takeNext()) : Optional.empty();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the completed value with the next sequence number. Must hold the lock.
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private Sequenced<T> takeNext() {
+        int slot = slotOf(nextTaken);
+        Sequenced<T> next = new Sequenced<>(nextTaken, (T) slots[slot]);
+        slots[slot] = null;
+        completed[slot] = false;
+
+        nextTaken++;
+        slotReleased.signalAll();
+
+        return next;
+    }
+
+    private int slotOf(long sequenceNumber) {
+        return (int) (sequenceNumber % window);
+    }
+
+    /**
+     * A value with its sequence number.
+     *
+     * @param <T> Type of the value.
+     */
+    @Value
+    public static class Sequenced<T> {
+
+        long sequenceNumber;
+
+        @Nullable
+        T value;
+    }
+}
@@ -0,0 +1,16 @@
+package de.jsilbereisen.perfumator.engine.pipeline;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Executor} that runs its tasks one after another, in the order of submission, on an underlying executor.
+ * Tasks of different serial executors on the same underlying executor run in parallel.
+ */
+public class SerialExecutor extends BoundedExecutor {
+
+    public SerialExecutor(@NotNull Executor executor) {
+        super(executor, 1);
+    }
+}
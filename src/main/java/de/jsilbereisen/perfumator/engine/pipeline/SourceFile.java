@@ -0,0 +1,214 @@
+package de.jsilbereisen.perfumator.engine.pipeline;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.CompilationUnit;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static de.jsilbereisen.perfumator.util.PathUtil.toRealPath;
+
+/**
+ * A Java source file whose content was read ahead of parsing, in the read stage of an {@link AnalysisPipeline}.
+ * The file is read only once: the content is parsed from memory, and the same bytes are used for
+ * {@link #getContentHash() hashing}.<br/>
+ * Files of at least {@link #DEFAULT_MAPPING_THRESHOLD} bytes are memory-mapped instead of being copied onto the heap.
+ */
+@Getter
+public class SourceFile {
+
+    /**
+     * Default size in bytes from which files are memory-mapped. Below, reading a file into an array is cheaper than
+     * setting up the mapping.
+     */
+    public static final long DEFAULT_MAPPING_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The path of the file, as it was found in the analysed directory.
+     */
+    @NotNull
+    private final Path path;
+
+    /**
+     * The real path of the file, or the {@link #path} if it can not be resolved.
+     */
+    @NotNull
+    private final Path realPath;
+
+    /**
+     * The content, either on the heap or memory-mapped. Only read via duplicates, so that it can be read
+     * concurrently, and only handed out read-only.
+     */
+    @NotNull
+    private final ByteBuffer content;
+
+    @Nullable
+    private volatile String contentHash;
+
+    public SourceFile(@NotNull Path path, @NotNull Path realPath, @NotNull byte[] content) {
+        this(path, realPath, ByteBuffer.wrap(content));
+    }
+
+    public SourceFile(@NotNull Path path, @NotNull Path realPath, @NotNull ByteBuffer content) {
+        this.path = path;
+        this.realPath = realPath;
+        this.content = content.slice();
+    }
+
+    /**
+     * Reads the given file completely and resolves its real path. Memory-maps the file, if it has at least
+     * {@link #DEFAULT_MAPPING_THRESHOLD} bytes.
+     *
+     * @param path Path to the file.
+     * @return The read file.
+     * @throws IOException If the file can not be read.
+     */
+    @NotNull
+    public static SourceFile read(@NotNull Path path) throws IOException {
+        return read(path, DEFAULT_MAPPING_THRESHOLD);
+    }
+
+    /**
+     * Reads the given file completely and resolves its real path.
+     *
+     * @param path             Path to the file.
+     * @param mappingThreshold Size in bytes from which the file is memory-mapped.
+     * @return The read file.
+     * @throws IOException If the file can not be read.
+     */
+    @NotNull
+    public static SourceFile read(@NotNull Path path, long mappingThreshold) throws IOException {
+        Path realPath = toRealPath(path).orElse(path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The file " + path + " is too large to be analysed.");
+            }
+
+            if (size >= mappingThreshold) {
+                // The mapping stays valid after the channel is closed
+                return new SourceFile(path, realPath, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+
+            ByteBuffer content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // Read until the buffer is full or the end of the file is reached
+            }
+
+            return new SourceFile(path, realPath, content.flip());
+        }
+    }
+
+    /**
+     * Returns a read-only view of the content.
+     */
+    @NotNull
+    public ByteBuffer getContent() {
+        return content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the size of the content in bytes.
+     */
+    public int getSize() {
+        return content.remaining();
+    }
+
+    /**
+     * Checks whether the content is memory-mapped.
+     */
+    public boolean isMapped() {
+        return content.isDirect();
+    }
+
+    /**
+     * Decodes the content with the given charset. Malformed input is replaced, like when reading the file with a
+     * {@link java.io.Reader}.<br/>
+     * Content on the heap is decoded in one pass by the {@link String} constructor, which has fast paths for the
+     * common charsets, e.g. for ASCII content. Mapped content is decoded directly from the mapping.
+     *
+     * @param charset The charset.
+     * @return The decoded content.
+     */
+    @NotNull
+    public String getText(@NotNull Charset charset) {
+        ByteBuffer bytes = content.duplicate();
+
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), charset);
+        }
+
+        try {
+            CharBuffer chars = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(bytes);
+
+            return chars.toString();
+
+        } catch (CharacterCodingException e) {
+            // Not thrown when replacing malformed input
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the SHA-256 hash of the content, as hex string. Computed from the read content on first access.
+     */
+    @NotNull
+    public String getContentHash() {
+        String hash = contentHash;
+
+        if (hash == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform has to support SHA-256
+                throw new IllegalStateException(e);
+            }
+
+            digest.update(getContent());
+            hash = HexFormat.of().formatHex(digest.digest());
+            contentHash = hash;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Parses the content with the given parser, decoded with the parser's character encoding, see
+     * {@link #getText(Charset)}. Like {@link JavaParser#parse(Path)}, the storage of the parsed compilation unit is
+     * set to the path of the file.
+     *
+     * @param parser The parser.
+     * @return The result of parsing.
+     */
+    @NotNull
+    public ParseResult<CompilationUnit> parse(@NotNull JavaParser parser) {
+        Charset encoding = parser.getParserConfiguration().getCharacterEncoding();
+
+        ParseResult<CompilationUnit> result = parser.parse(ParseStart.COMPILATION_UNIT,
+                Providers.provider(getText(encoding)));
+        result.getResult().ifPresent(compilationUnit -> compilationUnit.setStorage(path, encoding));
+
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package de.jsilbereisen.perfumator.engine.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of Java 21+ runtimes. The application is compiled for Java 17, so virtual threads
+ * are created via reflection, and are not available on older runtimes.<br/>
+ * Virtual threads are cheap to block, so they are used for the stages of an {@link AnalysisPipeline} that wait for
+ * the file system, e.g. on network file systems with a high latency.
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    /**
+     * Returns a {@code Thread.Builder} for virtual threads, {@code null} if not available.
+     */
+    @Nullable
+    private static final Method OF_VIRTUAL;
+
+    @Nullable
+    private static final Method BUILDER_NAME;
+
+    @Nullable
+    private static final Method BUILDER_FACTORY;
+
+    /**
+     * {@code Executors.newThreadPerTaskExecutor(ThreadFactory)}.
+     */
+    @Nullable
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+
+        if (Runtime.version().feature() >= 21) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                builderName = builderClass.getMethod("name", String.class, long.class);
+                builderFactory = builderClass.getMethod("factory");
+                newThreadPerTaskExecutor = Executors.class
+                        .getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.debug("Virtual threads are not available.", e);
+                ofVirtual = null;
+            }
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+
+    }
+
+    /**
+     * Checks whether the runtime supports virtual threads.
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a factory for virtual threads, named with the given prefix and an increasing number.
+     *
+     * @param namePrefix Prefix of the thread names.
+     * @return The factory, or an empty optional if virtual threads are not available.
+     */
+    @NotNull
+    public static Optional<ThreadFactory> newFactory(@NotNull String namePrefix) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, namePrefix, 1L);
+
+            return Optional.of((ThreadFactory) BUILDER_FACTORY.invoke(builder));
+
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            log.debug("Unable to create a factory for virtual threads.", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread. The amount of concurrent tasks is not
+     * bounded by the executor.
+     *
+     * @param namePrefix Prefix of the thread names.
+     * @return The executor, or an empty optional if virtual threads are not available.
+     */
+    @NotNull
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(@NotNull String namePrefix) {
+        return newFactory(namePrefix).flatMap(factory -> {
+            try {
+                return Optional.of((ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory));
+
+            } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+                log.debug("Unable to create an executor for virtual threads.", e);
+                return Optional.empty();
+            }
+        });
+    }
+}
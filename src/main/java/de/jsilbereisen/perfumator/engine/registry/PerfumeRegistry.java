@@ -7,6 +7,8 @@ import io.github.classgraph.ClassGraphException;
 import io.github.classgraph.Resource;
 import io.github.classgraph.ResourceList;
 import io.github.classgraph.ScanResult;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -63,6 +65,15 @@ public class PerfumeRegistry implements DetectableRegistry<Perfume> {
 
     private final JsonMapper jsonMapper;
 
+    /**
+     * Selection of the Perfumes that are loaded into the registry. Only selected Perfumes have their
+     * {@link Detector} instantiated. Has to be set <i>before</i> calling {@link #loadRegistry}.
+     */
+    @Getter
+    @Setter
+    @NotNull
+    private PerfumeSelection selection = PerfumeSelection.all();
+
     public PerfumeRegistry() {
         perfumePackage = STANDARD_PERFUME_DEFINITIONS_PACKAGE;
         perfumeDetectorsPackage = STANDARD_PERFUME_DETECTORS_PACKAGE;
@@ -91,7 +102,8 @@ public class PerfumeRegistry implements DetectableRegistry<Perfume> {
 
     /**
      * Detects and loads all Perfumes that are in the {@link #perfumePackage} (non-recursive) from their JSONs into the
-     * registry and links them with their respective {@link Detector<Perfume>}.
+     * registry and links them with their respective {@link Detector<Perfume>}. Perfumes that are not part of the
+     * {@link #selection} are dropped before their {@link Detector<Perfume>} is instantiated.
      * Also performs internationalization for each loaded {@link Perfume} with the given {@link Locale},
      * if there are resources available.
      *
@@ -115,6 +127,18 @@ public class PerfumeRegistry implements DetectableRegistry<Perfume> {
 
         loadedPerfumes.forEach(perfume -> perfume.internationalize(bundles));
 
+        if (!selection.isAll()) {
+            for (String unmatched : selection.getUnmatchedSelectors(loadedPerfumes)) {
+                log.warn("The Perfume selector \"" + unmatched + "\" does not match any Perfume.");
+            }
+
+            loadedPerfumes.removeIf(selection.negate());
+            if (loadedPerfumes.isEmpty()) {
+                log.warn("No perfumes selected. Check the Perfume selection: " + selection);
+                return;
+            }
+        }
+
         String loadedPerfumeNames = StringUtil.joinStrings(loadedPerfumes.stream().map(Perfume::getName).toList(),
                 "\", \"");
         log.info("Loaded Perfumes (internationalized): [\"" + loadedPerfumeNames + "\"]");
@@ -122,6 +146,24 @@ public class PerfumeRegistry implements DetectableRegistry<Perfume> {
         linkPerfumesToDetectors(loadedPerfumes);
     }
 
+    /**
+     * Returns a new registry with the same {@link Perfume}s and selection, linked to new instances of their
+     * {@link Detector}s, without scanning and loading the Perfume definitions again. As detectors are not
+     * thread-safe, engines that analyse at the same time need registries of their own.
+     *
+     * @return The copy.
+     * @throws DetectorLoadException When being unable to instantiate a {@link Detector}.
+     */
+    @NotNull
+    public PerfumeRegistry copy() {
+        PerfumeRegistry copy = new PerfumeRegistry(perfumePackage, perfumeDetectorsPackage, i18nPackage,
+                i18nPerfumesPackage);
+        copy.setSelection(selection);
+        copy.linkPerfumesToDetectors(new ArrayList<>(registry.keySet()));
+
+        return copy;
+    }
+
     /**
      * Scans the {@link #perfumePackage} non-recursively for all JSONs and tries to load a {@link Perfume}
      * instance for each of those, with the help of the <i>Jackson</i> object mapper.
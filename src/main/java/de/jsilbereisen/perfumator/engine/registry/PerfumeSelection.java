@@ -0,0 +1,179 @@
+package de.jsilbereisen.perfumator.engine.registry;
+
+import lombok.EqualsAndHashCode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import de.jsilbereisen.perfumator.engine.detector.Detector;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+import de.jsilbereisen.perfumator.model.perfume.RelatedPattern;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable selection of the {@link Perfume}s that should be considered in an analysis.
+ * A selection consists of <i>selectors</i> for included and excluded Perfumes. A selector matches a {@link Perfume}
+ * (case-insensitive) by its name, either internationalized or in the default language of its definition, by the
+ * simple class name of its {@link Detector} or by the name of its {@link RelatedPattern}.<br/>
+ * A {@link Perfume} is selected if no inclusions are given or if it matches any included selector, and if it
+ * matches none of the excluded selectors. Exclusion has priority over inclusion.
+ */
+@EqualsAndHashCode
+public final class PerfumeSelection implements Predicate<Perfume> {
+
+    private static final PerfumeSelection ALL = new PerfumeSelection(Collections.emptySet(), Collections.emptySet());
+
+    @Unmodifiable
+    private final Set<String> included;
+
+    @Unmodifiable
+    private final Set<String> excluded;
+
+    private PerfumeSelection(@NotNull Set<String> included, @NotNull Set<String> excluded) {
+        this.included = Collections.unmodifiableSet(included);
+        this.excluded = Collections.unmodifiableSet(excluded);
+    }
+
+    /**
+     * Returns the selection that selects every {@link Perfume}.
+     */
+    @NotNull
+    public static PerfumeSelection all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a selection with the given included and excluded selectors.
+     *
+     * @param included Selectors for the Perfumes to include. If empty, all Perfumes that are not excluded are selected.
+     * @param excluded Selectors for the Perfumes to exclude.
+     * @return The selection.
+     */
+    @NotNull
+    public static PerfumeSelection of(@NotNull Collection<String> included, @NotNull Collection<String> excluded) {
+        return new PerfumeSelection(normalize(included), normalize(excluded));
+    }
+
+    /**
+     * Returns a copy of this selection with the given selectors added to the inclusions.
+     */
+    @NotNull
+    public PerfumeSelection include(@NotNull String... selectors) {
+        return new PerfumeSelection(union(included, Arrays.asList(selectors)), new LinkedHashSet<>(excluded));
+    }
+
+    /**
+     * Returns a copy of this selection which additionally includes all Perfumes with one of the
+     * given {@link RelatedPattern}s.
+     */
+    @NotNull
+    public PerfumeSelection include(@NotNull RelatedPattern... patterns) {
+        return include(Arrays.stream(patterns).map(RelatedPattern::name).toArray(String[]::new));
+    }
+
+    /**
+     * Returns a copy of this selection which additionally includes the Perfumes that are detected by one of the given
+     * {@link Detector} classes.
+     */
+    @NotNull
+    public PerfumeSelection includeDetectors(@NotNull Class<?>... detectorClasses) {
+        return include(Arrays.stream(detectorClasses).map(Class::getSimpleName).toArray(String[]::new));
+    }
+
+    /**
+     * Returns a copy of this selection with the given selectors added to the exclusions.
+     */
+    @NotNull
+    public PerfumeSelection exclude(@NotNull String... selectors) {
+        return new PerfumeSelection(new LinkedHashSet<>(included), union(excluded, Arrays.asList(selectors)));
+    }
+
+    /**
+     * Returns a copy of this selection which additionally excludes all Perfumes with one of the
+     * given {@link RelatedPattern}s.
+     */
+    @NotNull
+    public PerfumeSelection exclude(@NotNull RelatedPattern... patterns) {
+        return exclude(Arrays.stream(patterns).map(RelatedPattern::name).toArray(String[]::new));
+    }
+
+    /**
+     * Returns a copy of this selection which additionally excludes the Perfumes that are detected by one of the given
+     * {@link Detector} classes.
+     */
+    @NotNull
+    public PerfumeSelection excludeDetectors(@NotNull Class<?>... detectorClasses) {
+        return exclude(Arrays.stream(detectorClasses).map(Class::getSimpleName).toArray(String[]::new));
+    }
+
+    /**
+     * Returns whether this selection selects every {@link Perfume}, which is the case if there are neither
+     * inclusions nor exclusions.
+     */
+    public boolean isAll() {
+        return included.isEmpty() && excluded.isEmpty();
+    }
+
+    @Override
+    public boolean test(@NotNull Perfume perfume) {
+        if (!included.isEmpty() && included.stream().noneMatch(selector -> matches(selector, perfume))) {
+            return false;
+        }
+
+        return excluded.stream().noneMatch(selector -> matches(selector, perfume));
+    }
+
+    /**
+     * Returns all selectors of this selection that match none of the given {@link Perfume}s.
+     * Useful to warn about typos in user input.
+     *
+     * @param perfumes The Perfumes to match against.
+     * @return The (normalized) selectors that do not match any of the Perfumes.
+     */
+    @NotNull
+    public List<String> getUnmatchedSelectors(@NotNull Collection<Perfume> perfumes) {
+        Set<String> all = union(included, excluded);
+
+        return all.stream().filter(selector -> perfumes.stream().noneMatch(perfume -> matches(selector, perfume)))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return "include " + included + ", exclude " + excluded;
+    }
+
+    private static boolean matches(@NotNull String selector, @NotNull Perfume perfume) {
+        return selector.equals(normalize(perfume.getName()))
+                || selector.equals(normalize(perfume.getDefaultName()))
+                || selector.equals(normalize(perfume.getDetectorClassSimpleName()))
+                || (perfume.getRelatedPattern() != null && selector.equals(normalize(perfume.getRelatedPattern().name())));
+    }
+
+    @NotNull
+    private static Set<String> normalize(@NotNull Collection<String> selectors) {
+        return selectors.stream().map(PerfumeSelection::normalize).filter(selector -> !selector.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @NotNull
+    private static String normalize(String selector) {
+        return selector == null ? "" : selector.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @NotNull
+    private static Set<String> union(@NotNull Collection<String> first, @NotNull Collection<String> second) {
+        Set<String> union = new LinkedHashSet<>(first);
+        union.addAll(normalize(second));
+
+        return union;
+    }
+}
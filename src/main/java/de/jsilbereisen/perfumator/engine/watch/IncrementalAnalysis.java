@@ -0,0 +1,309 @@
+package de.jsilbereisen.perfumator.engine.watch;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SerializationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.context.ProjectModules;
+import de.jsilbereisen.perfumator.engine.context.SourcesLayout;
+import de.jsilbereisen.perfumator.i18n.Bundles;
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.io.output.json.PerfumeJsonOutputGenerator;
+import de.jsilbereisen.perfumator.model.AnalysisResult;
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.StatisticsSummary;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+import de.jsilbereisen.perfumator.util.PathUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Analysis of a directory whose output is kept up to date while its source files change, e.g. by a
+ * {@link SourceWatcher}. After the initial analysis, only the changed files are analysed again: their old detections
+ * are removed from the statistics and their new ones are added, and only the listings that contain the changed files
+ * and the summary are written again.<br/>
+ * To be able to do so, the detections of all files are kept in memory, and each listing contains the detections of a
+ * fixed set of whole files. The files are assigned to the listings in the order in which they are first analysed:
+ * a file is added to the last listing as long as the batch size is not exceeded, and to a new listing otherwise. A
+ * listing might therefore contain fewer detections than the batch size, or more, if a single file has more.<br/>
+ * The {@link SourcesLayout} of the directory is kept between updates, and only inspected again if files or
+ * directories are added or deleted, or build files change. Updates of the content of known files only refresh the
+ * cached context of the directory.<br/>
+ * The analysis is not thread-safe.
+ */
+@Slf4j
+public class IncrementalAnalysis {
+
+    @NotNull
+    private final PerfumeDetectionEngine engine;
+
+    /**
+     * The real path of the analysed directory.
+     */
+    @Getter
+    @NotNull
+    private final Path sources;
+
+    @NotNull
+    private final PerfumeJsonOutputGenerator outputGenerator;
+
+    @NotNull
+    private final Bundles i18n;
+
+    @Getter
+    @NotNull
+    private StatisticsSummary<Perfume> summary = new StatisticsSummary<>();
+
+    private final Map<Path, List<DetectedInstance<Perfume>>> detectionsByFile = new HashMap<>();
+
+    private final Map<Path, Integer> listingByFile = new HashMap<>();
+
+    /**
+     * The files of each listing, the first listing at index {@code 0}.
+     */
+    private final List<Set<Path>> listings = new ArrayList<>();
+
+    /**
+     * The layout of the directory, {@code null} if it has to be inspected again before the next update.
+     */
+    @Nullable
+    private SourcesLayout layout;
+
+    /**
+     * Constructor.
+     *
+     * @param engine  The engine that analyses the files. Should not be used for other analyses meanwhile, as the
+     *                analysis relies on the cached context of the sources.
+     * @param sources The directory to analyse.
+     * @param config  The output configuration. The output directory must exist and should be empty.
+     * @param i18n    The resources for logging.
+     * @throws IllegalArgumentException If the sources are not a directory or the output directory does not exist.
+     */
+    public IncrementalAnalysis(@NotNull PerfumeDetectionEngine engine, @NotNull Path sources,
+                               @NotNull OutputConfiguration config, @NotNull Bundles i18n) {
+        if (!Files.isDirectory(sources)) {
+            throw new IllegalArgumentException(i18n.getApplicationResource("exception.invalidSourcesPath"));
+        }
+        if (!Files.isDirectory(config.getOutputDirectory())) {
+            throw new IllegalArgumentException(i18n.getApplicationResource("exception.output.dirNotExists"));
+        }
+
+        this.engine = engine;
+        this.sources = PathUtil.toRealPath(sources).orElse(sources.toAbsolutePath());
+        this.outputGenerator = new PerfumeJsonOutputGenerator(config, i18n);
+        this.i18n = i18n;
+    }
+
+    /**
+     * Runs the initial analysis of all files of the directory and writes the output.
+     *
+     * @throws SerializationException If the output can not be written.
+     */
+    public void analyseAll() {
+        AnalysisResult<Perfume> result = engine.detect(sources);
+        summary = result.getSummary();
+
+        Map<Path, List<DetectedInstance<Perfume>>> detections = groupByFile(result.getDetections());
+        for (Path file : summary.getAnalyzedFiles()) {
+            List<DetectedInstance<Perfume>> fileDetections = detections.getOrDefault(file, new ArrayList<>());
+            detectionsByFile.put(file, fileDetections);
+            assignListing(file, fileDetections.size());
+        }
+
+        Set<Integer> allListings = new TreeSet<>();
+        for (int listing = 1; listing <= listings.size(); listing++) {
+            allListings.add(listing);
+        }
+        writeOutput(allListings);
+    }
+
+    /**
+     * Analyses the given changed paths again and updates the output. Paths of deleted files or directories remove
+     * their files, paths of new directories add their files, and paths that are not relevant Java source files of
+     * the directory are ignored.
+     *
+     * @param changedPaths The created, modified or deleted paths in the directory.
+     * @throws SerializationException If the output can not be written.
+     */
+    public void update(@NotNull Collection<Path> changedPaths) {
+        long start = System.nanoTime();
+        String rootName = sources.getFileName() != null ? sources.getFileName().toString() : "";
+
+        Set<Path> changedFiles = new LinkedHashSet<>();
+        Set<Path> deletedFiles = new LinkedHashSet<>();
+        for (Path changedPath : changedPaths) {
+            Path path = PathUtil.toRealPath(changedPath).orElse(changedPath.toAbsolutePath().normalize());
+            if (changesLayout(path)) {
+                layout = null;
+            }
+
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = PathUtil.walkInOrder(path)) {
+                    walk.filter(file -> PathUtil.isRelevantJavaFile(file, rootName))
+                            .map(file -> PathUtil.toRealPath(file).orElse(file)).forEach(changedFiles::add);
+                } catch (UncheckedIOException e) {
+                    log.warn("Unable to walk the changed directory " + path + ".", e);
+                }
+            } else if (PathUtil.isRelevantJavaFile(path, rootName)) {
+                changedFiles.add(path);
+            } else if (!Files.exists(path)) {
+                // A deleted file, or all files of a deleted directory
+                detectionsByFile.keySet().stream().filter(file -> file.startsWith(path)).forEach(deletedFiles::add);
+            }
+        }
+
+        if (changedFiles.isEmpty() && deletedFiles.isEmpty()) {
+            return;
+        }
+
+        // Analysed before the state is changed, so that a failed analysis leaves it consistent
+        AnalysisResult<Perfume> result = null;
+        if (!changedFiles.isEmpty()) {
+            engine.refresh(sources);
+            if (layout == null) {
+                layout = SourcesLayout.of(sources);
+            }
+            result = engine.detectInSourceFiles(layout, List.copyOf(changedFiles));
+        }
+
+        Set<Integer> affectedListings = new TreeSet<>();
+        for (Path file : deletedFiles) {
+            summary.removeFromStatistics(file, detectionsByFile.remove(file));
+            int listing = listingByFile.remove(file);
+            listings.get(listing - 1).remove(file);
+            affectedListings.add(listing);
+        }
+
+        if (result != null) {
+            Map<Path, List<DetectedInstance<Perfume>>> detections = groupByFile(result.getDetections());
+
+            for (Path file : result.getSummary().getAnalyzedFiles()) {
+                List<DetectedInstance<Perfume>> fileDetections = detections.getOrDefault(file, new ArrayList<>());
+
+                List<DetectedInstance<Perfume>> oldDetections = detectionsByFile.put(file, fileDetections);
+                if (oldDetections != null) {
+                    summary.removeFromStatistics(file, oldDetections);
+                    affectedListings.add(listingByFile.get(file));
+                } else {
+                    affectedListings.add(assignListing(file, fileDetections.size()));
+                }
+
+                summary.addToStatistics(file);
+                summary.addToStatistics(fileDetections);
+                summary.addSkippedAnalyses(result.getSummary().getSkippedAnalyses().stream()
+                        .filter(skipped -> file.equals(skipped.getSourceFile())).toList());
+            }
+        }
+
+        writeOutput(affectedListings);
+
+        log.info(i18n.getApplicationResource("log.info.watch.updated"), changedFiles.size() + deletedFiles.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), summary.getTotalDetections(),
+                summary.getTotalAnalysedFiles());
+    }
+
+    /**
+     * Analyses all files of the directory again, e.g. after changes were missed, and updates the output.
+     *
+     * @throws SerializationException If the output can not be written.
+     */
+    public void updateAll() {
+        Set<Path> paths = new LinkedHashSet<>(detectionsByFile.keySet());
+        paths.add(sources);
+
+        update(paths);
+    }
+
+    /**
+     * Returns whether the given changed path can change the layout of the directory: a directory, a deleted or a new
+     * file, or a build file of a module.
+     */
+    private boolean changesLayout(@NotNull Path path) {
+        String fileName = path.getFileName() != null ? path.getFileName().toString() : "";
+
+        return Files.isDirectory(path) || !Files.exists(path) || !detectionsByFile.containsKey(path)
+                || fileName.equals(ProjectModules.POM_FILE) || ProjectModules.GRADLE_BUILD_FILES.contains(fileName)
+                || ProjectModules.GRADLE_SETTINGS_FILES.contains(fileName);
+    }
+
+    /**
+     * Returns the current detections of the given analysed file.
+     *
+     * @param file The real path of the file.
+     * @return The detections, empty if the file is not analysed.
+     */
+    @NotNull
+    public List<DetectedInstance<Perfume>> getDetections(@NotNull Path file) {
+        return List.copyOf(detectionsByFile.getOrDefault(file, List.of()));
+    }
+
+    /**
+     * Assigns the given new file to the last listing, or to a new listing if the batch size would be exceeded.
+     *
+     * @return The number of the listing.
+     */
+    private int assignListing(@NotNull Path file, int detections) {
+        int batchSize = outputGenerator.getConfig().getBatchSize();
+
+        if (listings.isEmpty() || (listingSize(listings.size()) + detections > batchSize
+                && !listings.get(listings.size() - 1).isEmpty())) {
+            listings.add(new LinkedHashSet<>());
+        }
+
+        listings.get(listings.size() - 1).add(file);
+        listingByFile.put(file, listings.size());
+
+        return listings.size();
+    }
+
+    private int listingSize(int listing) {
+        return listings.get(listing - 1).stream().mapToInt(file -> detectionsByFile.get(file).size()).sum();
+    }
+
+    /**
+     * Writes the given listings, in ascending order, and the summary.
+     */
+    private void writeOutput(@NotNull Set<Integer> affectedListings) {
+        try {
+            for (int listing : affectedListings) {
+                List<DetectedInstance<Perfume>> detections = new ArrayList<>();
+                listings.get(listing - 1).forEach(file -> detections.addAll(detectionsByFile.get(file)));
+
+                outputGenerator.replaceListing(listing, detections);
+            }
+
+            outputGenerator.complete(summary);
+
+        } catch (IOException e) {
+            log.error(i18n.getApplicationResource("log.error.serialization.complete"));
+            throw new SerializationException(e.getMessage(), e);
+        }
+    }
+
+    @NotNull
+    private static Map<Path, List<DetectedInstance<Perfume>>> groupByFile(
+            @NotNull List<DetectedInstance<Perfume>> detections) {
+        Map<Path, List<DetectedInstance<Perfume>>> byFile = new HashMap<>();
+        for (DetectedInstance<Perfume> detection : detections) {
+            byFile.computeIfAbsent(detection.getSourceFile(), file -> new ArrayList<>()).add(detection);
+        }
+
+        return byFile;
+    }
+}
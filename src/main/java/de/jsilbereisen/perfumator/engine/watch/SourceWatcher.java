@@ -0,0 +1,173 @@
+package de.jsilbereisen.perfumator.engine.watch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.i18n.Bundles;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the directories of an {@link IncrementalAnalysis} with a {@link WatchService} and updates the analysis
+ * with the changed files. Changes are collected until no more changes arrive for a quiet period, as editors and
+ * build tools usually change multiple files, or a file in multiple steps, at once. If the watch service missed
+ * changes, all files are analysed again.<br/>
+ * Hidden directories, like the one of <i>Git</i>, are not watched.
+ */
+@Slf4j
+public class SourceWatcher implements AutoCloseable {
+
+    /**
+     * Default time without changes, after which the collected changes are analysed.
+     */
+    public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofMillis(100);
+
+    @NotNull
+    private final IncrementalAnalysis analysis;
+
+    @NotNull
+    private final Bundles i18n;
+
+    @NotNull
+    private final Duration quietPeriod;
+
+    @NotNull
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Constructor. Registers the directories of the analysis.
+     *
+     * @param analysis    The analysis to update. Its initial analysis should already have run.
+     * @param i18n        The resources for logging.
+     * @param quietPeriod Time without changes, after which the collected changes are analysed.
+     * @throws IOException If the directories can not be watched.
+     */
+    public SourceWatcher(@NotNull IncrementalAnalysis analysis, @NotNull Bundles i18n, @NotNull Duration quietPeriod)
+            throws IOException {
+        this.analysis = analysis;
+        this.i18n = i18n;
+        this.quietPeriod = quietPeriod;
+
+        watchService = analysis.getSources().getFileSystem().newWatchService();
+        try {
+            register(analysis.getSources());
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Watches for changes and updates the analysis, until the watcher is closed or the thread is interrupted.
+     * A failed update is logged, the watcher continues with the next changes.
+     */
+    public void watch() {
+        log.info(i18n.getApplicationResource("log.info.watch.start"), analysis.getSources());
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changedPaths = new LinkedHashSet<>();
+                boolean missedChanges = collectChanges(watchService.take(), changedPaths);
+
+                WatchKey key;
+                while ((key = watchService.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    missedChanges |= collectChanges(key, changedPaths);
+                }
+
+                try {
+                    if (missedChanges) {
+                        analysis.updateAll();
+                    } else {
+                        analysis.update(changedPaths);
+                    }
+                } catch (RuntimeException e) {
+                    log.error(i18n.getApplicationResource("log.error.watch.updateFailed"), e.getMessage());
+                    log.debug("Update of the watched analysis failed.", e);
+                }
+            }
+
+        } catch (ClosedWatchServiceException e) {
+            // Closed while waiting for changes
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops watching. A running {@link #watch()} returns after its current update.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Adds the changed paths of the events of the given key, and registers new directories.
+     *
+     * @return {@code true} if the watch service missed events.
+     */
+    private boolean collectChanges(@NotNull WatchKey key, @NotNull Set<Path> changedPaths) {
+        Path directory = directories.get(key);
+        boolean missedChanges = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                missedChanges = true;
+                continue;
+            }
+
+            Path changedPath = directory.resolve((Path) event.context());
+            changedPaths.add(changedPath);
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changedPath)) {
+                try {
+                    register(changedPath);
+                } catch (IOException e) {
+                    log.warn("Unable to watch the new directory " + changedPath + ".", e);
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            // The directory was deleted
+            directories.remove(key);
+        }
+
+        return missedChanges;
+    }
+
+    private void register(@NotNull Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(start) && dir.getFileName().toString().startsWith(".")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, dir);
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,547 @@
+package de.jsilbereisen.perfumator.engine.worker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SerializationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import de.jsilbereisen.perfumator.engine.AnalysisException;
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.pipeline.ReorderBuffer;
+import de.jsilbereisen.perfumator.engine.registry.DetectableRegistry;
+import de.jsilbereisen.perfumator.engine.registry.PerfumeRegistry;
+import de.jsilbereisen.perfumator.i18n.Bundles;
+import de.jsilbereisen.perfumator.i18n.BundlesLoader;
+import de.jsilbereisen.perfumator.io.LanguageTag;
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.io.output.json.PerfumeJsonOutputGenerator;
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.SkippedAnalysis;
+import de.jsilbereisen.perfumator.model.StatisticsSummary;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+import de.jsilbereisen.perfumator.util.PathUtil;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static de.jsilbereisen.perfumator.util.PathUtil.toRealPath;
+
+/**
+ * Distributes the analysis of a directory to worker processes on the same machine, with dynamic load balancing.<br/>
+ * The coordinator walks the directory and serves its source files in batches over a socket on the loopback interface
+ * to its workers, which analyse them with engines of their own, see {@link AnalysisWorker}. A worker requests the next
+ * batch when it is done with the previous one, so faster workers analyse more files. The coordinator collects the
+ * detections and statistics of all workers and writes the output, like
+ * {@link PerfumeDetectionEngine#detectAndSerialize}: the results of the batches are reassembled in the order of the
+ * walk with a {@link ReorderBuffer}, so the listings do not depend on which worker finished first.<br/>
+ * If a worker exits during the analysis of a batch, e.g. because its JVM crashed, the files of the batch are analysed
+ * again one by one by the other workers, and a new worker is launched instead, at most once per worker. If a worker
+ * exits on a single file, the file is skipped if the workers continue on errors, see
+ * {@link SkippedAnalysis.Reason#WORKER_EXIT}. Otherwise, the analysis fails.
+ */
+@Slf4j
+public class AnalysisCoordinator {
+
+    /**
+     * Default amount of source files in a batch.
+     */
+    public static final int DEFAULT_FILES_PER_BATCH = 16;
+
+    @NotNull
+    private final WorkerConfiguration workerConfiguration;
+
+    private final int workers;
+
+    private final int filesPerBatch;
+
+    @NotNull
+    private final WorkerLauncher launcher;
+
+    @NotNull
+    private final DetectableRegistry<Perfume> registry;
+
+    @NotNull
+    private final Bundles i18n;
+
+    /**
+     * Constructor. Loads the registry for the language of the analysis, to collect the statistics.
+     *
+     * @param workerConfiguration Configuration of the workers, with the analysed directory.
+     * @param workers             Amount of workers that analyse at the same time, at least 1.
+     * @param filesPerBatch       Amount of source files in a batch, at least 1.
+     * @param launcher            Launches the workers.
+     */
+    public AnalysisCoordinator(@NotNull WorkerConfiguration workerConfiguration, int workers, int filesPerBatch,
+                               @NotNull WorkerLauncher launcher) {
+        if (workers < 1 || filesPerBatch < 1) {
+            throw new IllegalArgumentException("At least one worker and one file per batch are required.");
+        }
+
+        this.workerConfiguration = workerConfiguration;
+        this.workers = workers;
+        this.filesPerBatch = filesPerBatch;
+        this.launcher = launcher;
+
+        Locale locale = LanguageTag.of(workerConfiguration.getLanguage()).getRelatedLocale();
+        PerfumeRegistry perfumeRegistry = new PerfumeRegistry();
+        perfumeRegistry.setSelection(workerConfiguration.selection());
+        perfumeRegistry.loadRegistry(locale);
+        this.registry = perfumeRegistry;
+
+        this.i18n = new Bundles();
+        new BundlesLoader(BundlesLoader.STANDARD_INTERNATIONALIZATION_PACKAGE, BundlesLoader.STANDARD_PERFUMES_PACKAGE,
+                BundlesLoader.STANDARD_APPLICATION_PACKAGE).loadApplicationBundle(i18n, locale);
+    }
+
+    /**
+     * Analyses the configured directory with the workers and writes the listings and the summary to the configured
+     * output directory.
+     *
+     * @param config The output configuration, with an empty output directory.
+     * @throws IllegalArgumentException If the sources are no directory, or the output directory is not empty.
+     * @throws AnalysisException        If the analysis fails, e.g. because all workers exited.
+     * @throws SerializationException   If the output can not be written.
+     */
+    public void detectAndSerialize(@NotNull OutputConfiguration config) {
+        if (!Files.isDirectory(workerConfiguration.getSources())) {
+            throw new IllegalArgumentException(i18n.getApplicationResource("exception.invalidSourcesPath"));
+        }
+        PerfumeDetectionEngine.checkOutputDirectory(config.getOutputDirectory(), i18n);
+
+        new CoordinatedAnalysis(config).run();
+    }
+
+    /**
+     * State of a single analysis.
+     */
+    private final class CoordinatedAnalysis {
+
+        private final Object lock = new Object();
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @NotNull
+        private final PerfumeJsonOutputGenerator outputGenerator;
+
+        @NotNull
+        private final StatisticsSummary<Perfume> summary;
+
+        private final Map<String, Perfume> perfumesByName = new HashMap<>();
+
+        private final List<DetectedInstance<Perfume>> detectedPerfumes = new ArrayList<>();
+
+        /**
+         * The results of the batches, in the order of the walk. Guarded by the summary.
+         */
+        private ReorderBuffer<WorkerMessage> results;
+
+        // Guarded by the lock
+        private final Deque<Batch> pendingBatches = new ArrayDeque<>();
+
+        private final List<WorkerConnection> connections = new ArrayList<>();
+
+        private int batchesInFlight;
+
+        private int runningWorkers;
+
+        private int finishedWorkers;
+
+        private int restartsLeft = workers;
+
+        @Nullable
+        private RuntimeException failure;
+
+        private CoordinatedAnalysis(@NotNull OutputConfiguration config) {
+            this.outputGenerator = new PerfumeJsonOutputGenerator(config, i18n);
+
+            List<Perfume> selectedPerfumes = registry.getRegisteredDetectables().stream()
+                    .filter(workerConfiguration.selection()).toList();
+            this.summary = StatisticsSummary.from(selectedPerfumes);
+            selectedPerfumes.forEach(perfume -> perfumesByName.put(perfume.getName(), perfume));
+        }
+
+        private void run() {
+            Path sources = workerConfiguration.getSources();
+            List<Path> sourceFiles;
+            try (Stream<Path> dirWalk = PathUtil.walkInOrder(sources)) {
+                sourceFiles = dirWalk.filter(path -> PathUtil.isRelevantJavaFile(path,
+                        sources.getFileName().toString())).toList();
+            }
+
+            int batches = (sourceFiles.size() + filesPerBatch - 1) / filesPerBatch;
+            // The window holds all batches, so that no worker waits for the result of another one
+            results = new ReorderBuffer<>(Math.max(batches, 1));
+            log.info(i18n.getApplicationResource("log.info.coordinator.start"), sourceFiles.size(), batches, workers);
+
+            try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+                for (int from = 0; from < sourceFiles.size(); from += filesPerBatch) {
+                    pendingBatches.add(new Batch(results.acquire(),
+                            sourceFiles.subList(from, Math.min(from + filesPerBatch, sourceFiles.size()))));
+                }
+                startThread(() -> acceptWorkers(server));
+
+                synchronized (lock) {
+                    for (int worker = 0; worker < workers; worker++) {
+                        launchWorker(server.getLocalPort());
+                    }
+
+                    while (failure == null && (!pendingBatches.isEmpty() || batchesInFlight > 0)) {
+                        lock.wait();
+                    }
+                }
+
+            } catch (IOException e) {
+                fail(new AnalysisException(e.getMessage(), e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new AnalysisException("Interrupted while waiting for the workers.", e));
+            } finally {
+                synchronized (lock) {
+                    // Workers that are still connected exit when their connection is closed
+                    if (failure != null) {
+                        connections.forEach(this::closeQuietly);
+                    }
+                }
+            }
+
+            synchronized (lock) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+
+            synchronized (summary) {
+                writeListing();
+                try {
+                    outputGenerator.complete(summary);
+                } catch (IOException e) {
+                    log.error(i18n.getApplicationResource("log.error.serialization.complete"));
+                    throw new SerializationException(e.getMessage(), e);
+                }
+            }
+        }
+
+        private void acceptWorkers(@NotNull ServerSocket server) {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    startThread(() -> serve(socket));
+                } catch (IOException e) {
+                    // The server was closed, all files are analysed
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Serves batches to a connected worker until no batches are left.
+         */
+        private void serve(@NotNull Socket socket) {
+            Batch batch = null;
+
+            try (WorkerConnection connection = new WorkerConnection(socket)) {
+                synchronized (lock) {
+                    connections.add(connection);
+                }
+                connection.send(WorkerMessage.of(WorkerMessage.Type.CONFIGURATION)
+                        .setConfiguration(workerConfiguration));
+
+                while (true) {
+                    WorkerMessage message = connection.receive();
+                    if (message == null) {
+                        throw new EOFException("The worker closed the connection.");
+                    }
+
+                    if (message.getType() == WorkerMessage.Type.RESULT && batch != null) {
+                        complete(batch, message);
+                        completeBatch();
+                        batch = null;
+
+                    } else if (message.getType() == WorkerMessage.Type.REQUEST && batch == null) {
+                        batch = nextBatch();
+                        if (batch == null) {
+                            connection.send(WorkerMessage.of(WorkerMessage.Type.DONE));
+                            synchronized (lock) {
+                                finishedWorkers++;
+                            }
+                            return;
+                        }
+
+                        connection.send(WorkerMessage.of(WorkerMessage.Type.BATCH).setSourceFiles(batch.sourceFiles));
+
+                    } else {
+                        throw new IOException("Unexpected message from a worker: " + message.getType());
+                    }
+                }
+
+            } catch (IOException | RuntimeException e) {
+                if (batch != null) {
+                    batchFailed(batch, e);
+                }
+            }
+        }
+
+        @Nullable
+        private Batch nextBatch() {
+            synchronized (lock) {
+                // Batches of workers that exit are analysed again
+                while (pendingBatches.isEmpty() && batchesInFlight > 0 && failure == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+
+                if (failure != null || pendingBatches.isEmpty()) {
+                    return null;
+                }
+
+                batchesInFlight++;
+                return pendingBatches.poll();
+            }
+        }
+
+        private void completeBatch() {
+            synchronized (lock) {
+                batchesInFlight--;
+                lock.notifyAll();
+            }
+        }
+
+        /**
+         * Handles the exit of a worker during the analysis of the given batch.
+         */
+        private void batchFailed(@NotNull Batch batch, @NotNull Exception cause) {
+            synchronized (lock) {
+                if (batch.sourceFiles.size() > 1) {
+                    // Find the file that the worker exited on, if any, by analysing the files one by one
+                    batch.split();
+                    for (int i = batch.sourceFiles.size() - 1; i >= 0; i--) {
+                        pendingBatches.addFirst(new Batch(batch, i));
+                    }
+                    completeBatch();
+                    return;
+
+                } else if (!workerConfiguration.isContinueOnError()) {
+                    failure = new AnalysisException("A worker exited while analysing " + batch.sourceFiles.get(0)
+                            + ".", cause);
+                    completeBatch();
+                    return;
+                }
+            }
+
+            Path sourceFile = toRealPath(batch.sourceFiles.get(0)).orElse(batch.sourceFiles.get(0));
+            log.warn(i18n.getApplicationResource("log.warn.coordinator.fileSkipped"), sourceFile);
+
+            // Completed before the batch, so that the result is collected before the analysis ends
+            complete(batch, WorkerMessage.of(WorkerMessage.Type.RESULT)
+                    .setSourceFiles(List.of(sourceFile))
+                    .setSkippedAnalyses(List.of(new SkippedAnalysis(sourceFile, SkippedAnalysis.ALL_DETECTORS,
+                            SkippedAnalysis.Reason.WORKER_EXIT, cause.getMessage()))));
+            completeBatch();
+        }
+
+        /**
+         * Completes the result of the given batch, and collects the results that are complete in the order of the
+         * walk.
+         */
+        private void complete(@NotNull Batch batch, @NotNull WorkerMessage result) {
+            synchronized (summary) {
+                Optional<WorkerMessage> completed = batch.complete(result);
+                Batch completedBatch = batch.parent != null ? batch.parent : batch;
+                completed.ifPresent(message -> results.complete(completedBatch.sequenceNumber, message));
+
+                for (Optional<ReorderBuffer.Sequenced<WorkerMessage>> next = results.poll(); next.isPresent();
+                     next = results.poll()) {
+                    collect(next.get().getValue());
+                }
+            }
+        }
+
+        /**
+         * Collects the result of a batch. Must hold the lock of the summary.
+         */
+        private void collect(@NotNull WorkerMessage result) {
+            result.getSourceFiles().forEach(summary::addToStatistics);
+
+            // The statistics are kept for the registered Perfumes
+            for (DetectedInstance<Perfume> detection : result.getDetections()) {
+                Perfume perfume = perfumesByName.get(detection.getDetectable().getName());
+                if (perfume != null) {
+                    detection.setDetectable(perfume);
+                }
+            }
+            summary.addToStatistics(result.getDetections());
+            summary.addSkippedAnalyses(result.getSkippedAnalyses());
+
+            detectedPerfumes.addAll(result.getDetections());
+            if (detectedPerfumes.size() >= outputGenerator.getConfig().getBatchSize()) {
+                writeListing();
+            }
+        }
+
+        private void writeListing() {
+            try {
+                outputGenerator.handle(detectedPerfumes);
+                detectedPerfumes.clear();
+            } catch (IOException e) {
+                log.error(i18n.getApplicationResource("log.error.serialization.handle"));
+                fail(new SerializationException(e.getMessage(), e));
+            }
+        }
+
+        /**
+         * Launches a worker. Must hold the lock.
+         */
+        private void launchWorker(int port) throws IOException {
+            launcher.launch(port).whenComplete((exitCode, e) -> workerExited(port));
+            runningWorkers++;
+        }
+
+        private void workerExited(int port) {
+            synchronized (lock) {
+                runningWorkers--;
+                if (finishedWorkers > 0) {
+                    // A worker without files left exited
+                    finishedWorkers--;
+                    return;
+                }
+
+                boolean filesLeft = !pendingBatches.isEmpty() || batchesInFlight > 0;
+                if (filesLeft && failure == null && restartsLeft > 0) {
+                    restartsLeft--;
+                    log.warn(i18n.getApplicationResource("log.warn.coordinator.workerExited"));
+
+                    try {
+                        launchWorker(port);
+                    } catch (IOException e) {
+                        log.error(e.getMessage());
+                    }
+                }
+
+                if (filesLeft && runningWorkers == 0 && failure == null) {
+                    failure = new AnalysisException("All workers exited before the analysis was complete.");
+                }
+
+                lock.notifyAll();
+            }
+        }
+
+        private void fail(@NotNull RuntimeException cause) {
+            synchronized (lock) {
+                if (failure == null) {
+                    failure = cause;
+                }
+                lock.notifyAll();
+            }
+        }
+
+        private void startThread(@NotNull Runnable task) {
+            Thread thread = new Thread(task, "perfumator-coordinator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void closeQuietly(@NotNull WorkerConnection connection) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                log.debug("Could not close the connection to a worker.", e);
+            }
+        }
+    }
+
+    /**
+     * Source files that a worker analyses at once, with the sequence number of their result in the order of the walk.
+     * If a worker exits on a batch, the batch is split into batches of its single files, whose results are merged
+     * into the result of the batch.
+     */
+    private static final class Batch {
+
+        private final long sequenceNumber;
+
+        @NotNull
+        private final List<Path> sourceFiles;
+
+        /**
+         * The split batch that this batch is a file of, {@code null} if it was not split off.
+         */
+        @Nullable
+        private final Batch parent;
+
+        private final int indexInParent;
+
+        /**
+         * The results of the files of a split batch, by their index. Guarded by the summary.
+         */
+        @Nullable
+        private WorkerMessage[] fileResults;
+
+        private int pendingFiles;
+
+        private Batch(long sequenceNumber, @NotNull List<Path> sourceFiles) {
+            this.sequenceNumber = sequenceNumber;
+            this.sourceFiles = sourceFiles;
+            this.parent = null;
+            this.indexInParent = 0;
+        }
+
+        private Batch(@NotNull Batch parent, int indexInParent) {
+            this.sequenceNumber = parent.sequenceNumber;
+            this.sourceFiles = List.of(parent.sourceFiles.get(indexInParent));
+            this.parent = parent;
+            this.indexInParent = indexInParent;
+        }
+
+        private void split() {
+            fileResults = new WorkerMessage[sourceFiles.size()];
+            pendingFiles = sourceFiles.size();
+        }
+
+        /**
+         * Completes this batch with the given result.
+         *
+         * @return The result of the batch that this batch completes: this one, or the split batch once all of its
+         *         files are complete, otherwise an empty optional.
+         */
+        @NotNull
+        private Optional<WorkerMessage> complete(@NotNull WorkerMessage result) {
+            if (parent == null) {
+                return Optional.of(result);
+            }
+
+            WorkerMessage[] parentResults = Objects.requireNonNull(parent.fileResults);
+            parentResults[indexInParent] = result;
+            if (--parent.pendingFiles > 0) {
+                return Optional.empty();
+            }
+
+            WorkerMessage merged = WorkerMessage.of(WorkerMessage.Type.RESULT);
+            for (WorkerMessage fileResult : parentResults) {
+                merged.getSourceFiles().addAll(fileResult.getSourceFiles());
+                merged.getDetections().addAll(fileResult.getDetections());
+                merged.getSkippedAnalyses().addAll(fileResult.getSkippedAnalyses());
+            }
+
+            return Optional.of(merged);
+        }
+    }
+}
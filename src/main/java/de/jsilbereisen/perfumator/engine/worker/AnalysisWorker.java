@@ -0,0 +1,70 @@
+package de.jsilbereisen.perfumator.engine.worker;
+
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.context.SourcesLayout;
+import de.jsilbereisen.perfumator.model.AnalysisResult;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Worker of an {@link AnalysisCoordinator}, usually in a process of its own. Connects to the coordinator, analyses
+ * the batches of source files that it receives with a {@link PerfumeDetectionEngine} and sends the results back,
+ * until the coordinator has no files left.
+ */
+public final class AnalysisWorker {
+
+    /**
+     * Name of the command that starts a worker process, given as the first command line argument, followed by the
+     * port of the coordinator.
+     */
+    public static final String COMMAND_NAME = "worker";
+
+    private AnalysisWorker() {
+    }
+
+    /**
+     * Connects to the coordinator on the given port of the loopback interface and analyses its batches, until it has
+     * no files left or closes the connection.
+     *
+     * @param port The port of the coordinator.
+     * @throws IOException If the connection fails.
+     */
+    public static void run(int port) throws IOException {
+        try (WorkerConnection connection = WorkerConnection.connect(port)) {
+            WorkerMessage configuration = connection.receive();
+            if (configuration == null || configuration.getType() != WorkerMessage.Type.CONFIGURATION) {
+                throw new IOException("The coordinator did not send the configuration of the worker.");
+            }
+
+            try (PerfumeDetectionEngine engine = configuration.getConfiguration().engineBuilder().build()) {
+                analyseBatches(connection, engine, configuration.getConfiguration());
+            }
+        }
+    }
+
+    private static void analyseBatches(@NotNull WorkerConnection connection, @NotNull PerfumeDetectionEngine engine,
+                                       @NotNull WorkerConfiguration configuration) throws IOException {
+        // The directory does not change during the analysis, so its layout is inspected once for all batches
+        SourcesLayout layout = SourcesLayout.of(configuration.getSources());
+
+        while (true) {
+            connection.send(WorkerMessage.of(WorkerMessage.Type.REQUEST));
+
+            WorkerMessage batch = connection.receive();
+            if (batch == null || batch.getType() == WorkerMessage.Type.DONE) {
+                return;
+            }
+
+            AnalysisResult<Perfume> result = engine.detectInSourceFiles(layout, batch.getSourceFiles());
+
+            connection.send(WorkerMessage.of(WorkerMessage.Type.RESULT)
+                    .setSourceFiles(new ArrayList<>(result.getSummary().getAnalyzedFiles()))
+                    .setDetections(result.getDetections())
+                    .setSkippedAnalyses(result.getSummary().getSkippedAnalyses()));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package de.jsilbereisen.perfumator.engine.worker;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.registry.PerfumeSelection;
+import de.jsilbereisen.perfumator.io.LanguageTag;
+import de.jsilbereisen.perfumator.model.EngineConfiguration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the engines of the workers of an {@link AnalysisCoordinator}, which the coordinator sends to each
+ * worker when it connects.
+ */
+@Data
+@Accessors(chain = true)
+public class WorkerConfiguration {
+
+    /**
+     * The analysed directory.
+     */
+    private Path sources;
+
+    private List<Path> dependencies = new ArrayList<>();
+
+    /**
+     * Tag of the language of the analysis, see {@link LanguageTag#getTagName()}.
+     */
+    private String language = LanguageTag.getDefault().getTagName();
+
+    private List<String> includedPerfumes = new ArrayList<>();
+
+    private List<String> excludedPerfumes = new ArrayList<>();
+
+    private Path typeIndexDirectory;
+
+    private int detectorParallelism = 1;
+
+    /**
+     * Time budget for the analysis of a file in milliseconds, {@code null} for none.
+     */
+    private Long fileTimeoutMillis;
+
+    /**
+     * Time budget for applying a detector to a file in milliseconds, {@code null} for none.
+     */
+    private Long detectorTimeoutMillis;
+
+    private boolean continueOnError;
+
+    /**
+     * Returns the configuration of the workers for the analysis with the given configuration.
+     */
+    @NotNull
+    public static WorkerConfiguration from(@NotNull EngineConfiguration config) {
+        return new WorkerConfiguration()
+                .setSources(config.getSourcesPath().toAbsolutePath())
+                .setDependencies(config.getDependencies().stream().map(Path::toAbsolutePath).toList())
+                .setLanguage(LanguageTag.of(config.getResourcesLocale()).getTagName())
+                .setIncludedPerfumes(config.getIncludedPerfumes())
+                .setExcludedPerfumes(config.getExcludedPerfumes())
+                .setTypeIndexDirectory(config.getTypeIndexDirectory() != null
+                        ? config.getTypeIndexDirectory().toAbsolutePath() : null)
+                .setDetectorParallelism(config.getDetectorParallelism())
+                .setFileTimeoutMillis(config.getFileTimeout() != null ? config.getFileTimeout().toMillis() : null)
+                .setDetectorTimeoutMillis(config.getDetectorTimeout() != null
+                        ? config.getDetectorTimeout().toMillis() : null)
+                .setContinueOnError(config.isContinueOnError());
+    }
+
+    /**
+     * Returns the selection of the analysed Perfumes.
+     */
+    @NotNull
+    public PerfumeSelection selection() {
+        return PerfumeSelection.of(includedPerfumes, excludedPerfumes);
+    }
+
+    /**
+     * Returns a builder for the engine of a worker.
+     */
+    @NotNull
+    public PerfumeDetectionEngine.Builder engineBuilder() {
+        return PerfumeDetectionEngine.builder(LanguageTag.of(language).getRelatedLocale())
+                .setDependencies(dependencies)
+                .selection(selection())
+                .typeIndexDirectory(typeIndexDirectory)
+                .detectorParallelism(detectorParallelism)
+                .fileTimeout(fileTimeoutMillis != null ? Duration.ofMillis(fileTimeoutMillis) : null)
+                .detectorTimeout(detectorTimeoutMillis != null ? Duration.ofMillis(detectorTimeoutMillis) : null)
+                .continueOnError(continueOnError);
+    }
+}
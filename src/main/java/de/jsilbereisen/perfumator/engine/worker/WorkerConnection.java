@@ -0,0 +1,71 @@
+package de.jsilbereisen.perfumator.engine.worker;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Connection between an {@link AnalysisCoordinator} and a worker, over a socket on the loopback interface, on which
+ * {@link WorkerMessage}s are exchanged as JSON lines.
+ */
+class WorkerConnection implements Closeable {
+
+    private static final JsonMapper MAPPER = new JsonMapper();
+
+    @NotNull
+    private final Socket socket;
+
+    @NotNull
+    private final BufferedReader in;
+
+    @NotNull
+    private final BufferedWriter out;
+
+    WorkerConnection(@NotNull Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Connects to the coordinator that listens on the given port of the loopback interface.
+     */
+    @NotNull
+    static WorkerConnection connect(int port) throws IOException {
+        return new WorkerConnection(new Socket(InetAddress.getLoopbackAddress(), port));
+    }
+
+    void send(@NotNull WorkerMessage message) throws IOException {
+        out.write(MAPPER.writeValueAsString(message));
+        out.newLine();
+        out.flush();
+    }
+
+    /**
+     * Waits for the next message.
+     *
+     * @return The message, {@code null} if the other side closed the connection.
+     * @throws IOException If the connection broke or the message is malformed.
+     */
+    @Nullable
+    WorkerMessage receive() throws IOException {
+        String line = in.readLine();
+
+        return line != null ? MAPPER.readValue(line, WorkerMessage.class) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
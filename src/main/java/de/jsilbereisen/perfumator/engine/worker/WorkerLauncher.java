@@ -0,0 +1,42 @@
+package de.jsilbereisen.perfumator.engine.worker;
+
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.CommandLineStarter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Launches the workers of an {@link AnalysisCoordinator}.
+ */
+@FunctionalInterface
+public interface WorkerLauncher {
+
+    /**
+     * Launches a worker that connects to the coordinator on the given port, see {@link AnalysisWorker#run(int)}.
+     *
+     * @param port The port of the coordinator on the loopback interface.
+     * @return Completes when the worker exited.
+     * @throws IOException If the worker can not be launched.
+     */
+    @NotNull
+    CompletableFuture<?> launch(int port) throws IOException;
+
+    /**
+     * Returns a launcher that starts each worker in a JVM of its own, with the Java runtime and the class path of the
+     * current JVM. The output of the workers goes to the output of the current process. Like that, a crashing worker
+     * does not take down the coordinator or the other workers.
+     */
+    @NotNull
+    static WorkerLauncher jvm() {
+        return port -> {
+            String java = ProcessHandle.current().info().command().orElse("java");
+            List<String> command = List.of(java, "-cp", System.getProperty("java.class.path"),
+                    CommandLineStarter.class.getName(), AnalysisWorker.COMMAND_NAME, String.valueOf(port));
+
+            return new ProcessBuilder(command).inheritIO().start().onExit();
+        };
+    }
+}
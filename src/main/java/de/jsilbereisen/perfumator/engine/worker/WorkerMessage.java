@@ -0,0 +1,72 @@
+package de.jsilbereisen.perfumator.engine.worker;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.SkippedAnalysis;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message between an {@link AnalysisCoordinator} and one of its workers. Messages are sent as JSON lines.<br/>
+ * The coordinator sends the {@link Type#CONFIGURATION} first. Then, the worker sends a {@link Type#REQUEST} for
+ * each batch of source files, which the coordinator answers with a {@link Type#BATCH}, or with {@link Type#DONE} if
+ * all files are analysed. The worker answers each batch with a {@link Type#RESULT}.
+ */
+@Data
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+class WorkerMessage {
+
+    private Type type;
+
+    private WorkerConfiguration configuration;
+
+    /**
+     * The files of a batch, or the analysed files of a result.
+     */
+    private List<Path> sourceFiles = new ArrayList<>();
+
+    private List<DetectedInstance<Perfume>> detections = new ArrayList<>();
+
+    private List<SkippedAnalysis> skippedAnalyses = new ArrayList<>();
+
+    @NotNull
+    static WorkerMessage of(@NotNull Type type) {
+        return new WorkerMessage().setType(type);
+    }
+
+    enum Type {
+
+        /**
+         * The configuration of the worker's engine.
+         */
+        CONFIGURATION,
+
+        /**
+         * The worker requests the next batch of source files.
+         */
+        REQUEST,
+
+        /**
+         * A batch of source files to analyse.
+         */
+        BATCH,
+
+        /**
+         * The detections, analysed files and skipped analyses of a batch.
+         */
+        RESULT,
+
+        /**
+         * No files are left, the worker exits.
+         */
+        DONE
+    }
+}
@@ -6,8 +6,11 @@ import org.jetbrains.annotations.Nullable;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 
+import de.jsilbereisen.perfumator.engine.Sampling;
 import de.jsilbereisen.perfumator.i18n.Bundles;
 import de.jsilbereisen.perfumator.i18n.BundlesLoader;
+import de.jsilbereisen.perfumator.io.output.OutputFormat;
+import de.jsilbereisen.perfumator.io.output.OutputGenerator;
 import de.jsilbereisen.perfumator.model.EngineConfiguration;
 import de.jsilbereisen.perfumator.util.PathUtil;
 
@@ -15,8 +18,10 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -70,8 +75,23 @@ public class CommandLineHandler {
         Path outputPath = cliInput.getPathToOutputDir();
 
         boolean isInputPathValid = checkInputPath(inputPath);
-        boolean isOutputPathValid = checkOutputPath(outputPath);
-        if (!isInputPathValid || !isOutputPathValid) {
+        boolean isOutputPathValid = checkOutputPath(outputPath, cliInput.isResume());
+        boolean areWorkersValid = cliInput.getWorkers() == 0
+                || (cliInput.getWorkers() > 0 && !cliInput.isResume() && cliInput.getShard() == null);
+        if (!areWorkersValid) {
+            log.error(cliBundle.getString("log.error.invalidWorkers"));
+        }
+        boolean isWatchValid = !cliInput.isWatch() || (inputPath != null && Files.isDirectory(inputPath)
+                && !cliInput.isResume() && cliInput.getShard() == null && cliInput.getWorkers() == 0);
+        if (!isWatchValid) {
+            log.error(cliBundle.getString("log.error.invalidWatch"));
+        }
+        boolean isSampleValid = isSampleValid(cliInput);
+        if (!isSampleValid) {
+            log.error(cliBundle.getString("log.error.invalidSample"));
+        }
+
+        if (!isInputPathValid || !isOutputPathValid || !areWorkersValid || !isWatchValid || !isSampleValid) {
             printHelp();
             log.error("\n" + cliBundle.getString("log.generic.terminate"));
             return null;
@@ -96,9 +116,256 @@ public class CommandLineHandler {
         log.info(cliBundle.getString("log.generic.dependencies"), dependencyPaths);
         engineConfig.setDependencies(cliInput.getDependencies());
 
+        if (!cliInput.getIncludedPerfumes().isEmpty() || !cliInput.getExcludedPerfumes().isEmpty()) {
+            log.info(cliBundle.getString("log.generic.perfumeSelection"), cliInput.getIncludedPerfumes(),
+                    cliInput.getExcludedPerfumes());
+        }
+        engineConfig.includedPerfumes(cliInput.getIncludedPerfumes());
+        engineConfig.excludedPerfumes(cliInput.getExcludedPerfumes());
+
+        if (cliInput.getTypeIndexDirectory() != null) {
+            log.info(cliBundle.getString("log.generic.typeIndex"), cliInput.getTypeIndexDirectory().toAbsolutePath());
+        }
+        engineConfig.typeIndexDirectory(cliInput.getTypeIndexDirectory());
+
+        if (cliInput.isVirtualThreadIo()) {
+            log.info(cliBundle.getString("log.generic.virtualThreads"));
+        }
+        engineConfig.virtualThreadIo(cliInput.isVirtualThreadIo());
+
+        if (cliInput.getDetectorParallelism() > 1) {
+            log.info(cliBundle.getString("log.generic.detectorThreads"), cliInput.getDetectorParallelism());
+        }
+        engineConfig.detectorParallelism(cliInput.getDetectorParallelism());
+
+        if (cliInput.getFileTimeoutSeconds() > 0) {
+            log.info(cliBundle.getString("log.generic.fileTimeout"), cliInput.getFileTimeoutSeconds());
+            engineConfig.fileTimeout(Duration.ofSeconds(cliInput.getFileTimeoutSeconds()));
+        }
+
+        if (cliInput.getDetectorTimeoutSeconds() > 0) {
+            log.info(cliBundle.getString("log.generic.detectorTimeout"), cliInput.getDetectorTimeoutSeconds());
+            engineConfig.detectorTimeout(Duration.ofSeconds(cliInput.getDetectorTimeoutSeconds()));
+        }
+
+        if (cliInput.isContinueOnError()) {
+            log.info(cliBundle.getString("log.generic.continueOnError"));
+        }
+        engineConfig.continueOnError(cliInput.isContinueOnError());
+
+        if (cliInput.isResume()) {
+            log.info(cliBundle.getString("log.generic.resume"));
+        }
+        engineConfig.resume(cliInput.isResume());
+
+        if (cliInput.getShard() != null) {
+            log.info(cliBundle.getString("log.generic.shard"), cliInput.getShard().getIndex(),
+                    cliInput.getShard().getCount());
+        }
+        engineConfig.shard(cliInput.getShard());
+
+        if (cliInput.getWorkers() > 0) {
+            log.info(cliBundle.getString("log.generic.workers"), cliInput.getWorkers());
+        }
+        engineConfig.workers(cliInput.getWorkers());
+
+        if (cliInput.isWatch()) {
+            log.info(cliBundle.getString("log.generic.watch"));
+        }
+        engineConfig.watch(cliInput.isWatch());
+
+        if (cliInput.getSampleFraction() > 0) {
+            // Without a given seed, the seed is random, but still part of the estimates to repeat the sample
+            long seed = cliInput.getSampleSeed() != null ? cliInput.getSampleSeed() : new Random().nextLong();
+            Sampling sampling = Sampling.of(cliInput.getSampleFraction(), seed);
+            if (cliInput.isStratified()) {
+                sampling = sampling.stratifiedByPackage();
+            }
+            if (cliInput.getConfidenceLevel() != null) {
+                sampling = sampling.withConfidenceLevel(cliInput.getConfidenceLevel());
+            }
+
+            log.info(cliBundle.getString("log.generic.sample"), sampling.getFraction(), sampling.getSeed(),
+                    sampling.getConfidenceLevel());
+            if (sampling.isStratified()) {
+                log.info(cliBundle.getString("log.generic.stratify"));
+            }
+            engineConfig.sampling(sampling);
+        }
+
         return engineConfig.build();
     }
 
+    /**
+     * Handles the given input of the {@value MergeCommandInput#COMMAND_NAME} command.
+     *
+     * @return {@code true} if the outputs can be merged, {@code false} if the input is invalid or only the help was
+     * requested.
+     */
+    public boolean handleMergeArguments(@NotNull MergeCommandInput mergeInput) {
+        bundlesLoader.loadCliBundle(cliResourceHolder, mergeInput.getLocale());
+        ResourceBundle cliBundle = cliResourceHolder.getCliBundle();
+
+        if (cliBundle == null) {
+            throw new IllegalStateException("Command-line resources missing.");
+        }
+
+        if (mergeInput.isPrintHelp()) {
+            printHelp();
+            log.info(cliBundle.getString("log.generic.terminate"));
+            return false;
+        }
+
+        boolean areInputPathsValid = true;
+        if (mergeInput.getInputDirectories().isEmpty()) {
+            log.error(cliBundle.getString("log.error.mergeInputsMissing"));
+            areInputPathsValid = false;
+        }
+
+        for (Path inputDirectory : mergeInput.getInputDirectories()) {
+            // Only the output of a completed analysis has a summary
+            if (!Files.isRegularFile(inputDirectory.resolve(OutputGenerator.SUMMARY_FILE_SUFFIX
+                    + OutputFormat.JSON.getFileExtension()))) {
+                log.error(cliBundle.getString("log.error.invalidMergeInput"), inputDirectory);
+                areInputPathsValid = false;
+            }
+        }
+
+        boolean isOutputPathValid = checkOutputPath(mergeInput.getPathToOutputDir(), false);
+        if (!areInputPathsValid || !isOutputPathValid) {
+            printHelp();
+            log.error("\n" + cliBundle.getString("log.generic.terminate"));
+            return false;
+        }
+
+        log.info(cliBundle.getString("log.generic.merge"), mergeInput.getInputDirectories().size(),
+                mergeInput.getPathToOutputDir().toAbsolutePath());
+
+        return true;
+    }
+
+    /**
+     * Handles the given input of the {@value CorpusCommandInput#COMMAND_NAME} command.
+     *
+     * @return {@code true} if the corpus can be analysed, {@code false} if the input is invalid or only the help was
+     * requested.
+     */
+    public boolean handleCorpusArguments(@NotNull CorpusCommandInput corpusInput) {
+        bundlesLoader.loadCliBundle(cliResourceHolder, corpusInput.getLocale());
+        ResourceBundle cliBundle = cliResourceHolder.getCliBundle();
+
+        if (cliBundle == null) {
+            throw new IllegalStateException("Command-line resources missing.");
+        }
+
+        if (corpusInput.isPrintHelp()) {
+            printHelp();
+            log.info(cliBundle.getString("log.generic.terminate"));
+            return false;
+        }
+
+        boolean isManifestValid = corpusInput.getManifest() != null && Files.isRegularFile(corpusInput.getManifest());
+        if (!isManifestValid) {
+            log.error(cliBundle.getString("log.error.invalidCorpusManifest"));
+        }
+
+        boolean areProjectsValid = corpusInput.getConcurrency() > 0;
+        if (!areProjectsValid) {
+            log.error(cliBundle.getString("log.error.invalidCorpusProjects"));
+        }
+
+        boolean isOutputPathValid = checkOutputPath(corpusInput.getPathToOutputDir(), false);
+        if (!isManifestValid || !areProjectsValid || !isOutputPathValid) {
+            printHelp();
+            log.error("\n" + cliBundle.getString("log.generic.terminate"));
+            return false;
+        }
+
+        log.info(cliBundle.getString("log.generic.corpus"), corpusInput.getManifest().toAbsolutePath(),
+                corpusInput.getPathToOutputDir().toAbsolutePath(), corpusInput.getConcurrency());
+
+        return true;
+    }
+
+    /**
+     * Handles the given input of the {@value ServeCommandInput#COMMAND_NAME} command.
+     *
+     * @return {@code true} if the server can be started, {@code false} if the input is invalid or only the help was
+     * requested.
+     */
+    public boolean handleServeArguments(@NotNull ServeCommandInput serveInput) {
+        bundlesLoader.loadCliBundle(cliResourceHolder, serveInput.getLocale());
+        ResourceBundle cliBundle = cliResourceHolder.getCliBundle();
+
+        if (cliBundle == null) {
+            throw new IllegalStateException("Command-line resources missing.");
+        }
+
+        if (serveInput.isPrintHelp()) {
+            printHelp();
+            log.info(cliBundle.getString("log.generic.terminate"));
+            return false;
+        }
+
+        if (serveInput.getPort() < 0 || serveInput.getPort() > 65535) {
+            log.error(cliBundle.getString("log.error.invalidPort"));
+            printHelp();
+            log.error("\n" + cliBundle.getString("log.generic.terminate"));
+            return false;
+        }
+
+        if (!serveInput.getDependencies().isEmpty()) {
+            log.info(cliBundle.getString("log.generic.dependencies"), serveInput.getDependencies());
+        }
+
+        return true;
+    }
+
+    /**
+     * Handles the given input of the {@value LspCommandInput#COMMAND_NAME} command.
+     *
+     * @return {@code true} if the language server can be started, {@code false} if the input is invalid or only the
+     * help was requested.
+     */
+    public boolean handleLspArguments(@NotNull LspCommandInput lspInput) {
+        bundlesLoader.loadCliBundle(cliResourceHolder, lspInput.getLocale());
+        ResourceBundle cliBundle = cliResourceHolder.getCliBundle();
+
+        if (cliBundle == null) {
+            throw new IllegalStateException("Command-line resources missing.");
+        }
+
+        if (lspInput.isPrintHelp()) {
+            printHelp();
+            log.info(cliBundle.getString("log.generic.terminate"));
+            return false;
+        }
+
+        if (lspInput.getDebounceMillis() < 0) {
+            log.error(cliBundle.getString("log.error.invalidDebounce"));
+            printHelp();
+            log.error("\n" + cliBundle.getString("log.generic.terminate"));
+            return false;
+        }
+
+        if (!lspInput.getDependencies().isEmpty()) {
+            log.info(cliBundle.getString("log.generic.dependencies"), lspInput.getDependencies());
+        }
+        log.info(cliBundle.getString("log.generic.lsp"));
+
+        return true;
+    }
+
+    /**
+     * Logs that the server of the {@value ServeCommandInput#COMMAND_NAME} command accepts requests on the given port.
+     */
+    public void logServerStarted(int port) {
+        ResourceBundle cliBundle = cliResourceHolder.getCliBundle();
+        assert cliBundle != null;
+
+        log.info(cliBundle.getString("log.generic.serve"), port);
+    }
+
     /**
      * Gets called when a {@link CmdLineException} is thrown when parsing the command line on application startup.
      * Tries to extract a language option from the command line arguments, to set the {@link Locale} for loading the
@@ -154,7 +421,27 @@ public class CommandLineHandler {
         return true;
     }
 
-    private boolean checkOutputPath(@Nullable Path path) {
+    /**
+     * Checks the sampling options: the fraction and the confidence level have to be within their bounds, the other
+     * options require a fraction, and a sampled analysis requires a directory as input and is not combinable with
+     * the options that analyse the files of the directory in parts.
+     */
+    private boolean isSampleValid(@NotNull CommandLineInput cliInput) {
+        if (cliInput.getSampleFraction() == 0) {
+            return cliInput.getSampleSeed() == null && !cliInput.isStratified() && cliInput.getConfidenceLevel() == null;
+        }
+
+        Double confidenceLevel = cliInput.getConfidenceLevel();
+        Path inputPath = cliInput.getPathToSourceDir();
+
+        return cliInput.getSampleFraction() > 0 && cliInput.getSampleFraction() <= 1
+                && (confidenceLevel == null || (confidenceLevel > 0 && confidenceLevel < 1))
+                && inputPath != null && Files.isDirectory(inputPath)
+                && !cliInput.isResume() && cliInput.getShard() == null && cliInput.getWorkers() == 0
+                && !cliInput.isWatch();
+    }
+
+    private boolean checkOutputPath(@Nullable Path path, boolean resume) {
         ResourceBundle cliBundle = cliResourceHolder.getCliBundle();
         assert cliBundle != null;
 
@@ -168,7 +455,7 @@ public class CommandLineHandler {
         if (!Files.isDirectory(path)) {
             log.error(cliBundle.getString("log.error.invalidOutputPath"));
             return false;
-        } else {
+        } else if (!resume) {
             boolean isNotEmpty = true;
 
             try (Stream<Path> paths = Files.list(path)) {
@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.kohsuke.args4j.Option;
 
+import de.jsilbereisen.perfumator.engine.Shard;
 import de.jsilbereisen.perfumator.io.output.OutputFormat;
 import org.kohsuke.args4j.spi.MultiPathOptionHandler;
 
@@ -50,4 +51,54 @@ public class CommandLineInput {
     @Option(name = "-b", aliases = {"--batch-size"}, metaVar = "option.metaVar.batchSize",
             usage = "option.usage.batchSize")
     private int batchSize = OutputConfiguration.DEFAULT_BATCH_SIZE;
+
+    @Option(name = "--only", metaVar = "option.metaVar.perfumes", usage = "option.usage.only",
+            handler = PerfumeSelectorOptionHandler.class)
+    private List<String> includedPerfumes = new ArrayList<>();
+
+    @Option(name = "--exclude", metaVar = "option.metaVar.perfumes", usage = "option.usage.exclude",
+            handler = PerfumeSelectorOptionHandler.class)
+    private List<String> excludedPerfumes = new ArrayList<>();
+
+    @Option(name = "--type-index", metaVar = "option.metaVar.path", usage = "option.usage.typeIndex")
+    private Path typeIndexDirectory;
+
+    @Option(name = "--virtual-threads", usage = "option.usage.virtualThreads")
+    private boolean virtualThreadIo;
+
+    @Option(name = "--detector-threads", metaVar = "option.metaVar.threads", usage = "option.usage.detectorThreads")
+    private int detectorParallelism = 1;
+
+    @Option(name = "--file-timeout", metaVar = "option.metaVar.seconds", usage = "option.usage.fileTimeout")
+    private int fileTimeoutSeconds;
+
+    @Option(name = "--detector-timeout", metaVar = "option.metaVar.seconds", usage = "option.usage.detectorTimeout")
+    private int detectorTimeoutSeconds;
+
+    @Option(name = "--continue-on-error", usage = "option.usage.continueOnError")
+    private boolean continueOnError;
+
+    @Option(name = "--resume", usage = "option.usage.resume")
+    private boolean resume;
+
+    @Option(name = "--shard", usage = "option.usage.shard", handler = ShardOptionHandler.class)
+    private Shard shard;
+
+    @Option(name = "--workers", metaVar = "option.metaVar.workers", usage = "option.usage.workers")
+    private int workers;
+
+    @Option(name = "--watch", usage = "option.usage.watch")
+    private boolean watch;
+
+    @Option(name = "--sample", metaVar = "option.metaVar.fraction", usage = "option.usage.sample")
+    private double sampleFraction;
+
+    @Option(name = "--sample-seed", metaVar = "option.metaVar.seed", usage = "option.usage.sampleSeed")
+    private Long sampleSeed;
+
+    @Option(name = "--stratify", usage = "option.usage.stratify")
+    private boolean stratified;
+
+    @Option(name = "--confidence", metaVar = "option.metaVar.confidence", usage = "option.usage.confidence")
+    private Double confidenceLevel;
 }
@@ -0,0 +1,70 @@
+package de.jsilbereisen.perfumator.io;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.spi.MultiPathOptionHandler;
+
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Representation of the command line options and arguments of the {@value #COMMAND_NAME} command, which analyses
+ * all projects of a manifest in one process, see {@link de.jsilbereisen.perfumator.engine.corpus.CorpusAnalyser}.
+ */
+@Getter
+@Setter
+public class CorpusCommandInput {
+
+    /**
+     * Name of the command, given as the first command line argument.
+     */
+    public static final String COMMAND_NAME = "corpus";
+
+    @Option(name = "-o", aliases = {"--output-dir"}, metaVar = "option.metaVar.path",
+            usage = "option.usage.corpusOutputDir")
+    private Path pathToOutputDir;
+
+    @Option(name = "-h", aliases = {"--help"},
+            usage = "option.usage.help",
+            help = true)
+    private boolean printHelp;
+
+    @Option(name = "-l", aliases = {"--language"},
+            usage = "option.usage.language",
+            handler = LocaleOptionHandler.class)
+    private Locale locale = LocaleOptionHandler.getDefault();
+
+    @Option(name = "-d", aliases = {"--dependencies"}, metaVar = "option.metaVar.dependencies",
+            usage = "option.usage.dependencies", handler = MultiPathOptionHandler.class)
+    private List<Path> dependencies = new ArrayList<>();
+
+    @Option(name = "-b", aliases = {"--batch-size"}, metaVar = "option.metaVar.batchSize",
+            usage = "option.usage.batchSize")
+    private int batchSize = OutputConfiguration.DEFAULT_BATCH_SIZE;
+
+    @Option(name = "--only", metaVar = "option.metaVar.perfumes", usage = "option.usage.only",
+            handler = PerfumeSelectorOptionHandler.class)
+    private List<String> includedPerfumes = new ArrayList<>();
+
+    @Option(name = "--exclude", metaVar = "option.metaVar.perfumes", usage = "option.usage.exclude",
+            handler = PerfumeSelectorOptionHandler.class)
+    private List<String> excludedPerfumes = new ArrayList<>();
+
+    @Option(name = "--type-index", metaVar = "option.metaVar.path", usage = "option.usage.typeIndex")
+    private Path typeIndexDirectory;
+
+    @Option(name = "--continue-on-error", usage = "option.usage.continueOnError")
+    private boolean continueOnError;
+
+    @Option(name = "--projects", metaVar = "option.metaVar.threads", usage = "option.usage.corpusProjects")
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+
+    @Argument(metaVar = "option.metaVar.path", usage = "option.usage.corpusManifest")
+    private Path manifest;
+}
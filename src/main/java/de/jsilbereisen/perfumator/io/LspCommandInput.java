@@ -0,0 +1,58 @@
+package de.jsilbereisen.perfumator.io;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.spi.MultiPathOptionHandler;
+
+import de.jsilbereisen.perfumator.io.lsp.PerfumeLanguageServer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Representation of the command line options of the {@value #COMMAND_NAME} command, which runs a
+ * {@link PerfumeLanguageServer} on the standard input and output.
+ */
+@Getter
+@Setter
+public class LspCommandInput {
+
+    /**
+     * Name of the command, given as the first command line argument.
+     */
+    public static final String COMMAND_NAME = "lsp";
+
+    @Option(name = "-h", aliases = {"--help"},
+            usage = "option.usage.help",
+            help = true)
+    private boolean printHelp;
+
+    @Option(name = "-l", aliases = {"--language"},
+            usage = "option.usage.language",
+            handler = LocaleOptionHandler.class)
+    private Locale locale = LocaleOptionHandler.getDefault();
+
+    @Option(name = "-d", aliases = {"--dependencies"}, metaVar = "option.metaVar.dependencies",
+            usage = "option.usage.dependencies", handler = MultiPathOptionHandler.class)
+    private List<Path> dependencies = new ArrayList<>();
+
+    @Option(name = "--only", metaVar = "option.metaVar.perfumes", usage = "option.usage.only",
+            handler = PerfumeSelectorOptionHandler.class)
+    private List<String> includedPerfumes = new ArrayList<>();
+
+    @Option(name = "--exclude", metaVar = "option.metaVar.perfumes", usage = "option.usage.exclude",
+            handler = PerfumeSelectorOptionHandler.class)
+    private List<String> excludedPerfumes = new ArrayList<>();
+
+    @Option(name = "--type-index", metaVar = "option.metaVar.path", usage = "option.usage.typeIndex")
+    private Path typeIndexDirectory;
+
+    @Option(name = "--detector-threads", metaVar = "option.metaVar.threads", usage = "option.usage.detectorThreads")
+    private int detectorParallelism = 1;
+
+    @Option(name = "--debounce", metaVar = "option.metaVar.millis", usage = "option.usage.debounce")
+    private long debounceMillis = PerfumeLanguageServer.DEFAULT_DEBOUNCE.toMillis();
+}
@@ -0,0 +1,48 @@
+package de.jsilbereisen.perfumator.io;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Representation of the command line options and arguments of the {@value #COMMAND_NAME} command, which merges the
+ * outputs of multiple analyses, e.g. of the shards of a split analysis, into one output.
+ */
+@Getter
+@Setter
+public class MergeCommandInput {
+
+    /**
+     * Name of the command, given as the first command line argument.
+     */
+    public static final String COMMAND_NAME = "merge";
+
+    @Option(name = "-o", aliases = {"--output-dir"}, metaVar = "option.metaVar.path",
+            usage = "option.usage.mergeOutputDir")
+    private Path pathToOutputDir;
+
+    @Option(name = "-h", aliases = {"--help"},
+            usage = "option.usage.help",
+            help = true)
+    private boolean printHelp;
+
+    @Option(name = "-l", aliases = {"--language"},
+            usage = "option.usage.mergeLanguage",
+            handler = LocaleOptionHandler.class)
+    private Locale locale = LocaleOptionHandler.getDefault();
+
+    @Option(name = "-b", aliases = {"--batch-size"}, metaVar = "option.metaVar.batchSize",
+            usage = "option.usage.batchSize")
+    private int batchSize = OutputConfiguration.DEFAULT_BATCH_SIZE;
+
+    @Argument(metaVar = "option.metaVar.paths", usage = "option.usage.mergeInputDirs", multiValued = true)
+    private List<Path> inputDirectories = new ArrayList<>();
+}
@@ -0,0 +1,48 @@
+package de.jsilbereisen.perfumator.io;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.OptionDef;
+import org.kohsuke.args4j.spi.OptionHandler;
+import org.kohsuke.args4j.spi.Parameters;
+import org.kohsuke.args4j.spi.Setter;
+
+import de.jsilbereisen.perfumator.engine.registry.PerfumeSelection;
+import de.jsilbereisen.perfumator.util.StringUtil;
+
+/**
+ * An {@link OptionHandler} for a list of Perfume selectors, separated by semicolons, like
+ * {@code "Swing timer;BuilderPatternDetector;DESIGN_PATTERN"}.
+ * Each selector is added separately to the list that is annotated with the option.
+ *
+ * @see PerfumeSelection
+ */
+public class PerfumeSelectorOptionHandler extends OptionHandler<String> {
+
+    /**
+     * Separator between the single selectors.
+     */
+    public static final String SELECTOR_SEPARATOR = ";";
+
+    public PerfumeSelectorOptionHandler(CmdLineParser parser, OptionDef option, Setter<? super String> setter) {
+        super(parser, option, setter);
+    }
+
+    @Override
+    public int parseArguments(Parameters params) throws CmdLineException {
+        String selectors = params.getParameter(0);
+
+        for (String selector : selectors.split(SELECTOR_SEPARATOR)) {
+            if (!StringUtil.isEmpty(selector)) {
+                setter.addValue(selector.trim());
+            }
+        }
+
+        return 1;
+    }
+
+    @Override
+    public String getDefaultMetaVariable() {
+        return "option.metaVar.perfumes";
+    }
+}
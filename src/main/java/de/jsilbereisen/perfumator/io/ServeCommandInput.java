@@ -0,0 +1,61 @@
+package de.jsilbereisen.perfumator.io;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.spi.MultiPathOptionHandler;
+
+import de.jsilbereisen.perfumator.io.server.AnalysisServer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Representation of the command line options of the {@value #COMMAND_NAME} command, which runs an
+ * {@link AnalysisServer}.
+ */
+@Getter
+@Setter
+public class ServeCommandInput {
+
+    /**
+     * Name of the command, given as the first command line argument.
+     */
+    public static final String COMMAND_NAME = "serve";
+
+    @Option(name = "-p", aliases = {"--port"}, metaVar = "option.metaVar.port", usage = "option.usage.port")
+    private int port = AnalysisServer.DEFAULT_PORT;
+
+    @Option(name = "-h", aliases = {"--help"},
+            usage = "option.usage.help",
+            help = true)
+    private boolean printHelp;
+
+    @Option(name = "-l", aliases = {"--language"},
+            usage = "option.usage.language",
+            handler = LocaleOptionHandler.class)
+    private Locale locale = LocaleOptionHandler.getDefault();
+
+    @Option(name = "-d", aliases = {"--dependencies"}, metaVar = "option.metaVar.dependencies",
+            usage = "option.usage.dependencies", handler = MultiPathOptionHandler.class)
+    private List<Path> dependencies = new ArrayList<>();
+
+    @Option(name = "--only", metaVar = "option.metaVar.perfumes", usage = "option.usage.only",
+            handler = PerfumeSelectorOptionHandler.class)
+    private List<String> includedPerfumes = new ArrayList<>();
+
+    @Option(name = "--exclude", metaVar = "option.metaVar.perfumes", usage = "option.usage.exclude",
+            handler = PerfumeSelectorOptionHandler.class)
+    private List<String> excludedPerfumes = new ArrayList<>();
+
+    @Option(name = "--type-index", metaVar = "option.metaVar.path", usage = "option.usage.typeIndex")
+    private Path typeIndexDirectory;
+
+    @Option(name = "--detector-threads", metaVar = "option.metaVar.threads", usage = "option.usage.detectorThreads")
+    private int detectorParallelism = 1;
+
+    @Option(name = "--continue-on-error", usage = "option.usage.continueOnError")
+    private boolean continueOnError;
+}
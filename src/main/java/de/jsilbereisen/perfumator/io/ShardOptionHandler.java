@@ -0,0 +1,38 @@
+package de.jsilbereisen.perfumator.io;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.OptionDef;
+import org.kohsuke.args4j.spi.OptionHandler;
+import org.kohsuke.args4j.spi.Parameters;
+import org.kohsuke.args4j.spi.Setter;
+
+import de.jsilbereisen.perfumator.engine.Shard;
+
+/**
+ * An {@link OptionHandler} for a {@link Shard}, given like {@code "2/4"}.
+ */
+public class ShardOptionHandler extends OptionHandler<Shard> {
+
+    public ShardOptionHandler(CmdLineParser parser, OptionDef option, Setter<? super Shard> setter) {
+        super(parser, option, setter);
+    }
+
+    @Override
+    public int parseArguments(Parameters params) throws CmdLineException {
+        String shard = params.getParameter(0);
+
+        try {
+            setter.addValue(Shard.parse(shard));
+        } catch (IllegalArgumentException e) {
+            throw new CmdLineException(owner, e.getMessage(), e);
+        }
+
+        return 1;
+    }
+
+    @Override
+    public String getDefaultMetaVariable() {
+        return "option.metaVar.shard";
+    }
+}
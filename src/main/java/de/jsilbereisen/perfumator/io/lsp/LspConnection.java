@@ -0,0 +1,153 @@
+package de.jsilbereisen.perfumator.io.lsp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Connection to a client of the <i>Language Server Protocol</i>: reads and writes <i>JSON-RPC</i> messages, which
+ * are framed by a {@code Content-Length} header. Messages can be written from any thread.
+ */
+public class LspConnection {
+
+    private static final String CONTENT_LENGTH = "Content-Length:";
+
+    private static final JsonMapper MAPPER = new JsonMapper();
+
+    @NotNull
+    private final InputStream input;
+
+    @NotNull
+    private final OutputStream output;
+
+    public LspConnection(@NotNull InputStream input, @NotNull OutputStream output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    /**
+     * Returns the mapper, which creates the nodes of messages.
+     */
+    @NotNull
+    public static JsonMapper getMapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Reads the next message.
+     *
+     * @return The message, or {@code null} if the client closed the connection between two messages.
+     * @throws IOException If the message can not be read or is malformed, e.g. if the client closed the connection
+     *                     within it.
+     */
+    @Nullable
+    public JsonNode read() throws IOException {
+        int contentLength = -1;
+
+        String header = readHeaderLine(true);
+        if (header == null) {
+            return null;
+        }
+
+        for (; !header.isEmpty(); header = readHeaderLine(false)) {
+            if (header.regionMatches(true, 0, CONTENT_LENGTH, 0, CONTENT_LENGTH.length())) {
+                contentLength = Integer.parseInt(header.substring(CONTENT_LENGTH.length()).trim());
+            }
+        }
+
+        if (contentLength < 0) {
+            throw new IOException("Message without content length.");
+        }
+
+        return MAPPER.readTree(input.readNBytes(contentLength));
+    }
+
+    /**
+     * Sends the result of the request with the given id.
+     */
+    public void respond(@NotNull JsonNode id, @Nullable Object result) throws IOException {
+        ObjectNode response = MAPPER.createObjectNode().put("jsonrpc", "2.0");
+        response.set("id", id);
+        response.set("result", MAPPER.valueToTree(result));
+
+        write(response);
+    }
+
+    /**
+     * Sends an error as response to the request with the given id.
+     *
+     * @param code The error code of <i>JSON-RPC</i>, e.g. {@code -32601} for an unknown method.
+     */
+    public void respondWithError(@NotNull JsonNode id, int code, @NotNull String message) throws IOException {
+        ObjectNode response = MAPPER.createObjectNode().put("jsonrpc", "2.0");
+        response.set("id", id);
+        response.putObject("error").put("code", code).put("message", message);
+
+        write(response);
+    }
+
+    /**
+     * Sends a notification with the given method and parameters.
+     */
+    public void notify(@NotNull String method, @NotNull Object params) throws IOException {
+        ObjectNode notification = MAPPER.createObjectNode().put("jsonrpc", "2.0").put("method", method);
+        notification.set("params", MAPPER.valueToTree(params));
+
+        write(notification);
+    }
+
+    /**
+     * Sends a request of the server to the client, with the given id, method and parameters. The response of the
+     * client is {@link #read read} like any other message.
+     */
+    public void request(@NotNull String id, @NotNull String method, @NotNull Object params) throws IOException {
+        ObjectNode request = MAPPER.createObjectNode().put("jsonrpc", "2.0").put("id", id).put("method", method);
+        request.set("params", MAPPER.valueToTree(params));
+
+        write(request);
+    }
+
+    private synchronized void write(@NotNull JsonNode message) throws IOException {
+        byte[] content = MAPPER.writeValueAsBytes(message);
+
+        output.write((CONTENT_LENGTH + " " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        output.write(content);
+        output.flush();
+    }
+
+    /**
+     * Reads a header line, which ends with {@code \r\n}, without the line break.
+     *
+     * @param first Whether the line is the first one of a message, before which the client may close the connection.
+     * @return The line, or {@code null} if it is the first one and the client closed the connection before it.
+     * @throws EOFException If the client closed the connection within a message.
+     */
+    @Nullable
+    private String readHeaderLine(boolean first) throws IOException {
+        StringBuilder line = new StringBuilder();
+
+        int character;
+        while ((character = input.read()) != '\n') {
+            if (character < 0) {
+                if (first && line.isEmpty()) {
+                    return null;
+                }
+
+                throw new EOFException();
+            }
+            if (character != '\r') {
+                line.append((char) character);
+            }
+        }
+
+        return line.toString();
+    }
+}
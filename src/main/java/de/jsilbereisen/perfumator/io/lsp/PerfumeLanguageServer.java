@@ -0,0 +1,520 @@
+package de.jsilbereisen.perfumator.io.lsp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import de.jsilbereisen.perfumator.engine.AnalysisCancelledException;
+import de.jsilbereisen.perfumator.engine.AnalysisDeadline;
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.context.ProjectModules;
+import de.jsilbereisen.perfumator.model.CodeRange;
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Language server that reports the {@link Perfume}s of the Java documents that are open in an editor, as
+ * diagnostics with the severity <i>hint</i> and as code lenses. Speaks the <i>Language Server Protocol</i> over the
+ * given streams, usually the standard input and output of the process.<br/>
+ * The server keeps one warm {@link PerfumeDetectionEngine} and analyses the in-memory content of a document, not the
+ * file on disk, so the detections follow the unsaved edits. An analysis starts once a document was not changed for
+ * the debounce period; a change within that period postpones it, and a run that is overtaken by a newer version of
+ * its document is cancelled before its next detector or type resolution, see {@link AnalysisDeadline}. The documents
+ * are analysed one after another, as the engine is not thread-safe. Documents within the root of the workspace are
+ * analysed with the cached context of the workspace, so that symbols of the other files of the project are
+ * resolved.<br/>
+ * The context of the workspace is updated when a document is saved, and when the client reports changed files of the
+ * workspace, for which the server registers if the client supports it. Then the open documents of the workspace are
+ * analysed again, as their symbols might resolve differently.
+ */
+@Slf4j
+public class PerfumeLanguageServer {
+
+    /**
+     * Default period, for which a document must not have changed before it is analysed.
+     */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(300);
+
+    /**
+     * Name of the server, which is the source of its diagnostics.
+     */
+    public static final String NAME = "perfumator";
+
+    private static final int METHOD_NOT_FOUND = -32601;
+
+    private static final int SERVER_NOT_INITIALIZED = -32002;
+
+    private static final int SEVERITY_HINT = 4;
+
+    private static final int FULL_SYNC = 1;
+
+    private static final int FILE_CHANGED = 2;
+
+    private static final String WATCHED_FILES_REGISTRATION = "perfumator-watched-files";
+
+    /**
+     * Glob patterns of the files, whose changes the server registers for: the Java source files and the build files
+     * of {@link ProjectModules}, which determine the context of the workspace.
+     */
+    private static final List<String> WATCHED_FILES = List.of("**/*.java", "**/" + ProjectModules.POM_FILE,
+            "**/*.gradle", "**/*.gradle.kts");
+
+    @NotNull
+    private final PerfumeDetectionEngine engine;
+
+    @NotNull
+    private final LspConnection connection;
+
+    @NotNull
+    private final Duration debounce;
+
+    @NotNull
+    private final ScheduledExecutorService analysisExecutor;
+
+    /**
+     * The open documents by their URI. Guarded by itself.
+     */
+    @NotNull
+    private final Map<String, Document> documents = new HashMap<>();
+
+    @Nullable
+    private volatile Path workspaceRoot;
+
+    private boolean initialized;
+
+    /**
+     * Whether the client supports the dynamic registration of watched files.
+     */
+    private boolean watchedFilesRegistration;
+
+    private boolean shutdownRequested;
+
+    /**
+     * Constructor.
+     *
+     * @param engine   The engine that analyses the documents. Is not closed by the server.
+     * @param input    The stream that the client writes its messages to.
+     * @param output   The stream that the server writes its messages to.
+     * @param debounce The period, for which a document must not have changed before it is analysed.
+     */
+    public PerfumeLanguageServer(@NotNull PerfumeDetectionEngine engine, @NotNull InputStream input,
+                                 @NotNull OutputStream output, @NotNull Duration debounce) {
+        this.engine = engine;
+        this.connection = new LspConnection(input, output);
+        this.debounce = debounce;
+
+        analysisExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "perfumator-lsp");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Handles the messages of the client until it sends the {@code exit} notification or closes the connection.
+     *
+     * @return {@code true} if the client requested a shutdown before it exited, as the protocol demands.
+     * @throws IOException If a message can not be read or written.
+     */
+    public boolean run() throws IOException {
+        try {
+            JsonNode message;
+            while ((message = connection.read()) != null) {
+                String method = message.path("method").asText();
+                if ("exit".equals(method)) {
+                    break;
+                }
+
+                handle(message, method);
+            }
+
+            return shutdownRequested;
+        } finally {
+            analysisExecutor.shutdownNow();
+        }
+    }
+
+    private void handle(@NotNull JsonNode message, @NotNull String method) throws IOException {
+        JsonNode id = message.get("id");
+        JsonNode params = message.path("params");
+
+        if (!message.has("method")) {
+            // A response of the client to a request of the server, e.g. to the registration of the watched files
+            return;
+        }
+
+        if (!initialized && !"initialize".equals(method)) {
+            if (id != null) {
+                connection.respondWithError(id, SERVER_NOT_INITIALIZED, "The server is not initialized.");
+            }
+            return;
+        }
+
+        switch (method) {
+            case "initialize" -> {
+                initialized = true;
+                workspaceRoot = readWorkspaceRoot(params);
+                watchedFilesRegistration = params.at("/capabilities/workspace/didChangeWatchedFiles"
+                        + "/dynamicRegistration").asBoolean();
+                connection.respond(id, createInitializeResult());
+            }
+            case "initialized" -> registerWatchedFiles();
+            case "shutdown" -> {
+                shutdownRequested = true;
+                connection.respond(id, null);
+            }
+            case "textDocument/didOpen" -> {
+                JsonNode document = params.path("textDocument");
+                update(document.path("uri").asText(), document.path("version").asInt(),
+                        document.path("text").asText());
+            }
+            case "textDocument/didChange" -> {
+                // Only full synchronisation is announced, so the last change holds the whole text
+                JsonNode changes = params.path("contentChanges");
+                if (!changes.isEmpty()) {
+                    JsonNode document = params.path("textDocument");
+                    update(document.path("uri").asText(), document.path("version").asInt(),
+                            changes.get(changes.size() - 1).path("text").asText());
+                }
+            }
+            case "textDocument/didClose" -> close(params.path("textDocument").path("uri").asText());
+            case "textDocument/didSave" -> workspaceChanged(
+                    List.of(toPath(params.path("textDocument").path("uri").asText())), false);
+            case "workspace/didChangeWatchedFiles" -> {
+                List<Path> files = new ArrayList<>();
+                boolean filesAddedOrDeleted = false;
+                for (JsonNode change : params.path("changes")) {
+                    files.add(toPath(change.path("uri").asText()));
+                    filesAddedOrDeleted |= change.path("type").asInt() != FILE_CHANGED;
+                }
+
+                workspaceChanged(files, filesAddedOrDeleted);
+            }
+            case "textDocument/codeLens" -> connection.respond(id,
+                    createCodeLenses(params.path("textDocument").path("uri").asText()));
+            default -> {
+                // Notifications that the server does not know, like "$/setTrace", are ignored
+                if (id != null) {
+                    connection.respondWithError(id, METHOD_NOT_FOUND, "Method not supported: " + method);
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private static ObjectNode createInitializeResult() {
+        ObjectNode result = LspConnection.getMapper().createObjectNode();
+
+        ObjectNode capabilities = result.putObject("capabilities");
+        ObjectNode textDocumentSync = capabilities.putObject("textDocumentSync")
+                .put("openClose", true)
+                .put("change", FULL_SYNC);
+        textDocumentSync.putObject("save").put("includeText", false);
+        capabilities.putObject("codeLensProvider").put("resolveProvider", false);
+
+        result.putObject("serverInfo").put("name", NAME);
+
+        return result;
+    }
+
+    @Nullable
+    private static Path readWorkspaceRoot(@NotNull JsonNode params) {
+        String rootUri = params.path("rootUri").asText(null);
+        JsonNode workspaceFolders = params.path("workspaceFolders");
+        if (rootUri == null && workspaceFolders.isArray() && !workspaceFolders.isEmpty()) {
+            rootUri = workspaceFolders.get(0).path("uri").asText(null);
+        }
+
+        Path root = rootUri != null ? toPath(rootUri) : null;
+        return root != null && root.isAbsolute() && Files.isDirectory(root) ? root : null;
+    }
+
+    /**
+     * Registers the server for the changes of the files of the workspace, if the client supports it.
+     */
+    private void registerWatchedFiles() throws IOException {
+        if (!watchedFilesRegistration || workspaceRoot == null) {
+            return;
+        }
+
+        ObjectNode params = LspConnection.getMapper().createObjectNode();
+        ObjectNode registration = params.putArray("registrations").addObject()
+                .put("id", WATCHED_FILES_REGISTRATION)
+                .put("method", "workspace/didChangeWatchedFiles");
+        ArrayNode watchers = registration.putObject("registerOptions").putArray("watchers");
+        WATCHED_FILES.forEach(pattern -> watchers.addObject().put("globPattern", pattern));
+
+        connection.request(WATCHED_FILES_REGISTRATION, "client/registerCapability", params);
+    }
+
+    /**
+     * Stores the given version of a document and schedules its analysis, which replaces a pending one.
+     */
+    private void update(@NotNull String uri, int version, @NotNull String text) {
+        synchronized (documents) {
+            Document document = documents.computeIfAbsent(uri, key -> new Document());
+            document.version = version;
+            document.text = text;
+
+            scheduleAnalysis(uri, document);
+        }
+    }
+
+    /**
+     * Updates the context of the workspace after the given files were saved or changed on disk, and schedules the
+     * analyses of the open documents of the workspace. If files were added or deleted, or a build file changed, the
+     * context is discarded, as its source roots might have changed. Otherwise, only its caches are cleared.
+     *
+     * @param files               The saved or changed files.
+     * @param filesAddedOrDeleted Whether some of the files were added or deleted.
+     */
+    private void workspaceChanged(@NotNull List<Path> files, boolean filesAddedOrDeleted) {
+        Path root = workspaceRoot;
+        List<Path> changedFiles = root != null ? files.stream().filter(file -> file.startsWith(root)).toList()
+                : List.of();
+        if (changedFiles.isEmpty()) {
+            return;
+        }
+
+        boolean layoutChanged = filesAddedOrDeleted
+                || changedFiles.stream().anyMatch(file -> !file.toString().endsWith(".java"));
+
+        // On the thread of the analyses, as the engine is not thread-safe, and before the scheduled analyses
+        analysisExecutor.execute(() -> {
+            try {
+                if (layoutChanged) {
+                    engine.invalidate(root);
+                } else {
+                    engine.refresh(root);
+                }
+            } catch (RuntimeException e) {
+                log.error("Context of the workspace " + root + " could not be updated: " + e.getMessage(), e);
+            }
+        });
+
+        synchronized (documents) {
+            documents.forEach((uri, document) -> {
+                if (toPath(uri).startsWith(root)) {
+                    scheduleAnalysis(uri, document);
+                }
+            });
+        }
+    }
+
+    /**
+     * Schedules the analysis of the current version of the given document, which replaces a pending one. Must be
+     * called while holding the lock of the documents.
+     */
+    private void scheduleAnalysis(@NotNull String uri, @NotNull Document document) {
+        if (document.pendingAnalysis != null) {
+            document.pendingAnalysis.cancel(false);
+        }
+
+        int version = document.version;
+        document.pendingAnalysis = analysisExecutor.schedule(() -> analyse(uri, version),
+                debounce.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void close(@NotNull String uri) throws IOException {
+        synchronized (documents) {
+            Document document = documents.remove(uri);
+            if (document == null) {
+                return;
+            }
+            if (document.pendingAnalysis != null) {
+                document.pendingAnalysis.cancel(false);
+            }
+        }
+
+        publishDiagnostics(uri, List.of());
+    }
+
+    /**
+     * Analyses the given version of a document and publishes its diagnostics, unless the document was changed or
+     * closed in the meantime.
+     */
+    private void analyse(@NotNull String uri, int version) {
+        String text;
+        synchronized (documents) {
+            if (isStale(uri, version)) {
+                return;
+            }
+            text = documents.get(uri).text;
+        }
+
+        Path fileName = toPath(uri);
+        Path root = workspaceRoot;
+        Path sources = root != null && fileName.startsWith(root) ? root : null;
+
+        List<DetectedInstance<Perfume>> detections;
+        try {
+            detections = engine.detectInSource(text, fileName, sources, () -> isStale(uri, version)).getDetections();
+        } catch (AnalysisCancelledException e) {
+            log.debug("Analysis of " + uri + " was cancelled, as the document was changed or closed.");
+            return;
+        } catch (RuntimeException e) {
+            log.error("Analysis of " + uri + " failed: " + e.getMessage(), e);
+            return;
+        }
+
+        synchronized (documents) {
+            if (isStale(uri, version)) {
+                return;
+            }
+            documents.get(uri).detections = detections;
+        }
+
+        try {
+            publishDiagnostics(uri, detections);
+        } catch (IOException e) {
+            log.error("Diagnostics of " + uri + " could not be published: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns whether the given version of a document is outdated, as the document was changed or closed.
+     */
+    private boolean isStale(@NotNull String uri, int version) {
+        synchronized (documents) {
+            Document document = documents.get(uri);
+            return document == null || document.version != version;
+        }
+    }
+
+    private void publishDiagnostics(@NotNull String uri, @NotNull List<DetectedInstance<Perfume>> detections)
+            throws IOException {
+        ObjectNode params = LspConnection.getMapper().createObjectNode().put("uri", uri);
+        ArrayNode diagnostics = params.putArray("diagnostics");
+
+        for (DetectedInstance<Perfume> detection : detections) {
+            Perfume perfume = detection.getDetectable();
+            String name = perfume != null ? perfume.getName() : NAME;
+
+            for (CodeRange codeRange : codeRangesOf(detection)) {
+                ObjectNode diagnostic = diagnostics.addObject();
+                diagnostic.set("range", toRange(codeRange));
+                diagnostic.put("severity", SEVERITY_HINT)
+                        .put("source", NAME)
+                        .put("code", name)
+                        .put("message", perfume != null && perfume.getDescription() != null
+                                ? name + ": " + perfume.getDescription() : name);
+            }
+        }
+
+        connection.notify("textDocument/publishDiagnostics", params);
+    }
+
+    @NotNull
+    private ArrayNode createCodeLenses(@NotNull String uri) {
+        List<DetectedInstance<Perfume>> detections;
+        synchronized (documents) {
+            Document document = documents.get(uri);
+            detections = document != null ? document.detections : List.of();
+        }
+
+        ArrayNode codeLenses = LspConnection.getMapper().createArrayNode();
+        for (DetectedInstance<Perfume> detection : detections) {
+            Perfume perfume = detection.getDetectable();
+            List<CodeRange> codeRanges = codeRangesOf(detection);
+
+            // One lens per detection, above its first range
+            ObjectNode codeLens = codeLenses.addObject();
+            codeLens.set("range", toRange(codeRanges.get(0)));
+            codeLens.putObject("command")
+                    .put("title", perfume != null ? perfume.getName() : NAME)
+                    .put("command", "");
+        }
+
+        return codeLenses;
+    }
+
+    /**
+     * Returns the code ranges of the given detection, or the first line if it has none.
+     */
+    @NotNull
+    private static List<CodeRange> codeRangesOf(@NotNull DetectedInstance<Perfume> detection) {
+        if (detection.getCodeRanges().isEmpty()) {
+            return List.of(CodeRange.of(1, 1));
+        }
+
+        return List.copyOf(detection.getCodeRanges());
+    }
+
+    /**
+     * Converts a code range, with lines and columns that start at 1, to a range of the protocol, whose positions
+     * start at 0 and whose end is exclusive. A range without columns spans its whole lines.
+     */
+    @NotNull
+    private static ObjectNode toRange(@NotNull CodeRange codeRange) {
+        boolean hasColumns = codeRange.getBeginColumn() > 0 && codeRange.getEndColumn() > 0;
+
+        ObjectNode range = LspConnection.getMapper().createObjectNode();
+        range.putObject("start")
+                .put("line", Math.max(codeRange.getBeginLine() - 1, 0))
+                .put("character", hasColumns ? codeRange.getBeginColumn() - 1 : 0);
+
+        if (hasColumns) {
+            range.putObject("end")
+                    .put("line", Math.max(codeRange.getEndLine() - 1, 0))
+                    .put("character", codeRange.getEndColumn());
+        } else {
+            range.putObject("end").put("line", Math.max(codeRange.getEndLine(), 1)).put("character", 0);
+        }
+
+        return range;
+    }
+
+    /**
+     * Returns the path of the given document URI, or its last segment as file name if it is not a {@code file} URI,
+     * e.g. of an unsaved document.
+     */
+    @NotNull
+    private static Path toPath(@NotNull String uri) {
+        try {
+            URI parsedUri = URI.create(uri);
+            if ("file".equals(parsedUri.getScheme())) {
+                return Path.of(parsedUri);
+            }
+
+            String path = parsedUri.getPath() != null ? parsedUri.getPath() : parsedUri.getSchemeSpecificPart();
+            return Path.of(path.substring(path.lastIndexOf('/') + 1));
+        } catch (IllegalArgumentException e) {
+            return Path.of(uri.substring(uri.lastIndexOf('/') + 1));
+        }
+    }
+
+    /**
+     * State of an open document.
+     */
+    private static class Document {
+
+        private int version;
+
+        private String text;
+
+        @NotNull
+        private List<DetectedInstance<Perfume>> detections = List.of();
+
+        @Nullable
+        private ScheduledFuture<?> pendingAnalysis;
+    }
+}
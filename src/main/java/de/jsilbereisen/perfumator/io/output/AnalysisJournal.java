@@ -0,0 +1,237 @@
+package de.jsilbereisen.perfumator.io.output;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.Data;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import de.jsilbereisen.perfumator.model.SkippedAnalysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Write-ahead journal of an analysis whose detections are serialized to an output directory, so that an interrupted
+ * analysis can be resumed instead of starting over.<br/>
+ * The journal is a file of JSON lines in the output directory. A line is appended for each analysed source file, with
+ * the names of the detected Perfumes and the skipped detectors, and a commit line with the number of the last listing
+ * after each time the listings are written. The journal is only forced to the disk on commit. A file is completed once
+ * a commit follows its line: its detections are in the listings, and its statistics can be restored by replaying its
+ * line. Lines after the last commit are discarded on {@link #resume}, their files are analysed again.
+ */
+@Slf4j
+public class AnalysisJournal implements Closeable {
+
+    public static final String JOURNAL_FILE_NAME = "journal.jsonl";
+
+    private static final JsonMapper MAPPER = new JsonMapper();
+
+    @NotNull
+    private final Path file;
+
+    @NotNull
+    private final FileChannel channel;
+
+    @NotNull
+    private final OutputStream out;
+
+    /**
+     * The completed files of the interrupted analysis, in the order in which they were completed. Empty for a new
+     * journal.
+     */
+    @Getter
+    @NotNull
+    @Unmodifiable
+    private final List<Entry> completedFiles;
+
+    /**
+     * Number of the last listing that was written in the interrupted analysis, {@code 0} for a new journal.
+     */
+    @Getter
+    private final int lastListingNumber;
+
+    private AnalysisJournal(@NotNull Path file, @NotNull FileChannel channel, @NotNull List<Entry> completedFiles,
+                            int lastListingNumber) {
+        this.file = file;
+        this.channel = channel;
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel));
+        this.completedFiles = Collections.unmodifiableList(completedFiles);
+        this.lastListingNumber = lastListingNumber;
+    }
+
+    /**
+     * Creates a new, empty journal in the given output directory. An existing journal is overwritten.
+     *
+     * @param outputDirectory The output directory of the analysis.
+     * @return The journal.
+     * @throws IOException If the journal can not be created.
+     */
+    @NotNull
+    public static AnalysisJournal create(@NotNull Path outputDirectory) throws IOException {
+        Path file = outputDirectory.resolve(JOURNAL_FILE_NAME);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        return new AnalysisJournal(file, channel, new ArrayList<>(), 0);
+    }
+
+    /**
+     * Opens the journal of an interrupted analysis in the given output directory, to continue it. Reads the completed
+     * files and discards the lines after the last commit.
+     *
+     * @param outputDirectory The output directory of the interrupted analysis.
+     * @return The journal, or an empty optional if the directory contains no journal.
+     * @throws IOException If the journal can not be read.
+     */
+    @NotNull
+    public static Optional<AnalysisJournal> resume(@NotNull Path outputDirectory) throws IOException {
+        Path file = outputDirectory.resolve(JOURNAL_FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+
+        List<Entry> completedFiles = new ArrayList<>();
+        List<Entry> uncommittedFiles = new ArrayList<>();
+        int lastListingNumber = 0;
+        long committedLength = 0;
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long length = 0;
+            int next;
+
+            while ((next = in.read()) >= 0) {
+                length++;
+                if (next != '\n') {
+                    line.write(next);
+                    continue;
+                }
+
+                Entry entry;
+                try {
+                    entry = MAPPER.readValue(line.toByteArray(), Entry.class);
+                } catch (JsonProcessingException e) {
+                    log.debug("Unreadable line in the journal " + file + ", discarding the rest.", e);
+                    break;
+                }
+                line.reset();
+
+                if (entry.getType() == Entry.Type.COMMIT) {
+                    completedFiles.addAll(uncommittedFiles);
+                    uncommittedFiles.clear();
+                    lastListingNumber = entry.getLastListingNumber();
+                    committedLength = length;
+                } else {
+                    uncommittedFiles.add(entry);
+                }
+            }
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        channel.truncate(committedLength);
+        channel.position(committedLength);
+
+        return Optional.of(new AnalysisJournal(file, channel, completedFiles, lastListingNumber));
+    }
+
+    /**
+     * Records an analysed source file. The file is completed with the next {@link #commit}.
+     *
+     * @param sourceFile       The file.
+     * @param detectedPerfumes Names of the Perfumes of all detections in the file, one for each detection.
+     * @param skippedAnalyses  The detectors that were skipped for the file.
+     * @throws IOException If the journal can not be written.
+     */
+    public void fileAnalysed(@NotNull Path sourceFile, @NotNull List<String> detectedPerfumes,
+                             @NotNull List<SkippedAnalysis> skippedAnalyses) throws IOException {
+        write(new Entry().setType(Entry.Type.FILE).setSourceFile(sourceFile).setDetectedPerfumes(detectedPerfumes)
+                .setSkippedAnalyses(skippedAnalyses));
+    }
+
+    /**
+     * Completes all analysed files since the last commit, after their detections were written to the listings, and
+     * forces the journal to the disk.
+     *
+     * @param lastListingNumber Number of the last written listing.
+     * @throws IOException If the journal can not be written.
+     */
+    public void commit(int lastListingNumber) throws IOException {
+        write(new Entry().setType(Entry.Type.COMMIT).setLastListingNumber(lastListingNumber));
+
+        out.flush();
+        channel.force(false);
+    }
+
+    /**
+     * Closes and deletes the journal, when the analysis is complete.
+     *
+     * @throws IOException If the journal can not be deleted.
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            out.close();
+        }
+    }
+
+    private void write(@NotNull Entry entry) throws IOException {
+        out.write(MAPPER.writeValueAsBytes(entry));
+        out.write('\n');
+    }
+
+    /**
+     * A line of the journal.
+     */
+    @Data
+    @Accessors(chain = true)
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class Entry {
+
+        private Type type;
+
+        private Path sourceFile;
+
+        private List<String> detectedPerfumes = new ArrayList<>();
+
+        private List<SkippedAnalysis> skippedAnalyses = new ArrayList<>();
+
+        private int lastListingNumber;
+
+        public enum Type {
+
+            /**
+             * An analysed source file.
+             */
+            FILE,
+
+            /**
+             * Completes the preceding files.
+             */
+            COMMIT
+        }
+    }
+}
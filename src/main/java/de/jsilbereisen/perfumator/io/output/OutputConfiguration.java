@@ -43,6 +43,12 @@ public class OutputConfiguration {
 
     private boolean statisticsOnly = false;
 
+    /**
+     * Whether to resume an interrupted analysis with its output in the output directory, see
+     * {@link AnalysisJournal}.
+     */
+    private boolean resume = false;
+
     private OutputConfiguration(@NotNull Path outputDirectory) {
         if (!Files.isDirectory(outputDirectory)) {
             throw new IllegalArgumentException("Path does not represent an existing directory.");
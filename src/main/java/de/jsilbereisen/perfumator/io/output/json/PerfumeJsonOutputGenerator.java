@@ -1,6 +1,7 @@
 package de.jsilbereisen.perfumator.io.output.json;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -13,13 +14,32 @@ import de.jsilbereisen.perfumator.model.perfume.Perfume;
 import de.jsilbereisen.perfumator.util.JsonDeserializationUtil;
 
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Serializes the detections of {@link Perfume}s to JSON listings of at most {@link OutputConfiguration#getBatchSize()}
+ * detections, and the {@link StatisticsSummary} to a JSON summary.<br/>
+ * Listings are written atomically: a listing is written to a temporary file first, which then replaces the listing.
+ * Like that, a listing that was written before is never lost or truncated if the analysis is interrupted, so that the
+ * analysis can be {@link #resume resumed}.
+ */
 public class PerfumeJsonOutputGenerator extends JsonOutputGenerator<Perfume> {
 
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    /**
+     * Number of the last written listing, {@code 0} if none was written yet. The first listing is numbered
+     * {@code 1}, but it is named without its number until a second listing is written.
+     */
+    @Getter
     private int lastListingNumber = 0;
 
     public PerfumeJsonOutputGenerator(@NotNull OutputConfiguration config, @Nullable Bundles bundles) {
@@ -32,12 +52,9 @@ public class PerfumeJsonOutputGenerator extends JsonOutputGenerator<Perfume> {
             throw new IllegalStateException("Mal-configured instance. Output path must be an existing directory!");
         }
 
-        if (lastListingNumber == 1) {
-            renameLonelyListing();
-        }
-
         if (lastListingNumber > 0) {
-            List<DetectedInstance<Perfume>> deserialized = readAndDeleteIfNotFull(lastListingNumber);
+            // The listing is replaced by the one that contains its detections and the new ones
+            List<DetectedInstance<Perfume>> deserialized = readIfNotFull(lastListingNumber == 1 ? 0 : lastListingNumber);
             if (!deserialized.isEmpty()) {
                 detectedInstances.addAll(deserialized);
                 lastListingNumber--;
@@ -48,29 +65,121 @@ public class PerfumeJsonOutputGenerator extends JsonOutputGenerator<Perfume> {
 
         int numberOfOutputFilesToCreate = detectedInstances.size() / config.getBatchSize();
         numberOfOutputFilesToCreate += detectedInstances.size() % config.getBatchSize() > 0 ? 1 : 0;
+        if (numberOfOutputFilesToCreate == 0) {
+            return;
+        }
 
-        if (numberOfOutputFilesToCreate == 1) {
-            createSingleListing(detectedInstances, lastListingNumber == 0 ? lastListingNumber : lastListingNumber + 1);
-            lastListingNumber++;
-        } else {
-            createMultipleListings(detectedInstances, numberOfOutputFilesToCreate, lastListingNumber + 1);
-            lastListingNumber += numberOfOutputFilesToCreate;
+        if (lastListingNumber == 0 && numberOfOutputFilesToCreate == 1) {
+            createSingleListing(detectedInstances, 0);
+            lastListingNumber = 1;
+            return;
+        }
+
+        // The first listing gets its number as soon as there is a second one
+        if (Files.exists(config.getOutputDirectory().resolve(listingFileName(0)))) {
+            renameLonelyListing();
         }
+
+        createMultipleListings(detectedInstances, numberOfOutputFilesToCreate, lastListingNumber + 1);
+        lastListingNumber += numberOfOutputFilesToCreate;
     }
 
+    /**
+     * Writes the summary to a temporary file, which then atomically replaces the summary of an earlier call, so that
+     * readers of the output never miss the summary, e.g. while a watched analysis is updated.
+     */
     @Override
     public void complete(@NotNull StatisticsSummary<Perfume> summary) throws IOException {
         Path summaryFileName = Path.of(SUMMARY_FILE_SUFFIX + outputFormat.getFileExtension());
-        Path toCreate = config.getOutputDirectory().resolve(summaryFileName);
+        Path summaryFile = config.getOutputDirectory().resolve(summaryFileName);
+        Path temporaryFile = summaryFile.resolveSibling(summaryFile.getFileName() + TEMPORARY_FILE_SUFFIX);
 
-        Files.deleteIfExists(toCreate);
-        Path created = Files.createFile(toCreate);
+        mapper.writeValue(temporaryFile.toFile(), summary);
+        replace(temporaryFile, summaryFile);
+    }
 
-        mapper.writeValue(created.toFile(), summary);
+    /**
+     * Continues the listings of an interrupted analysis, whose last completely written listing had the given number.
+     * Restores the listings to the state after that listing was written: removes the listings that were written
+     * afterwards, and the detections of files that were not completed from the last listing, as it might already be
+     * replaced by a listing with detections of such files.
+     *
+     * @param lastListingNumber Number of the last listing that was completely written, see
+     *                          {@link #getLastListingNumber()}.
+     * @param completedFiles    Source files whose detections are completely listed. The detections of all other
+     *                          files are removed.
+     * @throws IOException If the listings can not be restored.
+     */
+    public void resume(int lastListingNumber, @NotNull Set<Path> completedFiles) throws IOException {
+        Path outputDirectory = config.getOutputDirectory();
+
+        try (Stream<Path> files = Files.list(outputDirectory)) {
+            for (Path temporaryFile : files.filter(file -> file.toString().endsWith(TEMPORARY_FILE_SUFFIX)).toList()) {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+
+        Path lonelyListing = outputDirectory.resolve(listingFileName(0));
+        Path firstListing = outputDirectory.resolve(listingFileName(1));
+        if (lastListingNumber == 0) {
+            Files.deleteIfExists(lonelyListing);
+        } else if (lastListingNumber == 1 && !Files.exists(lonelyListing) && Files.exists(firstListing)) {
+            // The lonely listing was already renamed for the next listing
+            Files.move(firstListing, lonelyListing);
+        }
+
+        for (int listingNumber = lastListingNumber + 1;
+             Files.deleteIfExists(outputDirectory.resolve(listingFileName(listingNumber)));
+             listingNumber++) {
+            // Delete all listings after the last one
+        }
+
+        if (lastListingNumber > 0) {
+            int fileNumber = lastListingNumber == 1 ? 0 : lastListingNumber;
+            Path lastListing = outputDirectory.resolve(listingFileName(fileNumber));
+            List<DetectedInstance<Perfume>> detections = JsonDeserializationUtil.readList(mapper,
+                    new TypeReference<>() {}, lastListing);
+
+            List<DetectedInstance<Perfume>> completedDetections = detections.stream()
+                    .filter(detection -> completedFiles.contains(detection.getSourceFile())).toList();
+            if (completedDetections.size() < detections.size()) {
+                writeListing(completedDetections, fileNumber);
+            }
+        }
+
+        this.lastListingNumber = lastListingNumber;
+    }
+
+    /**
+     * Replaces the listing with the given number by the given detections, or adds it as the next listing, e.g. when
+     * the detections of the files of a listing changed. The other listings are not touched, except for the lonely
+     * first listing, which gets its number when a second listing is added.
+     *
+     * @param listingNumber The number of the listing, at most one more than {@link #getLastListingNumber()}.
+     * @param detections    The detections of the listing. Might exceed the batch size.
+     * @throws IOException If the listing can not be written.
+     */
+    public void replaceListing(int listingNumber, @NotNull List<DetectedInstance<Perfume>> detections)
+            throws IOException {
+        if (listingNumber < 1 || listingNumber > lastListingNumber + 1) {
+            throw new IllegalArgumentException("Listing " + listingNumber + " does not exist and does not follow the "
+                    + "last listing " + lastListingNumber + ".");
+        }
+
+        if (listingNumber == 2 && lastListingNumber == 1
+                && Files.exists(config.getOutputDirectory().resolve(listingFileName(0)))) {
+            renameLonelyListing();
+        }
+
+        List<DetectedInstance<Perfume>> sorted = new ArrayList<>(detections);
+        sorted.sort(new DetectedInstanceComparator<>());
+
+        lastListingNumber = Math.max(lastListingNumber, listingNumber);
+        writeListing(sorted, lastListingNumber == 1 ? 0 : listingNumber);
     }
 
     @NotNull
-    private List<DetectedInstance<Perfume>> readAndDeleteIfNotFull(int listingNumber) throws IOException {
+    private List<DetectedInstance<Perfume>> readIfNotFull(int listingNumber) throws IOException {
         Path file = config.getOutputDirectory().resolve(listingFileName(listingNumber));
         List<DetectedInstance<Perfume>> deserialized = JsonDeserializationUtil.readList(mapper, new TypeReference<>() {},
                 file);
@@ -78,19 +187,37 @@ public class PerfumeJsonOutputGenerator extends JsonOutputGenerator<Perfume> {
         if (deserialized.isEmpty() || deserialized.size() == config.getBatchSize()) {
             return Collections.emptyList();
         } else {
-            Files.deleteIfExists(file);
             return deserialized;
         }
     }
 
     private void createSingleListing(@NotNull List<DetectedInstance<Perfume>> detectedInstances,
                                      int listingNumber) throws IOException {
-        Path newFileName = listingFileName(listingNumber);
+        writeListing(detectedInstances, listingNumber);
+    }
 
-        Path toCreate = config.getOutputDirectory().resolve(newFileName);
-        Path created = Files.createFile(toCreate);
+    /**
+     * Writes the given detections to a temporary file, which then atomically replaces the listing with the given
+     * number, if it exists.
+     */
+    private void writeListing(@NotNull List<DetectedInstance<Perfume>> detectedInstances,
+                              int listingNumber) throws IOException {
+        Path listing = config.getOutputDirectory().resolve(listingFileName(listingNumber));
+        Path temporaryFile = listing.resolveSibling(listing.getFileName() + TEMPORARY_FILE_SUFFIX);
+
+        mapper.writeValue(temporaryFile.toFile(), detectedInstances);
+        replace(temporaryFile, listing);
+    }
 
-        mapper.writeValue(created.toFile(), detectedInstances);
+    /**
+     * Moves the given temporary file to the given target, atomically if the file system supports it.
+     */
+    private static void replace(@NotNull Path temporaryFile, @NotNull Path target) throws IOException {
+        try {
+            Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
     private void createMultipleListings(List<DetectedInstance<Perfume>> detectedInstances, int numberOfOutputFiles,
@@ -99,12 +226,9 @@ public class PerfumeJsonOutputGenerator extends JsonOutputGenerator<Perfume> {
              fileNum < numberOfOutputFiles + firstNewListingNumber;
              fileNum++, batchRound++) {
 
-            Path toCreate = config.getOutputDirectory().resolve(listingFileName(fileNum));
-            Path created = Files.createFile(toCreate);
-
             int low = (batchRound - 1) * config.getBatchSize();
             int high = Math.min(batchRound * config.getBatchSize(), detectedInstances.size());
-            mapper.writeValue(created.toFile(), detectedInstances.subList(low, high));
+            writeListing(detectedInstances.subList(low, high), fileNum);
         }
     }
 
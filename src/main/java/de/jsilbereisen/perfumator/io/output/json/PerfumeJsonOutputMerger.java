@@ -0,0 +1,107 @@
+package de.jsilbereisen.perfumator.io.output.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.jetbrains.annotations.NotNull;
+
+import de.jsilbereisen.perfumator.engine.registry.DetectableRegistry;
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.io.output.OutputFormat;
+import de.jsilbereisen.perfumator.io.output.OutputGenerator;
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.StatisticsSummary;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+import de.jsilbereisen.perfumator.util.JsonDeserializationUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Merges the JSON outputs of multiple analyses, e.g. of the {@link de.jsilbereisen.perfumator.engine.Shard}s of a
+ * split analysis, into one output: the listings of all outputs are renumbered into one sequence of listings, and the
+ * summaries are merged into one summary.<br/>
+ * The listings are streamed: only one listing of an input and the last listing of the merged output are in memory at
+ * the same time. The summaries are read one after another.
+ */
+public class PerfumeJsonOutputMerger {
+
+    private static final Pattern LISTING_NUMBER_PATTERN = Pattern.compile("^" + OutputGenerator.DETECTIONS_FILE_SUFFIX
+            + "(?:" + OutputGenerator.SUFFIX_CONNECTOR + "(\\d+))?" + Pattern.quote(OutputFormat.JSON.getFileExtension())
+            + "$");
+
+    @NotNull
+    private final PerfumeJsonOutputGenerator outputGenerator;
+
+    @NotNull
+    private final JsonMapper mapper;
+
+    /**
+     * Constructor.
+     *
+     * @param config   Configuration of the merged output. The output directory must exist and be empty.
+     * @param registry Registry with the {@link Perfume}s of the merged analyses, in the language of their outputs.
+     */
+    public PerfumeJsonOutputMerger(@NotNull OutputConfiguration config, @NotNull DetectableRegistry<Perfume> registry) {
+        this.outputGenerator = new PerfumeJsonOutputGenerator(config, null);
+
+        SimpleModule module = new SimpleModule();
+        module.addKeyDeserializer(Perfume.class, new JsonDeserializationUtil.StatisticsSummaryDeserializer<>(registry));
+        this.mapper = new JsonMapper();
+        this.mapper.registerModule(module);
+    }
+
+    /**
+     * Merges the outputs in the given directories, in the given order, into the configured output directory.
+     *
+     * @param outputDirectories Output directories of completed analyses.
+     * @throws IOException If an output can not be read, e.g. because it has no summary, or the merged output can
+     *                     not be written.
+     */
+    public void merge(@NotNull List<Path> outputDirectories) throws IOException {
+        StatisticsSummary<Perfume> summary = new StatisticsSummary<>();
+
+        for (Path outputDirectory : outputDirectories) {
+            Path summaryFile = outputDirectory.resolve(OutputGenerator.SUMMARY_FILE_SUFFIX
+                    + OutputFormat.JSON.getFileExtension());
+            if (!Files.isRegularFile(summaryFile)) {
+                throw new NoSuchFileException(summaryFile.toString(), null, "Not the output of a completed analysis.");
+            }
+
+            for (Path listing : listingsInOrder(outputDirectory)) {
+                List<DetectedInstance<Perfume>> detections = JsonDeserializationUtil.readList(mapper,
+                        new TypeReference<>() {}, listing);
+
+                if (!detections.isEmpty()) {
+                    outputGenerator.handle(detections);
+                }
+            }
+
+            summary.merge(JsonDeserializationUtil.readStatistics(mapper, new TypeReference<>() {}, summaryFile));
+        }
+
+        outputGenerator.complete(summary);
+    }
+
+    @NotNull
+    private static List<Path> listingsInOrder(@NotNull Path outputDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(outputDirectory)) {
+            return files.filter(file -> LISTING_NUMBER_PATTERN.matcher(file.getFileName().toString()).matches())
+                    .sorted(Comparator.comparingInt(PerfumeJsonOutputMerger::listingNumber))
+                    .toList();
+        }
+    }
+
+    private static int listingNumber(@NotNull Path listing) {
+        Matcher matcher = LISTING_NUMBER_PATTERN.matcher(listing.getFileName().toString());
+
+        return matcher.matches() && matcher.group(1) != null ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+}
@@ -0,0 +1,48 @@
+package de.jsilbereisen.perfumator.io.server;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of a request to the {@link AnalysisServer#ANALYSE_PATH} endpoint. Either the {@link #path}, optionally with
+ * {@link #files}, or the inline {@link #sources} must be given. With inline sources, the {@link #path} is optional and
+ * points at the directory of the project whose symbols the sources refer to.
+ */
+@Data
+@Accessors(chain = true)
+public class AnalysisRequest {
+
+    /**
+     * Path to a Java source file or to a directory to analyse.
+     */
+    private String path;
+
+    /**
+     * Paths of the Java source files to analyse in the directory {@link #path}, relative to it or absolute. If empty,
+     * all files of the directory are analysed.
+     */
+    private List<String> files = new ArrayList<>();
+
+    /**
+     * Source files to analyse, which are analysed in memory and not read from the file system.
+     */
+    private List<InlineSource> sources = new ArrayList<>();
+
+    /**
+     * A source file that is given with its content.
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class InlineSource {
+
+        /**
+         * Name of the file, under which its detections are reported, e.g. {@code org/example/Main.java}.
+         */
+        private String fileName;
+
+        private String content;
+    }
+}
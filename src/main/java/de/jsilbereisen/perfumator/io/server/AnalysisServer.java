@@ -0,0 +1,406 @@
+package de.jsilbereisen.perfumator.io.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializerBase;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.context.SourcesLayout;
+import de.jsilbereisen.perfumator.model.AnalysisResult;
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.StatisticsSummary;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+import de.jsilbereisen.perfumator.util.PathUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Local HTTP server that keeps a warm {@link PerfumeDetectionEngine} resident and analyses the sources of its
+ * requests, so that callers like CI jobs or editor integrations neither pay for the start of a JVM nor for loading
+ * the registry on every analysis.<br/>
+ * The server only listens on the loopback interface, and only answers requests whose {@code Host} header names it,
+ * see {@link #isLoopbackHost(String)}. It analyses the {@link AnalysisRequest}s that are posted to
+ * {@value #ANALYSE_PATH} one after another on a thread of their own, as the engine is not thread-safe, and answers
+ * each with a JSON object
+ * that is streamed while the analysis is still running: the {@code detections}, written in batches of
+ * {@value #FILES_PER_BATCH} files, followed by the {@code summary} of the analysed files, and an {@code error} if
+ * the analysis failed after the response was started. Invalid requests are answered with the status
+ * {@code 400} and an {@code error}. {@value #HEALTH_PATH} answers {@code GET} requests while the server is running,
+ * also while an analysis runs.
+ */
+@Slf4j
+public class AnalysisServer implements AutoCloseable {
+
+    /**
+     * Default port of the server.
+     */
+    public static final int DEFAULT_PORT = 8421;
+
+    /**
+     * Path of the endpoint that analyses sources.
+     */
+    public static final String ANALYSE_PATH = "/analyse";
+
+    /**
+     * Path of the endpoint that reports that the server is running.
+     */
+    public static final String HEALTH_PATH = "/health";
+
+    /**
+     * Amount of files of a directory whose detections are written to the response at once.
+     */
+    public static final int FILES_PER_BATCH = 64;
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    @NotNull
+    private final PerfumeDetectionEngine engine;
+
+    @NotNull
+    private final HttpServer server;
+
+    /**
+     * Dispatches the requests and answers those to {@value #HEALTH_PATH}.
+     */
+    @NotNull
+    private final ExecutorService requestExecutor;
+
+    /**
+     * Answers the requests to {@value #ANALYSE_PATH}, one after another.
+     */
+    @NotNull
+    private final ExecutorService analysisExecutor;
+
+    @NotNull
+    private final JsonMapper mapper;
+
+    /**
+     * Constructor. Binds the server, but does not start it yet.
+     *
+     * @param engine The engine that analyses the requests. Is not closed by the server.
+     * @param port   The port on the loopback interface, {@code 0} for any free port.
+     * @throws IOException If the server can not be bound to the port.
+     */
+    public AnalysisServer(@NotNull PerfumeDetectionEngine engine, int port) throws IOException {
+        this.engine = engine;
+
+        // Inline sources are reported under their relative file names, not as URIs of the working directory
+        SimpleModule fileNames = new SimpleModule();
+        fileNames.addSerializer(Path.class, new ToStringSerializerBase(Path.class) {
+            @Override
+            public String valueToString(Object value) {
+                Path path = (Path) value;
+                return path.isAbsolute() ? path.toUri().toString() : path.toString().replace('\\', '/');
+            }
+        });
+        mapper = JsonMapper.builder().addModule(fileNames).build();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(ANALYSE_PATH, this::dispatchAnalysis);
+        server.createContext(HEALTH_PATH, this::handleHealth);
+
+        requestExecutor = Executors.newSingleThreadExecutor(task -> new Thread(task, "perfumator-server"));
+        server.setExecutor(requestExecutor);
+        // The engine analyses one request at a time
+        analysisExecutor = Executors.newSingleThreadExecutor(task -> new Thread(task, "perfumator-analysis"));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port that the server is bound to.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server. A running analysis is interrupted.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        analysisExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns whether the given value of a {@code Host} header names the loopback interface: {@code localhost},
+     * an IPv4 loopback address or {@code [::1]}, with an optional port. Requests for other hosts are rejected, so that
+     * a web page can not reach the server by rebinding the name of its own host to the loopback address.
+     *
+     * @param host The value of the header, {@code null} if the request has none.
+     * @return {@code true} if the header names the loopback interface.
+     */
+    public static boolean isLoopbackHost(@Nullable String host) {
+        if (host == null) {
+            return false;
+        }
+
+        String name = host.startsWith("[") ? host.substring(0, host.indexOf(']') + 1) : host.split(":", 2)[0];
+
+        return name.equalsIgnoreCase("localhost") || name.equals("[::1]") || name.matches("127(\\.\\d{1,3}){3}");
+    }
+
+    /**
+     * Rejects the request with the status {@code 403}, if it is not addressed to the loopback interface.
+     *
+     * @return {@code true} if the request was rejected.
+     */
+    private boolean rejectForeignHost(@NotNull HttpExchange exchange) throws IOException {
+        if (isLoopbackHost(exchange.getRequestHeaders().getFirst("Host"))) {
+            return false;
+        }
+
+        sendError(exchange, 403, "Requests must be addressed to the loopback interface.");
+        return true;
+    }
+
+    private void handleHealth(@NotNull HttpExchange exchange) throws IOException {
+        try {
+            if (rejectForeignHost(exchange)) {
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET requests are supported.");
+                return;
+            }
+
+            sendJson(exchange, 200, Map.of("status", "running"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Passes the request to the thread of the analyses, so that the requests to {@value #HEALTH_PATH} are still
+     * answered while an analysis runs.
+     */
+    private void dispatchAnalysis(@NotNull HttpExchange exchange) throws IOException {
+        try {
+            analysisExecutor.execute(() -> {
+                try {
+                    handleAnalysis(exchange);
+                } catch (IOException e) {
+                    log.debug("Unable to answer an analysis request.", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The server is closing
+            exchange.close();
+        }
+    }
+
+    private void handleAnalysis(@NotNull HttpExchange exchange) throws IOException {
+        try {
+            if (rejectForeignHost(exchange)) {
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only POST requests are supported.");
+                return;
+            }
+
+            List<Supplier<AnalysisResult<Perfume>>> batches;
+            try {
+                batches = planAnalysis(mapper.readValue(exchange.getRequestBody(), AnalysisRequest.class));
+            } catch (JsonProcessingException e) {
+                sendError(exchange, 400, "Invalid request: " + e.getOriginalMessage());
+                return;
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            } catch (UncheckedIOException e) {
+                // The walk of the requested directory failed, e.g. as a directory in it is not readable
+                sendError(exchange, 400, "Unable to read the sources: " + e.getCause().getMessage());
+                return;
+            }
+
+            streamAnalysis(exchange, batches);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Validates the request and splits its analysis into batches, whose detections are written at once.
+     *
+     * @throws IllegalArgumentException If the request is invalid.
+     * @throws UncheckedIOException     If the requested directory can not be walked.
+     */
+    @NotNull
+    private List<Supplier<AnalysisResult<Perfume>>> planAnalysis(@NotNull AnalysisRequest request)
+            throws IOException {
+        if (request.getPath() == null && request.getSources().isEmpty()) {
+            throw new IllegalArgumentException("Either a path or inline sources must be given.");
+        }
+
+        Path path = request.getPath() != null ? Path.of(request.getPath()).toAbsolutePath().normalize() : null;
+        if (!request.getSources().isEmpty()) {
+            if (path != null && !Files.isDirectory(path)) {
+                throw new IllegalArgumentException("The path of inline sources must point at a directory: " + path);
+            }
+
+            List<AnalysisRequest.InlineSource> sources = List.copyOf(request.getSources());
+            for (AnalysisRequest.InlineSource source : sources) {
+                checkInlineSource(source);
+            }
+
+            return List.of(() -> analyseInlineSources(sources, path));
+        }
+
+        if (PathUtil.isJavaSourceFile(path) && request.getFiles().isEmpty()) {
+            return List.of(() -> engine.detect(path));
+        }
+        if (!Files.isDirectory(path)) {
+            throw new IllegalArgumentException("The path must point at a directory or at a Java source file: " + path);
+        }
+
+        List<Path> sourceFiles = new ArrayList<>();
+        if (request.getFiles().isEmpty()) {
+            try (Stream<Path> dirWalk = PathUtil.walkInOrder(path)) {
+                dirWalk.filter(file -> PathUtil.isRelevantJavaFile(file, path.getFileName().toString()))
+                        .forEach(sourceFiles::add);
+            }
+
+        } else {
+            for (String file : request.getFiles()) {
+                Path sourceFile = path.resolve(file).normalize();
+                if (!sourceFile.startsWith(path) || !PathUtil.isJavaSourceFile(sourceFile)) {
+                    throw new IllegalArgumentException("Not a Java source file in " + path + ": " + file);
+                }
+
+                sourceFiles.add(sourceFile);
+            }
+        }
+
+        // Inspected once for all batches of the request
+        SourcesLayout layout = SourcesLayout.of(path);
+        List<Supplier<AnalysisResult<Perfume>>> batches = new ArrayList<>();
+        for (int from = 0; from < sourceFiles.size(); from += FILES_PER_BATCH) {
+            List<Path> batch = sourceFiles.subList(from, Math.min(from + FILES_PER_BATCH, sourceFiles.size()));
+            batches.add(() -> engine.detectInSourceFiles(layout, batch));
+        }
+
+        return batches;
+    }
+
+    private static void checkInlineSource(@NotNull AnalysisRequest.InlineSource source) {
+        if (source.getFileName() == null || source.getContent() == null) {
+            throw new IllegalArgumentException("Inline sources must have a file name and a content.");
+        }
+
+        Path fileName = Path.of(source.getFileName()).normalize();
+        if (fileName.isAbsolute() || fileName.startsWith("..") || !fileName.toString().endsWith(".java")) {
+            throw new IllegalArgumentException("The file name of an inline source must be a relative path of a Java "
+                    + "source file: " + source.getFileName());
+        }
+    }
+
+    /**
+     * Analyses the given inline sources in memory, with the context of the given directory, if any, and reports them
+     * under their file names.
+     */
+    @NotNull
+    private AnalysisResult<Perfume> analyseInlineSources(@NotNull List<AnalysisRequest.InlineSource> sources,
+                                                         @Nullable Path directory) {
+        StatisticsSummary<Perfume> summary = createSummary();
+        List<DetectedInstance<Perfume>> detections = new ArrayList<>();
+
+        for (AnalysisRequest.InlineSource source : sources) {
+            AnalysisResult<Perfume> result = engine.detectInSource(source.getContent(),
+                    Path.of(source.getFileName()).normalize(), directory);
+
+            detections.addAll(result.getDetections());
+            summary.merge(result.getSummary());
+        }
+
+        return new AnalysisResult<>(detections, summary);
+    }
+
+    /**
+     * Runs the given batches and streams their detections, followed by the summary.
+     */
+    private void streamAnalysis(@NotNull HttpExchange exchange,
+                                @NotNull List<Supplier<AnalysisResult<Perfume>>> batches) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+
+        StatisticsSummary<Perfume> summary = createSummary();
+        String error = null;
+
+        try (JsonGenerator json = mapper.createGenerator(exchange.getResponseBody())) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("detections");
+
+            try {
+                for (Supplier<AnalysisResult<Perfume>> batch : batches) {
+                    AnalysisResult<Perfume> result = batch.get();
+                    for (DetectedInstance<Perfume> detection : result.getDetections()) {
+                        json.writeObject(detection);
+                    }
+                    json.flush();
+
+                    summary.merge(result.getSummary());
+                }
+
+            } catch (RuntimeException e) {
+                error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+                log.error("Analysis of a request failed: " + error, e);
+            }
+
+            json.writeEndArray();
+            json.writeObjectField("summary", summary);
+            if (error != null) {
+                json.writeStringField("error", error);
+            }
+            json.writeEndObject();
+        }
+    }
+
+    @NotNull
+    private StatisticsSummary<Perfume> createSummary() {
+        return StatisticsSummary.from(engine.getRegistry().getRegisteredDetectables().stream()
+                .filter(engine.getSelection()).toList());
+    }
+
+    private void sendError(@NotNull HttpExchange exchange, int status, @NotNull String message) throws IOException {
+        sendJson(exchange, status, Map.of("error", message));
+    }
+
+    private void sendJson(@NotNull HttpExchange exchange, int status, @NotNull Object body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package de.jsilbereisen.perfumator.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonKey;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -48,6 +50,17 @@ public abstract class Detectable implements Internationalizable, Comparable<Dete
     @I18nIgnore
     private String i18nBaseBundleName;
 
+    /**
+     * The name of the definition, before it was {@link #internationalize internationalized}, which does not depend on
+     * the locale. {@code null} until the first internationalization.
+     */
+    @I18nIgnore
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private String defaultName;
+
     /**
      * Default constructor to allow deserialization via the <b>Jackson</b> object mapper.
      */
@@ -84,6 +97,16 @@ public abstract class Detectable implements Internationalizable, Comparable<Dete
         this.description = detectable.description;
         this.detectorClassSimpleName = detectable.detectorClassSimpleName;
         this.i18nBaseBundleName = detectable.i18nBaseBundleName;
+        this.defaultName = detectable.defaultName;
+    }
+
+    /**
+     * Returns the name of the definition, in the default language, even if the name was internationalized, e.g. to
+     * select a Perfume by the same name in every language.
+     */
+    @JsonIgnore
+    public String getDefaultName() {
+        return defaultName != null ? defaultName : name;
     }
 
     /**
@@ -113,6 +136,10 @@ public abstract class Detectable implements Internationalizable, Comparable<Dete
             return;
         }
 
+        if (defaultName == null) {
+            defaultName = name;
+        }
+
         Field[] classFields = FieldUtils.getAllFields(getClass());
 
         for (Field field : classFields) {
@@ -4,12 +4,16 @@ import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import de.jsilbereisen.perfumator.engine.Sampling;
+import de.jsilbereisen.perfumator.engine.Shard;
 import de.jsilbereisen.perfumator.io.LanguageTag;
 import de.jsilbereisen.perfumator.io.output.OutputFormat;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -32,6 +36,39 @@ public class EngineConfiguration {
     @Unmodifiable
     private final List<Path> dependencies;
 
+    @Unmodifiable
+    private final List<String> includedPerfumes;
+
+    @Unmodifiable
+    private final List<String> excludedPerfumes;
+
+    @Nullable
+    private final Path typeIndexDirectory;
+
+    private final boolean virtualThreadIo;
+
+    private final int detectorParallelism;
+
+    @Nullable
+    private final Duration fileTimeout;
+
+    @Nullable
+    private final Duration detectorTimeout;
+
+    private final boolean continueOnError;
+
+    private final boolean resume;
+
+    @Nullable
+    private final Shard shard;
+
+    private final int workers;
+
+    private final boolean watch;
+
+    @Nullable
+    private final Sampling sampling;
+
     private EngineConfiguration(@NotNull Builder builder) {
         this.sourcesPath = builder.sourcesPath;
         this.outputDir = builder.outputDir;
@@ -39,6 +76,19 @@ public class EngineConfiguration {
         this.outputFormat = builder.outputFormat;
         this.batchSize = builder.batchSize;
         this.dependencies = Collections.unmodifiableList(builder.dependencies);
+        this.includedPerfumes = Collections.unmodifiableList(builder.includedPerfumes);
+        this.excludedPerfumes = Collections.unmodifiableList(builder.excludedPerfumes);
+        this.typeIndexDirectory = builder.typeIndexDirectory;
+        this.virtualThreadIo = builder.virtualThreadIo;
+        this.detectorParallelism = builder.detectorParallelism;
+        this.fileTimeout = builder.fileTimeout;
+        this.detectorTimeout = builder.detectorTimeout;
+        this.continueOnError = builder.continueOnError;
+        this.resume = builder.resume;
+        this.shard = builder.shard;
+        this.workers = builder.workers;
+        this.watch = builder.watch;
+        this.sampling = builder.sampling;
     }
 
     public static Builder builder(@NotNull Path sourcesPath, @NotNull Path outputDir) {
@@ -60,6 +110,39 @@ public class EngineConfiguration {
         @NotNull
         private List<Path> dependencies = new ArrayList<>();
 
+        @NotNull
+        private List<String> includedPerfumes = new ArrayList<>();
+
+        @NotNull
+        private List<String> excludedPerfumes = new ArrayList<>();
+
+        @Nullable
+        private Path typeIndexDirectory;
+
+        private boolean virtualThreadIo;
+
+        private int detectorParallelism = 1;
+
+        @Nullable
+        private Duration fileTimeout;
+
+        @Nullable
+        private Duration detectorTimeout;
+
+        private boolean continueOnError;
+
+        private boolean resume;
+
+        @Nullable
+        private Shard shard;
+
+        private int workers;
+
+        private boolean watch;
+
+        @Nullable
+        private Sampling sampling;
+
         public Builder(@NotNull Path sourcesPath, @NotNull Path outputDir) {
             this.sourcesPath = sourcesPath;
             this.outputDir = outputDir;
@@ -100,6 +183,71 @@ public class EngineConfiguration {
             return this;
         }
 
+        public Builder includedPerfumes(@NotNull Collection<String> selectors) {
+            this.includedPerfumes = new ArrayList<>(selectors);
+            return this;
+        }
+
+        public Builder excludedPerfumes(@NotNull Collection<String> selectors) {
+            this.excludedPerfumes = new ArrayList<>(selectors);
+            return this;
+        }
+
+        public Builder typeIndexDirectory(@Nullable Path typeIndexDirectory) {
+            this.typeIndexDirectory = typeIndexDirectory;
+            return this;
+        }
+
+        public Builder virtualThreadIo(boolean virtualThreadIo) {
+            this.virtualThreadIo = virtualThreadIo;
+            return this;
+        }
+
+        public Builder detectorParallelism(int detectorParallelism) {
+            this.detectorParallelism = detectorParallelism;
+            return this;
+        }
+
+        public Builder fileTimeout(@Nullable Duration fileTimeout) {
+            this.fileTimeout = fileTimeout;
+            return this;
+        }
+
+        public Builder detectorTimeout(@Nullable Duration detectorTimeout) {
+            this.detectorTimeout = detectorTimeout;
+            return this;
+        }
+
+        public Builder continueOnError(boolean continueOnError) {
+            this.continueOnError = continueOnError;
+            return this;
+        }
+
+        public Builder resume(boolean resume) {
+            this.resume = resume;
+            return this;
+        }
+
+        public Builder shard(@Nullable Shard shard) {
+            this.shard = shard;
+            return this;
+        }
+
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        public Builder watch(boolean watch) {
+            this.watch = watch;
+            return this;
+        }
+
+        public Builder sampling(@Nullable Sampling sampling) {
+            this.sampling = sampling;
+            return this;
+        }
+
         @NotNull
         public EngineConfiguration build() {
             return new EngineConfiguration(this);
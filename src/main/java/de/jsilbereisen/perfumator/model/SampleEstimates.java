@@ -0,0 +1,106 @@
+package de.jsilbereisen.perfumator.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimates of a sampled analysis for all files of the analysed directory, extrapolated from the analysed sample, see
+ * {@link de.jsilbereisen.perfumator.engine.Sampling}.<br/>
+ * Totals are estimated per stratum, as the mean per file in the sample times the amount of files in the stratum, and
+ * summed up over the strata. Each estimate has a confidence interval with the variance of the sample, corrected for
+ * sampling without replacement: from the normal approximation for detections, and the Wilson score interval for files
+ * and prevalences, which stays wide if the sample has no or only files with detections, e.g. of an unseen Perfume.
+ * The lower bounds are never less than what the sample contains, and the bounds of file counts never exceed the
+ * amount of files.
+ */
+@Data
+@Accessors(chain = true)
+public class SampleEstimates {
+
+    /**
+     * Name of the file of the estimates in the output directory of a sampled analysis.
+     */
+    public static final String FILE_NAME = "estimates.json";
+
+    private double fraction;
+
+    private long seed;
+
+    private boolean stratified;
+
+    private double confidenceLevel;
+
+    /**
+     * Amount of files that the walk of the directory found.
+     */
+    private int totalFiles;
+
+    /**
+     * Amount of files that were analysed.
+     */
+    private int sampledFiles;
+
+    /**
+     * Amount of strata, i.e. packages with a stratified sampling, otherwise {@code 1}.
+     */
+    private int strata;
+
+    /**
+     * Estimated amount of detections of all Perfumes.
+     */
+    private Estimate totalDetections;
+
+    private List<PerfumeEstimate> perfumes = new ArrayList<>();
+
+    /**
+     * An estimated value with its confidence interval.
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class Estimate {
+
+        private double value;
+
+        private double lower;
+
+        private double upper;
+    }
+
+    /**
+     * Estimates for a single {@link de.jsilbereisen.perfumator.model.perfume.Perfume}.
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class PerfumeEstimate {
+
+        private String perfume;
+
+        /**
+         * Amount of detections of the Perfume in the sample.
+         */
+        private int sampledDetections;
+
+        /**
+         * Amount of files in the sample in which the Perfume was detected.
+         */
+        private int sampledFiles;
+
+        /**
+         * Estimated amount of detections of the Perfume in all files.
+         */
+        private Estimate detections;
+
+        /**
+         * Estimated amount of files in which the Perfume is detected.
+         */
+        private Estimate files;
+
+        /**
+         * Estimated share of the files in which the Perfume is detected, from {@code 0} to {@code 1}.
+         */
+        private Estimate prevalence;
+    }
+}
@@ -0,0 +1,71 @@
+package de.jsilbereisen.perfumator.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * A detector that was not (completely) applied to a source file, because it exceeded its time budget or failed.
+ * Only recorded if the engine continues on errors, otherwise the analysis is aborted.
+ */
+@Data
+@Accessors(chain = true)
+public class SkippedAnalysis {
+
+    /**
+     * Detector of a skipped analysis that skipped all detectors of the file.
+     */
+    public static final String ALL_DETECTORS = "*";
+
+    private Path sourceFile;
+
+    /**
+     * Simple class name of the skipped detector, or {@link #ALL_DETECTORS}.
+     */
+    private String detector;
+
+    private Reason reason;
+
+    /**
+     * Description of the failure, {@code null} for timeouts.
+     */
+    private String message;
+
+    public SkippedAnalysis() {
+    }
+
+    public SkippedAnalysis(@NotNull Path sourceFile, @NotNull String detector, @NotNull Reason reason,
+                           @Nullable String message) {
+        this.sourceFile = sourceFile;
+        this.detector = detector;
+        this.reason = reason;
+        this.message = message;
+    }
+
+    public enum Reason {
+
+        /**
+         * The analysis of the whole file exceeded its time budget.
+         */
+        FILE_TIMEOUT,
+
+        /**
+         * The detector exceeded its time budget.
+         */
+        DETECTOR_TIMEOUT,
+
+        /**
+         * The detector failed with an exception or error.
+         */
+        ERROR,
+
+        /**
+         * The worker process that analysed the file exited during the analysis, e.g. because its JVM crashed. All
+         * detectors of the file are skipped, the detector is {@link #ALL_DETECTORS}.
+         */
+        WORKER_EXIT
+    }
+}
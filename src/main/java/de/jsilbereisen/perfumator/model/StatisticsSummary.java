@@ -9,9 +9,11 @@ import org.jetbrains.annotations.Nullable;
 import de.jsilbereisen.perfumator.engine.registry.DetectableRegistry;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,15 +39,29 @@ public class StatisticsSummary<T extends Detectable> {
 
     private Set<Path> analyzedFiles = new LinkedHashSet<>();
 
+    /**
+     * Detectors that were skipped for a file, if the analysis continued on errors.
+     */
+    private List<SkippedAnalysis> skippedAnalyses = new ArrayList<>();
+
     /**
      * Returns a new {@link StatisticsSummary}, initialized with empty {@link Statistics} for all
      * registered {@link T} in the given {@link DetectableRegistry}.
      */
     @NotNull
     public static <T extends Detectable> StatisticsSummary<T> from(@NotNull DetectableRegistry<T> registry) {
+        return from(registry.getRegisteredDetectables());
+    }
+
+    /**
+     * Returns a new {@link StatisticsSummary}, initialized with empty {@link Statistics} for all
+     * given {@link T}.
+     */
+    @NotNull
+    public static <T extends Detectable> StatisticsSummary<T> from(@NotNull Collection<T> detectables) {
         StatisticsSummary<T> summary = new StatisticsSummary<>();
 
-        for (T detectable : registry.getRegisteredDetectables()) {
+        for (T detectable : detectables) {
             summary.detectableStatistics.put(detectable, new Statistics<T>().setDetectable(detectable));
         }
 
@@ -91,6 +107,54 @@ public class StatisticsSummary<T extends Detectable> {
         totalAnalysedFiles = analyzedFiles.size();
     }
 
+    /**
+     * Records detectors that were skipped for a file.
+     *
+     * @param skipped The skipped analyses.
+     */
+    public void addSkippedAnalyses(@NotNull Collection<SkippedAnalysis> skipped) {
+        skippedAnalyses.addAll(skipped);
+    }
+
+    /**
+     * Adds the statistics of the given summary to this one, e.g. of another part of a split analysis. The analysed
+     * files of both summaries are expected to be disjoint.
+     *
+     * @param other The summary to add.
+     */
+    public void merge(@NotNull StatisticsSummary<T> other) {
+        totalDetections += other.totalDetections;
+        analyzedFiles.addAll(other.analyzedFiles);
+        totalAnalysedFiles = analyzedFiles.size();
+
+        other.detectableStatistics.forEach((detectable, stats) -> detectableStatistics
+                .computeIfAbsent(detectable, key -> new Statistics<T>().setDetectable(key)).merge(stats));
+
+        skippedAnalyses.addAll(other.skippedAnalyses);
+    }
+
+    /**
+     * Removes an analysed file with its detections and skipped analyses from the statistics, e.g. because the file
+     * changed and is analysed again, or because it was deleted.
+     *
+     * @param path       The path of the file, as it was added to the statistics.
+     * @param detections All detections of the file that were added to the statistics.
+     */
+    public void removeFromStatistics(@NotNull Path path, @NotNull Collection<DetectedInstance<T>> detections) {
+        for (DetectedInstance<T> detection : detections) {
+            Statistics<T> stats = detectableStatistics.get(detection.getDetectable());
+
+            if (stats != null) {
+                stats.removeDetection(path);
+                --totalDetections;
+            }
+        }
+
+        analyzedFiles.remove(path);
+        totalAnalysedFiles = analyzedFiles.size();
+        skippedAnalyses.removeIf(skipped -> path.equals(skipped.getSourceFile()));
+    }
+
     private void addDetection(@Nullable Path path) {
         ++totalDetections;
 
@@ -129,5 +193,28 @@ public class StatisticsSummary<T extends Detectable> {
 
             uniqueFilesWithDetection = filesWithDetection.size();
         }
+
+        /**
+         * Decreases the amount of occurrences by 1 and removes the given Path from the set of files with at least
+         * one detection, as all detections of a file are removed together.
+         *
+         * @param path The path to the file where the detection stems from.
+         */
+        public void removeDetection(@NotNull Path path) {
+            --totalDetections;
+            filesWithDetection.remove(path);
+            uniqueFilesWithDetection = filesWithDetection.size();
+        }
+
+        /**
+         * Adds the detections of the given statistics to this one.
+         *
+         * @param other The statistics of the same {@link Detectable}.
+         */
+        public void merge(@NotNull Statistics<T> other) {
+            totalDetections += other.totalDetections;
+            filesWithDetection.addAll(other.filesWithDetection);
+            uniqueFilesWithDetection = filesWithDetection.size();
+        }
     }
 }
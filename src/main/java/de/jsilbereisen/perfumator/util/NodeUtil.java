@@ -15,6 +15,7 @@ import com.github.javaparser.resolution.Resolvable;
 import com.github.javaparser.resolution.TypeSolver;
 import com.github.javaparser.resolution.UnsolvedSymbolException;
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.github.javaparser.resolution.types.ResolvedType;
 import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
@@ -23,12 +24,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import de.jsilbereisen.perfumator.engine.context.index.JdkTypeIndex;
 import de.jsilbereisen.perfumator.engine.detector.Detector;
 import de.jsilbereisen.perfumator.engine.detector.util.MethodDeclarationMatcher;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -139,7 +143,8 @@ public final class NodeUtil {
      * As this should never fail if the given {@link JavaParserFacade} has a well-configured {@link TypeSolver}, like a
      * {@link CombinedTypeSolver} that has a {@link ReflectionTypeSolver}, or directly a {@link ReflectionTypeSolver},
      * and if the given qualified class name is indeed a class of the JDK, this method re-throws then the
-     * {@link UnsolvedSymbolException}.
+     * {@link UnsolvedSymbolException}. Names that are not declared by the JDK are rejected with the
+     * {@link JdkTypeIndex}, without asking the type solver.
      *
      * @param qualifiedClassName The fully qualified class name of the class to resolve from the JDK.
      * @param configuredContext A context, that has a {@link TypeSolver} that is able to resolve JDK classes.
@@ -156,6 +161,13 @@ public final class NodeUtil {
             throw new IllegalArgumentException("The class package name does not match the standard library.");
         }
 
+        JdkTypeIndex jdkIndex = JdkTypeIndex.getShared();
+        if (jdkIndex.isAvailable() && JdkTypeIndex.isStandardLibraryName(qualifiedClassName)
+                && !jdkIndex.contains(qualifiedClassName)) {
+            log.error(unresolvedMessage);
+            throw new UnsolvedSymbolException(qualifiedClassName);
+        }
+
         try {
             return configuredContext.getTypeSolver().solveType(qualifiedClassName);
         } catch (UnsolvedSymbolException e) {
@@ -217,6 +229,22 @@ public final class NodeUtil {
         }
     }
 
+    /**
+     * Checks whether the given type has an ancestor (transitive superclass or implemented interface) with the given
+     * qualified name. Ancestors from the standard library are checked with the {@link JdkTypeIndex}, so their type
+     * hierarchy is not resolved. Ancestors that can not be resolved are skipped.<br/>
+     * In contrast to {@link #safeCheckAssignableBy}, this never calls {@link ResolvedReferenceTypeDeclaration#isAssignableBy},
+     * which may recurse infinitely for reflected types.
+     *
+     * @param type                  The type to check.
+     * @param qualifiedAncestorName The qualified name of the ancestor, e.g. {@code "java.lang.Cloneable"}.
+     * @return {@code true} if the type has the ancestor.
+     */
+    public static boolean hasAncestor(@NotNull ResolvedReferenceTypeDeclaration type,
+                                      @NotNull String qualifiedAncestorName) {
+        return hasAncestor(type, qualifiedAncestorName, JdkTypeIndex.getShared(), new HashSet<>());
+    }
+
     /**
      * Runs the given {@link Supplier}, but wraps it in a try-catch-block that catches {@link UnsolvedSymbolException}.
      *
@@ -234,6 +262,46 @@ public final class NodeUtil {
         }
     }
 
+    private static boolean hasAncestor(@NotNull ResolvedReferenceTypeDeclaration type,
+                                       @NotNull String qualifiedAncestorName, @NotNull JdkTypeIndex jdkIndex,
+                                       @NotNull Set<String> visited) {
+        List<ResolvedReferenceType> ancestors;
+        try {
+            ancestors = type.getAncestors(true);
+        } catch (Exception e) {
+            log.debug("Unable to resolve the ancestors of " + type.getQualifiedName() + ".", e);
+            return false;
+        }
+
+        for (ResolvedReferenceType ancestor : ancestors) {
+            String ancestorName = ancestor.getQualifiedName();
+            if (ancestorName.equals(qualifiedAncestorName)) {
+                return true;
+            }
+
+            if (!visited.add(ancestorName)) {
+                continue;
+            }
+
+            if (jdkIndex.contains(ancestorName)) {
+                if (jdkIndex.isSubtypeOf(ancestorName, qualifiedAncestorName)) {
+                    return true;
+                }
+
+            } else {
+                Optional<ResolvedReferenceTypeDeclaration> ancestorDeclaration = safeResolutionAction(ancestor::getTypeDeclaration)
+                        .flatMap(declaration -> declaration);
+
+                if (ancestorDeclaration.isPresent()
+                        && hasAncestor(ancestorDeclaration.get(), qualifiedAncestorName, jdkIndex, visited)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Finds the first {@link MethodDeclaration} in the given {@link TypeDeclaration} where the given
      * {@link MethodDeclarationMatcher} matches.
@@ -3,12 +3,14 @@ package de.jsilbereisen.perfumator.util;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class PathUtil {
 
@@ -209,6 +211,53 @@ public class PathUtil {
         return path;
     }
 
+    /**
+     * Walks the file tree with the given start like {@link Files#walk}, depth-first and without following symbolic
+     * links, but visits the entries of each directory in the order of their names. Like that, the order of the walk
+     * does not depend on the file system, e.g. analyses of copies of the same directory produce the same output.
+     *
+     * @param start The start of the walk, which is the first element of the stream.
+     * @return The lazily populated stream of all files and directories in the tree.
+     * @throws java.io.UncheckedIOException If a directory can not be listed, while consuming the stream.
+     */
+    @NotNull
+    public static Stream<Path> walkInOrder(@NotNull Path start) {
+        Iterator<Path> iterator = new Iterator<>() {
+
+            private final Deque<Iterator<Path>> pendingEntries = new ArrayDeque<>(List.of(List.of(start).iterator()));
+
+            @Override
+            public boolean hasNext() {
+                while (!pendingEntries.isEmpty() && !pendingEntries.peek().hasNext()) {
+                    pendingEntries.pop();
+                }
+
+                return !pendingEntries.isEmpty();
+            }
+
+            @Override
+            public Path next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Path next = pendingEntries.element().next();
+                if (Files.isDirectory(next, LinkOption.NOFOLLOW_LINKS)) {
+                    try (Stream<Path> entries = Files.list(next)) {
+                        pendingEntries.push(entries.sorted().toList().iterator());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                return next;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
     /**
      * Converts the given {@link Path} to a "real", unique {@link Path} by calling {@link Path#toRealPath}
      * without any {@link LinkOption}s.
@@ -0,0 +1,39 @@
+package engine;
+
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import org.junit.jupiter.api.Test;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.context.AnalysisContext;
+import de.jsilbereisen.perfumator.engine.context.AnalysisContextFactory;
+import de.jsilbereisen.perfumator.i18n.Bundles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisContextTest {
+
+    /**
+     * Pins the private registry of {@link JavaParserFacade}, which {@link AnalysisContext#releaseFacade()} reads, to
+     * the JavaParser version of the build.
+     */
+    @Test
+    void releasingAFacadeKeepsTheFacadesOfOtherContexts() {
+        AnalysisContextFactory factory = new AnalysisContextFactory(
+                PerfumeDetectionEngine.getConfiguredJavaParser().getParserConfiguration(), new Bundles());
+        int registeredFacades = AnalysisContext.getRegisteredFacadeCount();
+        assertThat(registeredFacades).isNotNegative();
+
+        AnalysisContext released = factory.create(List.of());
+        AnalysisContext kept = factory.create(List.of());
+        assertThat(AnalysisContext.getRegisteredFacadeCount()).isEqualTo(registeredFacades + 2);
+
+        released.releaseFacade();
+        assertThat(AnalysisContext.getRegisteredFacadeCount()).isEqualTo(registeredFacades + 1);
+        assertThat(JavaParserFacade.get(kept.getTypeSolver())).isSameAs(kept.getFacade());
+
+        kept.release();
+        assertThat(AnalysisContext.getRegisteredFacadeCount()).isEqualTo(registeredFacades);
+    }
+}
@@ -0,0 +1,204 @@
+package engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.engine.AnalysisException;
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.worker.AnalysisCoordinator;
+import de.jsilbereisen.perfumator.engine.worker.AnalysisWorker;
+import de.jsilbereisen.perfumator.engine.worker.WorkerConfiguration;
+import de.jsilbereisen.perfumator.engine.worker.WorkerLauncher;
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.model.AnalysisResult;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnalysisCoordinatorTest {
+
+    private static final Path DIR_SMALL_PROJECT = Path.of("src", "test", "resources", "sources", "projects",
+            "small_project");
+
+    private static final JsonMapper MAPPER = new JsonMapper();
+
+    private static List<String> expectedDetections;
+
+    @BeforeAll
+    static void analyseWithOneEngine() throws Exception {
+        try (PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder().build()) {
+            AnalysisResult<Perfume> result = engine.detect(DIR_SMALL_PROJECT);
+
+            expectedDetections = result.getDetections().stream()
+                    .map(detection -> detection.getTypeName() + ":" + detection.getDetectable().getName())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Test
+    void workersAnalyseAllFiles(@TempDir Path output) throws IOException {
+        WorkerConfiguration configuration = new WorkerConfiguration().setSources(DIR_SMALL_PROJECT.toAbsolutePath());
+        AtomicInteger launchedWorkers = new AtomicInteger();
+
+        new AnalysisCoordinator(configuration, 2, 1, port -> {
+            launchedWorkers.incrementAndGet();
+            return inProcessWorker(port);
+        }).detectAndSerialize(OutputConfiguration.from(output));
+
+        assertThat(launchedWorkers).hasValue(2);
+        assertOutputOfSmallProject(output);
+    }
+
+    @Test
+    void listingFollowsTheOrderOfTheWalk(@TempDir Path directory) throws IOException {
+        Path sources = Files.createDirectories(directory.resolve(Path.of("project", "org", "example")));
+        for (int i = 0; i < 12; i++) {
+            Files.writeString(sources.resolve("Type" + i + ".java"), "package org.example; public class Type" + i
+                    + " { boolean test(Object o) { return o instanceof String s && s.isEmpty(); } }");
+        }
+        Path project = directory.resolve("project");
+        Path output = Files.createDirectory(directory.resolve("output"));
+
+        List<String> walkOrder;
+        try (PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder().build()) {
+            walkOrder = engine.detect(project).getDetections().stream()
+                    .map(detection -> detection.getTypeName() + ":" + detection.getDetectable().getName())
+                    .toList();
+        }
+
+        WorkerConfiguration configuration = new WorkerConfiguration().setSources(project.toAbsolutePath());
+        new AnalysisCoordinator(configuration, 3, 1, AnalysisCoordinatorTest::inProcessWorker)
+                .detectAndSerialize(OutputConfiguration.from(output));
+
+        assertThat(walkOrder).hasSize(12);
+        assertThat(readListings(output)).containsExactlyElementsOf(walkOrder);
+    }
+
+    @Test
+    void crashedWorkerIsReplaced(@TempDir Path output) throws IOException {
+        WorkerConfiguration configuration = new WorkerConfiguration().setSources(DIR_SMALL_PROJECT.toAbsolutePath());
+        AtomicInteger launchedWorkers = new AtomicInteger();
+
+        // The first worker crashes on the only batch, with all files of the project
+        new AnalysisCoordinator(configuration, 1, 4, port -> launchedWorkers.incrementAndGet() == 1
+                ? crashingWorker(port) : inProcessWorker(port)).detectAndSerialize(OutputConfiguration.from(output));
+
+        assertThat(launchedWorkers).hasValue(2);
+        assertOutputOfSmallProject(output);
+    }
+
+    @Test
+    void fileThatWorkersCrashOnFailsTheAnalysis(@TempDir Path output) {
+        WorkerConfiguration configuration = new WorkerConfiguration().setSources(DIR_SMALL_PROJECT.toAbsolutePath());
+
+        AnalysisCoordinator coordinator = new AnalysisCoordinator(configuration, 1, 4,
+                AnalysisCoordinatorTest::crashingWorker);
+
+        assertThatThrownBy(() -> coordinator.detectAndSerialize(OutputConfiguration.from(output)))
+                .isInstanceOf(AnalysisException.class);
+        assertThat(output.resolve("summary.json")).doesNotExist();
+    }
+
+    @Test
+    void outputDirectoryMustBeEmpty(@TempDir Path output) throws IOException {
+        WorkerConfiguration configuration = new WorkerConfiguration().setSources(DIR_SMALL_PROJECT.toAbsolutePath());
+        Files.writeString(output.resolve("summary.json"), "{}");
+        AtomicInteger launchedWorkers = new AtomicInteger();
+
+        AnalysisCoordinator coordinator = new AnalysisCoordinator(configuration, 1, 4, port -> {
+            launchedWorkers.incrementAndGet();
+            return inProcessWorker(port);
+        });
+
+        assertThatThrownBy(() -> coordinator.detectAndSerialize(OutputConfiguration.from(output)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(launchedWorkers).hasValue(0);
+    }
+
+    @Test
+    void workersInSeparateJvms(@TempDir Path output) throws IOException {
+        WorkerConfiguration configuration = new WorkerConfiguration().setSources(DIR_SMALL_PROJECT.toAbsolutePath());
+
+        new AnalysisCoordinator(configuration, 2, 2, WorkerLauncher.jvm())
+                .detectAndSerialize(OutputConfiguration.from(output));
+
+        assertOutputOfSmallProject(output);
+    }
+
+    private static void assertOutputOfSmallProject(@NotNull Path output) throws IOException {
+        assertThat(readListings(output)).containsExactlyInAnyOrderElementsOf(expectedDetections);
+
+        JsonNode summary = MAPPER.readTree(output.resolve("summary.json").toFile());
+        assertThat(summary.get("totalAnalysedFiles").asInt()).isEqualTo(4);
+        assertThat(summary.get("totalDetections").asInt()).isEqualTo(expectedDetections.size());
+    }
+
+    @NotNull
+    private static List<String> readListings(@NotNull Path output) throws IOException {
+        List<String> detections = new ArrayList<>();
+        try (Stream<Path> listings = Files.list(output)) {
+            for (Path listing : listings.filter(path -> path.getFileName().toString().startsWith("detections"))
+                    .sorted().toList()) {
+                MAPPER.readTree(listing.toFile()).forEach(detection -> detections.add(
+                        detection.get("typeName").asText() + ":" + detection.get("detectable_name").asText()));
+            }
+        }
+
+        return detections;
+    }
+
+    @NotNull
+    private static CompletableFuture<?> inProcessWorker(int port) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                AnalysisWorker.run(port);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, task -> new Thread(task).start());
+    }
+
+    /**
+     * Simulates a worker that crashes after it received its first batch.
+     */
+    @NotNull
+    private static CompletableFuture<?> crashingWorker(int port) {
+        return CompletableFuture.runAsync(() -> {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+                Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+                reader.readLine();
+                writer.write("{\"type\":\"REQUEST\"}\n");
+                writer.flush();
+                reader.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, task -> new Thread(task).start());
+    }
+}
@@ -0,0 +1,180 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.engine.pipeline.AnalysisPipeline;
+import de.jsilbereisen.perfumator.engine.pipeline.AnalysisPipeline.Lane;
+import de.jsilbereisen.perfumator.engine.pipeline.PipelineStatistics;
+import de.jsilbereisen.perfumator.engine.pipeline.VirtualThreads;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnalysisPipelineTest {
+
+    @Test
+    void resultsAreWrittenInOrderOfTheFiles(@TempDir Path directory) throws IOException {
+        List<Path> files = createFiles(directory, 50);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maximumInFlight = new AtomicInteger();
+        List<String> written = new ArrayList<>();
+
+        try (AnalysisPipeline<String> pipeline = new AnalysisPipeline<>(4, 2, 2, false)) {
+            AnalysisPipeline.FileAnalyser<String> analyser = file -> {
+                maximumInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                sleepRandomly();
+                return file.getText(StandardCharsets.UTF_8);
+            };
+            Lane<String> even = pipeline.createLane(() -> analyser);
+            Lane<String> odd = pipeline.createLane(() -> analyser);
+
+            pipeline.run(files.stream(), file -> files.indexOf(file) % 2 == 0 ? even : odd, (file, result) -> {
+                inFlight.decrementAndGet();
+                written.add(result);
+            });
+        }
+
+        assertThat(written).containsExactlyElementsOf(files.stream().map(file -> file.getFileName().toString()).toList());
+        // The capacity of the pipeline, plus the file taken by the writer and the file that the walker waits to put
+        assertThat(maximumInFlight.get()).isLessThanOrEqualTo(6);
+    }
+
+    @Test
+    void largestReadFilesAreAnalysedFirst(@TempDir Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Path file = directory.resolve("File" + i + ".java");
+            Files.writeString(file, "x".repeat(i + 1));
+            files.add(file);
+        }
+        List<Integer> analysedSizes = Collections.synchronizedList(new ArrayList<>());
+        List<Path> written = new ArrayList<>();
+
+        PipelineStatistics statistics;
+        try (AnalysisPipeline<String> pipeline = new AnalysisPipeline<>(files.size(), 1, 1, true)) {
+            Lane<String> lane = pipeline.createLane(() -> file -> {
+                if (analysedSizes.isEmpty()) {
+                    // Gives the reader time to read all other files, while the first one is analysed
+                    sleep(300);
+                }
+                analysedSizes.add(file.getSize());
+                return "";
+            });
+
+            pipeline.run(files.stream(), file -> lane, (file, result) -> written.add(file.getPath()));
+            statistics = pipeline.getStatistics();
+        }
+
+        assertThat(analysedSizes.subList(1, analysedSizes.size())).isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(written).containsExactlyElementsOf(files);
+        assertThat(statistics.getAnalysedFiles()).isEqualTo(files.size());
+        assertThat(statistics.getWallTimeMillis()).isGreaterThanOrEqualTo(statistics.getStragglerTimeMillis());
+        assertThat(statistics.getAnalysisTimeMillis()).isGreaterThanOrEqualTo(300);
+    }
+
+    @Test
+    void laneWithMultipleAnalysersIsAnalysedInParallel(@TempDir Path directory) throws IOException {
+        List<Path> files = createFiles(directory, 40);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maximumInFlight = new AtomicInteger();
+        List<Integer> createdAnalysers = Collections.synchronizedList(new ArrayList<>());
+        List<String> written = new ArrayList<>();
+
+        PipelineStatistics statistics;
+        try (AnalysisPipeline<String> pipeline = new AnalysisPipeline<>(16, 2, 4, false)) {
+            Lane<String> lane = pipeline.createLane(index -> {
+                createdAnalysers.add(index);
+                AtomicInteger analysing = new AtomicInteger();
+
+                return file -> {
+                    // An analyser never analyses two files at the same time
+                    assertThat(analysing.incrementAndGet()).isEqualTo(1);
+                    maximumInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    sleep(5);
+                    inFlight.decrementAndGet();
+                    analysing.decrementAndGet();
+                    return file.getText(StandardCharsets.UTF_8);
+                };
+            }, 3);
+
+            pipeline.run(files.stream(), file -> lane, (file, result) -> written.add(result));
+            statistics = pipeline.getStatistics();
+        }
+
+        assertThat(written).containsExactlyElementsOf(files.stream().map(file -> file.getFileName().toString()).toList());
+        assertThat(maximumInFlight.get()).isBetween(2, 3);
+        assertThat(createdAnalysers).doesNotHaveDuplicates().allMatch(index -> index >= 0 && index < 3);
+        assertThat(statistics.getActiveWorkerThreads()).isBetween(2, 4);
+    }
+
+    @Test
+    void virtualThreadIoIsOnlyUsedIfAvailable(@TempDir Path directory) throws IOException {
+        List<Path> files = createFiles(directory, 20);
+        List<String> written = new ArrayList<>();
+
+        try (AnalysisPipeline<String> pipeline = new AnalysisPipeline<>(4, 1, 2, false, true)) {
+            assertThat(pipeline.isVirtualThreadIo()).isEqualTo(VirtualThreads.isAvailable());
+
+            Lane<String> lane = pipeline.createLane(() -> file -> file.getText(StandardCharsets.UTF_8));
+            pipeline.run(files.stream(), file -> lane, (file, result) -> written.add(result));
+        }
+
+        assertThat(written).containsExactlyElementsOf(files.stream().map(file -> file.getFileName().toString()).toList());
+    }
+
+    @Test
+    void failureStopsThePipeline(@TempDir Path directory) throws IOException {
+        List<Path> files = createFiles(directory, 20);
+        AtomicInteger analysed = new AtomicInteger();
+
+        try (AnalysisPipeline<String> pipeline = new AnalysisPipeline<>(2, 1, 1, true)) {
+            Lane<String> lane = pipeline.createLane(() -> file -> {
+                if (analysed.incrementAndGet() == 3) {
+                    throw new IllegalStateException("Failing analysis");
+                }
+                return "";
+            });
+
+            assertThatThrownBy(() -> pipeline.run(files.stream(), file -> lane, (file, result) -> { }))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Failing analysis");
+        }
+
+        assertThat(analysed.get()).isLessThan(files.size());
+    }
+
+    private static List<Path> createFiles(Path directory, int amount) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            Path file = directory.resolve("File" + i + ".java");
+            Files.writeString(file, file.getFileName().toString());
+            files.add(file);
+        }
+
+        return files;
+    }
+
+    private static void sleepRandomly() {
+        sleep(ThreadLocalRandom.current().nextInt(3));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.corpus.CorpusAnalyser;
+import de.jsilbereisen.perfumator.engine.corpus.CorpusManifest;
+import de.jsilbereisen.perfumator.engine.corpus.CorpusProject;
+import de.jsilbereisen.perfumator.io.LanguageTag;
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.model.AnalysisResult;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CorpusAnalyserTest {
+
+    private static final Path DIR_SMALL_PROJECT = Path.of("src", "test", "resources", "sources", "projects",
+            "small_project");
+
+    @Test
+    void readManifest(@TempDir Path directory) throws IOException {
+        Path manifest = directory.resolve("manifest.txt");
+        Files.writeString(manifest, "# Submissions\n\nstudents/a\n  students/b  \n" + DIR_SMALL_PROJECT.toAbsolutePath()
+                + "\n");
+
+        assertThat(CorpusManifest.read(manifest)).containsExactly(directory.resolve("students/a"),
+                directory.resolve("students/b"), DIR_SMALL_PROJECT.toAbsolutePath());
+    }
+
+    @Test
+    void analyseCorpus(@TempDir Path directory) throws Exception {
+        Path copiedProject = directory.resolve("copy").resolve("small_project");
+        copyDirectory(DIR_SMALL_PROJECT, copiedProject);
+        Path output = Files.createDirectory(directory.resolve("output"));
+
+        int expectedDetections;
+        try (PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder().build()) {
+            AnalysisResult<Perfume> result = engine.detect(DIR_SMALL_PROJECT);
+            expectedDetections = result.getDetections().size();
+        }
+
+        List<Path> projects = List.of(DIR_SMALL_PROJECT, directory.resolve("missing"), copiedProject);
+        List<CorpusProject> outcomes;
+        try (CorpusAnalyser corpusAnalyser = new CorpusAnalyser(LanguageTag.getDefault().getRelatedLocale(), 2,
+                builder -> builder)) {
+            outcomes = corpusAnalyser.analyse(projects, OutputConfiguration.from(output));
+        }
+
+        // A failing project does not fail the corpus, projects with the same name are numbered
+        assertThat(outcomes).extracting(CorpusProject::getName, CorpusProject::isFailed,
+                CorpusProject::getTotalAnalysedFiles, CorpusProject::getTotalDetections).containsExactly(
+                tuple("small_project", false, 4, expectedDetections),
+                tuple("missing", true, 0, 0),
+                tuple("small_project_2", false, 4, expectedDetections));
+
+        assertThat(output.resolve("small_project").resolve("summary.json")).isRegularFile();
+        assertThat(output.resolve("small_project_2").resolve("summary.json")).isRegularFile();
+
+        JsonMapper mapper = new JsonMapper();
+        JsonNode summary = mapper.readTree(output.resolve("summary.json").toFile());
+        assertThat(summary.get("totalAnalysedFiles").asInt()).isEqualTo(8);
+        assertThat(summary.get("totalDetections").asInt()).isEqualTo(2 * expectedDetections);
+
+        JsonNode index = mapper.readTree(output.resolve(CorpusAnalyser.INDEX_FILE_NAME).toFile());
+        assertThat(index).hasSize(3);
+        assertThat(index.get(1).get("error").asText()).isNotEmpty();
+        assertThat(index.get(2).has("error")).isFalse();
+    }
+
+    @Test
+    void projectsDoNotTakeTheNamesOfTheCorpusFiles(@TempDir Path directory) throws Exception {
+        Path summaryProject = directory.resolve("summary.json");
+        Path indexProject = directory.resolve("Corpus.json");
+        copyDirectory(DIR_SMALL_PROJECT, summaryProject);
+        copyDirectory(DIR_SMALL_PROJECT, indexProject);
+        Path output = Files.createDirectory(directory.resolve("output"));
+
+        List<CorpusProject> outcomes;
+        try (CorpusAnalyser corpusAnalyser = new CorpusAnalyser(LanguageTag.getDefault().getRelatedLocale(), 1,
+                builder -> builder)) {
+            outcomes = corpusAnalyser.analyse(List.of(summaryProject, indexProject), OutputConfiguration.from(output));
+        }
+
+        assertThat(outcomes).extracting(CorpusProject::getName, CorpusProject::isFailed).containsExactly(
+                tuple("summary.json_2", false), tuple("Corpus.json_2", false));
+        assertThat(output.resolve("summary.json")).isRegularFile();
+        assertThat(output.resolve(CorpusAnalyser.INDEX_FILE_NAME)).isRegularFile();
+    }
+
+    @Test
+    void outputDirectoryMustBeEmpty(@TempDir Path directory) throws Exception {
+        Path output = Files.createDirectory(directory.resolve("output"));
+        Files.createDirectory(output.resolve("small_project"));
+
+        try (CorpusAnalyser corpusAnalyser = new CorpusAnalyser(LanguageTag.getDefault().getRelatedLocale(), 1,
+                builder -> builder)) {
+            assertThatThrownBy(() -> corpusAnalyser.analyse(List.of(DIR_SMALL_PROJECT),
+                    OutputConfiguration.from(output))).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private static void copyDirectory(Path source, Path target) throws IOException {
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path file : files.toList()) {
+                Path copy = target.resolve(source.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(copy);
+                } else {
+                    Files.copy(file, copy);
+                }
+            }
+        }
+    }
+}
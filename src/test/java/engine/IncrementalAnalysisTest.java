@@ -0,0 +1,225 @@
+package engine;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.watch.IncrementalAnalysis;
+import de.jsilbereisen.perfumator.engine.watch.SourceWatcher;
+import de.jsilbereisen.perfumator.i18n.Bundles;
+import de.jsilbereisen.perfumator.i18n.BundlesLoader;
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.StatisticsSummary;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+import de.jsilbereisen.perfumator.util.JsonDeserializationUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalAnalysisTest {
+
+    private static final String WITH_DETECTION = """
+            package org.example;
+
+            public class %s {
+
+                public int length(Object value) {
+                    if (value instanceof String text) {
+                        return text.length();
+                    }
+                    return 0;
+                }
+            }
+            """;
+
+    /**
+     * Amount of the methods of {@link #withDetections}, each of which has a detection.
+     */
+    private static final int DETECTING_METHODS = 60;
+
+    private static final String WITHOUT_DETECTION = """
+            package org.example;
+
+            public class %s {
+            }
+            """;
+
+    private static final JsonMapper MAPPER = new JsonMapper();
+
+    private static Bundles i18n;
+
+    private static PerfumeDetectionEngine engine;
+
+    @BeforeAll
+    static void setupEngine() {
+        i18n = new Bundles();
+        new BundlesLoader(BundlesLoader.STANDARD_INTERNATIONALIZATION_PACKAGE, BundlesLoader.STANDARD_PERFUMES_PACKAGE,
+                BundlesLoader.STANDARD_APPLICATION_PACKAGE).loadApplicationBundle(i18n, Locale.ENGLISH);
+        engine = PerfumeDetectionEngine.builder().i18nResources(i18n).build();
+    }
+
+    @AfterAll
+    static void closeEngine() {
+        engine.close();
+    }
+
+    @Test
+    void onlyChangedFilesAndTheirListingsAreUpdated(@TempDir Path directory) throws IOException {
+        Path project = directory.resolve("project");
+        Path sources = Files.createDirectories(project.resolve(Path.of("src", "main", "java", "org", "example")));
+        Path first = write(sources, "First", withDetections());
+        write(sources, "Second", WITHOUT_DETECTION);
+        Path third = write(sources, "Third", withDetections());
+        Path output = Files.createDirectory(directory.resolve("output"));
+
+        IncrementalAnalysis analysis = new IncrementalAnalysis(engine, project,
+                OutputConfiguration.from(output).setBatchSize(100), i18n);
+        analysis.analyseAll();
+        assertMatchesFullAnalysis(analysis, project, output);
+
+        // The first and second file share the first listing, the third one is in the second listing
+        Path secondListing = output.resolve("detections_2.json");
+        FileTime secondListingWritten = Files.getLastModifiedTime(secondListing);
+        byte[] secondListingContent = Files.readAllBytes(secondListing);
+
+        write(sources, "First", WITHOUT_DETECTION);
+        analysis.update(List.of(first));
+        assertMatchesFullAnalysis(analysis, project, output);
+        assertThat(analysis.getDetections(first.toRealPath())).isEmpty();
+        assertThat(Files.getLastModifiedTime(secondListing)).isEqualTo(secondListingWritten);
+        assertThat(secondListing).hasBinaryContent(secondListingContent);
+
+        Files.delete(third);
+        Path fourth = write(sources, "Fourth", WITH_DETECTION);
+        analysis.update(List.of(third, fourth));
+        assertMatchesFullAnalysis(analysis, project, output);
+        assertThat(analysis.getSummary().getAnalyzedFiles()).doesNotContain(third.toAbsolutePath());
+
+        // Deleting a directory removes its files
+        deleteDirectory(project.resolve("src"));
+        analysis.update(List.of(project.resolve("src")));
+        assertThat(analysis.getSummary().getTotalAnalysedFiles()).isZero();
+        assertThat(analysis.getSummary().getTotalDetections()).isZero();
+        assertThat(readListings(output)).isEmpty();
+    }
+
+    @Test
+    void watcherUpdatesTheAnalysis(@TempDir Path directory) throws Exception {
+        Path project = directory.resolve("project");
+        Path sources = Files.createDirectories(project.resolve(Path.of("src", "main", "java", "org", "example")));
+        write(sources, "First", WITHOUT_DETECTION);
+        Path output = Files.createDirectory(directory.resolve("output"));
+
+        IncrementalAnalysis analysis = new IncrementalAnalysis(engine, project, OutputConfiguration.from(output), i18n);
+        analysis.analyseAll();
+        assertThat(analysis.getSummary().getTotalDetections()).isZero();
+
+        Path summary = output.resolve("summary.json");
+        FileTime summaryWritten = Files.getLastModifiedTime(summary);
+
+        try (SourceWatcher watcher = new SourceWatcher(analysis, i18n, Duration.ofMillis(50))) {
+            Thread watching = new Thread(watcher::watch);
+            watching.start();
+
+            // A new package with a new file
+            Path subpackage = Files.createDirectories(sources.resolve("sub"));
+            write(subpackage, "Second", WITH_DETECTION);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+            while (Files.getLastModifiedTime(summary).equals(summaryWritten) && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+
+            watcher.close();
+            watching.join(Duration.ofSeconds(10).toMillis());
+            assertThat(watching.isAlive()).isFalse();
+        }
+
+        assertMatchesFullAnalysis(analysis, project, output);
+        assertThat(analysis.getSummary().getTotalDetections()).isPositive();
+    }
+
+    private static void assertMatchesFullAnalysis(IncrementalAnalysis analysis, Path project, Path output)
+            throws IOException {
+        StatisticsSummary<Perfume> expected = engine.detect(project).getSummary();
+        StatisticsSummary<Perfume> actual = analysis.getSummary();
+
+        assertThat(actual.getTotalDetections()).isEqualTo(expected.getTotalDetections());
+        assertThat(actual.getTotalAnalysedFiles()).isEqualTo(expected.getTotalAnalysedFiles());
+        assertThat(actual.getAnalyzedFiles()).containsExactlyInAnyOrderElementsOf(expected.getAnalyzedFiles());
+        assertThat(detectionsPerPerfume(actual)).isEqualTo(detectionsPerPerfume(expected));
+
+        assertThat(readListings(output)).hasSize(expected.getTotalDetections());
+        assertThat(MAPPER.readTree(output.resolve("summary.json").toFile()).get("totalDetections").asInt())
+                .isEqualTo(expected.getTotalDetections());
+    }
+
+    private static Map<String, List<Object>> detectionsPerPerfume(StatisticsSummary<Perfume> summary) {
+        Map<String, List<Object>> perPerfume = new HashMap<>();
+        summary.getDetectableStatistics().forEach((perfume, stats) -> perPerfume.put(perfume.getName(),
+                List.of(stats.getTotalDetections(), stats.getFilesWithDetection())));
+
+        return perPerfume;
+    }
+
+    private static List<DetectedInstance<Perfume>> readListings(Path output) throws IOException {
+        try (Stream<Path> files = Files.list(output)) {
+            List<Path> listings = files.filter(file -> file.getFileName().toString().startsWith("detections"))
+                    .toList();
+
+            List<DetectedInstance<Perfume>> detections = new ArrayList<>();
+            for (Path listing : listings) {
+                detections.addAll(JsonDeserializationUtil.readList(MAPPER, new TypeReference<>() {}, listing));
+            }
+
+            return detections;
+        }
+    }
+
+    /**
+     * Returns a template of a class with {@value #DETECTING_METHODS} detections, so that the detections of two such
+     * classes do not fit into one listing.
+     */
+    private static String withDetections() {
+        StringBuilder methods = new StringBuilder();
+        for (int method = 0; method < DETECTING_METHODS; method++) {
+            methods.append("""
+
+                        public int length%d(Object value) {
+                            return value instanceof String text ? text.length() : 0;
+                        }
+                    """.formatted(method));
+        }
+
+        return "package org.example;\n\npublic class %s {\n" + methods + "}\n";
+    }
+
+    private static Path write(Path directory, String className, String template) throws IOException {
+        return Files.writeString(directory.resolve(className + ".java"), template.formatted(className));
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import test.dummy.DummyDetector;
+
+import de.jsilbereisen.perfumator.engine.context.index.IndexedJarTypeSolver;
+import de.jsilbereisen.perfumator.engine.context.index.IndexedType;
+import de.jsilbereisen.perfumator.engine.context.index.JarTypeIndex;
+import de.jsilbereisen.perfumator.engine.context.index.JarTypeIndexStore;
+import de.jsilbereisen.perfumator.engine.detector.Detector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JarTypeIndexStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void indexIsCreatedAndReused() throws IOException {
+        Path jar = createJar(tempDir.resolve("dummy.jar"), DummyDetector.class);
+        JarTypeIndexStore store = new JarTypeIndexStore(tempDir.resolve("index"));
+
+        JarTypeIndex index = store.getOrCreate(jar);
+        assertThat(index.getTypes()).containsOnlyKeys(DummyDetector.class.getName());
+        IndexedType type = index.getType(DummyDetector.class.getName()).orElseThrow();
+        assertThat(type.getSuperTypes()).contains(Object.class.getName(), Detector.class.getName());
+        assertThat(type.getMethodSignatures()).anyMatch(signature -> signature.startsWith("detect("));
+
+        try (Stream<Path> indexFiles = Files.list(store.getDirectory())) {
+            assertThat(indexFiles).hasSize(1);
+        }
+
+        // Touched but unchanged JAR: index is still valid
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(index.getLastModified() + 10_000));
+        JarTypeIndex reread = store.getOrCreate(jar);
+        assertThat(reread.getHash()).isEqualTo(index.getHash());
+        assertThat(reread.getTypes()).isEqualTo(index.getTypes());
+
+        // Changed JAR: index is re-created
+        createJar(jar, DummyDetector.class, JarTypeIndexStoreTest.class);
+        assertThat(store.getOrCreate(jar).getTypes()).containsOnlyKeys(DummyDetector.class.getName(),
+                JarTypeIndexStoreTest.class.getName());
+    }
+
+    @Test
+    void solverOpensJarLazily() throws IOException {
+        Path jar = createJar(tempDir.resolve("dummy.jar"), DummyDetector.class);
+        IndexedJarTypeSolver solver = new IndexedJarTypeSolver(new JarTypeIndexStore(tempDir).getOrCreate(jar));
+
+        assertThat(solver.tryToSolveType("some.unknown.Type").isSolved()).isFalse();
+        assertThat(solver.isLoaded()).isFalse();
+    }
+
+    private static Path createJar(Path jar, Class<?>... classes) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Class<?> clazz : classes) {
+                String entryName = clazz.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new JarEntry(entryName));
+
+                try (InputStream classFile = clazz.getClassLoader().getResourceAsStream(entryName)) {
+                    assertThat(classFile).isNotNull();
+                    classFile.transferTo(out);
+                }
+                out.closeEntry();
+            }
+        }
+
+        return jar;
+    }
+}
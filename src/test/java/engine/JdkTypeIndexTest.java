@@ -0,0 +1,34 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+
+import de.jsilbereisen.perfumator.engine.context.index.JdkTypeIndex;
+import de.jsilbereisen.perfumator.engine.context.index.JdkTypeSolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdkTypeIndexTest {
+
+    @Test
+    void standardLibraryTypesAreIndexed() {
+        JdkTypeIndex index = JdkTypeIndex.getShared();
+
+        assertThat(index.isAvailable()).isTrue();
+        assertThat(index.contains("java.util.EnumMap")).isTrue();
+        assertThat(index.contains("java.util.Map.Entry")).isTrue();
+        assertThat(index.contains("java.lang.MyClass")).isFalse();
+
+        assertThat(index.isSubtypeOf("java.util.ArrayList", "java.lang.Iterable")).isTrue();
+        assertThat(index.isSubtypeOf("java.lang.String", "java.lang.Comparable")).isTrue();
+        assertThat(index.isSubtypeOf("java.lang.String", "java.lang.Cloneable")).isFalse();
+    }
+
+    @Test
+    void solverRejectsUnknownStandardLibraryNames() {
+        JdkTypeSolver solver = new JdkTypeSolver();
+
+        assertThat(solver.tryToSolveType("java.lang.String").isSolved()).isTrue();
+        assertThat(solver.tryToSolveType("java.lang.MyClass").isSolved()).isFalse();
+        assertThat(solver.tryToSolveType("java.util.Map.Entry").isSolved()).isTrue();
+    }
+}
@@ -1,24 +1,71 @@
 package engine;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import test.dummy.DummyDetector;
 
+import de.jsilbereisen.perfumator.engine.AnalysisCancelledException;
+import de.jsilbereisen.perfumator.engine.AnalysisDeadline;
+import de.jsilbereisen.perfumator.engine.AnalysisException;
+import de.jsilbereisen.perfumator.engine.DetectionLimits;
+import de.jsilbereisen.perfumator.engine.DetectionPublisher;
 import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.engine.Sampling;
+import de.jsilbereisen.perfumator.engine.Shard;
+import de.jsilbereisen.perfumator.engine.context.AnalysisContextMetrics;
+import de.jsilbereisen.perfumator.engine.context.SourcesLayout;
+import de.jsilbereisen.perfumator.engine.detector.Detector;
 import de.jsilbereisen.perfumator.engine.registry.DetectableRegistry;
 import de.jsilbereisen.perfumator.engine.registry.PerfumeRegistry;
+import de.jsilbereisen.perfumator.engine.registry.PerfumeSelection;
 import de.jsilbereisen.perfumator.i18n.Bundles;
+import de.jsilbereisen.perfumator.io.output.AnalysisJournal;
+import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
+import de.jsilbereisen.perfumator.io.output.OutputFormat;
+import de.jsilbereisen.perfumator.model.AnalysisResult;
 import de.jsilbereisen.perfumator.model.DetectedInstance;
+import de.jsilbereisen.perfumator.model.SampleEstimates;
+import de.jsilbereisen.perfumator.model.SkippedAnalysis;
+import de.jsilbereisen.perfumator.model.StatisticsSummary;
 import de.jsilbereisen.perfumator.model.perfume.Perfume;
+import de.jsilbereisen.perfumator.util.PathUtil;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
@@ -93,4 +140,758 @@ class PerfumeDetectionEngineTest {
         assertThat(detectedTypesNames).containsExactlyInAnyOrder("AnotherDirClass", "SubpackageClassOne",
                 "SubpackageClassTwo", "Main");
     }
-}
\ No newline at end of file
+
+    @Test
+    void analysisContextsAreReused() {
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registryMock)
+                .i18nResources(bundlesMock)
+                .build();
+
+        engine.detect(DIR_SMALL_PROJECT);
+        JavaParserFacade firstContext = engine.getAnalysisContext();
+        engine.detect(DIR_SMALL_PROJECT);
+
+        assertThat(engine.getAnalysisContext()).isSameAs(firstContext);
+        assertThat(engine.getCachedContextCount()).isEqualTo(1);
+
+        engine.detect(SINGLE_JAVA_SOURCE);
+        assertThat(engine.getCachedContextCount()).isEqualTo(2);
+
+        engine.invalidate(DIR_SMALL_PROJECT);
+        assertThat(engine.getCachedContextCount()).isEqualTo(1);
+
+        engine.close();
+        assertThat(engine.getCachedContextCount()).isZero();
+        assertThatThrownBy(() -> engine.detect(DIR_SMALL_PROJECT)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void cachedContextsFollowChangesOfTheSources(@TempDir Path root) throws IOException {
+        Path sourceFile = root.resolve(Path.of("app", "src", "main", "java", "app", "App.java"));
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, "package app;\n\npublic class App {\n}\n");
+
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registryMock)
+                .i18nResources(bundlesMock)
+                .build();
+
+        engine.detect(root);
+        JavaParserFacade firstContext = engine.getAnalysisContext();
+        engine.detect(root);
+        assertThat(engine.getAnalysisContext()).isSameAs(firstContext);
+
+        // A changed file only clears the caches of the context
+        Files.writeString(sourceFile, "package app;\n\npublic class App {\n    int value;\n}\n");
+        Files.setLastModifiedTime(sourceFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        engine.detect(root);
+        assertThat(engine.getAnalysisContext()).isSameAs(firstContext);
+
+        // An added source root is collected into a new context
+        Path addedFile = root.resolve(Path.of("lib", "src", "main", "java", "lib", "Lib.java"));
+        Files.createDirectories(addedFile.getParent());
+        Files.writeString(addedFile, "package lib;\n\npublic class Lib {\n}\n");
+        engine.detect(root);
+        assertThat(engine.getAnalysisContext()).isNotSameAs(firstContext);
+        assertThat(engine.getCachedContextCount()).isEqualTo(1);
+
+        engine.close();
+    }
+
+    @Test
+    void detectInMemorySources() throws IOException {
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registryMock)
+                .i18nResources(bundlesMock)
+                .build();
+        String source = Files.readString(SINGLE_JAVA_SOURCE);
+        Path fileName = Path.of("org", "example", "SomeJavaSourceFile.java");
+
+        // Without a previous analysis, symbols are resolved from the dependencies only
+        AnalysisResult<Perfume> result = engine.detectInSource(source, fileName);
+        assertThat(result.getDetections()).extracting(DetectedInstance::getSourceFile).containsExactly(fileName);
+        assertThat(result.getSummary().getTotalAnalysedFiles()).isEqualTo(1);
+        assertThat(engine.getCachedContextCount()).isEqualTo(1);
+        assertThat(engine.getAnalysisContext()).isNull();
+
+        CompilationUnit ast = PerfumeDetectionEngine.getConfiguredJavaParser().parse(source).getResult().orElseThrow();
+        assertThat(engine.detectInCompilationUnit(ast, fileName).getDetections())
+                .usingRecursiveFieldByFieldElementComparator().isEqualTo(result.getDetections());
+
+        // The current context is reused, a given directory's context is cached like for the analysis of the directory
+        engine.detect(DIR_SMALL_PROJECT);
+        engine.detectInSource(source, fileName);
+        engine.detectInSource(source, fileName, DIR_SMALL_PROJECT);
+        assertThat(engine.getCachedContextCount()).isEqualTo(2);
+
+        AnalysisResult<Perfume> malformed = engine.detectInSource(Files.readString(SINGLE_MALFORMED_JAVA_SOURCE),
+                fileName);
+        assertThat(malformed.getDetections()).isEmpty();
+        assertThat(malformed.getSummary().getTotalAnalysedFiles()).isEqualTo(1);
+        engine.close();
+    }
+
+    @Test
+    void analysisContextMemoryIsBounded() {
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registryMock)
+                .i18nResources(bundlesMock)
+                .maximumCachedContexts(1)
+                .build();
+
+        engine.detect(DIR_SMALL_PROJECT);
+        int registeredFacades = engine.getContextMetrics().getRegisteredFacades();
+        engine.detect(DIR_SMALL_PROJECT);
+
+        AnalysisContextMetrics metrics = engine.getContextMetrics();
+        assertThat(metrics.getCachedContexts()).isEqualTo(1);
+        assertThat(metrics.getEvictedContexts()).isZero();
+        assertThat(metrics.getRegisteredFacades()).isEqualTo(registeredFacades);
+
+        engine.detect(SINGLE_JAVA_SOURCE);
+        metrics = engine.getContextMetrics();
+        assertThat(metrics.getCachedContexts()).isEqualTo(1);
+        assertThat(metrics.getEvictedContexts()).isEqualTo(1);
+
+        engine.close();
+    }
+
+    @Test
+    void detectorsOfAFileRunInParallelInDeterministicOrder() {
+        PerfumeRegistry registry = new PerfumeRegistry();
+        registry.loadRegistry(Locale.ENGLISH);
+        Path sources = Path.of("src", "test", "resources", "detectors");
+
+        PerfumeDetectionEngine sequentialEngine = PerfumeDetectionEngine.builder()
+                .registry(registry)
+                .build();
+        List<DetectedInstance<Perfume>> sequentialDetections = sequentialEngine.detect(sources).getDetections();
+        sequentialEngine.close();
+
+        PerfumeDetectionEngine parallelEngine = PerfumeDetectionEngine.builder()
+                .registry(registry)
+                .detectorParallelism(4)
+                .build();
+        assertThat(parallelEngine.getDetectorParallelism()).isEqualTo(4);
+
+        for (int run = 0; run < 3; run++) {
+            assertThat(parallelEngine.detect(sources).getDetections())
+                    .isNotEmpty()
+                    .containsExactlyElementsOf(sequentialDetections);
+        }
+
+        parallelEngine.close();
+    }
+
+    @Test
+    void failingAndSlowDetectorsAreSkippedIfContinuingOnErrors() {
+        DetectableRegistry<Perfume> registry = Mockito.mock(PerfumeRegistry.class);
+        when(registry.getRegisteredDetectors()).thenReturn(Set.of(new DummyDetector(),
+                new FunctionDetector(ast -> {
+                    throw new StackOverflowError();
+                }),
+                new FunctionDetector(ast -> {
+                    // Like a detector that is stuck in symbol resolution
+                    while (true) {
+                        AnalysisDeadline.checkpoint();
+                    }
+                })));
+
+        PerfumeDetectionEngine abortingEngine = PerfumeDetectionEngine.builder()
+                .registry(registry)
+                .i18nResources(bundlesMock)
+                .detectorTimeout(Duration.ofMillis(100))
+                .build();
+        assertThatThrownBy(() -> abortingEngine.detect(SINGLE_JAVA_SOURCE)).isInstanceOf(AnalysisException.class);
+        abortingEngine.close();
+
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registry)
+                .i18nResources(bundlesMock)
+                .detectorTimeout(Duration.ofMillis(100))
+                .continueOnError(true)
+                .build();
+        AnalysisResult<Perfume> result = engine.detect(SINGLE_JAVA_SOURCE);
+
+        assertThat(result.getDetections()).hasSize(1);
+        assertThat(result.getSummary().getSkippedAnalyses())
+                .extracting(SkippedAnalysis::getDetector, SkippedAnalysis::getReason)
+                .containsExactlyInAnyOrder(tuple("FunctionDetector", SkippedAnalysis.Reason.ERROR),
+                        tuple("FunctionDetector", SkippedAnalysis.Reason.DETECTOR_TIMEOUT));
+        engine.close();
+
+        PerfumeDetectionEngine fileBudgetEngine = PerfumeDetectionEngine.builder()
+                .registry(registry)
+                .i18nResources(bundlesMock)
+                .fileTimeout(Duration.ofMillis(100))
+                .continueOnError(true)
+                .build();
+        List<SkippedAnalysis> skipped = fileBudgetEngine.detect(SINGLE_JAVA_SOURCE).getSummary().getSkippedAnalyses();
+
+        assertThat(skipped).extracting(SkippedAnalysis::getReason).contains(SkippedAnalysis.Reason.FILE_TIMEOUT);
+        fileBudgetEngine.close();
+    }
+
+    @Test
+    void analysisOfASourceIsCancelledAtTheNextCheckpoint() throws IOException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger checkpoints = new AtomicInteger();
+        DetectableRegistry<Perfume> registry = Mockito.mock(PerfumeRegistry.class);
+        when(registry.getRegisteredDetectors()).thenReturn(Set.of(new DummyDetector(),
+                new FunctionDetector(ast -> {
+                    // Like a detector that is stuck in symbol resolution, while its source is edited
+                    while (true) {
+                        if (checkpoints.incrementAndGet() == 100) {
+                            cancelled.set(true);
+                        }
+                        AnalysisDeadline.checkpoint();
+                    }
+                })));
+
+        // Not skipped like a timeout, even if the engine continues on errors
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registry)
+                .i18nResources(bundlesMock)
+                .continueOnError(true)
+                .build();
+        String source = Files.readString(SINGLE_JAVA_SOURCE);
+
+        assertThatThrownBy(() -> engine.detectInSource(source, SINGLE_JAVA_SOURCE, null, cancelled::get))
+                .isInstanceOf(AnalysisCancelledException.class);
+        assertThat(checkpoints.get()).isEqualTo(100);
+
+        // A cancelled analysis does not affect the next one
+        when(registry.getRegisteredDetectors()).thenReturn(Set.of(new DummyDetector()));
+        PerfumeDetectionEngine nextEngine = PerfumeDetectionEngine.builder()
+                .registry(registry)
+                .i18nResources(bundlesMock)
+                .build();
+        assertThat(nextEngine.detectInSource(source, SINGLE_JAVA_SOURCE, null, () -> false).getDetections())
+                .hasSize(1);
+        assertThatThrownBy(() -> nextEngine.detectInSource(source, SINGLE_JAVA_SOURCE, null, () -> true))
+                .isInstanceOf(AnalysisCancelledException.class);
+
+        engine.close();
+        nextEngine.close();
+    }
+
+    @Test
+    void modulesAreAnalysedWithTheirOwnContexts(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve("pom.xml"), "<project><artifactId>parent</artifactId></project>");
+        createMavenModule(root.resolve("core"), "<project><artifactId>core</artifactId></project>",
+                "org/example/core/Base.java", "package org.example.core; public class Base { "
+                        + "boolean check(Object o) { return o instanceof String s && s.isEmpty(); } }");
+        createMavenModule(root.resolve("app"), "<project><artifactId>app</artifactId><dependencies><dependency>"
+                        + "<artifactId>core</artifactId></dependency></dependencies></project>",
+                "org/example/app/App.java", "package org.example.app; import org.example.core.Base; "
+                        + "public class App extends Base { "
+                        + "boolean test(Object o) { return o instanceof Integer i && i > 0; } }");
+
+        PerfumeDetectionEngine parallelEngine = PerfumeDetectionEngine.builder().parallelism(2).build();
+        List<DetectedInstance<Perfume>> parallelDetections = parallelEngine.detect(root).getDetections();
+
+        assertThat(parallelDetections).extracting(DetectedInstance::getTypeName).contains("Base", "App");
+        AnalysisContextMetrics metrics = parallelEngine.getContextMetrics();
+        assertThat(metrics.getCachedContexts()).isEqualTo(2);
+        // The context of "app" contains the source root of "core", but not vice versa
+        assertThat(metrics.getJavaParserTypeSolvers()).isEqualTo(3);
+
+        PerfumeDetectionEngine sequentialEngine = PerfumeDetectionEngine.builder().parallelism(1).build();
+        List<DetectedInstance<Perfume>> sequentialDetections = sequentialEngine.detect(root).getDetections();
+        assertThat(sequentialDetections).hasSameSizeAs(parallelDetections);
+        // The output does not depend on the parallelism
+        assertThat(sequentialDetections).extracting(DetectedInstance::getSourceFile)
+                .containsExactlyElementsOf(parallelDetections.stream().map(DetectedInstance::getSourceFile).toList());
+
+        parallelEngine.close();
+        sequentialEngine.close();
+    }
+
+    @Test
+    void filesOfADirectoryWithoutModulesAreAnalysedInParallel(@TempDir Path root) throws IOException {
+        Path packageDirectory = Files.createDirectories(root.resolve("org/example"));
+        for (int i = 0; i < 32; i++) {
+            Files.writeString(packageDirectory.resolve("Type" + i + ".java"), "package org.example; "
+                    + "public class Type" + i + " { boolean test(Object o) { return o instanceof String s && s.isEmpty(); } }");
+        }
+
+        PerfumeDetectionEngine parallelEngine = PerfumeDetectionEngine.builder().replicaParallelism(4)
+                .maximumCachedContexts(4).build();
+        List<DetectedInstance<Perfume>> parallelDetections = parallelEngine.detect(root).getDetections();
+
+        assertThat(parallelEngine.getLastPipelineStatistics()).isNotNull();
+        assertThat(parallelEngine.getLastPipelineStatistics().getWorkerThreads()).isEqualTo(4);
+        assertThat(parallelEngine.getLastPipelineStatistics().getActiveWorkerThreads()).isGreaterThan(1);
+        // The directory's context and its replicas
+        assertThat(parallelEngine.getContextMetrics().getCachedContexts()).isEqualTo(1);
+
+        // Replicas are opt-in, the parallelism of the modules does not apply to them
+        PerfumeDetectionEngine sequentialEngine = PerfumeDetectionEngine.builder().parallelism(4).build();
+        List<DetectedInstance<Perfume>> sequentialDetections = sequentialEngine.detect(root).getDetections();
+        assertThat(sequentialEngine.getLastPipelineStatistics().getWorkerThreads()).isEqualTo(1);
+        assertThat(sequentialEngine.getLastPipelineStatistics().getActiveWorkerThreads()).isEqualTo(1);
+        // The output does not depend on the parallelism
+        assertThat(sequentialDetections).isNotEmpty().extracting(DetectedInstance::getTypeName)
+                .containsExactlyElementsOf(parallelDetections.stream().map(DetectedInstance::getTypeName).toList());
+
+        parallelEngine.close();
+        sequentialEngine.close();
+    }
+
+    @Test
+    void replicasOfADirectoryCountTowardsTheCachedContexts(@TempDir Path root) throws IOException {
+        Path first = Files.createDirectories(root.resolve("first/org/example"));
+        Path second = Files.createDirectories(root.resolve("second/org/example"));
+        for (int i = 0; i < 16; i++) {
+            Files.writeString(first.resolve("Type" + i + ".java"), "package org.example; public class Type" + i + " {}");
+            Files.writeString(second.resolve("Type" + i + ".java"), "package org.example; public class Type" + i + " {}");
+        }
+
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder().replicaParallelism(8)
+                .maximumCachedContexts(3).build();
+
+        engine.detect(root.resolve("first"));
+        // Limited by the cache, so that the context and its replicas fit into it
+        assertThat(engine.getLastPipelineStatistics().getWorkerThreads()).isEqualTo(3);
+
+        engine.detect(root.resolve("second"));
+        AnalysisContextMetrics metrics = engine.getContextMetrics();
+        // The first directory's context and its replicas were evicted for those of the second directory
+        assertThat(metrics.getCachedContexts()).isEqualTo(1);
+        assertThat(metrics.getEvictedContexts()).isEqualTo(1);
+
+        engine.close();
+    }
+
+    @Test
+    void batchesWithTheSameLayoutMatchTheAnalysisOfTheDirectory() {
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registryMock)
+                .i18nResources(bundlesMock)
+                .build();
+        List<String> expected = engine.detect(DIR_SMALL_PROJECT).getDetections().stream()
+                .map(DetectedInstance::getTypeName).toList();
+
+        List<Path> sourceFiles;
+        try (Stream<Path> walk = PathUtil.walkInOrder(DIR_SMALL_PROJECT)) {
+            sourceFiles = walk.filter(path -> PathUtil.isRelevantJavaFile(path,
+                    DIR_SMALL_PROJECT.getFileName().toString())).toList();
+        }
+
+        SourcesLayout layout = SourcesLayout.of(DIR_SMALL_PROJECT);
+        List<String> batched = new ArrayList<>();
+        for (int from = 0; from < sourceFiles.size(); from += 2) {
+            engine.detectInSourceFiles(layout, sourceFiles.subList(from, Math.min(from + 2, sourceFiles.size())))
+                    .getDetections().forEach(detection -> batched.add(detection.getTypeName()));
+        }
+
+        assertThat(batched).hasSize(4).containsExactlyElementsOf(expected);
+        engine.close();
+    }
+
+    @Test
+    void shardsPartitionTheAnalysedFiles() {
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registryMock)
+                .i18nResources(bundlesMock)
+                .build();
+        List<String> allTypeNames = engine.detect(DIR_SMALL_PROJECT).getDetections().stream()
+                .map(DetectedInstance::getTypeName).toList();
+
+        List<String> shardedTypeNames = new ArrayList<>();
+        for (int index = 1; index <= 3; index++) {
+            PerfumeDetectionEngine shardEngine = PerfumeDetectionEngine.builder()
+                    .registry(registryMock)
+                    .i18nResources(bundlesMock)
+                    .shard(new Shard(index, 3))
+                    .build();
+
+            shardEngine.detect(DIR_SMALL_PROJECT).getDetections()
+                    .forEach(detection -> shardedTypeNames.add(detection.getTypeName()));
+            shardEngine.close();
+        }
+
+        assertThat(shardedTypeNames).containsExactlyInAnyOrderElementsOf(allTypeNames);
+        engine.close();
+    }
+
+    @Test
+    void interruptedAnalysisIsResumedFromTheJournal(@TempDir Path output) throws IOException {
+        AtomicBoolean interrupt = new AtomicBoolean(true);
+        AtomicInteger analysedFiles = new AtomicInteger();
+        Perfume batchPerfume = new Perfume();
+        batchPerfume.setName("Batch Perfume");
+        DetectableRegistry<Perfume> registry = Mockito.mock(PerfumeRegistry.class);
+        when(registry.getRegisteredDetectors()).thenReturn(Set.of(new DummyDetector(), new FunctionDetector(ast -> {
+            analysedFiles.incrementAndGet();
+            if (interrupt.get() && ast.getPrimaryTypeName().orElse("").equals("SubpackageClassTwo")) {
+                throw new IllegalStateException("Interrupted");
+            }
+
+            // Fills a listing for each file
+            return Collections.nCopies(OutputConfiguration.MIN_BATCH_SIZE, new DetectedInstance<>(batchPerfume,
+                    ast.getPrimaryTypeName().orElse(""), 1, 1, null));
+        })));
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder()
+                .registry(registry)
+                .i18nResources(bundlesMock)
+                .parallelism(1)
+                .build();
+        OutputConfiguration config = OutputConfiguration.from(output).setBatchSize(OutputConfiguration.MIN_BATCH_SIZE)
+                .setResume(true);
+
+        assertThatThrownBy(() -> engine.detectAndSerialize(DIR_SMALL_PROJECT, config, OutputFormat.JSON))
+                .isInstanceOf(AnalysisException.class);
+        assertThat(output.resolve(AnalysisJournal.JOURNAL_FILE_NAME)).exists();
+
+        interrupt.set(false);
+        analysedFiles.set(0);
+        engine.detectAndSerialize(DIR_SMALL_PROJECT, config, OutputFormat.JSON);
+
+        // Only the files that were not completed before the interruption are analysed again
+        assertThat(analysedFiles.get()).isLessThan(4);
+        assertThat(output.resolve(AnalysisJournal.JOURNAL_FILE_NAME)).doesNotExist();
+
+        JsonMapper mapper = new JsonMapper();
+        List<String> detectedTypeNames = new ArrayList<>();
+        try (Stream<Path> listings = Files.list(output)) {
+            for (Path listing : listings.filter(path -> path.getFileName().toString().startsWith("detections"))
+                    .toList()) {
+                mapper.readTree(listing.toFile()).forEach(detection ->
+                        detectedTypeNames.add(detection.get("typeName").asText()));
+            }
+        }
+        assertThat(detectedTypeNames).hasSize(4 * (OutputConfiguration.MIN_BATCH_SIZE + 1));
+        assertThat(detectedTypeNames.stream().distinct()).containsExactlyInAnyOrder("AnotherDirClass",
+                "SubpackageClassOne", "SubpackageClassTwo", "Main");
+
+        JsonNode summary = mapper.readTree(output.resolve("summary.json").toFile());
+        assertThat(summary.get("totalAnalysedFiles").asInt()).isEqualTo(4);
+        assertThat(summary.get("totalDetections").asInt()).isEqualTo(4 * (OutputConfiguration.MIN_BATCH_SIZE + 1));
+
+        engine.close();
+    }
+
+    @Test
+    void publishedDetectionsFollowTheDemand() throws Exception {
+        PerfumeRegistry registry = new PerfumeRegistry();
+        registry.loadRegistry(Locale.ENGLISH);
+        Path sources = Path.of("src", "test", "resources", "detectors");
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder().registry(registry).build();
+
+        AnalysisResult<Perfume> result = engine.detect(sources);
+        assertThat(result.getDetections()).hasSizeGreaterThan(2);
+
+        // Requesting one detection at a time publishes the same detections as the collecting analysis
+        List<DetectedInstance<Perfume>> published = new ArrayList<>();
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        DetectionPublisher<Perfume> publisher = engine.publishDetections(sources);
+        publisher.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(DetectedInstance<Perfume> detection) {
+                published.add(detection);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completion.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completion.complete(null);
+            }
+        });
+
+        completion.get(60, TimeUnit.SECONDS);
+        assertThat(published).containsExactlyElementsOf(result.getDetections());
+        assertThat(publisher.getSummary()).isNotNull();
+        assertThat(publisher.getSummary().getTotalDetections()).isEqualTo(result.getSummary().getTotalDetections());
+
+        // Without further demand, the analysis waits, until the subscription is cancelled
+        BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        AtomicReference<Flow.Subscription> limitedSubscription = new AtomicReference<>();
+        DetectionPublisher<Perfume> limitedPublisher = engine.publishDetections(sources);
+        limitedPublisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                limitedSubscription.set(subscription);
+                subscription.request(2);
+            }
+
+            @Override
+            public void onNext(DetectedInstance<Perfume> detection) {
+                signals.add(detection);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+
+        assertThat(signals.poll(60, TimeUnit.SECONDS)).isEqualTo(result.getDetections().get(0));
+        assertThat(signals.poll(60, TimeUnit.SECONDS)).isEqualTo(result.getDetections().get(1));
+        assertThat(signals.poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+        limitedSubscription.get().cancel();
+        assertThat(signals.poll(200, TimeUnit.MILLISECONDS)).isNull();
+
+        // Each analysis is only published once
+        CompletableFuture<Throwable> rejection = new CompletableFuture<>();
+        limitedPublisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+
+            @Override
+            public void onNext(DetectedInstance<Perfume> detection) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                rejection.complete(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertThat(rejection.get(1, TimeUnit.SECONDS)).isInstanceOf(IllegalStateException.class);
+        assertThat(limitedPublisher.getSummary()).isNull();
+
+        engine.close();
+    }
+
+    @Test
+    void queryStopsLookingForPerfumesAtTheirLimits() {
+        PerfumeRegistry registry = new PerfumeRegistry();
+        registry.loadRegistry(Locale.ENGLISH);
+        Path sources = Path.of("src", "test", "resources", "detectors");
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder().registry(registry).build();
+
+        List<DetectedInstance<Perfume>> allDetections = engine.detect(sources).getDetections();
+        Map<Perfume, List<DetectedInstance<Perfume>>> detectionsByPerfume = allDetections.stream()
+                .collect(Collectors.groupingBy(DetectedInstance::getDetectable, LinkedHashMap::new,
+                        Collectors.toList()));
+        Perfume frequentPerfume = detectionsByPerfume.entrySet().stream()
+                .filter(entry -> entry.getValue().size() > 2).map(Map.Entry::getKey).findFirst().orElseThrow();
+
+        // The first detection of each Perfume, in the order of the full analysis
+        AnalysisResult<Perfume> firstDetections = engine.query(sources,
+                DetectionLimits.firstDetection().limit(frequentPerfume.getName(), 2));
+        assertThat(firstDetections.getDetections()).containsExactlyElementsOf(allDetections.stream()
+                .filter(detection -> {
+                    List<DetectedInstance<Perfume>> ofPerfume = detectionsByPerfume.get(detection.getDetectable());
+                    int limit = detection.getDetectable().equals(frequentPerfume) ? 2 : 1;
+                    return ofPerfume.indexOf(detection) < limit;
+                }).toList());
+        assertThat(firstDetections.getSummary().getTotalDetections())
+                .isEqualTo(firstDetections.getDetections().size());
+
+        // Counting files, all detections of a Perfume in at most one file
+        AnalysisResult<Perfume> firstFiles = engine.query(sources, DetectionLimits.firstDetection().countingFiles());
+        assertThat(firstFiles.getDetections().stream().map(DetectedInstance::getDetectable).distinct())
+                .containsExactlyInAnyOrderElementsOf(detectionsByPerfume.keySet());
+        firstFiles.getDetections().stream()
+                .collect(Collectors.groupingBy(DetectedInstance::getDetectable))
+                .forEach((perfume, detections) -> assertThat(detections)
+                        .extracting(DetectedInstance::getSourceFile).containsOnly(detections.get(0).getSourceFile())
+                        .hasSize((int) detectionsByPerfume.get(perfume).stream()
+                                .filter(detection -> detection.getSourceFile().equals(detections.get(0).getSourceFile()))
+                                .count()));
+
+        // The analysis stops once every selected Perfume reached its limit
+        PerfumeDetectionEngine selectiveEngine = PerfumeDetectionEngine.builder().registry(registry)
+                .only(frequentPerfume.getName()).build();
+        AnalysisResult<Perfume> singlePerfume = selectiveEngine.query(sources, DetectionLimits.firstDetection());
+        assertThat(singlePerfume.getDetections()).containsExactly(detectionsByPerfume.get(frequentPerfume).get(0));
+        assertThat(singlePerfume.getSummary().getTotalAnalysedFiles())
+                .isLessThan(engine.detect(sources).getSummary().getTotalAnalysedFiles());
+
+        assertThatThrownBy(() -> DetectionLimits.of(0)).isInstanceOf(IllegalArgumentException.class);
+
+        selectiveEngine.close();
+        engine.close();
+    }
+
+    @Test
+    void builderRejectsAmountsThatAreNotPositive() {
+        PerfumeDetectionEngine.Builder builder = PerfumeDetectionEngine.builder().registry(registryMock)
+                .i18nResources(bundlesMock);
+
+        assertThatThrownBy(() -> builder.parallelism(0)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("parallelism");
+        assertThatThrownBy(() -> builder.pipelineCapacity(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.readerThreads(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.detectorParallelism(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.maximumCachedContexts(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.typeCacheLimit(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.parsedFilesCacheLimit(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void everyBuildHasItsOwnDefaultRegistryAndParser() {
+        PerfumeDetectionEngine.Builder builder = PerfumeDetectionEngine.builder(Locale.ENGLISH);
+        PerfumeDetectionEngine first = builder.build();
+        PerfumeDetectionEngine second = builder.selection(PerfumeSelection.all().include("Equals blueprint")).build();
+
+        assertThat(second.getRegistry()).isNotSameAs(first.getRegistry());
+        assertThat(second.getAstParser()).isNotSameAs(first.getAstParser());
+        // Detectors are equal by their state, so their identity is compared
+        assertThat(second.getRegistry().getRegisteredDetectors()).hasSize(1).allSatisfy(detector ->
+                assertThat(first.getRegistry().getRegisteredDetectors()).noneMatch(other -> other == detector));
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void unseenPerfumesHaveAnUpperBoundAboveZero() {
+        // The default registry detects nothing in the small project
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder().sampling(Sampling.of(0.5, 7)).build();
+        engine.detect(DIR_SMALL_PROJECT);
+        SampleEstimates estimates = engine.getLastSampleEstimates();
+
+        assertThat(estimates).isNotNull();
+        assertThat(estimates.getSampledFiles()).isLessThan(estimates.getTotalFiles());
+        assertThat(estimates.getPerfumes()).isNotEmpty().allSatisfy(estimate -> {
+            assertThat(estimate.getSampledFiles()).isZero();
+            assertThat(estimate.getFiles().getValue()).isZero();
+            assertThat(estimate.getFiles().getLower()).isZero();
+            assertThat(estimate.getFiles().getUpper()).isGreaterThan(0).isLessThan(estimates.getTotalFiles());
+            assertThat(estimate.getPrevalence().getLower()).isZero();
+            assertThat(estimate.getPrevalence().getUpper()).isGreaterThan(0).isLessThan(1);
+        });
+
+        engine.close();
+    }
+
+    @Test
+    void sampledAnalysisEstimatesTheDetectionsInAllFiles(@TempDir Path output) throws IOException {
+        PerfumeRegistry registry = new PerfumeRegistry();
+        registry.loadRegistry(Locale.ENGLISH);
+        Path sources = Path.of("src", "test", "resources", "detectors").toRealPath();
+        PerfumeDetectionEngine engine = PerfumeDetectionEngine.builder().registry(registry).build();
+        StatisticsSummary<Perfume> fullSummary = engine.detect(sources).getSummary();
+        int totalFiles = fullSummary.getTotalAnalysedFiles();
+
+        // Sampling all files estimates exactly what the full analysis detects
+        PerfumeDetectionEngine completeSample = PerfumeDetectionEngine.builder().registry(registry)
+                .sampling(Sampling.of(1, 42)).build();
+        completeSample.detect(sources);
+        SampleEstimates exact = completeSample.getLastSampleEstimates();
+        assertThat(exact).isNotNull();
+        assertThat(exact.getSampledFiles()).isEqualTo(exact.getTotalFiles()).isEqualTo(totalFiles);
+        assertThat(exact.getTotalDetections().getValue()).isCloseTo(fullSummary.getTotalDetections(), within(1e-9));
+        assertThat(exact.getTotalDetections().getUpper() - exact.getTotalDetections().getLower())
+                .isCloseTo(0, within(1e-9));
+        fullSummary.getDetectableStatistics().forEach((perfume, statistics) -> {
+            SampleEstimates.PerfumeEstimate estimate = exact.getPerfumes().stream()
+                    .filter(perfumeEstimate -> perfumeEstimate.getPerfume().equals(perfume.getName()))
+                    .findFirst().orElseThrow();
+            assertThat(estimate.getSampledDetections()).isEqualTo(statistics.getTotalDetections());
+            assertThat(estimate.getDetections().getValue()).isCloseTo(statistics.getTotalDetections(), within(1e-9));
+            assertThat(estimate.getFiles().getValue())
+                    .isCloseTo(statistics.getUniqueFilesWithDetection(), within(1e-9));
+            assertThat(estimate.getFiles().getUpper() - estimate.getFiles().getLower()).isCloseTo(0, within(1e-9));
+        });
+
+        // The same seed draws the same sample, whose interval contains what the full analysis detects
+        Sampling sampling = Sampling.of(0.5, 7);
+        PerfumeDetectionEngine sampledEngine = PerfumeDetectionEngine.builder().registry(registry)
+                .sampling(sampling).build();
+        AnalysisResult<Perfume> sample = sampledEngine.detect(sources);
+        assertThat(sampledEngine.detect(sources).getDetections()).isEqualTo(sample.getDetections());
+        assertThat(sample.getSummary().getTotalAnalysedFiles()).isEqualTo(sampling.sampleSize(totalFiles));
+
+        SampleEstimates estimates = sampledEngine.getLastSampleEstimates();
+        assertThat(estimates).isNotNull();
+        assertThat(estimates.getSeed()).isEqualTo(7);
+        assertThat(estimates.getTotalFiles()).isEqualTo(totalFiles);
+        assertThat(estimates.getTotalDetections().getLower()).isGreaterThanOrEqualTo(sample.getDetections().size())
+                .isLessThanOrEqualTo(fullSummary.getTotalDetections());
+        assertThat(estimates.getTotalDetections().getUpper()).isGreaterThanOrEqualTo(fullSummary.getTotalDetections());
+        assertThat(estimates.getPerfumes()).allSatisfy(estimate -> {
+            assertThat(estimate.getFiles().getValue()).isBetween(estimate.getFiles().getLower(),
+                    estimate.getFiles().getUpper());
+            assertThat(estimate.getFiles().getUpper()).isLessThanOrEqualTo(totalFiles);
+            assertThat(estimate.getPrevalence().getUpper()).isLessThanOrEqualTo(1);
+        });
+
+        // Stratified, every package is part of the sample
+        Sampling stratified = Sampling.of(0.1, 7).stratifiedByPackage();
+        PerfumeDetectionEngine stratifiedEngine = PerfumeDetectionEngine.builder().registry(registry)
+                .sampling(stratified).build();
+        StatisticsSummary<Perfume> stratifiedSummary = stratifiedEngine.detect(sources).getSummary();
+        Map<String, List<Path>> packages = stratified.stratify(sources,
+                new ArrayList<>(fullSummary.getAnalyzedFiles()));
+        Map<String, List<Path>> sampledPackages = stratified.stratify(sources,
+                new ArrayList<>(stratifiedSummary.getAnalyzedFiles()));
+        assertThat(sampledPackages).containsOnlyKeys(packages.keySet());
+        sampledPackages.forEach((stratum, files) ->
+                assertThat(files).hasSize(stratified.sampleSize(packages.get(stratum).size())));
+        assertThat(stratifiedEngine.getLastSampleEstimates()).isNotNull()
+                .extracting(SampleEstimates::getStrata).isEqualTo(packages.size());
+
+        // The estimates are written next to the listings
+        sampledEngine.detectAndSerialize(sources, OutputConfiguration.from(output), OutputFormat.JSON);
+        assertThat(new JsonMapper().readValue(output.resolve(SampleEstimates.FILE_NAME).toFile(),
+                SampleEstimates.class)).isEqualTo(sampledEngine.getLastSampleEstimates());
+
+        assertThatThrownBy(() -> Sampling.of(0, 7)).isInstanceOf(IllegalArgumentException.class);
+
+        stratifiedEngine.close();
+        sampledEngine.close();
+        completeSample.close();
+        engine.close();
+    }
+
+    private static void createMavenModule(Path directory, String pom, String sourceFile, String source)
+            throws IOException {
+        Path sourcePath = directory.resolve("src/main/java").resolve(sourceFile);
+        Files.createDirectories(sourcePath.getParent());
+        Files.writeString(sourcePath, source);
+        Files.writeString(directory.resolve("pom.xml"), pom);
+    }
+
+    /**
+     * Detector that applies the given function to the AST.
+     */
+    private static class FunctionDetector implements Detector<Perfume> {
+
+        private final Function<CompilationUnit, List<DetectedInstance<Perfume>>> detection;
+
+        private FunctionDetector(@NotNull Function<CompilationUnit, List<DetectedInstance<Perfume>>> detection) {
+            this.detection = detection;
+        }
+
+        @Override
+        public @NotNull List<DetectedInstance<Perfume>> detect(@NotNull CompilationUnit astRoot) {
+            return detection.apply(astRoot);
+        }
+
+        @Override
+        public void setConcreteDetectable(@NotNull Perfume concreteDetectable) {
+        }
+
+        @Override
+        public void setAnalysisContext(@Nullable JavaParserFacade analysisContext) {
+        }
+    }
+}
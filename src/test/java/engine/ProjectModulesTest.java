@@ -0,0 +1,70 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.engine.context.ProjectModule;
+import de.jsilbereisen.perfumator.engine.context.ProjectModules;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectModulesTest {
+
+    @Test
+    void detectMavenModules(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve("pom.xml"), pom("parent"));
+        createModule(root.resolve("core"), "pom.xml", pom("core"));
+        createModule(root.resolve("api"), "pom.xml", pom("api", "core"));
+        createModule(root.resolve("app"), "pom.xml", pom("app", "api", "junit-jupiter"));
+
+        List<ProjectModule> modules = ProjectModules.detect(root);
+
+        assertThat(modules).extracting(ProjectModule::getName).containsExactly("api", "app", "core");
+        Path realRoot = root.toRealPath();
+        assertThat(modules.get(1).getUpstreamDirectories())
+                .containsExactly(realRoot.resolve("api"), realRoot.resolve("core"));
+        assertThat(modules.get(2).getUpstreamDirectories()).isEmpty();
+        assertThat(modules.get(1).containsSource(realRoot.resolve("app/src/test/java/AppTest.java"))).isTrue();
+    }
+
+    @Test
+    void detectGradleModules(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve("settings.gradle"), "include 'lib', 'service'");
+        createModule(root.resolve("lib"), "build.gradle", "dependencies {}");
+        createModule(root.resolve("service"), "build.gradle.kts",
+                "dependencies { implementation(project(\":lib\")) }");
+
+        List<ProjectModule> modules = ProjectModules.detect(root);
+
+        assertThat(modules).extracting(ProjectModule::getName).containsExactly(":lib", ":service");
+        assertThat(modules.get(1).getUpstreamDirectories()).containsExactly(root.toRealPath().resolve("lib"));
+    }
+
+    @Test
+    void singleProjectHasNoModules(@TempDir Path root) throws IOException {
+        Files.createDirectories(root.resolve("src/main/java"));
+
+        assertThat(ProjectModules.detect(root)).isEmpty();
+    }
+
+    private static void createModule(Path directory, String buildFileName, String buildFile) throws IOException {
+        Files.createDirectories(directory.resolve("src/main/java"));
+        Files.writeString(directory.resolve(buildFileName), buildFile);
+    }
+
+    private static String pom(String artifactId, String... dependencies) {
+        StringBuilder pom = new StringBuilder("<project><groupId>org.example</groupId><artifactId>")
+                .append(artifactId).append("</artifactId><dependencies>");
+        for (String dependency : dependencies) {
+            pom.append("<dependency><groupId>org.example</groupId><artifactId>").append(dependency)
+                    .append("</artifactId></dependency>");
+        }
+
+        return pom.append("</dependencies></project>").toString();
+    }
+}
@@ -0,0 +1,77 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+
+import de.jsilbereisen.perfumator.engine.pipeline.ReorderBuffer;
+import de.jsilbereisen.perfumator.engine.pipeline.ReorderBuffer.Sequenced;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReorderBufferTest {
+
+    @Test
+    void valuesAreTakenInOrderOfTheirSequenceNumbers() throws InterruptedException {
+        ReorderBuffer<String> buffer = new ReorderBuffer<>(3);
+        long first = buffer.acquire();
+        long second = buffer.acquire();
+        long third = buffer.acquire();
+
+        buffer.complete(third, "third");
+        buffer.complete(first, "first");
+        buffer.complete(second, "second");
+        buffer.close();
+
+        List<String> taken = new ArrayList<>();
+        for (Optional<Sequenced<String>> next = buffer.take(); next.isPresent(); next = buffer.take()) {
+            taken.add(next.get().getValue());
+        }
+
+        assertThat(taken).containsExactly("first", "second", "third");
+        assertThatThrownBy(buffer::acquire).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void pollingDoesNotWaitForTheNextValue() throws InterruptedException {
+        ReorderBuffer<String> buffer = new ReorderBuffer<>(2);
+        long first = buffer.acquire();
+        long second = buffer.acquire();
+
+        buffer.complete(second, "second");
+        assertThat(buffer.poll()).isEmpty();
+
+        buffer.complete(first, "first");
+        assertThat(buffer.poll()).hasValueSatisfying(next -> assertThat(next.getValue()).isEqualTo("first"));
+        assertThat(buffer.poll()).hasValueSatisfying(next -> assertThat(next.getValue()).isEqualTo("second"));
+        assertThat(buffer.poll()).isEmpty();
+    }
+
+    @Test
+    void acquiringBlocksWhileTheWindowIsFull() throws Exception {
+        ReorderBuffer<String> buffer = new ReorderBuffer<>(2);
+        buffer.acquire();
+        buffer.acquire();
+
+        CompletableFuture<Long> third = CompletableFuture.supplyAsync(() -> {
+            try {
+                return buffer.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        buffer.complete(1, "second");
+        Thread.sleep(50);
+        assertThat(third).isNotDone();
+
+        buffer.complete(0, "first");
+        assertThat(buffer.take()).hasValueSatisfying(next -> assertThat(next.getSequenceNumber()).isZero());
+        assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+    }
+}
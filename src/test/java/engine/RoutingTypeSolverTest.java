@@ -0,0 +1,82 @@
+package engine;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.engine.context.BoundedCache;
+import de.jsilbereisen.perfumator.engine.context.RoutingTypeSolver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutingTypeSolverTest {
+
+    @Test
+    void onlyCandidatesAreAsked(@TempDir Path sourceRoot) throws IOException {
+        Path packageDir = Files.createDirectories(sourceRoot.resolve("org/example"));
+        Files.writeString(packageDir.resolve("Foo.java"), "package org.example; class Foo {}");
+
+        RoutingTypeSolver solver = new RoutingTypeSolver(new BoundedCache<>(100));
+        RecordingTypeSolver unrouted = new RecordingTypeSolver();
+        RecordingTypeSolver sources = new RecordingTypeSolver();
+        RecordingTypeSolver jar = new RecordingTypeSolver();
+        solver.addUnroutedSolver(unrouted);
+        solver.addSourceRootSolver(sources, sourceRoot);
+        solver.addTypeNameSolver(jar, Set.of("com.lib.Bar", "com.lib.Bar.Inner"));
+
+        assertThat(solver.getCandidates("org.example.Foo")).containsExactly(unrouted, sources);
+        assertThat(solver.getCandidates("org.example.Foo.Nested")).containsExactly(unrouted, sources);
+        assertThat(solver.getCandidates("com.lib.Bar.Inner")).containsExactly(unrouted, jar);
+        assertThat(solver.getCandidates("org.other.Foo")).containsExactly(unrouted);
+
+        solver.tryToSolveType("org.other.Foo");
+        solver.tryToSolveType("org.other.Foo");
+        assertThat(unrouted.requested).containsExactly("org.other.Foo");
+        assertThat(sources.requested).isEmpty();
+        assertThat(jar.requested).isEmpty();
+    }
+
+    @Test
+    void resolvesLikeTheSolversInOrder() {
+        RoutingTypeSolver solver = new RoutingTypeSolver(new BoundedCache<>(100));
+        solver.addUnroutedSolver(new ReflectionTypeSolver(false));
+
+        assertThat(solver.tryToSolveType("java.lang.String").isSolved()).isTrue();
+        assertThat(solver.tryToSolveType("java.lang.String").getCorrespondingDeclaration().getQualifiedName())
+                .isEqualTo("java.lang.String");
+        assertThat(solver.tryToSolveType("org.example.Missing").isSolved()).isFalse();
+    }
+
+    private static class RecordingTypeSolver implements TypeSolver {
+
+        private final List<String> requested = new ArrayList<>();
+
+        private TypeSolver parent;
+
+        @Override
+        public TypeSolver getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            requested.add(name);
+            return SymbolReference.unsolved();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+
+import de.jsilbereisen.perfumator.engine.Shard;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardTest {
+
+    private static final List<String> SOURCE_FILES = IntStream.range(0, 200)
+            .mapToObj(i -> "module" + (i % 3) + "/src/main/java/org/example/p" + (i % 7) + "/Type" + i + ".java")
+            .toList();
+
+    @Test
+    void parse() {
+        assertThat(Shard.parse("2/4")).isEqualTo(new Shard(2, 4));
+        assertThat(Shard.parse(" 1 / 1 ")).isEqualTo(new Shard(1, 1));
+
+        assertThatThrownBy(() -> Shard.parse("0/4")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Shard.parse("5/4")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Shard.parse("2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Shard.parse("a/b")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shardsPartitionTheFiles() {
+        Path sources = Path.of("some", "project");
+        List<Shard> shards = IntStream.rangeClosed(1, 4).mapToObj(index -> new Shard(index, 4)).toList();
+
+        for (String file : SOURCE_FILES) {
+            Path sourceFile = sources.resolve(file);
+
+            assertThat(shards).filteredOn(shard -> shard.contains(sources, sourceFile)).hasSize(1);
+        }
+
+        // No shard is empty for enough files
+        assertThat(shards).allSatisfy(shard -> assertThat(SOURCE_FILES)
+                .anyMatch(file -> shard.contains(sources, sources.resolve(file))));
+    }
+
+    @Test
+    void shardsDoNotDependOnTheLocationOfTheSources() {
+        Path sources = Path.of("some", "project");
+        Path relocatedSources = Path.of("/", "elsewhere", "checkout", "project").toAbsolutePath();
+        Shard shard = new Shard(1, 3);
+
+        for (String file : SOURCE_FILES) {
+            assertThat(shard.contains(relocatedSources, relocatedSources.resolve(file)))
+                    .isEqualTo(shard.contains(sources, sources.resolve(file)));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package engine;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.engine.context.index.JarTypeIndex;
+import de.jsilbereisen.perfumator.engine.pipeline.SourceFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SourceFileTest {
+
+    private static final String SOURCE = "package test;\n\n/** Grüße */\npublic class Greeting { }\n";
+
+    @Test
+    void mappedAndReadContentAreEqual(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("Greeting.java");
+        Files.writeString(file, SOURCE);
+
+        SourceFile read = SourceFile.read(file);
+        SourceFile mapped = SourceFile.read(file, 0);
+
+        assertThat(read.isMapped()).isFalse();
+        assertThat(mapped.isMapped()).isTrue();
+        assertThat(read.getSize()).isEqualTo(mapped.getSize()).isEqualTo((int) Files.size(file));
+        assertThat(read.getText(StandardCharsets.UTF_8)).isEqualTo(SOURCE);
+        assertThat(mapped.getText(StandardCharsets.UTF_8)).isEqualTo(SOURCE);
+        assertThat(read.getContent().isReadOnly()).isTrue();
+    }
+
+    @Test
+    void contentHashIsComputedFromTheReadBytes(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("Greeting.java");
+        Files.writeString(file, SOURCE);
+
+        String expectedHash = JarTypeIndex.hash(file);
+
+        assertThat(SourceFile.read(file).getContentHash()).isEqualTo(expectedHash);
+        assertThat(SourceFile.read(file, 0).getContentHash()).isEqualTo(expectedHash);
+    }
+
+    @Test
+    void parsedCompilationUnitIsStoredAtThePath(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("Greeting.java");
+        Files.writeString(file, SOURCE);
+
+        ParseResult<CompilationUnit> result = SourceFile.read(file, 0).parse(new JavaParser());
+
+        assertThat(result.isSuccessful()).isTrue();
+        CompilationUnit compilationUnit = result.getResult().orElseThrow();
+        assertThat(compilationUnit.getStorage()).hasValueSatisfying(storage -> assertThat(storage.getPath()).isEqualTo(file));
+        assertThat(compilationUnit.getPrimaryTypeName()).hasValue("Greeting");
+        assertThat(compilationUnit.getType(0).getJavadocComment()).hasValueSatisfying(
+                comment -> assertThat(comment.getContent()).contains("Grüße"));
+    }
+}
@@ -0,0 +1,191 @@
+package io;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.io.server.AnalysisRequest;
+import de.jsilbereisen.perfumator.io.server.AnalysisServer;
+import de.jsilbereisen.perfumator.model.AnalysisResult;
+import de.jsilbereisen.perfumator.model.perfume.Perfume;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisServerTest {
+
+    private static final Path DIR_SMALL_PROJECT = Path.of("src", "test", "resources", "sources", "projects",
+            "small_project");
+
+    private static final JsonMapper MAPPER = new JsonMapper();
+
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static PerfumeDetectionEngine engine;
+
+    private static AnalysisServer server;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        engine = PerfumeDetectionEngine.builder().build();
+        server = new AnalysisServer(engine, 0);
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+        engine.close();
+    }
+
+    @Test
+    void health() throws Exception {
+        HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(uri(AnalysisServer.HEALTH_PATH)).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(MAPPER.readTree(response.body()).get("status").asText()).isEqualTo("running");
+    }
+
+    @Test
+    void requestsForOtherHostsAreRejected() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.getOutputStream().write(("GET " + AnalysisServer.HEALTH_PATH + " HTTP/1.1\r\n"
+                    + "Host: attacker.example:" + server.getPort() + "\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII)).readLine();
+            assertThat(statusLine).contains(" 403 ");
+        }
+
+        assertThat(AnalysisServer.isLoopbackHost("localhost:8421")).isTrue();
+        assertThat(AnalysisServer.isLoopbackHost("127.0.0.1")).isTrue();
+        assertThat(AnalysisServer.isLoopbackHost("[::1]:8421")).isTrue();
+        assertThat(AnalysisServer.isLoopbackHost("localhost.attacker.example")).isFalse();
+        assertThat(AnalysisServer.isLoopbackHost("[::1")).isFalse();
+        assertThat(AnalysisServer.isLoopbackHost(null)).isFalse();
+    }
+
+    @Test
+    void healthIsAnsweredWhileAnAnalysisRuns() throws Exception {
+        CompletableFuture<HttpResponse<String>> analysis = CLIENT.sendAsync(
+                HttpRequest.newBuilder(uri(AnalysisServer.ANALYSE_PATH))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(
+                                new AnalysisRequest().setPath(DIR_SMALL_PROJECT.toString()))))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> health = CLIENT.send(HttpRequest.newBuilder(uri(AnalysisServer.HEALTH_PATH)).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(health.statusCode()).isEqualTo(200);
+        assertThat(analysis.get().statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void analyseDirectory() throws Exception {
+        AnalysisResult<Perfume> expected = engine.detect(DIR_SMALL_PROJECT);
+
+        JsonNode response = analyse(new AnalysisRequest().setPath(DIR_SMALL_PROJECT.toAbsolutePath().toString()));
+
+        assertThat(response.get("detections")).hasSize(expected.getDetections().size());
+        assertThat(response.get("summary").get("totalAnalysedFiles").asInt()).isEqualTo(4);
+        assertThat(response.get("summary").get("totalDetections").asInt())
+                .isEqualTo(expected.getDetections().size());
+        assertThat(response.has("error")).isFalse();
+    }
+
+    @Test
+    void analyseFilesOfDirectory() throws Exception {
+        Path file;
+        try (Stream<Path> files = Files.walk(DIR_SMALL_PROJECT)) {
+            file = files.filter(path -> path.toString().endsWith(".java")).findFirst().orElseThrow();
+        }
+
+        JsonNode response = analyse(new AnalysisRequest().setPath(DIR_SMALL_PROJECT.toString())
+                .setFiles(List.of(DIR_SMALL_PROJECT.relativize(file).toString())));
+
+        assertThat(response.get("summary").get("totalAnalysedFiles").asInt()).isEqualTo(1);
+        assertThat(response.get("detections")).hasSize(engine.detect(file).getDetections().size());
+    }
+
+    @Test
+    void analyseInlineSources() throws Exception {
+        String source = """
+                package org.example;
+
+                public class Example {
+
+                    public int length(Object value) {
+                        if (value instanceof String text) {
+                            return text.length();
+                        }
+                        return 0;
+                    }
+                }
+                """;
+
+        JsonNode response = analyse(new AnalysisRequest().setSources(List.of(new AnalysisRequest.InlineSource()
+                .setFileName("org/example/Example.java").setContent(source))));
+
+        assertThat(response.get("summary").get("totalAnalysedFiles").asInt()).isEqualTo(1);
+        assertThat(response.get("detections")).isNotEmpty();
+        for (JsonNode detection : response.get("detections")) {
+            assertThat(detection.get("sourceFile").asText()).isEqualTo("org/example/Example.java");
+        }
+
+        // Resolved with the context of a project
+        JsonNode inProject = analyse(new AnalysisRequest().setPath(DIR_SMALL_PROJECT.toString())
+                .setSources(List.of(new AnalysisRequest.InlineSource().setFileName("org/example/Example.java")
+                        .setContent(source))));
+        assertThat(inProject.get("detections")).hasSameSizeAs(response.get("detections"));
+    }
+
+    @Test
+    void invalidRequest() throws Exception {
+        HttpResponse<String> response = post(new AnalysisRequest());
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(MAPPER.readTree(response.body()).get("error").asText()).isNotEmpty();
+
+        response = post(new AnalysisRequest().setPath(DIR_SMALL_PROJECT.toString())
+                .setFiles(List.of("../../outside/Outside.java")));
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    private static JsonNode analyse(AnalysisRequest request) throws Exception {
+        HttpResponse<String> response = post(request);
+        assertThat(response.statusCode()).isEqualTo(200);
+
+        return MAPPER.readTree(response.body());
+    }
+
+    private static HttpResponse<String> post(AnalysisRequest request) throws Exception {
+        return CLIENT.send(HttpRequest.newBuilder(uri(AnalysisServer.ANALYSE_PATH))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(request)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,287 @@
+package io;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.engine.PerfumeDetectionEngine;
+import de.jsilbereisen.perfumator.io.lsp.LspConnection;
+import de.jsilbereisen.perfumator.io.lsp.PerfumeLanguageServer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Timeout(60)
+class LanguageServerTest {
+
+    private static final JsonMapper MAPPER = new JsonMapper();
+
+    private static final Path CHILD_PATH = Path.of("org", "example", "Child.java");
+
+    private static final String URI = "file:///workspace/org/example/Example.java";
+
+    private static final String PERFUMED_SOURCE = """
+            package org.example;
+
+            public class Example {
+                public int length(Object value) {
+                    if (value instanceof String text) {
+                        return text.length();
+                    }
+                    return 0;
+                }
+            }
+            """;
+
+    private static final String PLAIN_SOURCE = """
+            package org.example;
+
+            public class Example {
+            }
+            """;
+
+    private static final String BASE_SOURCE = """
+            package org.example;
+
+            public class Base {
+            }
+            """;
+
+    private static final String CHILD_SOURCE = """
+            package org.example;
+
+            public class Child extends Base {
+                private int value;
+
+                @Override
+                public boolean equals(Object other) {
+                    return other instanceof Child child && child.value == value;
+                }
+
+                @Override
+                public int hashCode() {
+                    return value;
+                }
+            }
+            """;
+
+    private PerfumeDetectionEngine engine;
+
+    private OutputStream toServer;
+
+    private LspConnection fromServer;
+
+    private CompletableFuture<Boolean> server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        engine = PerfumeDetectionEngine.builder().build();
+
+        PipedInputStream serverInput = new PipedInputStream(1 << 16);
+        toServer = new PipedOutputStream(serverInput);
+        PipedInputStream clientInput = new PipedInputStream(1 << 16);
+        PipedOutputStream serverOutput = new PipedOutputStream(clientInput);
+        fromServer = new LspConnection(clientInput, OutputStream.nullOutputStream());
+
+        PerfumeLanguageServer languageServer = new PerfumeLanguageServer(engine, serverInput, serverOutput,
+                Duration.ofMillis(200));
+        server = CompletableFuture.supplyAsync(() -> {
+            try {
+                return languageServer.run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @AfterEach
+    void closeEngine() {
+        engine.close();
+    }
+
+    @Test
+    void publishDiagnosticsAndCodeLenses() throws Exception {
+        send(1, "initialize", MAPPER.createObjectNode());
+        JsonNode initializeResult = fromServer.read();
+        assertThat(initializeResult.get("id").asInt()).isEqualTo(1);
+        assertThat(initializeResult.at("/result/capabilities/textDocumentSync/change").asInt()).isEqualTo(1);
+
+        ObjectNode openParams = MAPPER.createObjectNode();
+        openParams.putObject("textDocument").put("uri", URI).put("languageId", "java").put("version", 1)
+                .put("text", PERFUMED_SOURCE);
+        send(null, "textDocument/didOpen", openParams);
+
+        JsonNode diagnostics = fromServer.read();
+        assertThat(diagnostics.get("method").asText()).isEqualTo("textDocument/publishDiagnostics");
+        assertThat(diagnostics.at("/params/uri").asText()).isEqualTo(URI);
+        assertThat(diagnostics.at("/params/diagnostics")).isNotEmpty();
+
+        JsonNode patternMatching = null;
+        for (JsonNode diagnostic : diagnostics.at("/params/diagnostics")) {
+            if (diagnostic.get("code").asText().startsWith("Pattern matching")) {
+                patternMatching = diagnostic;
+            }
+        }
+        assertThat(patternMatching).isNotNull();
+        assertThat(patternMatching.get("source").asText()).isEqualTo(PerfumeLanguageServer.NAME);
+        assertThat(patternMatching.at("/range/start/line").asInt()).isEqualTo(4);
+
+        ObjectNode codeLensParams = MAPPER.createObjectNode();
+        codeLensParams.putObject("textDocument").put("uri", URI);
+        send(2, "textDocument/codeLens", codeLensParams);
+        JsonNode codeLenses = fromServer.read();
+        assertThat(codeLenses.get("id").asInt()).isEqualTo(2);
+        assertThat(codeLenses.get("result")).hasSize(diagnostics.at("/params/diagnostics").size());
+
+        // Edits within the debounce period are analysed once, in their last version
+        for (int version = 2; version <= 4; version++) {
+            ObjectNode changeParams = MAPPER.createObjectNode();
+            changeParams.putObject("textDocument").put("uri", URI).put("version", version);
+            changeParams.putArray("contentChanges").addObject()
+                    .put("text", version < 4 ? PERFUMED_SOURCE : PLAIN_SOURCE);
+            send(null, "textDocument/didChange", changeParams);
+        }
+
+        JsonNode changedDiagnostics = fromServer.read();
+        assertThat(changedDiagnostics.at("/params/diagnostics")).isEmpty();
+
+        send(3, "unknown/method", MAPPER.createObjectNode());
+        assertThat(fromServer.read().at("/error/code").asInt()).isEqualTo(-32601);
+
+        send(4, "shutdown", null);
+        assertThat(fromServer.read().get("id").asInt()).isEqualTo(4);
+        send(null, "exit", null);
+
+        assertThat(server.get()).isTrue();
+    }
+
+    @Test
+    void clientClosesTheConnectionBetweenMessages() throws Exception {
+        send(1, "initialize", MAPPER.createObjectNode());
+        assertThat(fromServer.read().get("id").asInt()).isEqualTo(1);
+
+        toServer.close();
+
+        // Not an error, but the client exited without a shutdown
+        assertThat(server.get()).isFalse();
+    }
+
+    @Test
+    void clientClosesTheConnectionWithinAMessage() {
+        assertThatThrownBy(() -> {
+            toServer.write("Content-Length: 42\r\n".getBytes(StandardCharsets.US_ASCII));
+            toServer.close();
+            server.get();
+        }).hasRootCauseInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void workspaceIsRefreshedWhenADocumentIsSaved(@TempDir Path workspace) throws Exception {
+        Path base = openChildOfBase(workspace, MAPPER.createObjectNode());
+
+        ObjectNode saveParams = MAPPER.createObjectNode();
+        saveParams.putObject("textDocument").put("uri", base.toUri().toString());
+        send(null, "textDocument/didSave", saveParams);
+
+        // The open document is analysed again, with the refreshed context
+        JsonNode diagnostics = fromServer.read();
+        assertThat(diagnostics.get("method").asText()).isEqualTo("textDocument/publishDiagnostics");
+        assertThat(diagnostics.at("/params/uri").asText()).isEqualTo(workspace.resolve(CHILD_PATH).toUri().toString());
+        assertThat(diagnostics.at("/params/diagnostics")).isNotEmpty();
+    }
+
+    @Test
+    void workspaceIsRefreshedWhenWatchedFilesChange(@TempDir Path workspace) throws Exception {
+        ObjectNode capabilities = MAPPER.createObjectNode();
+        capabilities.putObject("workspace").putObject("didChangeWatchedFiles").put("dynamicRegistration", true);
+        Path base = openChildOfBase(workspace, capabilities);
+
+        ObjectNode changeParams = MAPPER.createObjectNode();
+        changeParams.putArray("changes").addObject().put("uri", base.toUri().toString()).put("type", 2);
+        send(null, "workspace/didChangeWatchedFiles", changeParams);
+
+        JsonNode diagnostics = fromServer.read();
+        assertThat(diagnostics.at("/params/uri").asText()).isEqualTo(workspace.resolve(CHILD_PATH).toUri().toString());
+        assertThat(engine.getCachedContextCount()).isEqualTo(1);
+
+        // An added file discards the context, which is created again for the analysis of the open document
+        Path other = Files.writeString(base.resolveSibling("Other.java"), "package org.example;\n\nclass Other {\n}\n");
+        changeParams = MAPPER.createObjectNode();
+        changeParams.putArray("changes").addObject().put("uri", other.toUri().toString()).put("type", 1);
+        send(null, "workspace/didChangeWatchedFiles", changeParams);
+
+        diagnostics = fromServer.read();
+        assertThat(diagnostics.at("/params/uri").asText()).isEqualTo(workspace.resolve(CHILD_PATH).toUri().toString());
+        assertThat(diagnostics.at("/params/diagnostics")).isNotEmpty();
+        assertThat(engine.getCachedContextCount()).isEqualTo(1);
+    }
+
+    /**
+     * Initializes the server for a workspace with a child class and its base class, and opens the child class.
+     *
+     * @return The path of the base class.
+     */
+    private Path openChildOfBase(Path workspace, ObjectNode capabilities) throws Exception {
+        Path base = workspace.resolve(CHILD_PATH).resolveSibling("Base.java");
+        Files.createDirectories(base.getParent());
+        Files.writeString(base, BASE_SOURCE);
+        Files.writeString(workspace.resolve(CHILD_PATH), CHILD_SOURCE);
+
+        ObjectNode initializeParams = MAPPER.createObjectNode().put("rootUri", workspace.toUri().toString());
+        initializeParams.set("capabilities", capabilities);
+        send(1, "initialize", initializeParams);
+        assertThat(fromServer.read().get("id").asInt()).isEqualTo(1);
+
+        send(null, "initialized", MAPPER.createObjectNode());
+        if (capabilities.at("/workspace/didChangeWatchedFiles/dynamicRegistration").asBoolean()) {
+            JsonNode registration = fromServer.read();
+            assertThat(registration.get("method").asText()).isEqualTo("client/registerCapability");
+            assertThat(registration.at("/params/registrations/0/registerOptions/watchers")).isNotEmpty();
+
+            write(MAPPER.createObjectNode().put("jsonrpc", "2.0").set("id", registration.get("id")));
+        }
+
+        ObjectNode openParams = MAPPER.createObjectNode();
+        openParams.putObject("textDocument").put("uri", workspace.resolve(CHILD_PATH).toUri().toString())
+                .put("languageId", "java").put("version", 1).put("text", CHILD_SOURCE);
+        send(null, "textDocument/didOpen", openParams);
+        assertThat(fromServer.read().at("/params/diagnostics")).isNotEmpty();
+
+        return base;
+    }
+
+    private void send(Integer id, String method, JsonNode params) throws IOException {
+        ObjectNode message = MAPPER.createObjectNode().put("jsonrpc", "2.0").put("method", method);
+        if (id != null) {
+            message.put("id", id);
+        }
+        if (params != null) {
+            message.set("params", params);
+        }
+
+        write(message);
+    }
+
+    private void write(JsonNode message) throws IOException {
+        byte[] content = MAPPER.writeValueAsBytes(message);
+        toServer.write(("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        toServer.write(content);
+        toServer.flush();
+    }
+}
@@ -1,7 +1,11 @@
 package io.output;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import test.AbstractJsonOutputTest;
 import test.PerfumeTestUtil;
 
@@ -9,9 +13,11 @@ import de.jsilbereisen.perfumator.engine.registry.DetectableRegistry;
 import de.jsilbereisen.perfumator.io.output.OutputConfiguration;
 import de.jsilbereisen.perfumator.io.output.OutputGenerator;
 import de.jsilbereisen.perfumator.io.output.json.PerfumeJsonOutputGenerator;
+import de.jsilbereisen.perfumator.io.output.json.PerfumeJsonOutputMerger;
 import de.jsilbereisen.perfumator.model.DetectedInstance;
 import de.jsilbereisen.perfumator.model.StatisticsSummary;
 import de.jsilbereisen.perfumator.model.perfume.Perfume;
+import de.jsilbereisen.perfumator.util.JsonDeserializationUtil;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -161,6 +167,24 @@ class JsonOutputGeneratorTest extends AbstractJsonOutputTest {
         assertThat(deserialized).hasSize(140);
     }
 
+    @Test
+    void multipleHandleCallsIntoSingleListing() throws IOException {
+        OutputConfiguration config = OutputConfiguration.from(OUTPUT_TEST_RESULTS_RESOURCES_ROOT_DIR)
+                .setBatchSize(100);
+        OutputGenerator<Perfume> outputGenerator = new PerfumeJsonOutputGenerator(config, null);
+
+        outputGenerator.handle(new ArrayList<>(List.of(PerfumeTestUtil.singleExampleDetectedInstance())));
+        outputGenerator.handle(new ArrayList<>(List.of(PerfumeTestUtil.singleExampleDetectedInstance()
+                .setTypeName("Other"))));
+
+        List<Path> outputFiles = getDetectionsOutputPaths(LISTINGS_FILE_PATTERN);
+        assertThat(outputFiles).hasSize(1);
+        assertThat(outputFiles.get(0).toString()).endsWith("detections.json");
+        TypeReference<List<DetectedInstance<Perfume>>> typeRef = new TypeReference<>() {
+        };
+        assertThat(readList(typeRef, outputFiles.get(0))).hasSize(2);
+    }
+
     @Test
     void generateStatistics() throws IOException {
         OutputConfiguration config = OutputConfiguration.from(OUTPUT_TEST_RESULTS_RESOURCES_ROOT_DIR);
@@ -216,4 +240,56 @@ class JsonOutputGeneratorTest extends AbstractJsonOutputTest {
         assertThat(perf2Stats.getFilesWithDetection()).hasSize(2);
         assertThat(perf2Stats.getUniqueFilesWithDetection()).isEqualTo(2);
     }
+
+    @Test
+    void mergeOutputsOfMultipleAnalyses(@TempDir Path root) throws IOException {
+        Perfume perfume = PerfumeTestUtil.singleExamplePerfume();
+        DetectableRegistry<Perfume> registry = PerfumeTestUtil.mockedRegistryWithPerfumes(perfume);
+        Path firstOutput = Files.createDirectory(root.resolve("first"));
+        Path secondOutput = Files.createDirectory(root.resolve("second"));
+        Path mergedOutput = Files.createDirectory(root.resolve("merged"));
+
+        writeAnalysisOutput(firstOutput, registry, "First", 150);
+        writeAnalysisOutput(secondOutput, registry, "Second", 70);
+
+        OutputConfiguration config = OutputConfiguration.from(mergedOutput).setBatchSize(100);
+        new PerfumeJsonOutputMerger(config, registry).merge(List.of(firstOutput, secondOutput));
+
+        TypeReference<List<DetectedInstance<Perfume>>> typeRef = new TypeReference<>() {
+        };
+        assertThat(mergedOutput.resolve("detections.json")).doesNotExist();
+        assertThat(readList(typeRef, mergedOutput.resolve("detections_1.json"))).hasSize(100);
+        assertThat(readList(typeRef, mergedOutput.resolve("detections_2.json"))).hasSize(100);
+        assertThat(readList(typeRef, mergedOutput.resolve("detections_3.json"))).hasSize(20);
+
+        // Own mapper, as the shared one keeps the key deserializer of the registry it was used with first
+        SimpleModule module = new SimpleModule();
+        module.addKeyDeserializer(Perfume.class, new JsonDeserializationUtil.StatisticsSummaryDeserializer<>(registry));
+        JsonMapper mapper = new JsonMapper();
+        mapper.registerModule(module);
+
+        StatisticsSummary<Perfume> summary = JsonDeserializationUtil.readStatistics(mapper, new TypeReference<>() {
+        }, mergedOutput.resolve("summary.json"));
+        assertThat(summary.getTotalDetections()).isEqualTo(220);
+        assertThat(summary.getTotalAnalysedFiles()).isEqualTo(2);
+        assertThat(summary.getDetectableStatistics().get(perfume).getUniqueFilesWithDetection()).isEqualTo(2);
+    }
+
+    private static void writeAnalysisOutput(@NotNull Path outputDirectory, @NotNull DetectableRegistry<Perfume> registry,
+                                            @NotNull String sourceFile, int detections) throws IOException {
+        OutputConfiguration config = OutputConfiguration.from(outputDirectory).setBatchSize(100);
+        OutputGenerator<Perfume> outputGenerator = new PerfumeJsonOutputGenerator(config, null);
+
+        List<DetectedInstance<Perfume>> listed = new ArrayList<>();
+        for (int i = 0; i < detections; i++) {
+            listed.add(PerfumeTestUtil.singleExampleDetectedInstance().setTypeName(sourceFile + i)
+                    .setSourceFile(Path.of(sourceFile + ".java").toAbsolutePath()));
+        }
+
+        StatisticsSummary<Perfume> summary = StatisticsSummary.from(registry);
+        summary.addToStatistics(listed);
+
+        outputGenerator.handle(listed);
+        outputGenerator.complete(summary);
+    }
 }
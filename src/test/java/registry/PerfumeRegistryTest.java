@@ -5,6 +5,7 @@ import test.dummy.DummyDetector;
 
 import de.jsilbereisen.perfumator.engine.detector.Detector;
 import de.jsilbereisen.perfumator.engine.registry.PerfumeRegistry;
+import de.jsilbereisen.perfumator.engine.registry.PerfumeSelection;
 import de.jsilbereisen.perfumator.model.DetectableComparator;
 import de.jsilbereisen.perfumator.model.perfume.Perfume;
 import de.jsilbereisen.perfumator.model.perfume.RelatedPattern;
@@ -66,4 +67,73 @@ class PerfumeRegistryTest {
         Detector<Perfume> dummyDetector = registeredDetectors.stream().findFirst().orElse(null);
         assertThat(dummyDetector).isInstanceOf(DummyDetector.class);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that Perfumes which are not part of the registry's {@link PerfumeSelection} are not loaded.
+     */
+    @Test
+    void loadSelectedPerfumes() {
+        PerfumeRegistry perfumeRegistry = new PerfumeRegistry("perfumes", "test.dummy",
+                "i18n", "registry_test");
+        perfumeRegistry.setSelection(PerfumeSelection.all().include("perfume a"));
+
+        perfumeRegistry.loadRegistry(Locale.ENGLISH);
+
+        assertThat(perfumeRegistry.getRegisteredDetectables()).extracting(Perfume::getName)
+                .containsExactly("Perfume A");
+
+        perfumeRegistry = new PerfumeRegistry("perfumes", "test.dummy", "i18n", "registry_test");
+        perfumeRegistry.setSelection(PerfumeSelection.all().include(RelatedPattern.BUG).exclude("Perfume A"));
+
+        perfumeRegistry.loadRegistry(Locale.ENGLISH);
+
+        assertThat(perfumeRegistry.getRegisteredDetectables()).extracting(Perfume::getName)
+                .containsExactly("Perfume B");
+
+        perfumeRegistry = new PerfumeRegistry("perfumes", "test.dummy", "i18n", "registry_test");
+        perfumeRegistry.setSelection(PerfumeSelection.all().excludeDetectors(DummyDetector.class));
+
+        perfumeRegistry.loadRegistry(Locale.ENGLISH);
+
+        assertThat(perfumeRegistry.getRegisteredDetectables()).isEmpty();
+        assertThat(perfumeRegistry.getRegisteredDetectors()).isEmpty();
+    }
+
+    /**
+     * Test that internationalized Perfumes are also selected by the name of their definition.
+     */
+    @Test
+    void selectInternationalizedPerfumesByTheirDefaultName() {
+        for (String selector : List.of("Perfume B", "parfuem b")) {
+            PerfumeRegistry perfumeRegistry = new PerfumeRegistry("perfumes", "test.dummy",
+                    "i18n", "registry_test");
+            perfumeRegistry.setSelection(PerfumeSelection.all().include(selector));
+
+            perfumeRegistry.loadRegistry(Locale.GERMAN);
+
+            assertThat(perfumeRegistry.getRegisteredDetectables()).singleElement().satisfies(perfume -> {
+                assertThat(perfume.getName()).isEqualTo("Parfuem B");
+                assertThat(perfume.getDefaultName()).isEqualTo("Perfume B");
+            });
+        }
+    }
+
+    /**
+     * Test that a copy of a registry has the same Perfumes, but detectors of its own.
+     */
+    @Test
+    void copyHasOwnDetectors() {
+        PerfumeRegistry perfumeRegistry = new PerfumeRegistry("perfumes", "test.dummy",
+                "i18n", "registry_test");
+        perfumeRegistry.setSelection(PerfumeSelection.all().include("perfume a"));
+        perfumeRegistry.loadRegistry(Locale.ENGLISH);
+
+        PerfumeRegistry copy = perfumeRegistry.copy();
+
+        assertThat(copy.getSelection()).isEqualTo(perfumeRegistry.getSelection());
+        assertThat(copy.getRegisteredDetectables()).isEqualTo(perfumeRegistry.getRegisteredDetectables());
+        for (Perfume perfume : copy.getRegisteredDetectables()) {
+            assertThat(copy.getDetector(perfume)).isNotNull().isNotSameAs(perfumeRegistry.getDetector(perfume));
+        }
+    }
+}
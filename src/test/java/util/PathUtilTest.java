@@ -0,0 +1,47 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.jsilbereisen.perfumator.util.PathUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for utility methods for {@link Path}s.
+ */
+class PathUtilTest {
+
+    @Test
+    void walkInOrder(@TempDir Path root) throws IOException {
+        for (String file : List.of("b/B.java", "a/z/Z.java", "a/A.java", "C.java")) {
+            Path path = root.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.createFile(path);
+        }
+
+        List<Path> walked;
+        try (Stream<Path> walk = PathUtil.walkInOrder(root)) {
+            walked = walk.toList();
+        }
+
+        assertThat(walked).containsExactly(root, root.resolve("C.java"), root.resolve("a"),
+                root.resolve("a/A.java"), root.resolve("a/z"), root.resolve("a/z/Z.java"), root.resolve("b"),
+                root.resolve("b/B.java"));
+    }
+
+    @Test
+    void walkInOrderOfSingleFile(@TempDir Path root) throws IOException {
+        Path file = Files.createFile(root.resolve("A.java"));
+
+        try (Stream<Path> walk = PathUtil.walkInOrder(file)) {
+            assertThat(walk).containsExactly(file);
+        }
+    }
+}